@@ -183,11 +183,14 @@ public class AdminController {
   @PutMapping("/users/{id}")
   Map<String, Object> updateUser(@PathVariable Long id, @RequestBody UserUpsertReq req) {
     UserEntity u = users.findById(id).orElseThrow();
+    String previousUsername = u.username;
     u.username = req.username();
     if (req.password() != null && !req.password().isBlank()) u.passwordHash = encoder.encode(req.password());
     u.role = Role.valueOf(req.role());
     u.active = req.active() == null || req.active();
     users.save(u);
+    credentialService.invalidateAgentPass(previousUsername);
+    credentialService.invalidateAgentPass(u.username);
     return Map.of("ok", true);
   }
 
@@ -2,13 +2,17 @@ package com.telco3.agentui.admin;
 
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -16,9 +20,11 @@ import java.util.Map;
 @RequestMapping("/api/admin/vicidial")
 public class VicidialRealtimeAdminController {
   private final VicidialRealtimeAdminService realtimeService;
+  private final VicidialRealtimeStreamService streamService;
 
-  public VicidialRealtimeAdminController(VicidialRealtimeAdminService realtimeService) {
+  public VicidialRealtimeAdminController(VicidialRealtimeAdminService realtimeService, VicidialRealtimeStreamService streamService) {
     this.realtimeService = realtimeService;
+    this.streamService = streamService;
   }
 
   @GetMapping("/realtime/summary")
@@ -26,14 +32,44 @@ public class VicidialRealtimeAdminController {
     return realtimeService.summary();
   }
 
+  /**
+   * Full roster, or with {@code since=<version>} only the agents added, changed or removed after that snapshot version.
+   * Answers 304 with the current version as ETag when nothing the caller can see has changed.
+   */
   @GetMapping("/realtime/agents")
-  public VicidialRealtimeAdminService.RealtimeAgentsResponse agents(
+  public ResponseEntity<?> agents(
+      @RequestParam(required = false) String campaign,
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String pauseCode,
+      @RequestParam(required = false) String search,
+      @RequestParam(required = false) Long since,
+      @RequestHeader(name = "If-None-Match", required = false) String ifNoneMatch
+  ) {
+    if (since == null) {
+      var response = realtimeService.agents(campaign, status, pauseCode, search);
+      String etag = versionTag(response.version());
+      if (etag.equals(ifNoneMatch)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+      return ResponseEntity.ok().eTag(etag).body(response);
+    }
+    var delta = realtimeService.agentsDelta(since, campaign, status, pauseCode, search);
+    String etag = versionTag(delta.version());
+    if (!delta.full() && delta.upserts().isEmpty() && delta.removed().isEmpty()) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    return ResponseEntity.ok().eTag(etag).body(delta);
+  }
+
+  @GetMapping(path = "/realtime/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(
+      @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
       @RequestParam(required = false) String campaign,
       @RequestParam(required = false) String status,
       @RequestParam(required = false) String pauseCode,
       @RequestParam(required = false) String search
   ) {
-    return realtimeService.agents(campaign, status, pauseCode, search);
+    return streamService.subscribe(lastEventId, campaign, status, pauseCode, search);
   }
 
   @GetMapping("/realtime/pause-codes")
@@ -55,6 +91,10 @@ public class VicidialRealtimeAdminController {
     );
   }
 
+  private String versionTag(long version) {
+    return "\"" + version + "\"";
+  }
+
   public record LeadsImportRequest(
       @NotBlank String campaignId,
       @NotBlank String listId,
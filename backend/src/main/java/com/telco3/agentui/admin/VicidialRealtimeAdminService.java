@@ -1,8 +1,8 @@
 package com.telco3.agentui.admin;
 
 import com.telco3.agentui.vicidial.VicidialRealtimeQueryService;
+import com.telco3.agentui.vicidial.VicidialRealtimeSnapshotEngine;
 import com.telco3.agentui.vicidial.VicidialRealtimeStatusMapper;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -20,28 +20,32 @@ import java.util.Objects;
 @Service
 public class VicidialRealtimeAdminService {
   private final VicidialRealtimeQueryService queryService;
+  private final VicidialRealtimeSnapshotEngine snapshotEngine;
   private final VicidialRealtimeStatusMapper statusMapper;
-  private final int serviceLevelThresholdSec;
 
   public VicidialRealtimeAdminService(
       VicidialRealtimeQueryService queryService,
-      VicidialRealtimeStatusMapper statusMapper,
-      @Value("${app.vicidial.realtime.service-level-threshold-seconds:20}") int serviceLevelThresholdSec
+      VicidialRealtimeSnapshotEngine snapshotEngine,
+      VicidialRealtimeStatusMapper statusMapper
   ) {
     this.queryService = queryService;
+    this.snapshotEngine = snapshotEngine;
     this.statusMapper = statusMapper;
-    this.serviceLevelThresholdSec = serviceLevelThresholdSec;
   }
 
   public RealtimeSummaryResponse summary() {
+    return summary(snapshotEngine.current());
+  }
+
+  RealtimeSummaryResponse summary(VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot) {
     OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
-    List<RealtimeAgentItem> agentItems = buildAgentItems(null, null, null, null, now);
+    List<RealtimeAgentItem> agentItems = buildAgentItems(snapshot, null, null, null, null, now);
     long connectedAgents = agentItems.size();
     long availableAgents = countByVisibleStatus(agentItems, "Disponible");
     long incallAgents = countByVisibleStatus(agentItems, "En llamada");
     long pausedAgents = countByVicidialStatus(agentItems, "PAUSED");
     long wrapupAgents = countByVisibleStatus(agentItems, "WrapUp");
-    var metrics = queryService.fetchTodayMetrics(serviceLevelThresholdSec);
+    var metrics = snapshot.metrics();
 
     return new RealtimeSummaryResponse(
         connectedAgents,
@@ -54,14 +58,55 @@ public class VicidialRealtimeAdminService {
         metrics.serviceLevelPercent(),
         metrics.averageWaitSeconds(),
         metrics.averageTalkSeconds(),
-        now
+        snapshot.capturedAt()
     );
   }
 
   public RealtimeAgentsResponse agents(String campaign, String status, String pauseCode, String search) {
-    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
-    List<RealtimeAgentItem> items = buildAgentItems(campaign, status, pauseCode, search, now);
-    return new RealtimeAgentsResponse(items, items.size(), now);
+    var snapshot = snapshotEngine.current();
+    List<RealtimeAgentItem> items = buildAgentItems(snapshot, campaign, status, pauseCode, search, snapshot.capturedAt());
+    return new RealtimeAgentsResponse(items, items.size(), snapshot.capturedAt(), snapshot.version());
+  }
+
+  /**
+   * Agent rows that changed between {@code sinceVersion} and the current snapshot, with the same filters as
+   * {@link #agents}. Falls back to the full list when {@code sinceVersion} is unknown or no longer retained.
+   */
+  public RealtimeAgentsDelta agentsDelta(Long sinceVersion, String campaign, String status, String pauseCode, String search) {
+    return agentsDelta(snapshotEngine.current(), sinceVersion, campaign, status, pauseCode, search);
+  }
+
+  RealtimeAgentsDelta agentsDelta(
+      VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot,
+      Long sinceVersion,
+      String campaign,
+      String status,
+      String pauseCode,
+      String search
+  ) {
+    OffsetDateTime capturedAt = snapshot.capturedAt();
+    List<RealtimeAgentItem> current = buildAgentItems(snapshot, campaign, status, pauseCode, search, capturedAt);
+    var base = sinceVersion == null ? null : snapshotEngine.snapshotAt(sinceVersion).orElse(null);
+    if (base == null || base.version() > snapshot.version()) {
+      return new RealtimeAgentsDelta(snapshot.version(), null, true, current, List.of(), current.size(), snapshot.capturedAt());
+    }
+    if (base.version() == snapshot.version()) {
+      return new RealtimeAgentsDelta(snapshot.version(), base.version(), false, List.of(), List.of(), current.size(), snapshot.capturedAt());
+    }
+    // Both sides are measured at the same instant so rows whose only difference is elapsed state time compare equal;
+    // clients keep such rows and advance their time in state from stateSince.
+    Map<String, RealtimeAgentItem> previous = new LinkedHashMap<>();
+    for (RealtimeAgentItem item : buildAgentItems(base, campaign, status, pauseCode, search, capturedAt)) {
+      previous.put(item.agentUser(), item);
+    }
+    List<RealtimeAgentItem> upserts = new ArrayList<>();
+    for (RealtimeAgentItem item : current) {
+      if (!item.equals(previous.remove(item.agentUser()))) {
+        upserts.add(item);
+      }
+    }
+    List<String> removed = List.copyOf(previous.keySet());
+    return new RealtimeAgentsDelta(snapshot.version(), base.version(), false, upserts, removed, current.size(), snapshot.capturedAt());
   }
 
   public PauseCodesResponse pauseCodes() {
@@ -108,28 +153,41 @@ public class VicidialRealtimeAdminService {
   }
 
   private List<RealtimeAgentItem> buildAgentItems(
+      VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot,
       String campaign,
       String status,
       String pauseCode,
       String search,
-      OffsetDateTime now
+      OffsetDateTime measuredAt
   ) {
-    Map<String, Long> completedByAgent = queryService.fetchCompletedTodayByAgent();
+    Map<String, Long> completedByAgent = snapshot.completedByAgent();
+    String campaignFilter = StringUtils.hasText(campaign) ? campaign.trim() : null;
+    String pauseCodeFilter = StringUtils.hasText(pauseCode) ? normalizeToken(pauseCode) : null;
+    String searchFilter = StringUtils.hasText(search) ? search.trim().toLowerCase(Locale.ROOT) : null;
     List<RealtimeAgentItem> rows = new ArrayList<>();
-    for (var row : queryService.fetchLiveAgents(campaign, pauseCode, search)) {
+    for (var row : snapshot.agents()) {
       String agentUser = Objects.toString(row.agentUser(), "").trim();
       if (!StringUtils.hasText(agentUser)) {
         continue;
       }
+      if (campaignFilter != null && !campaignFilter.equalsIgnoreCase(Objects.toString(row.campaignId(), "").trim())) {
+        continue;
+      }
       String technicalStatus = normalizeToken(row.vicidialStatus());
       String normalizedPauseCode = normalizeToken(row.pauseCode());
+      if (pauseCodeFilter != null && !pauseCodeFilter.equals(normalizedPauseCode)) {
+        continue;
+      }
+      if (searchFilter != null && !matchesSearch(row, searchFilter)) {
+        continue;
+      }
       var statusView = statusMapper.map(technicalStatus, normalizedPauseCode);
       if (!statusMapper.matchesStatusFilter(status, technicalStatus, statusView.visibleStatus())) {
         continue;
       }
       String agentName = firstNonBlank(row.agentName(), agentUser);
       String currentPhone = firstNonBlank(row.currentPhone(), null);
-      long stateSeconds = toStateSeconds(row.stateReferenceTime(), now);
+      long stateSeconds = toStateSeconds(row.stateReferenceTime(), measuredAt);
       String connectedTo = resolveConnectedTo(statusView.visibleStatus(), currentPhone, row.channel(), row.confExten());
       rows.add(new RealtimeAgentItem(
           agentUser,
@@ -143,6 +201,7 @@ public class VicidialRealtimeAdminService {
           currentPhone,
           connectedTo,
           stateSeconds,
+          row.stateReferenceTime(),
           row.lastCallTime(),
           completedByAgent.getOrDefault(agentUser, 0L)
       ));
@@ -153,6 +212,15 @@ public class VicidialRealtimeAdminService {
     return rows;
   }
 
+  private boolean matchesSearch(VicidialRealtimeQueryService.RealtimeAgentRow row, String needle) {
+    for (String value : new String[]{row.agentUser(), row.agentName(), row.extension(), row.campaignId(), row.currentPhone()}) {
+      if (value != null && value.toLowerCase(Locale.ROOT).contains(needle)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private long countByVisibleStatus(List<RealtimeAgentItem> items, String visibleStatus) {
     return items.stream()
         .filter(item -> Objects.equals(item.visibleStatus(), visibleStatus))
@@ -242,9 +310,13 @@ public class VicidialRealtimeAdminService {
   ) {
   }
 
-  public record RealtimeAgentsResponse(List<RealtimeAgentItem> items, long total, OffsetDateTime generatedAt) {
+  public record RealtimeAgentsResponse(List<RealtimeAgentItem> items, long total, OffsetDateTime generatedAt, long version) {
   }
 
+  /**
+   * {@code stateSeconds} is the time in state at {@code generatedAt} of the response that carried the row; rows are
+   * not resent while only that time grows, so clients advance it from {@code stateSince} between updates.
+   */
   public record RealtimeAgentItem(
       String agentUser,
       String agentName,
@@ -257,11 +329,27 @@ public class VicidialRealtimeAdminService {
       String currentPhone,
       String connectedTo,
       long stateSeconds,
+      OffsetDateTime stateSince,
       OffsetDateTime lastCallTime,
       long completedToday
   ) {
   }
 
+  /**
+   * {@code full=true} means {@code upserts} is the complete list and clients must replace what they hold;
+   * otherwise apply {@code upserts} and {@code removed} on top of {@code baseVersion}.
+   */
+  public record RealtimeAgentsDelta(
+      long version,
+      Long baseVersion,
+      boolean full,
+      List<RealtimeAgentItem> upserts,
+      List<String> removed,
+      long total,
+      OffsetDateTime generatedAt
+  ) {
+  }
+
   public record PauseCodesResponse(List<PauseCodeItem> items, OffsetDateTime generatedAt) {
   }
 
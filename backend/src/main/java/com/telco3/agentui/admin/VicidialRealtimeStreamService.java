@@ -0,0 +1,179 @@
+package com.telco3.agentui.admin;
+
+import com.telco3.agentui.vicidial.VicidialRealtimeSnapshotEngine;
+import com.telco3.agentui.vicidial.VicidialServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SSE fan-out of the realtime snapshot. Each subscriber gets a {@code summary} and an {@code agents} delta whenever
+ * the snapshot version changes; the {@code agents} event id is the snapshot version, so a reconnect with
+ * {@code Last-Event-ID} resumes with only the rows that changed meanwhile. Rows whose only change is time in state
+ * are not pushed; clients advance it from {@code stateSince}. All writes happen on one dispatcher thread.
+ */
+@Service
+public class VicidialRealtimeStreamService {
+  private static final Logger log = LoggerFactory.getLogger(VicidialRealtimeStreamService.class);
+
+  private final VicidialRealtimeSnapshotEngine snapshotEngine;
+  private final VicidialRealtimeAdminService adminService;
+  private final long emitterTimeoutMs;
+  private final long heartbeatMs;
+  private final long retryMs;
+  private final int maxSubscribers;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService dispatcher;
+  private final Consumer<VicidialRealtimeSnapshotEngine.RealtimeSnapshot> snapshotListener = this::onSnapshot;
+
+  public VicidialRealtimeStreamService(
+      VicidialRealtimeSnapshotEngine snapshotEngine,
+      VicidialRealtimeAdminService adminService,
+      @Value("${app.vicidial.realtime.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+      @Value("${app.vicidial.realtime.stream.heartbeat-ms:15000}") long heartbeatMs,
+      @Value("${app.vicidial.realtime.stream.retry-ms:3000}") long retryMs,
+      @Value("${app.vicidial.realtime.stream.max-subscribers:100}") int maxSubscribers
+  ) {
+    this.snapshotEngine = snapshotEngine;
+    this.adminService = adminService;
+    this.emitterTimeoutMs = emitterTimeoutMs;
+    this.heartbeatMs = Math.max(heartbeatMs, 1000);
+    this.retryMs = retryMs;
+    this.maxSubscribers = maxSubscribers;
+    this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "vicidial-realtime-stream");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PostConstruct
+  void start() {
+    dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    snapshotEngine.addListener(snapshotListener);
+  }
+
+  public SseEmitter subscribe(String lastEventId, String campaign, String status, String pauseCode, String search) {
+    if (subscribers.size() >= maxSubscribers) {
+      throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "REALTIME_STREAM_BUSY",
+          "Se alcanzó el máximo de conexiones realtime abiertas.",
+          "Use /api/admin/vicidial/realtime/summary y /realtime/agents mientras tanto.", null);
+    }
+    var snapshot = snapshotEngine.current();
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+    Subscriber subscriber = new Subscriber(emitter, new Filters(campaign, status, pauseCode, search), parseVersion(lastEventId));
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(ex -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    dispatcher.execute(() -> push(subscriber, snapshot, true));
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    snapshotEngine.removeListener(snapshotListener);
+    dispatcher.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter().complete());
+    subscribers.clear();
+  }
+
+  private void onSnapshot(VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot) {
+    if (!subscribers.isEmpty()) {
+      dispatcher.execute(() -> subscribers.forEach(subscriber -> push(subscriber, snapshot, false)));
+    }
+  }
+
+  private void push(Subscriber subscriber, VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot, boolean initial) {
+    Long sentVersion = subscriber.sentVersion;
+    if (!initial && sentVersion != null && snapshot.version() <= sentVersion) {
+      return;
+    }
+    Filters filters = subscriber.filters();
+    var delta = adminService.agentsDelta(snapshot, sentVersion, filters.campaign(), filters.status(), filters.pauseCode(), filters.search());
+    try {
+      SseEmitter.SseEventBuilder summary = SseEmitter.event().name("summary").data(adminService.summary(snapshot));
+      if (initial) {
+        summary.reconnectTime(retryMs);
+      }
+      subscriber.emitter().send(summary);
+      subscriber.emitter().send(SseEmitter.event().id(Long.toString(delta.version())).name("agents").data(delta));
+      subscriber.sentVersion = delta.version();
+    } catch (IOException | IllegalStateException ex) {
+      drop(subscriber, ex);
+    }
+  }
+
+  private void heartbeat() {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    snapshotEngine.keepAlive();
+    for (Subscriber subscriber : subscribers) {
+      try {
+        subscriber.emitter().send(SseEmitter.event().comment("heartbeat"));
+      } catch (IOException | IllegalStateException ex) {
+        drop(subscriber, ex);
+      }
+    }
+  }
+
+  private void drop(Subscriber subscriber, Exception ex) {
+    if (subscribers.remove(subscriber)) {
+      log.debug("Realtime stream subscriber dropped cause={}", ex.getClass().getSimpleName());
+      subscriber.emitter().complete();
+    }
+  }
+
+  private Long parseVersion(String lastEventId) {
+    if (!StringUtils.hasText(lastEventId)) {
+      return null;
+    }
+    try {
+      return Long.parseLong(lastEventId.trim());
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private record Filters(String campaign, String status, String pauseCode, String search) {
+  }
+
+  private static final class Subscriber {
+    private final SseEmitter emitter;
+    private final Filters filters;
+    private volatile Long sentVersion;
+
+    private Subscriber(SseEmitter emitter, Filters filters, Long sentVersion) {
+      this.emitter = emitter;
+      this.filters = filters;
+      this.sentVersion = sentVersion;
+    }
+
+    SseEmitter emitter() {
+      return emitter;
+    }
+
+    Filters filters() {
+      return filters;
+    }
+  }
+}
@@ -0,0 +1,316 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-agent cache of the Vicidial call state behind {@code /api/agent/active-lead} and {@code /api/agent/context}.
+ * Each agent read in the last {@code idle-after-ms} is refreshed in the background once per cadence: fast while
+ * dialing or in call, slow while paused or waiting for re-login. Reads are served from memory, so Vicidial traffic
+ * grows with connected agents rather than with endpoints and open tabs. Actions that change the call state call
+ * {@link #invalidate} so the next read goes to Vicidial. After a failed refresh the background tick waits one cadence,
+ * doubling with each consecutive failure up to {@value #MAX_BACKOFF_SHIFT} doublings, before trying the agent again.
+ */
+@Component
+public class AgentCallStateTracker {
+  private static final Logger log = LoggerFactory.getLogger(AgentCallStateTracker.class);
+  static final int MAX_BACKOFF_SHIFT = 4;
+
+  private final VicidialService vicidialService;
+  private final VicidialAsyncClient vicidialAsync;
+  private final AgentSessionGuardService sessionGuardService;
+  private final long fastIntervalNanos;
+  private final long defaultIntervalNanos;
+  private final long slowIntervalNanos;
+  private final long idleAfterNanos;
+  private final long tickMs;
+  private final LongSupplier nanoClock;
+
+  private final Map<String, TrackedAgent> agents = new ConcurrentHashMap<>();
+  private final List<CallStateListener> listeners = new CopyOnWriteArrayList<>();
+  private final ReentrantLock schedulerLock = new ReentrantLock();
+  private volatile ScheduledExecutorService scheduler;
+
+  @Autowired
+  public AgentCallStateTracker(
+      VicidialService vicidialService,
+      VicidialAsyncClient vicidialAsync,
+      AgentSessionGuardService sessionGuardService,
+      @Value("${app.vicidial.call-state.fast-interval-ms:1000}") long fastIntervalMs,
+      @Value("${app.vicidial.call-state.default-interval-ms:2500}") long defaultIntervalMs,
+      @Value("${app.vicidial.call-state.slow-interval-ms:6000}") long slowIntervalMs,
+      @Value("${app.vicidial.call-state.idle-after-ms:30000}") long idleAfterMs,
+      @Value("${app.vicidial.call-state.tick-ms:250}") long tickMs
+  ) {
+    this(vicidialService, vicidialAsync, sessionGuardService, fastIntervalMs, defaultIntervalMs, slowIntervalMs, idleAfterMs, tickMs, System::nanoTime);
+  }
+
+  AgentCallStateTracker(
+      VicidialService vicidialService,
+      VicidialAsyncClient vicidialAsync,
+      AgentSessionGuardService sessionGuardService,
+      long fastIntervalMs,
+      long defaultIntervalMs,
+      long slowIntervalMs,
+      long idleAfterMs,
+      long tickMs,
+      LongSupplier nanoClock
+  ) {
+    this.vicidialService = vicidialService;
+    this.vicidialAsync = vicidialAsync;
+    this.sessionGuardService = sessionGuardService;
+    this.fastIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(100, fastIntervalMs));
+    this.defaultIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(100, defaultIntervalMs));
+    this.slowIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(100, slowIntervalMs));
+    this.idleAfterNanos = TimeUnit.MILLISECONDS.toNanos(idleAfterMs);
+    this.tickMs = Math.max(50, tickMs);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Latest call state of the agent. Served from memory while younger than twice its cadence; otherwise refreshed,
+   * sharing the refresh already in flight for the agent if there is one.
+   */
+  public CompletableFuture<CallState> current(String agentUser, AgentVicidialCredentialEntity session) {
+    ensureScheduler();
+    long now = nanoClock.getAsLong();
+    TrackedAgent agent = agents.computeIfAbsent(agentUser, key -> new TrackedAgent());
+    agent.lastReadNanos = now;
+    CallState state = agent.state;
+    if (state != null && !agent.stale && now - state.capturedAtNanos() < 2 * state.cadenceNanos()) {
+      return CompletableFuture.completedFuture(state);
+    }
+    return refresh(agentUser, agent, session);
+  }
+
+  /** Keeps the agent tracked without a read, starting tracking if needed; used by push subscribers. */
+  public void keepAlive(String agentUser) {
+    ensureScheduler();
+    agents.computeIfAbsent(agentUser, key -> new TrackedAgent()).lastReadNanos = nanoClock.getAsLong();
+  }
+
+  /** Registers a listener called after a refresh whose call state differs from the previous one. */
+  public void addListener(CallStateListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(CallStateListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Marks the cached state as outdated after an action (dial, hangup, pause, disposition) so the next read refreshes. */
+  public void invalidate(String agentUser) {
+    TrackedAgent agent = agents.get(agentUser);
+    if (agent != null) {
+      agent.stale = true;
+    }
+  }
+
+  /** Stops tracking the agent, e.g. on logout or phone disconnect. */
+  public void forget(String agentUser) {
+    agents.remove(agentUser);
+  }
+
+  int trackedAgents() {
+    return agents.size();
+  }
+
+  void tick() {
+    long now = nanoClock.getAsLong();
+    agents.forEach((agentUser, agent) -> {
+      if (now - agent.lastReadNanos > idleAfterNanos) {
+        agents.remove(agentUser, agent);
+        return;
+      }
+      if (agent.inFlight != null) {
+        return;
+      }
+      CallState state = agent.state;
+      if (agent.stale) {
+        refresh(agentUser, agent, null);
+      } else if (agent.failures > 0) {
+        if (now - agent.failedAtNanos >= retryDelayNanos(state, agent.failures)) {
+          refresh(agentUser, agent, null);
+        }
+      } else if (state == null || now - state.capturedAtNanos() >= state.cadenceNanos()) {
+        refresh(agentUser, agent, null);
+      }
+    });
+  }
+
+  long retryDelayNanos(CallState state, int failures) {
+    long cadence = state == null ? defaultIntervalNanos : state.cadenceNanos();
+    return cadence << Math.min(failures - 1, MAX_BACKOFF_SHIFT);
+  }
+
+  private CompletableFuture<CallState> refresh(String agentUser, TrackedAgent agent, AgentVicidialCredentialEntity session) {
+    agent.lock.lock();
+    try {
+      if (agent.inFlight != null) {
+        return agent.inFlight;
+      }
+      agent.stale = false;
+      CompletableFuture<CallState> future = vicidialAsync.supply(() -> resolve(agentUser, session));
+      agent.inFlight = future;
+      future.whenComplete((state, error) -> {
+        CallState previous;
+        agent.lock.lock();
+        try {
+          previous = agent.state;
+          if (state != null) {
+            agent.state = state;
+            agent.failures = 0;
+          } else {
+            agent.failures++;
+            agent.failedAtNanos = nanoClock.getAsLong();
+            log.debug("Agent call state refresh failed agent={} cause={}", agentUser, error.getClass().getSimpleName());
+          }
+          agent.inFlight = null;
+        } finally {
+          agent.lock.unlock();
+        }
+        if (state != null && (previous == null || !previous.sameCallAs(state))) {
+          notifyListeners(agentUser, previous, state);
+        }
+      });
+      return future;
+    } finally {
+      agent.lock.unlock();
+    }
+  }
+
+  /** Background refreshes reload the session so dial runtime updated by other requests is used as hints. */
+  private CallState resolve(String agentUser, AgentVicidialCredentialEntity readSession) {
+    AgentVicidialCredentialEntity session = readSession;
+    if (session == null) {
+      try {
+        session = sessionGuardService.requireConnectedSession(agentUser);
+      } catch (RuntimeException ex) {
+        forget(agentUser);
+        throw ex;
+      }
+    }
+    var snapshot = vicidialService.resolveRealtimeCallSnapshot(
+        agentUser,
+        session,
+        session.currentCallId,
+        session.currentLeadId,
+        null,
+        session.connectedCampaign,
+        true
+    );
+    var activeLead = vicidialService.classifyActiveLead(agentUser, session, snapshot);
+    return new CallState(snapshot, activeLead, nanoClock.getAsLong(), cadenceFor(snapshot, activeLead));
+  }
+
+  private void notifyListeners(String agentUser, CallState previous, CallState current) {
+    for (CallStateListener listener : listeners) {
+      try {
+        listener.onChange(agentUser, previous, current);
+      } catch (RuntimeException ex) {
+        log.warn("Agent call state listener failed cause={}", ex.getClass().getSimpleName());
+      }
+    }
+  }
+
+  private long cadenceFor(VicidialService.RealtimeCallSnapshot snapshot, VicidialService.ActiveLeadState activeLead) {
+    if (activeLead.reloginRequired() || "AGENT_PAUSED".equals(activeLead.classification())) {
+      return slowIntervalNanos;
+    }
+    if (activeLead.dialing() || activeLead.hasLead() || "INCALL".equalsIgnoreCase(Objects.toString(snapshot.agentStatus(), ""))) {
+      return fastIntervalNanos;
+    }
+    return defaultIntervalNanos;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    ScheduledExecutorService current = scheduler;
+    scheduler = null;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+
+  private void ensureScheduler() {
+    if (scheduler != null) {
+      return;
+    }
+    schedulerLock.lock();
+    try {
+      if (scheduler == null) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "agent-call-state-tracker");
+          thread.setDaemon(true);
+          return thread;
+        });
+        executor.scheduleWithFixedDelay(this::safeTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+      }
+    } finally {
+      schedulerLock.unlock();
+    }
+  }
+
+  private void safeTick() {
+    try {
+      tick();
+    } catch (RuntimeException ex) {
+      log.warn("Agent call state tick failed cause={}", ex.getClass().getSimpleName());
+    }
+  }
+
+  /** Call state captured for one agent; {@code cadenceNanos} is how often it is refreshed while the agent is read. */
+  public record CallState(
+      VicidialService.RealtimeCallSnapshot snapshot,
+      VicidialService.ActiveLeadState activeLead,
+      long capturedAtNanos,
+      long cadenceNanos
+  ) {
+    /** Same classification, agent status, call, lead and re-login flag; capture time and raw details are ignored. */
+    boolean sameCallAs(CallState other) {
+      return Objects.equals(snapshot.classification(), other.snapshot.classification())
+          && Objects.equals(snapshot.agentStatus(), other.snapshot.agentStatus())
+          && Objects.equals(snapshot.callId(), other.snapshot.callId())
+          && Objects.equals(snapshot.leadId(), other.snapshot.leadId())
+          && snapshot.reloginRequired() == other.snapshot.reloginRequired()
+          && activeLead.dialing() == other.activeLead.dialing()
+          && activeLead.hasLead() == other.activeLead.hasLead();
+    }
+  }
+
+  @FunctionalInterface
+  public interface CallStateListener {
+    /** {@code previous} is {@code null} for the first state captured for the agent. */
+    void onChange(String agentUser, CallState previous, CallState current);
+  }
+
+  private static final class TrackedAgent {
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile CallState state;
+    private volatile CompletableFuture<CallState> inFlight;
+    private volatile boolean stale;
+    private volatile long lastReadNanos;
+    private volatile int failures;
+    private volatile long failedAtNanos;
+  }
+}
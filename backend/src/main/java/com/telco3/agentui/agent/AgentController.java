@@ -8,6 +8,7 @@ import com.telco3.agentui.legacy.InteractionEntity;
 import com.telco3.agentui.legacy.InteractionRepository;
 import com.telco3.agentui.legacy.SyncStatus;
 import com.telco3.agentui.manual2.Manual2Service;
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
 import com.telco3.agentui.vicidial.VicidialClient;
 import com.telco3.agentui.vicidial.VicidialDialRequestBuilder;
 import com.telco3.agentui.vicidial.VicidialDialResponseParser;
@@ -21,17 +22,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @RestController @RequestMapping("/api/agent")
 public class AgentController {
   private static final Logger log = LoggerFactory.getLogger(AgentController.class);
   private final VicidialClient vicidial;
+  private final VicidialAsyncClient vicidialAsync;
+  private final AgentCallStateTracker callStateTracker;
+  private final AgentEventStreamService eventStreamService;
+  private final AgentDialFollowUpService dialFollowUpService;
   private final InteractionRepository interactions;
   private final CustomerRepository customers;
   private final CustomerPhoneRepository phones;
@@ -63,9 +71,17 @@ public class AgentController {
       VicidialService vicidialService,
       AgentSessionLifecycleService agentSessionLifecycleService,
       Manual2Service manual2Service,
+      VicidialAsyncClient vicidialAsync,
+      AgentCallStateTracker callStateTracker,
+      AgentEventStreamService eventStreamService,
+      AgentDialFollowUpService dialFollowUpService,
       @Value("${app.vicidial.debug:false}") boolean vicidialDebug
   ){
     this.vicidial=vicidial;
+    this.vicidialAsync=vicidialAsync;
+    this.callStateTracker=callStateTracker;
+    this.eventStreamService=eventStreamService;
+    this.dialFollowUpService=dialFollowUpService;
     this.interactions=interactions;
     this.customers=customers;
     this.phones=phones;
@@ -113,6 +129,7 @@ public class AgentController {
   @PostMapping("/vicidial/phone/disconnect")
   Map<String, Object> disconnectPhone(Authentication auth) {
     String username = requireAuth(auth);
+    callStateTracker.forget(username);
     return vicidialSessionService.disconnectPhone(username);
   }
 
@@ -135,7 +152,7 @@ public class AgentController {
   }
 
   @PostMapping("/vicidial/poll")
-  Map<String, Object> pollVicidialSession(Authentication auth) {
+  CompletableFuture<Map<String, Object>> pollVicidialSession(Authentication auth) {
     String agentUser = requireAuth(auth);
     sessionGuardService.ensureAgentExists(agentUser);
     var session = sessionGuardService.requireConnectedSession(agentUser);
@@ -147,22 +164,28 @@ public class AgentController {
             null));
 
     Map<String, String> heartbeatPayload = buildVdcHeartbeatPayload(agentUser, agentPass, session, session.connectedCampaign);
-    var updateSettingsResult = vicidial.updateSettings(agentUser, heartbeatPayload);
-    var callbackCountResult = vicidial.callbacksCount(agentUser, heartbeatPayload);
+    return vicidialAsync.updateSettings(agentUser, heartbeatPayload)
+        .thenCompose(updateSettingsResult -> vicidialAsync.callbacksCount(agentUser, heartbeatPayload)
+            .thenApply(callbackCountResult -> Map.<String, Object>of(
+                "ok", true,
+                "agentUser", agentUser,
+                "campaign", session.connectedCampaign,
+                "updateSettingsHttpStatus", updateSettingsResult.statusCode(),
+                "callbacksCountHttpStatus", callbackCountResult.statusCode(),
+                "updateSettingsSnippet", updateSettingsResult.snippet(180),
+                "callbacksCountSnippet", callbackCountResult.snippet(180)
+            )));
+  }
 
-    return Map.of(
-        "ok", true,
-        "agentUser", agentUser,
-        "campaign", session.connectedCampaign,
-        "updateSettingsHttpStatus", updateSettingsResult.statusCode(),
-        "callbacksCountHttpStatus", callbackCountResult.statusCode(),
-        "updateSettingsSnippet", updateSettingsResult.snippet(180),
-        "callbacksCountSnippet", callbackCountResult.snippet(180)
-    );
+  @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  SseEmitter events(Authentication auth, @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+    String agentUser = requireAuth(auth);
+    sessionGuardService.ensureAgentExists(agentUser);
+    return eventStreamService.subscribe(agentUser, lastEventId);
   }
 
   @GetMapping("/active-lead")
-  Map<String,Object> active(Authentication auth){
+  CompletableFuture<Map<String,Object>> active(Authentication auth){
     String agentUser = requireAuth(auth);
     sessionGuardService.ensureAgentExists(agentUser);
     var session = sessionGuardService.requireConnectedSession(agentUser);
@@ -174,7 +197,11 @@ public class AgentController {
       throw new VicidialServiceException(HttpStatus.CONFLICT, "VICIDIAL_SESSION_INCOMPLETE", "La sesiÃƒÂ³n Vicidial estÃƒÂ¡ incompleta.", "Falta el campo requerido: agent_log_id", Map.of("missingField", "agent_log_id"));
     }
 
-    var state = vicidialService.classifyActiveLead(agentUser, session);
+    return callStateTracker.current(agentUser, session)
+        .thenApply(state -> activeLeadResponse(agentUser, state.activeLead()));
+  }
+
+  private Map<String, Object> activeLeadResponse(String agentUser, VicidialService.ActiveLeadState state) {
     if (state.reloginRequired()) {
       throw new VicidialServiceException(HttpStatus.CONFLICT,
           "VICIDIAL_RELOGIN_REQUIRED",
@@ -236,23 +263,28 @@ public class AgentController {
 
     String resolvedMode = vicidialService.resolveModeForCampaign(agentUser, req.campaignId());
     Map<String, String> payload = dialRequestBuilder.buildDialNextPayload(agentUser, agentPass, session, req.campaignId());
-    return executeDialFlow(
-        agentUser,
-        agentPass,
-        session,
-        req.campaignId(),
-        resolvedMode,
-        payload,
-        null,
-        "VICIDIAL_MANUAL_NEXT_FAILED",
-        "Vicidial no confirmo la marcacion manual siguiente."
-    );
+    try {
+      return executeDialFlow(
+          agentUser,
+          agentPass,
+          session,
+          req.campaignId(),
+          resolvedMode,
+          payload,
+          null,
+          "VICIDIAL_MANUAL_NEXT_FAILED",
+          "Vicidial no confirmo la marcacion manual siguiente."
+      );
+    } finally {
+      callStateTracker.invalidate(agentUser);
+    }
   }
 
   @PostMapping("/logout")
   Map<String, Object> logoutAgent(@RequestBody(required = false) AgentLogoutReq req, Authentication auth) {
     String agentUser = requireAuth(auth);
     String reason = req == null ? null : req.reason();
+    callStateTracker.forget(agentUser);
     var result = agentSessionLifecycleService.logout(agentUser, reason);
     Map<String, Object> response = new LinkedHashMap<>();
     response.put("ok", result.ok());
@@ -289,17 +321,21 @@ public class AgentController {
     LinkedHashMap<String, String> payload = new LinkedHashMap<>(dialRequestBuilder.buildManualDialPayload(agentUser, agentPass, session, req.campaignId(), overrides));
     payload.put("preview", "YES".equalsIgnoreCase(req.preview()) ? "YES" : "NO");
 
-    return executeDialFlow(
-        agentUser,
-        agentPass,
-        session,
-        req.campaignId(),
-        mode,
-        payload,
-        req.phoneNumber(),
-        "VICIDIAL_MANUAL_DIAL_FAILED",
-        "Vicidial no confirmo la marcacion manual."
-    );
+    try {
+      return executeDialFlow(
+          agentUser,
+          agentPass,
+          session,
+          req.campaignId(),
+          mode,
+          payload,
+          req.phoneNumber(),
+          "VICIDIAL_MANUAL_DIAL_FAILED",
+          "Vicidial no confirmo la marcacion manual."
+      );
+    } finally {
+      callStateTracker.invalidate(agentUser);
+    }
   }
 
   private Map<String, Object> executeDialFlow(
@@ -358,7 +394,60 @@ public class AgentController {
       throw dialBusinessException(failureCode, result.statusCode(), parsed.classification(), rawSnippet, payload, failureMessage);
     }
 
-    var followUp = vicidialService.followUpManualDial(agentUser, agentPass, session, campaignId, parsed, requestedPhoneNumber);
+    String pendingCallId = firstNonBlank(parsed.callId(), session.currentCallId);
+    credentialService.updateDialRuntime(agentUser, "DIALING", pendingCallId, parsed.leadId());
+    var followUp = vicidialService.startManualDialFollowUp(agentUser, agentPass, session, campaignId, parsed, requestedPhoneNumber);
+    var tracking = dialFollowUpService.start(followUp, followUpResult -> dialFollowUpOutcome(
+        agentUser, session, campaignId, mode, payload, parsed, rawSnippet, updateSettingsResult, callbackCountResult, followUpResult));
+
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("ok", true);
+    response.put("trackingId", tracking.trackingId());
+    response.put("state", tracking.state().name());
+    response.put("result", Map.of(
+        "code", "VICIDIAL_DIAL_REQUESTED",
+        "campaign", Objects.toString(payload.get("campaign"), campaignId),
+        "mode", mode,
+        "classification", "DIALING_PENDING_CONFIRMATION"
+    ));
+    response.put("callId", pendingCallId);
+    response.put("leadId", parsed.leadId());
+    response.put("phoneNumber", firstNonBlank(parsed.phoneNumber(), requestedPhoneNumber));
+    response.put("status", parsed.leadStatus());
+    response.put("listId", firstNonBlank(parsed.listId(), payload.get("list_id")));
+    response.put("classification", "DIALING_PENDING_CONFIRMATION");
+    response.put("preflight", Map.of(
+        "callbacksCountHttpStatus", callbackCountResult.statusCode(),
+        "updateSettingsHttpStatus", updateSettingsResult.statusCode()
+    ));
+    maybeAttachDebug(response, payload, rawSnippet);
+    return response;
+  }
+
+  @GetMapping("/vicidial/dial/{trackingId}")
+  AgentDialFollowUpService.DialTracking dialTracking(@PathVariable String trackingId, Authentication auth) {
+    String agentUser = requireAuth(auth);
+    return dialFollowUpService.find(agentUser, trackingId)
+        .orElseThrow(() -> new VicidialServiceException(HttpStatus.NOT_FOUND,
+            "VICIDIAL_DIAL_TRACKING_NOT_FOUND",
+            "No existe seguimiento de marcacion con ese identificador.",
+            "Los seguimientos finalizados se conservan unos minutos; consulte /api/agent/active-lead.",
+            Map.of("trackingId", trackingId)));
+  }
+
+  /** Outcome of the asynchronous follow-up: the former synchronous dial response, or VICIDIAL_DIAL_NOT_CONFIRMED. */
+  private Map<String, Object> dialFollowUpOutcome(
+      String agentUser,
+      AgentVicidialCredentialEntity session,
+      String campaignId,
+      String mode,
+      Map<String, String> payload,
+      VicidialDialResponseParser.DetailedParsedDialResponse parsed,
+      String rawSnippet,
+      VicidialClient.VicidialHttpResult updateSettingsResult,
+      VicidialClient.VicidialHttpResult callbackCountResult,
+      VicidialService.DialFollowUpResult followUp
+  ) {
     if (!followUp.incallConfirmed()) {
       Map<String, Object> details = new LinkedHashMap<>();
       details.put("classification", followUp.classification());
@@ -452,7 +541,7 @@ public class AgentController {
   }
 
   @GetMapping("/context")
-  Map<String,Object> context(Authentication auth,@RequestParam(required=false) Long leadId){
+  CompletableFuture<Map<String,Object>> context(Authentication auth,@RequestParam(required=false) Long leadId){
     String agentUser = requireAuth(auth);
     sessionGuardService.ensureAgentExists(agentUser);
     var session = sessionGuardService.requireConnectedSession(agentUser);
@@ -464,24 +553,32 @@ public class AgentController {
       throw new VicidialServiceException(HttpStatus.CONFLICT, "VICIDIAL_SESSION_INCOMPLETE", "La sesion Vicidial esta incompleta.", "Falta el campo requerido: agent_log_id", Map.of("missingField", "agent_log_id"));
     }
 
-    var realtime = vicidialService.resolveRealtimeCallSnapshot(
-        agentUser,
-        session,
-        session.currentCallId,
-        session.currentLeadId,
-        null,
-        session.connectedCampaign,
-        true
-    );
-    if (realtime.reloginRequired()) {
-      throw new VicidialServiceException(HttpStatus.CONFLICT,
-          "VICIDIAL_RELOGIN_REQUIRED",
-          "La sesion de Vicidial requiere re-login.",
-          "Conecte anexo/campana nuevamente para continuar.",
-          null);
-    }
+    return callStateTracker.current(agentUser, session)
+        .thenApply(AgentCallStateTracker.CallState::snapshot)
+        .thenCompose(realtime -> {
+          if (realtime.reloginRequired()) {
+            throw new VicidialServiceException(HttpStatus.CONFLICT,
+                "VICIDIAL_RELOGIN_REQUIRED",
+                "La sesion de Vicidial requiere re-login.",
+                "Conecte anexo/campana nuevamente para continuar.",
+                null);
+          }
+          Long resolvedLeadId = leadId != null ? leadId : realtime.leadId();
+          if (resolvedLeadId == null) {
+            return CompletableFuture.completedFuture(contextResponse(agentUser, session, realtime, null, null));
+          }
+          return vicidialAsync.leadInfo(resolvedLeadId)
+              .thenApply(data -> contextResponse(agentUser, session, realtime, resolvedLeadId, data));
+        });
+  }
 
-    Long resolvedLeadId = leadId != null ? leadId : realtime.leadId();
+  private Map<String, Object> contextResponse(
+      String agentUser,
+      AgentVicidialCredentialEntity session,
+      VicidialService.RealtimeCallSnapshot realtime,
+      Long resolvedLeadId,
+      String data
+  ) {
     if (resolvedLeadId == null) {
       Map<String, Object> response = new LinkedHashMap<>();
       response.put("ok", true);
@@ -491,7 +588,6 @@ public class AgentController {
       return response;
     }
 
-    String data = vicidial.leadInfo(resolvedLeadId);
     String dni = extract(data, "vendor_lead_code");
     if (dni == null || dni.isBlank()) {
       Map<String, Object> response = new LinkedHashMap<>();
@@ -585,6 +681,7 @@ public class AgentController {
       i.lastError = e.getMessage();
     }
     interactions.save(i);
+    callStateTracker.invalidate(agentUser);
     return Map.of("id", i.id, "syncStatus", i.syncStatus.name(), "message", i.syncStatus == SyncStatus.SYNCED ? "Synced" : "Saved locally");
   }
 
@@ -613,6 +710,7 @@ public class AgentController {
     String campaignId = firstNonBlank(req == null ? null : req.campaignId(), session.connectedCampaign);
     String dispo = req == null ? null : req.dispo();
     var result = vicidialService.hangupActiveCall(agentUser, agentPass, session, campaignId, dispo);
+    callStateTracker.invalidate(agentUser);
 
     InteractionEntity persistedInteraction = maybePersistHangupDisposition(agentUser, req, result, session, campaignId);
 
@@ -636,7 +734,7 @@ public class AgentController {
     return response;
   }
   public record PauseReq(String action){}
-  @PostMapping("/pause") Map<String,Object> pause(@RequestBody PauseReq req, Authentication auth){ vicidial.pause(requireAuth(auth),req.action()); return Map.of("ok",true); }
+  @PostMapping("/pause") Map<String,Object> pause(@RequestBody PauseReq req, Authentication auth){ String agentUser=requireAuth(auth); vicidial.pause(agentUser,req.action()); callStateTracker.invalidate(agentUser); return Map.of("ok",true); }
 
   private void assertFinalDispositionAllowed(String agentUser) {
     var sessionOpt = agentVicidialCredentialRepository.findByAppUsername(agentUser)
@@ -0,0 +1,303 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.VicidialServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Confirms manual dials after the dial request has returned. Each attempt (conf_exten_check plus manDiaLlookCaLL)
+ * runs on the Vicidial executor and the next one is scheduled with exponential backoff, so no thread waits between
+ * attempts. The state and outcome are kept in the {@link AgentDialTrackingStore} under a tracking id for
+ * {@code GET /api/agent/vicidial/dial/{trackingId}} and pushed to the agent as a {@code dial} event.
+ * <p>
+ * The probes run on the node that took the dial. With the shared store ({@code app.vicidial.session-store=postgres})
+ * any node answers the {@code GET}, and every node relays outcomes finished elsewhere to the agent streams it holds,
+ * checking every {@code relay-ms}. A tracking still pending when its node stops stays PENDING until it is purged.
+ */
+@Service
+public class AgentDialFollowUpService {
+  private static final Logger log = LoggerFactory.getLogger(AgentDialFollowUpService.class);
+  private static final Duration RELAY_OVERLAP = Duration.ofSeconds(10);
+
+  private final VicidialService vicidialService;
+  private final VicidialAsyncClient vicidialAsync;
+  private final AgentCallStateTracker callStateTracker;
+  private final AgentEventStreamService eventStreamService;
+  private final AgentDialTrackingStore trackingStore;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final int maxAttempts;
+  private final long initialDelayMs;
+  private final long maxDelayMs;
+  private final double backoffMultiplier;
+  private final long retentionMs;
+  private final long relayMs;
+  private final LongSupplier nanoClock;
+  private final Map<String, Long> relayedAtNanos = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+  private volatile Instant relayedUpTo = Instant.now();
+
+  @Autowired
+  public AgentDialFollowUpService(
+      VicidialService vicidialService,
+      VicidialAsyncClient vicidialAsync,
+      AgentCallStateTracker callStateTracker,
+      AgentEventStreamService eventStreamService,
+      AgentDialTrackingStore trackingStore,
+      @Value("${app.vicidial.dial-follow-up.max-attempts:12}") int maxAttempts,
+      @Value("${app.vicidial.dial-follow-up.initial-delay-ms:300}") long initialDelayMs,
+      @Value("${app.vicidial.dial-follow-up.max-delay-ms:1500}") long maxDelayMs,
+      @Value("${app.vicidial.dial-follow-up.backoff-multiplier:1.5}") double backoffMultiplier,
+      @Value("${app.vicidial.dial-follow-up.retention-ms:300000}") long retentionMs,
+      @Value("${app.vicidial.dial-follow-up.relay-ms:1000}") long relayMs
+  ) {
+    this(vicidialService, vicidialAsync, callStateTracker, eventStreamService, trackingStore, maxAttempts,
+        initialDelayMs, maxDelayMs, backoffMultiplier, retentionMs, relayMs, System::nanoTime);
+  }
+
+  AgentDialFollowUpService(
+      VicidialService vicidialService,
+      VicidialAsyncClient vicidialAsync,
+      AgentCallStateTracker callStateTracker,
+      AgentEventStreamService eventStreamService,
+      AgentDialTrackingStore trackingStore,
+      int maxAttempts,
+      long initialDelayMs,
+      long maxDelayMs,
+      double backoffMultiplier,
+      long retentionMs,
+      long relayMs,
+      LongSupplier nanoClock
+  ) {
+    this.vicidialService = vicidialService;
+    this.vicidialAsync = vicidialAsync;
+    this.callStateTracker = callStateTracker;
+    this.eventStreamService = eventStreamService;
+    this.trackingStore = trackingStore;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialDelayMs = Math.max(0, initialDelayMs);
+    this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+    this.backoffMultiplier = Math.max(1.0, backoffMultiplier);
+    this.retentionMs = Math.max(retentionMs, 1000);
+    this.relayMs = Math.max(relayMs, 100);
+    this.nanoClock = nanoClock;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "agent-dial-follow-up");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /** Starts the purge and the relay of outcomes finished on other nodes once the bean is fully built. */
+  @PostConstruct
+  void start() {
+    long purgeMs = retentionMs / 4;
+    scheduler.scheduleWithFixedDelay(this::purge, purgeMs, purgeMs, TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(this::relayFinishedElsewhere, relayMs, relayMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts confirming a dial already accepted by manDiaLnextCaLL. {@code onResult} turns the follow-up result into
+   * the outcome payload (it may throw {@link VicidialServiceException}, recorded as a failed outcome) and runs on a
+   * Vicidial executor thread.
+   */
+  public DialTracking start(
+      VicidialService.ManualDialFollowUp followUp,
+      Function<VicidialService.DialFollowUpResult, Map<String, Object>> onResult
+  ) {
+    Tracking tracking = new Tracking(UUID.randomUUID().toString(), followUp.agentUser(), followUp, onResult);
+    try {
+      trackingStore.create(tracking.trackingId, tracking.agentUser, nodeId);
+    } catch (RuntimeException ex) {
+      log.warn("Manual dial follow-up not stored agent={} trackingId={} cause={}",
+          tracking.agentUser, tracking.trackingId, ex.getClass().getSimpleName());
+    }
+    scheduler.execute(() -> attempt(tracking, 1));
+    return tracking.view();
+  }
+
+  public Optional<DialTracking> find(String agentUser, String trackingId) {
+    return trackingStore.find(agentUser, trackingId);
+  }
+
+  long delayAfter(int attempt) {
+    double delay = initialDelayMs * Math.pow(backoffMultiplier, attempt - 1);
+    return (long) Math.min(delay, maxDelayMs);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private void attempt(Tracking tracking, int attempt) {
+    tracking.attempts = attempt;
+    try {
+      trackingStore.updateAttempts(tracking.trackingId, attempt);
+    } catch (RuntimeException ex) {
+      log.debug("Manual dial follow-up attempt not stored trackingId={} cause={}", tracking.trackingId,
+          ex.getClass().getSimpleName());
+    }
+    vicidialAsync.supply(() -> vicidialService.probeManualDial(tracking.followUp, attempt))
+        .whenComplete((confirmed, error) -> {
+          if (error != null) {
+            fail(tracking, error);
+          } else if (Boolean.TRUE.equals(confirmed) || attempt >= maxAttempts) {
+            complete(tracking, Boolean.TRUE.equals(confirmed));
+          } else {
+            try {
+              scheduler.schedule(() -> attempt(tracking, attempt + 1), delayAfter(attempt), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException ex) {
+              fail(tracking, ex);
+            }
+          }
+        });
+  }
+
+  private void complete(Tracking tracking, boolean probesConfirmed) {
+    vicidialAsync.supply(() -> {
+          var result = vicidialService.completeManualDialFollowUp(tracking.followUp, probesConfirmed);
+          return Map.entry(result.incallConfirmed(), tracking.onResult.apply(result));
+        })
+        .whenComplete((outcome, error) -> {
+          if (error != null) {
+            fail(tracking, error);
+          } else {
+            finish(tracking, outcome.getKey() ? DialState.CONFIRMED : DialState.NOT_CONFIRMED, outcome.getValue());
+          }
+        });
+  }
+
+  private void fail(Tracking tracking, Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    VicidialServiceException vse = cause instanceof VicidialServiceException ex
+        ? ex
+        : new VicidialServiceException(HttpStatus.BAD_GATEWAY, "VICIDIAL_DIAL_FOLLOW_UP_FAILED",
+            "No se pudo confirmar la marcacion con Vicidial.",
+            "Consulte /api/agent/active-lead para conocer el estado de la llamada.",
+            Map.of("cause", cause.getClass().getSimpleName()));
+    Map<String, Object> outcome = new LinkedHashMap<>();
+    outcome.put("ok", false);
+    outcome.put("code", vse.code());
+    outcome.put("message", Objects.toString(vse.getMessage(), "Vicidial integration error"));
+    vse.hint().ifPresent(hint -> outcome.put("hint", hint));
+    vse.details().ifPresent(details -> outcome.put("details", details));
+    DialState state = "VICIDIAL_DIAL_NOT_CONFIRMED".equals(vse.code()) ? DialState.NOT_CONFIRMED : DialState.FAILED;
+    finish(tracking, state, outcome);
+  }
+
+  private void finish(Tracking tracking, DialState state, Map<String, Object> outcome) {
+    callStateTracker.invalidate(tracking.agentUser);
+    tracking.outcome = outcome;
+    tracking.state = state;
+    try {
+      trackingStore.finish(tracking.trackingId, state, tracking.attempts, outcome);
+    } catch (RuntimeException ex) {
+      log.warn("Manual dial follow-up outcome not stored agent={} trackingId={} cause={}",
+          tracking.agentUser, tracking.trackingId, ex.getClass().getSimpleName());
+    }
+    log.info("Manual dial follow-up finished agent={} trackingId={} state={} attempts={}",
+        tracking.agentUser, tracking.trackingId, state, tracking.attempts);
+    eventStreamService.publish(tracking.agentUser, "dial", tracking.view());
+  }
+
+  /**
+   * Pushes outcomes finished on other nodes to the agents streaming from this one. Each check re-reads a short
+   * overlap before the previous one, so clock skew between nodes and the database does not drop an outcome; outcomes
+   * already relayed are skipped.
+   */
+  void relayFinishedElsewhere() {
+    Set<String> agents = eventStreamService.subscribedAgents();
+    Instant checkedAt = Instant.now();
+    if (agents.isEmpty()) {
+      relayedUpTo = checkedAt;
+      return;
+    }
+    List<AgentDialTrackingStore.FinishedDial> finished;
+    try {
+      finished = trackingStore.finishedElsewhere(agents, relayedUpTo.minus(RELAY_OVERLAP), nodeId);
+    } catch (RuntimeException ex) {
+      log.warn("Manual dial follow-up relay failed cause={}", ex.getClass().getSimpleName());
+      return;
+    }
+    long now = nanoClock.getAsLong();
+    for (var dial : finished) {
+      if (relayedAtNanos.putIfAbsent(dial.tracking().trackingId(), now) == null) {
+        eventStreamService.publish(dial.agentUser(), "dial", dial.tracking());
+      }
+    }
+    relayedUpTo = checkedAt;
+  }
+
+  private void purge() {
+    long now = nanoClock.getAsLong();
+    long retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMs);
+    relayedAtNanos.values().removeIf(relayedAt -> now - relayedAt > retentionNanos);
+    try {
+      trackingStore.purgeOlderThan(Duration.ofMillis(retentionMs));
+    } catch (RuntimeException ex) {
+      log.warn("Manual dial follow-up purge failed cause={}", ex.getClass().getSimpleName());
+    }
+  }
+
+  public enum DialState {
+    PENDING,
+    CONFIRMED,
+    NOT_CONFIRMED,
+    FAILED
+  }
+
+  /** Snapshot of one tracked dial; {@code outcome} is the dial response (or error body) once the state is final. */
+  public record DialTracking(String trackingId, DialState state, int attempts, Map<String, Object> outcome) {
+  }
+
+  private static final class Tracking {
+    private final String trackingId;
+    private final String agentUser;
+    private final VicidialService.ManualDialFollowUp followUp;
+    private final Function<VicidialService.DialFollowUpResult, Map<String, Object>> onResult;
+    private volatile DialState state = DialState.PENDING;
+    private volatile int attempts;
+    private volatile Map<String, Object> outcome;
+
+    private Tracking(
+        String trackingId,
+        String agentUser,
+        VicidialService.ManualDialFollowUp followUp,
+        Function<VicidialService.DialFollowUpResult, Map<String, Object>> onResult
+    ) {
+      this.trackingId = trackingId;
+      this.agentUser = agentUser;
+      this.followUp = followUp;
+      this.onResult = onResult;
+    }
+
+    private DialTracking view() {
+      return new DialTracking(trackingId, state, attempts, outcome);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.telco3.agentui.agent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cluster-visible state of manual dial follow-ups, so any backend replica can answer
+ * {@code GET /api/agent/vicidial/dial/{trackingId}} and push the {@code dial} event to the agent's stream. Selected
+ * with {@code app.vicidial.session-store} ({@code local} or {@code postgres}), like the AGC cookie jars.
+ */
+public interface AgentDialTrackingStore {
+
+  /** Records a new PENDING tracking taken by {@code nodeId}. */
+  void create(String trackingId, String agentUser, String nodeId);
+
+  void updateAttempts(String trackingId, int attempts);
+
+  void finish(String trackingId, AgentDialFollowUpService.DialState state, int attempts, Map<String, Object> outcome);
+
+  Optional<AgentDialFollowUpService.DialTracking> find(String agentUser, String trackingId);
+
+  /** Trackings of {@code agentUsers} finished after {@code since} by nodes other than {@code nodeId}. */
+  List<FinishedDial> finishedElsewhere(Collection<String> agentUsers, Instant since, String nodeId);
+
+  /** Drops trackings finished, or still pending, for longer than {@code retention}. */
+  int purgeOlderThan(Duration retention);
+
+  record FinishedDial(String agentUser, AgentDialFollowUpService.DialTracking tracking) {
+  }
+}
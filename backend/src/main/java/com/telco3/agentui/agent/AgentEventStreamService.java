@@ -0,0 +1,368 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE channel behind {@code /api/agent/events}. Pushes {@code status} when the session status changes, {@code call}
+ * on every call-state change detected by {@link AgentCallStateTracker} (with the dialing to INCALL transition
+ * flagged), {@code lead} when a lead is assigned, {@code relogin} when Vicidial asks for a new login and {@code dial}
+ * when a manual dial follow-up finishes (see {@link #publish}). While an agent has a subscriber the tracker keeps
+ * refreshing that agent, so the UI does not need to poll. All writes happen on one dispatcher thread; session
+ * status is read from the credential row (no Vicidial probe) on a separate thread, so a slow database never holds up
+ * writes and heartbeats.
+ * <p>
+ * Named events carry an id and the last {@value #REPLAY_LIMIT} of each agent are kept for {@code replay-ms}; a
+ * reconnect whose {@code Last-Event-ID} is still buffered gets the events it missed, any other reconnect gets the
+ * current call state instead. The replay buffer is only touched on the dispatcher thread.
+ */
+@Service
+public class AgentEventStreamService {
+  private static final Logger log = LoggerFactory.getLogger(AgentEventStreamService.class);
+  static final int REPLAY_LIMIT = 32;
+
+  private final AgentCallStateTracker callStateTracker;
+  private final AgentVicidialSessionService sessionService;
+  private final long emitterTimeoutMs;
+  private final long heartbeatMs;
+  private final long statusCheckMs;
+  private final long retryMs;
+  private final int maxSubscribers;
+  private final long replayWindowNanos;
+  private final Map<String, Set<Subscriber>> subscribersByAgent = new ConcurrentHashMap<>();
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  private final AtomicLong eventIds = new AtomicLong();
+  private final Map<String, Deque<SentEvent>> recentByAgent = new HashMap<>();
+  private final ScheduledExecutorService dispatcher;
+  private final ScheduledExecutorService statusChecker;
+  private final AgentCallStateTracker.CallStateListener callStateListener = this::onCallState;
+
+  public AgentEventStreamService(
+      AgentCallStateTracker callStateTracker,
+      AgentVicidialSessionService sessionService,
+      @Value("${app.vicidial.agent-events.timeout-ms:1800000}") long emitterTimeoutMs,
+      @Value("${app.vicidial.agent-events.heartbeat-ms:15000}") long heartbeatMs,
+      @Value("${app.vicidial.agent-events.status-check-ms:5000}") long statusCheckMs,
+      @Value("${app.vicidial.agent-events.retry-ms:3000}") long retryMs,
+      @Value("${app.vicidial.agent-events.max-subscribers:500}") int maxSubscribers,
+      @Value("${app.vicidial.agent-events.replay-ms:60000}") long replayMs
+  ) {
+    this.callStateTracker = callStateTracker;
+    this.sessionService = sessionService;
+    this.emitterTimeoutMs = emitterTimeoutMs;
+    this.heartbeatMs = Math.max(heartbeatMs, 1000);
+    this.statusCheckMs = Math.max(statusCheckMs, 500);
+    this.retryMs = retryMs;
+    this.maxSubscribers = maxSubscribers;
+    this.replayWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(replayMs, 0));
+    this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "agent-event-stream");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.statusChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "agent-event-status");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /** Starts heartbeats and status checks and subscribes to call-state changes once the bean is fully built. */
+  @PostConstruct
+  void start() {
+    dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    statusChecker.scheduleWithFixedDelay(this::checkStatus, statusCheckMs, statusCheckMs, TimeUnit.MILLISECONDS);
+    callStateTracker.addListener(callStateListener);
+  }
+
+  public SseEmitter subscribe(String agentUser, String lastEventId) {
+    if (subscriberCount.incrementAndGet() > maxSubscribers) {
+      subscriberCount.decrementAndGet();
+      throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "AGENT_EVENTS_BUSY",
+          "Se alcanzó el máximo de conexiones de eventos abiertas.",
+          "Use /api/agent/vicidial/status, /active-lead y /context mientras tanto.", null);
+    }
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+    Subscriber subscriber = new Subscriber(agentUser, emitter);
+    emitter.onCompletion(() -> remove(subscriber));
+    emitter.onTimeout(() -> remove(subscriber));
+    emitter.onError(ex -> remove(subscriber));
+    subscribersByAgent.compute(agentUser, (key, current) -> {
+      Set<Subscriber> subscribers = current == null ? ConcurrentHashMap.newKeySet() : current;
+      subscribers.add(subscriber);
+      return subscribers;
+    });
+    Long resumeAfter = parseEventId(lastEventId);
+    statusChecker.execute(() -> {
+      Map<String, Object> status = status(agentUser);
+      dispatcher.execute(() -> pushInitial(subscriber, status, resumeAfter));
+    });
+    return emitter;
+  }
+
+  /** Sends a named event to every open stream of the agent and keeps it for replay to a reconnecting stream. */
+  public void publish(String agentUser, String name, Object data) {
+    dispatcher.execute(() -> {
+      SentEvent event = record(agentUser, name, data);
+      Set<Subscriber> subscribers = subscribersByAgent.get(agentUser);
+      if (subscribers != null) {
+        subscribers.forEach(subscriber -> send(subscriber, event));
+      }
+    });
+  }
+
+  public int subscriberCount() {
+    return subscriberCount.get();
+  }
+
+  /** Agents with at least one open stream on this node. */
+  public Set<String> subscribedAgents() {
+    Set<String> agents = new HashSet<>();
+    subscribersByAgent.forEach((agentUser, subscribers) -> {
+      if (!subscribers.isEmpty()) {
+        agents.add(agentUser);
+      }
+    });
+    return agents;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    callStateTracker.removeListener(callStateListener);
+    statusChecker.shutdownNow();
+    dispatcher.shutdownNow();
+    subscribersByAgent.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    subscribersByAgent.clear();
+    subscriberCount.set(0);
+  }
+
+  private void pushInitial(Subscriber subscriber, Map<String, Object> status, Long resumeAfter) {
+    try {
+      subscriber.emitter.send(SseEmitter.event().name("status").data(status).reconnectTime(retryMs));
+      subscriber.sentStatus = status;
+    } catch (IOException | IllegalStateException ex) {
+      drop(subscriber, ex);
+      return;
+    }
+    List<SentEvent> missed = resumeAfter == null ? null : missedSince(subscriber.agentUser, resumeAfter);
+    if (missed != null) {
+      missed.forEach(event -> send(subscriber, event));
+    } else if (isInCampaign(status)) {
+      callStateTracker.current(subscriber.agentUser, null).thenAccept(state ->
+          dispatcher.execute(() -> send(subscriber, "call", callPayload(null, state))));
+    }
+  }
+
+  private void onCallState(String agentUser, AgentCallStateTracker.CallState previous, AgentCallStateTracker.CallState current) {
+    var snapshot = current.snapshot();
+    publish(agentUser, "call", callPayload(previous, current));
+    if (snapshot.leadId() != null && (previous == null || !Objects.equals(previous.snapshot().leadId(), snapshot.leadId()))) {
+      Map<String, Object> lead = new LinkedHashMap<>();
+      lead.put("leadId", snapshot.leadId());
+      lead.put("phoneNumber", snapshot.phoneNumber());
+      lead.put("campaign", snapshot.campaign());
+      lead.put("callId", snapshot.callId());
+      publish(agentUser, "lead", lead);
+    }
+    if (snapshot.reloginRequired() && (previous == null || !previous.snapshot().reloginRequired())) {
+      publish(agentUser, "relogin", Map.of("code", "VICIDIAL_RELOGIN_REQUIRED", "httpStatus", snapshot.httpStatus()));
+    }
+  }
+
+  /**
+   * Pushes session-status changes and keeps the tracker refreshing agents that have a campaign and a subscriber. Runs
+   * on the status thread; the sends are handed to the dispatcher.
+   */
+  void checkStatus() {
+    subscribersByAgent.forEach((agentUser, subscribers) -> {
+      if (subscribers.isEmpty()) {
+        return;
+      }
+      Map<String, Object> status = status(agentUser);
+      if (isInCampaign(status)) {
+        callStateTracker.keepAlive(agentUser);
+      }
+      dispatcher.execute(() -> pushStatus(agentUser, status));
+    });
+  }
+
+  private void pushStatus(String agentUser, Map<String, Object> status) {
+    Set<Subscriber> subscribers = subscribersByAgent.get(agentUser);
+    if (subscribers == null) {
+      return;
+    }
+    SentEvent event = null;
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.sentStatus != null && !status.equals(subscriber.sentStatus)) {
+        event = event == null ? record(agentUser, "status", status) : event;
+        if (send(subscriber, event)) {
+          subscriber.sentStatus = status;
+        }
+      }
+    }
+  }
+
+  void heartbeat() {
+    pruneReplay(System.nanoTime());
+    subscribersByAgent.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+      try {
+        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+      } catch (IOException | IllegalStateException ex) {
+        drop(subscriber, ex);
+      }
+    }));
+  }
+
+  private Map<String, Object> status(String agentUser) {
+    try {
+      return sessionService.sessionStatus(agentUser);
+    } catch (RuntimeException ex) {
+      Map<String, Object> unavailable = new LinkedHashMap<>();
+      unavailable.put("ok", false);
+      unavailable.put("agentUser", agentUser);
+      unavailable.put("code", ex instanceof VicidialServiceException vse ? vse.code() : "VICIDIAL_STATUS_UNAVAILABLE");
+      return unavailable;
+    }
+  }
+
+  private boolean isInCampaign(Map<String, Object> status) {
+    return Boolean.TRUE.equals(status.get("ok")) && status.get("campaign") != null;
+  }
+
+  static Map<String, Object> callPayload(AgentCallStateTracker.CallState previous, AgentCallStateTracker.CallState current) {
+    var snapshot = current.snapshot();
+    var activeLead = current.activeLead();
+    boolean inCall = "INCALL".equalsIgnoreCase(Objects.toString(snapshot.agentStatus(), "")) || activeLead.hasLead();
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("classification", snapshot.classification());
+    payload.put("agentStatus", snapshot.agentStatus());
+    payload.put("callId", snapshot.callId());
+    payload.put("leadId", snapshot.leadId());
+    payload.put("phoneNumber", snapshot.phoneNumber());
+    payload.put("campaign", snapshot.campaign());
+    payload.put("dialing", activeLead.dialing());
+    payload.put("hasLead", activeLead.hasLead());
+    payload.put("reloginRequired", snapshot.reloginRequired());
+    payload.put("previousClassification", previous == null ? null : previous.snapshot().classification());
+    payload.put("transition", previous != null && previous.activeLead().dialing() && inCall ? "DIALING_TO_INCALL" : null);
+    return payload;
+  }
+
+  private SentEvent record(String agentUser, String name, Object data) {
+    SentEvent event = new SentEvent(eventIds.incrementAndGet(), name, data, System.nanoTime());
+    Deque<SentEvent> recent = recentByAgent.computeIfAbsent(agentUser, key -> new ArrayDeque<>());
+    recent.addLast(event);
+    while (recent.size() > REPLAY_LIMIT) {
+      recent.removeFirst();
+    }
+    return event;
+  }
+
+  /** Events after {@code lastEventId}, or null when that id is no longer (or never was) buffered for the agent. */
+  private List<SentEvent> missedSince(String agentUser, long lastEventId) {
+    pruneReplay(System.nanoTime());
+    Deque<SentEvent> recent = recentByAgent.get(agentUser);
+    if (recent == null || recent.stream().noneMatch(event -> event.id() == lastEventId)) {
+      return null;
+    }
+    return recent.stream().filter(event -> event.id() > lastEventId).toList();
+  }
+
+  private void pruneReplay(long now) {
+    recentByAgent.values().removeIf(recent -> {
+      while (!recent.isEmpty() && now - recent.peekFirst().sentAtNanos() > replayWindowNanos) {
+        recent.removeFirst();
+      }
+      return recent.isEmpty();
+    });
+  }
+
+  private Long parseEventId(String lastEventId) {
+    if (!StringUtils.hasText(lastEventId)) {
+      return null;
+    }
+    try {
+      return Long.parseLong(lastEventId.trim());
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private boolean send(Subscriber subscriber, SentEvent event) {
+    try {
+      subscriber.emitter.send(SseEmitter.event().id(Long.toString(event.id())).name(event.name()).data(event.data()));
+      return true;
+    } catch (IOException | IllegalStateException ex) {
+      drop(subscriber, ex);
+      return false;
+    }
+  }
+
+  private boolean send(Subscriber subscriber, String name, Object data) {
+    try {
+      subscriber.emitter.send(SseEmitter.event().name(name).data(data));
+      return true;
+    } catch (IOException | IllegalStateException ex) {
+      drop(subscriber, ex);
+      return false;
+    }
+  }
+
+  private void drop(Subscriber subscriber, Exception ex) {
+    if (remove(subscriber)) {
+      log.debug("Agent event subscriber dropped agent={} cause={}", subscriber.agentUser, ex.getClass().getSimpleName());
+      subscriber.emitter.complete();
+    }
+  }
+
+  private boolean remove(Subscriber subscriber) {
+    boolean[] removed = new boolean[1];
+    subscribersByAgent.computeIfPresent(subscriber.agentUser, (key, current) -> {
+      removed[0] = current.remove(subscriber);
+      return current.isEmpty() ? null : current;
+    });
+    if (removed[0]) {
+      subscriberCount.decrementAndGet();
+    }
+    return removed[0];
+  }
+
+  private record SentEvent(long id, String name, Object data, long sentAtNanos) {
+  }
+
+  private static final class Subscriber {
+    private final String agentUser;
+    private final SseEmitter emitter;
+    private volatile Map<String, Object> sentStatus;
+
+    private Subscriber(String agentUser, SseEmitter emitter) {
+      this.agentUser = agentUser;
+      this.emitter = emitter;
+    }
+  }
+}
@@ -118,7 +118,7 @@ public class AgentSessionLifecycleService {
       return false;
     }
     try {
-      JdbcTemplate jdbc = new JdbcTemplate(runtimeDataSourceFactory.getOrCreate());
+      JdbcTemplate jdbc = new JdbcTemplate(runtimeDataSourceFactory.runtimeDataSource(VicidialRuntimeDataSourceFactory.Workload.CALL_STATE));
       Long count = jdbc.queryForObject("SELECT COUNT(*) FROM vicidial_live_agents WHERE user = ?", Long.class, agentUser);
       return count != null && count > 0;
     } catch (Exception ex) {
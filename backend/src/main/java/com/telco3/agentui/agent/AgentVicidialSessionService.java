@@ -14,7 +14,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,7 +28,6 @@ public class AgentVicidialSessionService {
   private final VicidialDiagnosticsService diagnosticsService;
   private final Environment environment;
   private final VicidialService vicidialService;
-  private final Map<String, AgentVicidialState> stateByAgent = new ConcurrentHashMap<>();
 
   public AgentVicidialSessionService(VicidialSessionClient sessionClient, VicidialClient vicidialClient, VicidialCredentialService credentialService, VicidialCampaignParser campaignParser, VicidialDiagnosticsService diagnosticsService, Environment environment, VicidialService vicidialService) {
     this.sessionClient = sessionClient;
@@ -46,14 +44,11 @@ public class AgentVicidialSessionService {
     String raw = sessionClient.connectPhone(agentUser, phoneLogin, phonePass);
     boolean connected = isSuccessful(raw);
     if (!connected) {
-      stateByAgent.remove(agentUser);
+      credentialService.updatePhoneSession(agentUser, null);
       throw new IllegalStateException("No fue posible conectar anexo en VICIdial AGC");
     }
 
-    var state = new AgentVicidialState();
-    state.phoneConnected = true;
-    state.phoneLogin = phoneLogin;
-    stateByAgent.put(agentUser, state);
+    credentialService.updatePhoneSession(agentUser, phoneLogin);
     return Map.of(
         "ok", true,
         "phoneConnected", true,
@@ -64,13 +59,12 @@ public class AgentVicidialSessionService {
 
   public Map<String, Object> disconnectPhone(String agentUser) {
     sessionClient.clear(agentUser);
-    stateByAgent.remove(agentUser);
     credentialService.markDisconnected(agentUser);
     return Map.of("ok", true);
   }
 
   public Map<String, Object> listCampaigns(String appUsername) {
-    AgentVicidialState state = requirePhoneConnected(appUsername);
+    var state = requirePhoneConnected(appUsername);
     VicidialCredentialService.AgentVicidialCredentials credentials = credentialService.resolveAgentCredentials(appUsername);
 
     if (credentials.agentPass() == null || credentials.agentPass().isBlank()) {
@@ -79,7 +73,7 @@ public class AgentVicidialSessionService {
           "VICIDIAL_AGENT_CREDENTIALS_MISSING",
           "Falta agent_pass del agente en tabla users. El administrador debe completarlo para continuar.",
           "Actualice users.agent_pass_encrypted para el usuario autenticado.",
-          Map.of("agentUser", credentials.agentUser(), "phoneLogin", state.phoneLogin)
+          Map.of("agentUser", credentials.agentUser(), "phoneLogin", state.phoneLogin())
       );
     }
 
@@ -118,7 +112,7 @@ public class AgentVicidialSessionService {
     }
 
     Map<String, Object> response = new LinkedHashMap<>();
-    response.put("phoneLogin", state.phoneLogin);
+    response.put("phoneLogin", state.phoneLogin());
     response.put("campaigns", campaignOptions.stream().map(VicidialCampaignParser.CampaignOption::value).toList());
     response.put("campaignOptions", campaignOptions);
     response.put("raw", result.body());
@@ -129,7 +123,8 @@ public class AgentVicidialSessionService {
   }
 
   public Map<String, Object> connectCampaign(String agentUser, String campaignId, boolean remember) {
-    AgentVicidialState state = requirePhoneConnected(agentUser);
+    var state = requirePhoneConnected(agentUser);
+    String phoneLogin = state.phoneLogin();
 
     String agentPass = credentialService.resolveAgentPass(agentUser)
         .orElseThrow(() -> new VicidialServiceException(
@@ -137,22 +132,20 @@ public class AgentVicidialSessionService {
             "VICIDIAL_AGENT_CREDENTIALS_MISSING",
             "Falta agent_pass del agente en tabla users. El administrador debe completarlo para continuar.",
             "Actualice users.agent_pass_encrypted para el usuario autenticado.",
-            Map.of("agentUser", mask(agentUser), "phoneLogin", state.phoneLogin)
+            Map.of("agentUser", mask(agentUser), "phoneLogin", phoneLogin)
         ));
 
     long startedAt = System.nanoTime();
-    String phonePass = buildPhonePass(state.phoneLogin);
-    var result = vicidialClient.connectToCampaign(agentUser, agentPass, state.phoneLogin, phonePass, campaignId, null, null);
+    String phonePass = buildPhonePass(phoneLogin);
+    var result = vicidialClient.connectToCampaign(agentUser, agentPass, phoneLogin, phonePass, campaignId, null, null);
     long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
-    debugConnectCall(agentUser, state.phoneLogin, campaignId, result.statusCode(), elapsedMs, result.snippet());
+    debugConnectCall(agentUser, phoneLogin, campaignId, result.statusCode(), elapsedMs, result.snippet());
 
     String mode = vicidialService.resolveModeForCampaign(agentUser, campaignId);
-    state.campaign = campaignId;
-    state.mode = mode;
-    credentialService.saveLastSelection(agentUser, state.phoneLogin, campaignId, remember);
-    credentialService.markConnected(agentUser, state.phoneLogin, campaignId, mode);
+    credentialService.saveLastSelection(agentUser, phoneLogin, campaignId, remember);
+    credentialService.markConnected(agentUser, phoneLogin, campaignId, mode);
     RuntimeSessionFields runtime = extractRuntimeSessionFields(result.body());
-    state.manualDialListId = runtime.manualDialListId();
+    credentialService.updateManualDialListId(agentUser, runtime.manualDialListId());
     credentialService.updateRuntimeSession(
         agentUser,
         runtime.sessionName(),
@@ -168,40 +161,40 @@ public class AgentVicidialSessionService {
         "campaign", campaignId,
         "campaignId", campaignId,
         "mode", mode,
-        "phoneLogin", state.phoneLogin,
+        "phoneLogin", phoneLogin,
         "raw", result.body()
     );
   }
 
   public Map<String, Object> status(String agentUser) {
     diagnosticsService.assertVicidialReadyOrThrow();
-    AgentVicidialState state = stateByAgent.get(agentUser);
+    return sessionStatus(agentUser);
+  }
+
+  /** Same payload as {@link #status} read from the credential row only, without probing Vicidial. */
+  public Map<String, Object> sessionStatus(String agentUser) {
+    var state = credentialService.runtimeState(agentUser).orElse(null);
     Map<String, Object> response = new LinkedHashMap<>();
     response.put("ok", true);
     response.put("agentUser", agentUser);
-    response.put("phoneConnected", state != null && state.phoneConnected);
-    response.put("phoneLogin", state == null ? null : state.phoneLogin);
-    response.put("campaign", state == null ? null : state.campaign);
-    response.put("mode", state == null ? null : state.mode);
-    response.put("manualDialListId", state == null ? null : state.manualDialListId);
-    response.put("typingEnabled", state != null && state.phoneConnected && state.campaign != null);
+    response.put("phoneConnected", state != null);
+    response.put("phoneLogin", state == null ? null : state.phoneLogin());
+    response.put("campaign", state == null ? null : state.campaign());
+    response.put("mode", state == null ? null : state.mode());
+    response.put("manualDialListId", state == null ? null : state.manualDialListId());
+    response.put("typingEnabled", state != null && state.campaign() != null);
     return response;
   }
 
   public Optional<String> currentManualDialListId(String agentUser) {
-    AgentVicidialState state = stateByAgent.get(agentUser);
-    if (state == null || !StringUtils.hasText(state.manualDialListId)) {
-      return Optional.empty();
-    }
-    return Optional.of(state.manualDialListId);
+    return credentialService.runtimeState(agentUser)
+        .map(VicidialCredentialService.AgentRuntimeState::manualDialListId)
+        .filter(StringUtils::hasText);
   }
 
-  private AgentVicidialState requirePhoneConnected(String agentUser) {
-    AgentVicidialState state = stateByAgent.get(agentUser);
-    if (state == null || !state.phoneConnected) {
-      throw new IllegalStateException("Debe conectar anexo antes de continuar");
-    }
-    return state;
+  private VicidialCredentialService.AgentRuntimeState requirePhoneConnected(String agentUser) {
+    return credentialService.runtimeState(agentUser)
+        .orElseThrow(() -> new IllegalStateException("Debe conectar anexo antes de continuar"));
   }
 
   private String buildPhonePass(String phoneLogin) {
@@ -254,14 +247,6 @@ public class AgentVicidialSessionService {
     return value.substring(0, 4) + "****";
   }
 
-  static class AgentVicidialState {
-    boolean phoneConnected;
-    String phoneLogin;
-    String campaign;
-    String mode;
-    String manualDialListId;
-  }
-
   private RuntimeSessionFields extractRuntimeSessionFields(String rawBody) {
     String safeBody = Objects.toString(rawBody, "");
     String sessionName = extractJsVar(safeBody, "session_name");
@@ -0,0 +1,117 @@
+package com.telco3.agentui.agent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link AgentDialTrackingStore} on the application Postgres ({@code agent_dial_trackings}, V17).
+ */
+@Component
+@ConditionalOnProperty(name = "app.vicidial.session-store", havingValue = "postgres")
+public class JdbcAgentDialTrackingStore implements AgentDialTrackingStore {
+  private static final TypeReference<Map<String, Object>> OUTCOME = new TypeReference<>() {
+  };
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+
+  public JdbcAgentDialTrackingStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void create(String trackingId, String agentUser, String nodeId) {
+    jdbcTemplate.update("INSERT INTO agent_dial_trackings(tracking_id, agent_user, node_id) VALUES (?, ?, ?)",
+        trackingId, agentUser, nodeId);
+  }
+
+  @Override
+  public void updateAttempts(String trackingId, int attempts) {
+    jdbcTemplate.update("UPDATE agent_dial_trackings SET attempts = ? WHERE tracking_id = ? AND state = 'PENDING'",
+        attempts, trackingId);
+  }
+
+  @Override
+  public void finish(String trackingId, AgentDialFollowUpService.DialState state, int attempts, Map<String, Object> outcome) {
+    jdbcTemplate.update("""
+            UPDATE agent_dial_trackings
+            SET state = ?, attempts = ?, outcome_json = ?, finished_at = now()
+            WHERE tracking_id = ?
+            """,
+        state.name(), attempts, writeOutcome(outcome), trackingId);
+  }
+
+  @Override
+  public Optional<AgentDialFollowUpService.DialTracking> find(String agentUser, String trackingId) {
+    return jdbcTemplate.query("""
+            SELECT tracking_id, agent_user, state, attempts, outcome_json
+            FROM agent_dial_trackings
+            WHERE tracking_id = ? AND agent_user = ?
+            """,
+        (rs, rowNum) -> readTracking(rs), trackingId, agentUser).stream().findFirst();
+  }
+
+  @Override
+  public List<FinishedDial> finishedElsewhere(Collection<String> agentUsers, Instant since, String nodeId) {
+    if (agentUsers.isEmpty()) {
+      return List.of();
+    }
+    return jdbcTemplate.query("""
+            SELECT tracking_id, agent_user, state, attempts, outcome_json
+            FROM agent_dial_trackings
+            WHERE finished_at > ? AND node_id <> ? AND agent_user = ANY(?)
+            ORDER BY finished_at
+            """,
+        ps -> {
+          ps.setTimestamp(1, Timestamp.from(since));
+          ps.setString(2, nodeId);
+          ps.setArray(3, ps.getConnection().createArrayOf("varchar", agentUsers.toArray()));
+        },
+        (rs, rowNum) -> new FinishedDial(rs.getString("agent_user"), readTracking(rs)));
+  }
+
+  @Override
+  public int purgeOlderThan(Duration retention) {
+    return jdbcTemplate.update("DELETE FROM agent_dial_trackings WHERE COALESCE(finished_at, created_at) < ?",
+        Timestamp.from(Instant.now().minus(retention)));
+  }
+
+  private AgentDialFollowUpService.DialTracking readTracking(ResultSet rs) throws SQLException {
+    return new AgentDialFollowUpService.DialTracking(
+        rs.getString("tracking_id"),
+        AgentDialFollowUpService.DialState.valueOf(rs.getString("state")),
+        rs.getInt("attempts"),
+        readOutcome(rs.getString("outcome_json")));
+  }
+
+  private String writeOutcome(Map<String, Object> outcome) {
+    try {
+      return outcome == null ? null : objectMapper.writeValueAsString(outcome);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("No se pudo serializar el resultado de la marcacion", ex);
+    }
+  }
+
+  private Map<String, Object> readOutcome(String json) {
+    try {
+      return json == null || json.isBlank() ? null : objectMapper.readValue(json, OUTCOME);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("No se pudo leer el resultado de la marcacion", ex);
+    }
+  }
+}
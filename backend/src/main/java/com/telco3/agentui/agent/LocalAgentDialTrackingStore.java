@@ -0,0 +1,68 @@
+package com.telco3.agentui.agent;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node stand-in for {@link AgentDialTrackingStore}; trackings are only visible to this JVM, so nothing is
+ * ever finished elsewhere.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vicidial.session-store", havingValue = "local", matchIfMissing = true)
+public class LocalAgentDialTrackingStore implements AgentDialTrackingStore {
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  @Override
+  public void create(String trackingId, String agentUser, String nodeId) {
+    entries.put(trackingId, new Entry(agentUser, new AgentDialFollowUpService.DialTracking(
+        trackingId, AgentDialFollowUpService.DialState.PENDING, 0, null), Instant.now()));
+  }
+
+  @Override
+  public void updateAttempts(String trackingId, int attempts) {
+    entries.computeIfPresent(trackingId, (key, entry) -> entry.tracking().state() != AgentDialFollowUpService.DialState.PENDING
+        ? entry
+        : new Entry(entry.agentUser(), new AgentDialFollowUpService.DialTracking(
+            key, AgentDialFollowUpService.DialState.PENDING, attempts, null), entry.updatedAt()));
+  }
+
+  @Override
+  public void finish(String trackingId, AgentDialFollowUpService.DialState state, int attempts, Map<String, Object> outcome) {
+    entries.computeIfPresent(trackingId, (key, entry) -> new Entry(entry.agentUser(),
+        new AgentDialFollowUpService.DialTracking(key, state, attempts, outcome), Instant.now()));
+  }
+
+  @Override
+  public Optional<AgentDialFollowUpService.DialTracking> find(String agentUser, String trackingId) {
+    Entry entry = entries.get(trackingId);
+    if (entry == null || !Objects.equals(entry.agentUser(), agentUser)) {
+      return Optional.empty();
+    }
+    return Optional.of(entry.tracking());
+  }
+
+  @Override
+  public List<FinishedDial> finishedElsewhere(Collection<String> agentUsers, Instant since, String nodeId) {
+    return List.of();
+  }
+
+  @Override
+  public int purgeOlderThan(Duration retention) {
+    Instant cutoff = Instant.now().minus(retention);
+    int before = entries.size();
+    entries.values().removeIf(entry -> entry.updatedAt().isBefore(cutoff));
+    return before - entries.size();
+  }
+
+  private record Entry(String agentUser, AgentDialFollowUpService.DialTracking tracking, Instant updatedAt) {
+  }
+}
@@ -17,26 +17,40 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class VicidialCredentialService {
   private static final Logger log = LoggerFactory.getLogger(VicidialCredentialService.class);
+  private static final int MAX_CACHED_PASSES = 5000;
+  private static final int MAX_POOLED_CIPHERS = 32;
 
   private final AgentVicidialCredentialRepository repo;
   private final UserRepository userRepository;
   private final SecretKeySpec key;
   private final Environment environment;
+  private final long passCacheTtlNanos;
+  private final ConcurrentHashMap<String, CachedPass> passCache = new ConcurrentHashMap<>();
+  // Bumped by every invalidation; one entry per app user ever invalidated, never evicted (bounded by the users table).
+  private final ConcurrentHashMap<String, Long> passGenerations = new ConcurrentHashMap<>();
+  private final Queue<Cipher> encryptCiphers = new ConcurrentLinkedQueue<>();
+  private final Queue<Cipher> decryptCiphers = new ConcurrentLinkedQueue<>();
 
   public VicidialCredentialService(
       AgentVicidialCredentialRepository repo,
       UserRepository userRepository,
       @Value("${app.crypto-key}") String cryptoKey,
-      Environment environment
+      Environment environment,
+      @Value("${app.vicidial.credentials.cache-ttl-ms:120000}") long passCacheTtlMs
   ) {
     this.repo = repo;
     this.userRepository = userRepository;
     this.key = new SecretKeySpec(cryptoKey.getBytes(StandardCharsets.UTF_8), "AES");
     this.environment = environment;
+    this.passCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, passCacheTtlMs));
   }
 
   public AgentProfileState getProfile(String appUsername) {
@@ -63,9 +77,45 @@ public class VicidialCredentialService {
         .orElseThrow(() -> new IllegalStateException("No existe usuario para almacenar agent_pass"));
     user.agentPassEncrypted = encrypt(agentPass);
     userRepository.save(user);
+    invalidateAgentPass(appUsername);
   }
 
+  /**
+   * Decrypted agent_pass by app username, cached for {@code app.vicidial.credentials.cache-ttl-ms}. A load that
+   * overlaps {@link #invalidateAgentPass} returns what it read but does not cache it.
+   */
   public Optional<String> resolveAgentPass(String appUsername) {
+    if (appUsername == null || passCacheTtlNanos == 0) {
+      return loadAgentPass(appUsername);
+    }
+    CachedPass cached = passCache.get(appUsername);
+    if (cached != null && cached.isValid()) {
+      return cached.pass();
+    }
+    long generation = passGenerations.getOrDefault(appUsername, 0L);
+    Optional<String> pass = loadAgentPass(appUsername);
+    if (passCache.size() >= MAX_CACHED_PASSES) {
+      long now = System.nanoTime();
+      passCache.entrySet().removeIf(entry -> entry.getValue().expiresAtNanos() <= now);
+      if (passCache.size() >= MAX_CACHED_PASSES) {
+        passCache.clear();
+      }
+    }
+    passCache.compute(appUsername, (username, current) ->
+        passGenerations.getOrDefault(username, 0L) == generation
+            ? new CachedPass(pass, System.nanoTime() + passCacheTtlNanos)
+            : current);
+    return pass;
+  }
+
+  public void invalidateAgentPass(String appUsername) {
+    if (appUsername != null) {
+      passGenerations.merge(appUsername, 1L, Long::sum);
+      passCache.remove(appUsername);
+    }
+  }
+
+  private Optional<String> loadAgentPass(String appUsername) {
     return userRepository.findByUsername(appUsername)
         .map(e -> {
           if (e.agentPassEncrypted == null || e.agentPassEncrypted.isBlank()) return null;
@@ -104,6 +154,34 @@ public class VicidialCredentialService {
     repo.save(entity);
   }
 
+  /** Records the AGC phone login (null when it failed or was dropped) so any replica can check it. */
+  public void updatePhoneSession(String appUsername, String phoneLogin) {
+    var entity = getOrCreate(appUsername);
+    entity.phoneConnected = phoneLogin != null;
+    entity.phoneLogin = emptyToNull(phoneLogin);
+    entity.manualDialListId = null;
+    entity.updatedAt = OffsetDateTime.now();
+    repo.save(entity);
+  }
+
+  public void updateManualDialListId(String appUsername, String manualDialListId) {
+    var entity = getOrCreate(appUsername);
+    entity.manualDialListId = emptyToNull(manualDialListId);
+    entity.updatedAt = OffsetDateTime.now();
+    repo.save(entity);
+  }
+
+  public Optional<AgentRuntimeState> runtimeState(String appUsername) {
+    return repo.findByAppUsername(appUsername)
+        .filter(entity -> entity.phoneConnected)
+        .map(entity -> new AgentRuntimeState(
+            entity.phoneLogin,
+            entity.connected ? entity.connectedCampaign : null,
+            entity.connected ? entity.connectedMode : null,
+            entity.manualDialListId
+        ));
+  }
+
   public void markConnected(String appUsername, String phoneLogin, String campaign, String mode) {
     var entity = getOrCreate(appUsername);
     entity.connected = true;
@@ -165,6 +243,9 @@ public class VicidialCredentialService {
   public void markDisconnected(String appUsername) {
     var entity = getOrCreate(appUsername);
     entity.connected = false;
+    entity.phoneConnected = false;
+    entity.phoneLogin = null;
+    entity.manualDialListId = null;
     entity.connectedPhoneLogin = null;
     entity.connectedCampaign = null;
     entity.connectedMode = null;
@@ -253,6 +334,9 @@ public class VicidialCredentialService {
     return value.substring(0, 2) + "***" + value.substring(value.length() - 1);
   }
 
+  /** Phone and campaign selection of an agent whose AGC phone is connected. */
+  public record AgentRuntimeState(String phoneLogin, String campaign, String mode, String manualDialListId) {}
+
   public record AgentVicidialCredentials(String agentUser, String agentPass, boolean fallbackUsed, String warning) {}
 
   public record AgentProfileState(
@@ -267,15 +351,40 @@ public class VicidialCredentialService {
       String agentUser
   ) {}
 
+  private record CachedPass(Optional<String> pass, long expiresAtNanos) {
+    boolean isValid() {
+      return System.nanoTime() < expiresAtNanos;
+    }
+  }
+
   private String encrypt(String value) throws Exception {
-    var cipher = Cipher.getInstance("AES");
-    cipher.init(Cipher.ENCRYPT_MODE, key);
-    return Base64.getEncoder().encodeToString(cipher.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+    Cipher cipher = borrowCipher(encryptCiphers, Cipher.ENCRYPT_MODE);
+    String encrypted = Base64.getEncoder().encodeToString(cipher.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+    releaseCipher(encryptCiphers, cipher);
+    return encrypted;
   }
 
   private String decrypt(String value) throws Exception {
-    var cipher = Cipher.getInstance("AES");
-    cipher.init(Cipher.DECRYPT_MODE, key);
-    return new String(cipher.doFinal(Base64.getDecoder().decode(value)), StandardCharsets.UTF_8);
+    Cipher cipher = borrowCipher(decryptCiphers, Cipher.DECRYPT_MODE);
+    String decrypted = new String(cipher.doFinal(Base64.getDecoder().decode(value)), StandardCharsets.UTF_8);
+    releaseCipher(decryptCiphers, cipher);
+    return decrypted;
+  }
+
+  // Cipher is not thread-safe; a successful doFinal leaves it initialized, so it goes back to the pool only then.
+  private Cipher borrowCipher(Queue<Cipher> pool, int mode) throws Exception {
+    Cipher cipher = pool.poll();
+    if (cipher != null) {
+      return cipher;
+    }
+    cipher = Cipher.getInstance("AES");
+    cipher.init(mode, key);
+    return cipher;
+  }
+
+  private void releaseCipher(Queue<Cipher> pool, Cipher cipher) {
+    if (pool.size() < MAX_POOLED_CIPHERS) {
+      pool.offer(cipher);
+    }
   }
 }
@@ -0,0 +1,275 @@
+package com.telco3.agentui.campaign.core;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Disposition outbox on the application Postgres ({@code vicidial_disposition_outbox}, V14). Rows are enqueued in
+ * the same transaction as the gestion; workers claim due rows with {@code FOR UPDATE SKIP LOCKED}, so several nodes
+ * can drain the table without handing out the same row twice. A claim increments {@code attempts} and pushes
+ * {@code next_attempt_at} forward by the lease, so rows left IN_PROGRESS by a dead worker become due again.
+ * Each attempt stores the call identifiers it used and the post-call steps that completed ({@code completed_steps},
+ * V16; NULL until the first attempt reports), so the next attempt resumes instead of re-sending them.
+ */
+@Component
+public class VicidialDispositionOutboxStore {
+  private final JdbcTemplate jdbcTemplate;
+
+  public VicidialDispositionOutboxStore(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Returns false when a row with the same idempotency key is being sent (IN_PROGRESS), already synced, or PENDING
+   * with a dispo step already in Vicidial. A FAILED row, or a PENDING one whose dispo steps have not run yet, takes
+   * the new gestion and disposition; the replaced gestion is marked SKIPPED. The row keeps the stored call
+   * identifiers and a completed log end, and a PENDING row keeps its attempt count so stale claims stay fenced off.
+   */
+  @Transactional
+  public boolean enqueue(OutboxEntry entry) {
+    List<Long> replaced = jdbcTemplate.queryForList("""
+            SELECT gestion_id
+            FROM vicidial_disposition_outbox
+            WHERE idempotency_key = ? AND status = 'PENDING'
+            FOR UPDATE
+            """,
+        Long.class, entry.idempotencyKey());
+    boolean queued = jdbcTemplate.update("""
+            INSERT INTO vicidial_disposition_outbox(
+              idempotency_key, gestion_id, interaccion_id, agent_user, campana, lead_id, call_id, unique_id, telefono, disposicion)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (idempotency_key) DO UPDATE
+            SET gestion_id = EXCLUDED.gestion_id,
+                interaccion_id = EXCLUDED.interaccion_id,
+                agent_user = EXCLUDED.agent_user,
+                campana = EXCLUDED.campana,
+                unique_id = COALESCE(EXCLUDED.unique_id, vicidial_disposition_outbox.unique_id),
+                telefono = COALESCE(EXCLUDED.telefono, vicidial_disposition_outbox.telefono),
+                disposicion = EXCLUDED.disposicion,
+                completed_steps = CASE
+                  WHEN vicidial_disposition_outbox.completed_steps IS NULL THEN NULL
+                  WHEN 'logEnd' = ANY(string_to_array(vicidial_disposition_outbox.completed_steps, ',')) THEN 'logEnd'
+                  ELSE ''
+                END,
+                status = 'PENDING',
+                attempts = CASE WHEN vicidial_disposition_outbox.status = 'FAILED' THEN 0 ELSE vicidial_disposition_outbox.attempts END,
+                next_attempt_at = now(),
+                last_error = NULL,
+                created_at = now(),
+                synced_at = NULL
+            WHERE vicidial_disposition_outbox.status = 'FAILED'
+               OR (vicidial_disposition_outbox.status = 'PENDING'
+                   AND NOT string_to_array(COALESCE(vicidial_disposition_outbox.completed_steps, ''), ',')
+                       && ARRAY['updateDispo', 'runUrls'])
+            """,
+        entry.idempotencyKey(), entry.gestionId(), entry.interaccionId(), entry.agentUser(), entry.campana(),
+        entry.leadId(), entry.callId(), entry.uniqueId(), entry.telefono(), entry.disposicion()) == 1;
+    if (queued && !replaced.isEmpty() && !replaced.get(0).equals(entry.gestionId())) {
+      jdbcTemplate.update("""
+              UPDATE gestiones_llamadas
+              SET vicidial_sync_status = 'SKIPPED',
+                  vicidial_sync_error = 'Reemplazada por una disposicion posterior de la misma llamada.'
+              WHERE id = ? AND vicidial_sync_status = 'PENDING'
+              """,
+          replaced.get(0));
+    }
+    return queued;
+  }
+
+  public List<OutboxItem> claimDue(int limit, long leaseMs) {
+    return jdbcTemplate.query("""
+            UPDATE vicidial_disposition_outbox o
+            SET status = 'IN_PROGRESS',
+                attempts = o.attempts + 1,
+                next_attempt_at = now() + (? * interval '1 millisecond')
+            WHERE o.id IN (
+              SELECT id
+              FROM vicidial_disposition_outbox
+              WHERE status IN ('PENDING', 'IN_PROGRESS') AND next_attempt_at <= now()
+              ORDER BY next_attempt_at
+              LIMIT ?
+              FOR UPDATE SKIP LOCKED
+            )
+            RETURNING o.id, o.gestion_id, o.interaccion_id, o.agent_user, o.campana, o.lead_id, o.call_id, o.unique_id,
+                      o.telefono, o.channel, o.list_id, o.completed_steps, o.disposicion, o.attempts, o.created_at
+            """,
+        (rs, rowNum) -> readItem(rs), leaseMs, limit);
+  }
+
+  /** Marks the row and its gestion as synced; false when the claim was lost (lease expired and re-claimed). */
+  @Transactional
+  public boolean markSynced(OutboxItem item, String recordingName) {
+    int updated = jdbcTemplate.update("""
+            UPDATE vicidial_disposition_outbox
+            SET status = 'SYNCED', synced_at = now(), last_error = NULL
+            WHERE id = ? AND attempts = ? AND status = 'IN_PROGRESS'
+            """,
+        item.id(), item.attempts());
+    if (updated == 0) {
+      return false;
+    }
+    jdbcTemplate.update("""
+            UPDATE gestiones_llamadas
+            SET vicidial_sync_status = 'SYNCED',
+                vicidial_sync_error = NULL,
+                nombre_audio = COALESCE(NULLIF(nombre_audio, ''), ?)
+            WHERE id = ?
+            """,
+        recordingName, item.gestionId());
+    if (item.interaccionId() != null && recordingName != null) {
+      jdbcTemplate.update("UPDATE interacciones SET nombre_audio = COALESCE(NULLIF(nombre_audio, ''), ?) WHERE id = ?",
+          recordingName, item.interaccionId());
+    }
+    return true;
+  }
+
+  /**
+   * Schedules another attempt; the gestion stays PENDING and shows the last error. Non-null values of {@code progress}
+   * replace the stored identifiers and completed steps ({@link SyncProgress#NONE} when the attempt never reached
+   * Vicidial).
+   */
+  @Transactional
+  public boolean markRetry(OutboxItem item, String error, long delayMs, SyncProgress progress) {
+    int updated = jdbcTemplate.update("""
+            UPDATE vicidial_disposition_outbox
+            SET status = 'PENDING', next_attempt_at = now() + (? * interval '1 millisecond'), last_error = ?,
+                call_id = COALESCE(?, call_id), unique_id = COALESCE(?, unique_id), channel = COALESCE(?, channel),
+                telefono = COALESCE(?, telefono), list_id = COALESCE(?, list_id),
+                completed_steps = COALESCE(?, completed_steps)
+            WHERE id = ? AND attempts = ? AND status = 'IN_PROGRESS'
+            """,
+        delayMs, error, progress.callId(), progress.uniqueId(), progress.channel(), progress.telefono(), progress.listId(),
+        progress.joinedSteps(), item.id(), item.attempts());
+    if (updated == 0) {
+      return false;
+    }
+    jdbcTemplate.update("UPDATE gestiones_llamadas SET vicidial_sync_error = ? WHERE id = ? AND vicidial_sync_status = 'PENDING'",
+        error, item.gestionId());
+    return true;
+  }
+
+  @Transactional
+  public boolean markFailed(OutboxItem item, String error, SyncProgress progress) {
+    int updated = jdbcTemplate.update("""
+            UPDATE vicidial_disposition_outbox
+            SET status = 'FAILED', last_error = ?,
+                call_id = COALESCE(?, call_id), unique_id = COALESCE(?, unique_id), channel = COALESCE(?, channel),
+                telefono = COALESCE(?, telefono), list_id = COALESCE(?, list_id),
+                completed_steps = COALESCE(?, completed_steps)
+            WHERE id = ? AND attempts = ? AND status = 'IN_PROGRESS'
+            """,
+        error, progress.callId(), progress.uniqueId(), progress.channel(), progress.telefono(), progress.listId(),
+        progress.joinedSteps(), item.id(), item.attempts());
+    if (updated == 0) {
+      return false;
+    }
+    jdbcTemplate.update("UPDATE gestiones_llamadas SET vicidial_sync_status = 'FAILED', vicidial_sync_error = ? WHERE id = ?",
+        error, item.gestionId());
+    return true;
+  }
+
+  public OutboxStats stats() {
+    return jdbcTemplate.queryForObject("""
+            SELECT count(*) AS pending, min(created_at) AS oldest
+            FROM vicidial_disposition_outbox
+            WHERE status IN ('PENDING', 'IN_PROGRESS')
+            """,
+        (rs, rowNum) -> {
+          Timestamp oldest = rs.getTimestamp("oldest");
+          return new OutboxStats(rs.getLong("pending"), oldest == null ? null : oldest.toInstant());
+        });
+  }
+
+  private static OutboxItem readItem(ResultSet rs) throws SQLException {
+    Timestamp createdAt = rs.getTimestamp("created_at");
+    String completedSteps = rs.getString("completed_steps");
+    return new OutboxItem(
+        rs.getLong("id"),
+        rs.getLong("gestion_id"),
+        rs.getObject("interaccion_id", Long.class),
+        rs.getString("agent_user"),
+        rs.getString("campana"),
+        rs.getLong("lead_id"),
+        rs.getString("call_id"),
+        rs.getString("unique_id"),
+        rs.getString("telefono"),
+        rs.getString("channel"),
+        rs.getString("list_id"),
+        completedSteps == null ? null : Arrays.stream(completedSteps.split(","))
+            .map(String::trim)
+            .filter(step -> !step.isEmpty())
+            .collect(Collectors.toUnmodifiableSet()),
+        rs.getString("disposicion"),
+        rs.getInt("attempts"),
+        createdAt == null ? Instant.now() : createdAt.toInstant()
+    );
+  }
+
+  public record OutboxEntry(
+      String idempotencyKey,
+      Long gestionId,
+      Long interaccionId,
+      String agentUser,
+      String campana,
+      Long leadId,
+      String callId,
+      String uniqueId,
+      String telefono,
+      String disposicion
+  ) {
+  }
+
+  public record OutboxItem(
+      long id,
+      long gestionId,
+      Long interaccionId,
+      String agentUser,
+      String campana,
+      long leadId,
+      String callId,
+      String uniqueId,
+      String telefono,
+      String channel,
+      String listId,
+      Set<String> completedSteps,
+      String disposicion,
+      int attempts,
+      Instant createdAt
+  ) {
+    /** True once an earlier attempt stored its identifiers and progress, or may have reached Vicidial. */
+    public boolean resumable() {
+      return completedSteps != null || attempts > 1;
+    }
+  }
+
+  /** Call identifiers an attempt used and the post-call steps that completed so far. */
+  public record SyncProgress(
+      String callId,
+      String uniqueId,
+      String channel,
+      String telefono,
+      String listId,
+      Set<String> completedSteps
+  ) {
+    public static final SyncProgress NONE = new SyncProgress(null, null, null, null, null, null);
+
+    String joinedSteps() {
+      return completedSteps == null ? null : String.join(",", new TreeSet<>(completedSteps));
+    }
+  }
+
+  /** Rows still waiting for Vicidial and the enqueue time of the oldest one (null when none). */
+  public record OutboxStats(long pending, Instant oldestCreatedAt) {
+  }
+}
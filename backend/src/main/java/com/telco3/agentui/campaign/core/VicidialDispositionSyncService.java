@@ -0,0 +1,367 @@
+package com.telco3.agentui.campaign.core;
+
+import com.telco3.agentui.agent.VicidialCredentialService;
+import com.telco3.agentui.domain.GestionLlamadaEntity;
+import com.telco3.agentui.vicidial.VicidialClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends final dispositions to Vicidial outside the save transaction. {@link #enqueue} writes an outbox row next to
+ * the gestion (which commits as PENDING); a poller claims due rows and a fixed worker pool runs the post-call sync
+ * (or external_status when the agent has no connected session). Failures are retried with exponential backoff until
+ * {@code max-attempts}, then the gestion is marked FAILED. The idempotency key (lead + call) keeps a second save of
+ * the same call from dispositioning it twice; saving again after the row FAILED re-queues it with the new disposition.
+ * Inside one row, retries resume from the first post-call step that has not completed (see {@link #process}).
+ */
+@Service
+public class VicidialDispositionSyncService {
+  static final String PENDING = "vicidial.dispo.outbox.pending";
+  static final String LAG = "vicidial.dispo.outbox.lag";
+  static final String SYNC_LAG = "vicidial.dispo.outbox.sync.lag";
+  static final String ATTEMPTS = "vicidial.dispo.outbox.attempts";
+  private static final Logger log = LoggerFactory.getLogger(VicidialDispositionSyncService.class);
+
+  private final VicidialDispositionOutboxStore store;
+  private final AgentVicidialCredentialRepository agentVicidialCredentialRepository;
+  private final VicidialCredentialService credentialService;
+  private final VicidialService vicidialService;
+  private final VicidialClient vicidialClient;
+  private final CampaignInteractionCoreService coreService;
+  private final MeterRegistry registry;
+  private final boolean enabled;
+  private final int workerCount;
+  private final long pollMs;
+  private final int batchSize;
+  private final long leaseMs;
+  private final int maxAttempts;
+  private final long initialDelayMs;
+  private final long maxDelayMs;
+  private final double backoffMultiplier;
+  private final Clock clock;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong pendingCount = new AtomicLong();
+  private volatile Instant oldestPending;
+  private volatile boolean backlog;
+  private final ScheduledExecutorService poller;
+  private final ExecutorService workers;
+
+  @Autowired
+  public VicidialDispositionSyncService(
+      VicidialDispositionOutboxStore store,
+      AgentVicidialCredentialRepository agentVicidialCredentialRepository,
+      VicidialCredentialService credentialService,
+      VicidialService vicidialService,
+      VicidialClient vicidialClient,
+      CampaignInteractionCoreService coreService,
+      MeterRegistry registry,
+      @Value("${app.vicidial.dispo-outbox.enabled:true}") boolean enabled,
+      @Value("${app.vicidial.dispo-outbox.workers:4}") int workerCount,
+      @Value("${app.vicidial.dispo-outbox.poll-ms:1000}") long pollMs,
+      @Value("${app.vicidial.dispo-outbox.batch-size:20}") int batchSize,
+      @Value("${app.vicidial.dispo-outbox.lease-ms:120000}") long leaseMs,
+      @Value("${app.vicidial.dispo-outbox.max-attempts:8}") int maxAttempts,
+      @Value("${app.vicidial.dispo-outbox.initial-delay-ms:2000}") long initialDelayMs,
+      @Value("${app.vicidial.dispo-outbox.max-delay-ms:300000}") long maxDelayMs,
+      @Value("${app.vicidial.dispo-outbox.backoff-multiplier:2.0}") double backoffMultiplier
+  ) {
+    this(store, agentVicidialCredentialRepository, credentialService, vicidialService, vicidialClient, coreService,
+        registry, enabled, workerCount, pollMs, batchSize, leaseMs, maxAttempts, initialDelayMs, maxDelayMs,
+        backoffMultiplier, Clock.systemUTC());
+  }
+
+  VicidialDispositionSyncService(
+      VicidialDispositionOutboxStore store,
+      AgentVicidialCredentialRepository agentVicidialCredentialRepository,
+      VicidialCredentialService credentialService,
+      VicidialService vicidialService,
+      VicidialClient vicidialClient,
+      CampaignInteractionCoreService coreService,
+      MeterRegistry registry,
+      boolean enabled,
+      int workerCount,
+      long pollMs,
+      int batchSize,
+      long leaseMs,
+      int maxAttempts,
+      long initialDelayMs,
+      long maxDelayMs,
+      double backoffMultiplier,
+      Clock clock
+  ) {
+    this.store = store;
+    this.agentVicidialCredentialRepository = agentVicidialCredentialRepository;
+    this.credentialService = credentialService;
+    this.vicidialService = vicidialService;
+    this.vicidialClient = vicidialClient;
+    this.coreService = coreService;
+    this.registry = registry;
+    this.enabled = enabled;
+    this.workerCount = Math.max(1, workerCount);
+    this.pollMs = Math.max(100, pollMs);
+    this.batchSize = Math.max(1, batchSize);
+    this.leaseMs = Math.max(1000, leaseMs);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialDelayMs = Math.max(0, initialDelayMs);
+    this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+    this.backoffMultiplier = Math.max(1.0, backoffMultiplier);
+    this.clock = clock;
+    this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "vicidial-dispo-outbox");
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicInteger workerIds = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+      Thread thread = new Thread(runnable, "vicidial-dispo-sync-" + workerIds.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /** Registers the backlog gauges and, when enabled, starts polling once the bean is fully built. */
+  @PostConstruct
+  void start() {
+    Gauge.builder(PENDING, pendingCount, AtomicLong::get)
+        .description("Disposiciones en la cola de sincronizacion con Vicidial")
+        .register(registry);
+    Gauge.builder(LAG, this, VicidialDispositionSyncService::lagSeconds)
+        .description("Antiguedad de la disposicion pendiente mas antigua")
+        .baseUnit("seconds")
+        .register(registry);
+    if (enabled) {
+      poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Queues the Vicidial disposition of a saved gestion (must have an id and a lead). Joins the caller's transaction,
+   * and the poller is woken once it commits. Returns false when the disposition of the same lead/call is already being sent or synced.
+   */
+  public boolean enqueue(GestionLlamadaEntity gestion) {
+    boolean queued = store.enqueue(new VicidialDispositionOutboxStore.OutboxEntry(
+        idempotencyKey(gestion.leadId, gestion.callId, gestion.uniqueId, gestion.id),
+        gestion.id,
+        gestion.interaccionId,
+        gestion.agente,
+        gestion.campana,
+        gestion.leadId,
+        gestion.callId,
+        gestion.uniqueId,
+        gestion.telefono,
+        gestion.disposicion
+    ));
+    if (queued && TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          wake();
+        }
+      });
+    } else if (queued) {
+      wake();
+    }
+    return queued;
+  }
+
+  static String idempotencyKey(Long leadId, String callId, String uniqueId, Long gestionId) {
+    String call = StringUtils.hasText(callId) ? callId.trim() : StringUtils.hasText(uniqueId) ? uniqueId.trim() : "gestion-" + gestionId;
+    return "lead:" + leadId + ":call:" + call;
+  }
+
+  long retryDelayMs(int attempts) {
+    double delay = initialDelayMs * Math.pow(backoffMultiplier, Math.max(0, attempts - 1));
+    return (long) Math.min(delay, maxDelayMs);
+  }
+
+  double lagSeconds() {
+    Instant oldest = oldestPending;
+    return oldest == null ? 0 : Math.max(0, Duration.between(oldest, clock.instant()).toMillis() / 1000.0);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    poller.shutdownNow();
+    workers.shutdown();
+  }
+
+  private void wake() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      poller.execute(this::poll);
+    } catch (RejectedExecutionException ex) {
+      log.debug("Disposition outbox poller stopped, row left for the next poll");
+    }
+  }
+
+  void poll() {
+    refreshStats();
+    int capacity = workerCount - inFlight.get();
+    if (capacity <= 0) {
+      return;
+    }
+    List<VicidialDispositionOutboxStore.OutboxItem> items;
+    try {
+      items = store.claimDue(Math.min(capacity, batchSize), leaseMs);
+    } catch (RuntimeException ex) {
+      log.warn("Disposition outbox claim failed cause={}", ex.getClass().getSimpleName());
+      return;
+    }
+    backlog = items.size() >= capacity;
+    for (var item : items) {
+      inFlight.incrementAndGet();
+      try {
+        workers.execute(() -> {
+          try {
+            process(item);
+          } finally {
+            inFlight.decrementAndGet();
+            if (backlog) {
+              wake();
+            }
+          }
+        });
+      } catch (RejectedExecutionException ex) {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * One attempt. The first runs the full post-call sync against the agent's live screen; later attempts resume from
+   * the identifiers and completed steps stored on the row, so a failed run URL never re-sends log end or dispo and a
+   * retry minutes later cannot pick up the agent's next call.
+   */
+  void process(VicidialDispositionOutboxStore.OutboxItem item) {
+    String recordingName = null;
+    String error = null;
+    VicidialDispositionOutboxStore.SyncProgress progress = VicidialDispositionOutboxStore.SyncProgress.NONE;
+    try {
+      var sessionOpt = agentVicidialCredentialRepository.findByAppUsername(item.agentUser()).filter(s -> s.connected);
+      String agentPass = credentialService.resolveAgentPass(item.agentUser()).orElse(null);
+      if (sessionOpt.isPresent() && StringUtils.hasText(agentPass)) {
+        var sync = item.resumable()
+            ? vicidialService.resumePostCallDisposition(
+                item.agentUser(),
+                agentPass,
+                sessionOpt.get(),
+                item.campana(),
+                new VicidialService.PostCallIdentifiers(item.callId(), item.leadId(), item.uniqueId(), item.channel(),
+                    item.telefono(), item.listId()),
+                item.completedSteps() == null ? Set.of() : item.completedSteps(),
+                item.disposicion())
+            : vicidialService.syncPostCallDisposition(
+                item.agentUser(),
+                agentPass,
+                sessionOpt.get(),
+                item.campana(),
+                item.leadId(),
+                item.callId(),
+                item.uniqueId(),
+                item.telefono(),
+                item.disposicion());
+        progress = progress(sync);
+        if (sync.synced()) {
+          recordingName = coreService.sanitizeRecordingName(sync.recordingFilename());
+        } else {
+          error = coreService.firstNonBlank(sync.error(), "Post-call sync failed");
+        }
+      } else {
+        vicidialClient.externalStatus(item.agentUser(), item.disposicion(), item.leadId(), item.campana());
+      }
+    } catch (Exception ex) {
+      error = coreService.firstNonBlank(ex.getMessage(), ex.getClass().getSimpleName());
+    }
+
+    try {
+      if (error == null) {
+        if (store.markSynced(item, recordingName)) {
+          recordOutcome(item, "synced", true);
+        }
+      } else if (item.attempts() >= maxAttempts) {
+        if (store.markFailed(item, error, progress)) {
+          recordOutcome(item, "failed", true);
+          log.warn("Disposition sync gave up agent={} leadId={} gestionId={} attempts={} error={}",
+              item.agentUser(), item.leadId(), item.gestionId(), item.attempts(), error);
+        }
+      } else {
+        long delayMs = retryDelayMs(item.attempts());
+        if (store.markRetry(item, error, delayMs, progress)) {
+          recordOutcome(item, "retry", false);
+          log.info("Disposition sync retry scheduled agent={} leadId={} gestionId={} attempt={} delayMs={} error={}",
+              item.agentUser(), item.leadId(), item.gestionId(), item.attempts(), delayMs, error);
+        }
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Disposition outbox update failed id={} cause={}, the row is retried when its lease expires",
+          item.id(), ex.getClass().getSimpleName());
+    }
+  }
+
+  private static VicidialDispositionOutboxStore.SyncProgress progress(VicidialService.PostCallSyncResult sync) {
+    var ids = sync.identifiers();
+    if (ids == null) {
+      return VicidialDispositionOutboxStore.SyncProgress.NONE;
+    }
+    return new VicidialDispositionOutboxStore.SyncProgress(ids.callId(), ids.uniqueId(), ids.channel(), ids.phoneNumber(),
+        ids.listId(), sync.completedSteps());
+  }
+
+  private void recordOutcome(VicidialDispositionOutboxStore.OutboxItem item, String outcome, boolean finished) {
+    Counter.builder(ATTEMPTS)
+        .description("Intentos de sincronizacion de disposiciones con Vicidial")
+        .tag("outcome", outcome)
+        .register(registry)
+        .increment();
+    if (finished) {
+      Duration lag = Duration.between(item.createdAt(), clock.instant());
+      Timer.builder(SYNC_LAG)
+          .description("Tiempo entre el guardado de la gestion y su disposicion en Vicidial")
+          .tag("outcome", outcome)
+          .publishPercentileHistogram()
+          .minimumExpectedValue(Duration.ofMillis(50))
+          .maximumExpectedValue(Duration.ofHours(1))
+          .register(registry)
+          .record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+  }
+
+  private void refreshStats() {
+    try {
+      var stats = store.stats();
+      pendingCount.set(stats.pending());
+      oldestPending = stats.oldestCreatedAt();
+    } catch (RuntimeException ex) {
+      log.debug("Disposition outbox stats unavailable cause={}", ex.getClass().getSimpleName());
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.telco3.agentui.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+  @Bean(name = "vicidialExecutor")
+  AsyncTaskExecutor vicidialExecutor(
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${app.vicidial.executor.core-size:16}") int coreSize,
+      @Value("${app.vicidial.executor.max-size:64}") int maxSize,
+      @Value("${app.vicidial.executor.queue-capacity:500}") int queueCapacity,
+      @Value("${app.vicidial.executor.virtual-concurrency-limit:200}") int virtualConcurrencyLimit
+  ) {
+    if (virtualThreads) {
+      BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("vicidial-vt-", virtualConcurrencyLimit);
+      executor.setTaskTerminationTimeout(10_000);
+      return executor;
+    }
+
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("vicidial-");
+    executor.setCorePoolSize(coreSize);
+    executor.setMaxPoolSize(maxSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(10);
+    executor.initialize();
+    return executor;
+  }
+}
@@ -0,0 +1,44 @@
+package com.telco3.agentui.config;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Virtual-thread executor that rejects instead of waiting when {@code maxConcurrency} tasks are already running.
+ * {@link SimpleAsyncTaskExecutor#setConcurrencyLimit} blocks the submitting thread, which would stall the
+ * single-thread schedulers and hide saturation; this fails like the bounded platform pool does.
+ */
+public class BoundedVirtualThreadExecutor extends SimpleAsyncTaskExecutor {
+  private final Semaphore permits;
+
+  public BoundedVirtualThreadExecutor(String threadNamePrefix, int maxConcurrency) {
+    super(threadNamePrefix);
+    setVirtualThreads(true);
+    this.permits = new Semaphore(Math.max(maxConcurrency, 1));
+  }
+
+  @Override
+  protected void doExecute(Runnable task) {
+    if (!permits.tryAcquire()) {
+      throw new TaskRejectedException("Executor [" + this + "] reached its concurrency limit, task " + task + " rejected");
+    }
+    try {
+      super.doExecute(() -> {
+        try {
+          task.run();
+        } finally {
+          permits.release();
+        }
+      });
+    } catch (RuntimeException ex) {
+      permits.release();
+      throw ex;
+    }
+  }
+
+  public int availablePermits() {
+    return permits.availablePermits();
+  }
+}
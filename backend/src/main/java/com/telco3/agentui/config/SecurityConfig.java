@@ -28,6 +28,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -55,9 +56,11 @@ public class SecurityConfig {
         HttpHeaders.AUTHORIZATION,
         HttpHeaders.CONTENT_TYPE,
         HttpHeaders.ACCEPT,
-        HttpHeaders.ORIGIN
+        HttpHeaders.ORIGIN,
+        HttpHeaders.IF_NONE_MATCH,
+        "Last-Event-ID"
     ));
-    config.setExposedHeaders(List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE));
+    config.setExposedHeaders(List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG));
     config.setAllowCredentials(true);
     config.setMaxAge(3600L);
 
@@ -75,7 +78,8 @@ public class SecurityConfig {
         .requestMatchers(CorsUtils::isPreFlightRequest).permitAll()
         .requestMatchers(HttpMethod.OPTIONS, "/api/**").permitAll()
         .requestMatchers("/api/auth/**", "/swagger-ui/**", "/v3/api-docs/**", "/actuator/health").permitAll()
-        .requestMatchers("/api/settings/**","/api/vicidial/**","/api/reports/**","/api/admin/**").hasRole("REPORT_ADMIN")
+        .requestMatchers(JwtFilter.PROMETHEUS_PATH).hasAnyRole("REPORT_ADMIN", JwtFilter.SCRAPER_ROLE)
+        .requestMatchers("/api/settings/**","/api/vicidial/**","/api/reports/**","/api/admin/**","/actuator/vicidialcircuits").hasRole("REPORT_ADMIN")
         .anyRequest().authenticated())
       .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
       .build();
@@ -93,8 +97,19 @@ public class SecurityConfig {
 
   @Component
   public static class JwtFilter extends OncePerRequestFilter {
+    static final String PROMETHEUS_PATH = "/actuator/prometheus";
+    static final String SCRAPER_ROLE = "METRICS_SCRAPER";
     private final JwtService jwt;
-    public JwtFilter(JwtService jwt){this.jwt=jwt;}
+    private final byte[] scrapeToken;
+    // Prometheus cannot log in for a JWT: app.metrics.scrape-token, sent as a bearer token, opens the scrape endpoint
+    // and nothing else. Empty (the default) leaves it to REPORT_ADMIN tokens.
+    public JwtFilter(JwtService jwt, @Value("${app.metrics.scrape-token:}") String scrapeToken){
+      this.jwt=jwt;
+      this.scrapeToken=scrapeToken.getBytes(StandardCharsets.UTF_8);
+    }
+    // CompletableFuture and SseEmitter responses finish on an ASYNC dispatch; the stateless chain keeps no saved
+    // context, so the token has to be read again or authorization rejects the dispatch.
+    @Override protected boolean shouldNotFilterAsyncDispatch() { return false; }
     @Override protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws ServletException, IOException {
       String path = req.getRequestURI();
       if (HttpMethod.OPTIONS.matches(req.getMethod()) || path.startsWith("/api/auth/")) {
@@ -103,7 +118,10 @@ public class SecurityConfig {
       }
 
       String h=req.getHeader(HttpHeaders.AUTHORIZATION);
-      if(h!=null && h.startsWith("Bearer ")){
+      if(h!=null && h.startsWith("Bearer ") && isScrape(path, h.substring(7))){
+        var auth=new UsernamePasswordAuthenticationToken("prometheus",null, List.of(new SimpleGrantedAuthority("ROLE_"+SCRAPER_ROLE)));
+        org.springframework.security.core.context.SecurityContextHolder.getContext().setAuthentication(auth);
+      } else if(h!=null && h.startsWith("Bearer ")){
         try {
           Claims c=jwt.parse(h.substring(7)).getPayload();
           var auth=new UsernamePasswordAuthenticationToken(c.getSubject(),null, List.of(new SimpleGrantedAuthority("ROLE_"+c.get("role",String.class))));
@@ -112,5 +130,9 @@ public class SecurityConfig {
       }
       chain.doFilter(req,res);
     }
+    private boolean isScrape(String path, String token) {
+      return scrapeToken.length > 0 && PROMETHEUS_PATH.equals(path)
+          && MessageDigest.isEqual(scrapeToken, token.getBytes(StandardCharsets.UTF_8));
+    }
   }
 }
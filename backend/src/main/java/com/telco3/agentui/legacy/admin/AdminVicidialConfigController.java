@@ -37,7 +37,12 @@ public class AdminVicidialConfigController {
         req.dbPort,
         req.dbName,
         req.dbUser,
-        req.dbPass
+        req.dbPass,
+        null,
+        null,
+        null,
+        null,
+        null
     ));
   }
 
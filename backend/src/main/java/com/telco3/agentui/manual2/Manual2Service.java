@@ -1,7 +1,7 @@
 package com.telco3.agentui.manual2;
 
-import com.telco3.agentui.agent.VicidialCredentialService;
 import com.telco3.agentui.campaign.core.CampaignInteractionCoreService;
+import com.telco3.agentui.campaign.core.VicidialDispositionSyncService;
 import com.telco3.agentui.domain.ContactoEntity;
 import com.telco3.agentui.domain.GestionLlamadaEntity;
 import com.telco3.agentui.domain.GestionLlamadaRepository;
@@ -9,14 +9,12 @@ import com.telco3.agentui.domain.InteraccionEntity;
 import com.telco3.agentui.domain.InteraccionRepository;
 import com.telco3.agentui.manual2.domain.FormularioManual2Entity;
 import com.telco3.agentui.manual2.domain.FormularioManual2Repository;
-import com.telco3.agentui.vicidial.VicidialClient;
 import com.telco3.agentui.vicidial.VicidialRealtimeQueryService;
-import com.telco3.agentui.vicidial.VicidialService;
 import com.telco3.agentui.vicidial.VicidialServiceException;
-import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
@@ -30,10 +28,8 @@ public class Manual2Service {
   private final GestionLlamadaRepository gestionLlamadaRepository;
   private final InteraccionRepository interaccionRepository;
   private final VicidialRealtimeQueryService realtimeQueryService;
-  private final AgentVicidialCredentialRepository agentVicidialCredentialRepository;
-  private final VicidialCredentialService credentialService;
-  private final VicidialService vicidialService;
-  private final VicidialClient vicidialClient;
+  private final VicidialDispositionSyncService dispositionSyncService;
+  private final TransactionTemplate transactionTemplate;
   private final CampaignInteractionCoreService coreService;
   private final Manual2SubtipificacionService subtipificacionService;
   private final Manual2ContactoService contactoService;
@@ -44,10 +40,8 @@ public class Manual2Service {
       GestionLlamadaRepository gestionLlamadaRepository,
       InteraccionRepository interaccionRepository,
       VicidialRealtimeQueryService realtimeQueryService,
-      AgentVicidialCredentialRepository agentVicidialCredentialRepository,
-      VicidialCredentialService credentialService,
-      VicidialService vicidialService,
-      VicidialClient vicidialClient,
+      VicidialDispositionSyncService dispositionSyncService,
+      TransactionTemplate transactionTemplate,
       CampaignInteractionCoreService coreService,
       Manual2SubtipificacionService subtipificacionService,
       Manual2ContactoService contactoService,
@@ -57,10 +51,8 @@ public class Manual2Service {
     this.gestionLlamadaRepository = gestionLlamadaRepository;
     this.interaccionRepository = interaccionRepository;
     this.realtimeQueryService = realtimeQueryService;
-    this.agentVicidialCredentialRepository = agentVicidialCredentialRepository;
-    this.credentialService = credentialService;
-    this.vicidialService = vicidialService;
-    this.vicidialClient = vicidialClient;
+    this.dispositionSyncService = dispositionSyncService;
+    this.transactionTemplate = transactionTemplate;
     this.coreService = coreService;
     this.subtipificacionService = subtipificacionService;
     this.contactoService = contactoService;
@@ -160,7 +152,10 @@ public class Manual2Service {
     );
   }
 
-  @Transactional
+  /**
+   * Checks with Vicidial that the call ended before opening the transaction; the disposition itself is queued in
+   * the disposition outbox, so the gestion commits as PENDING without waiting on Vicidial.
+   */
   public Map<String, Object> saveGestionFinal(String agentUser, SaveGestionRequest request) {
     String telefono = coreService.normalizePhone(request.phoneNumber());
     String campana = coreService.firstNonBlank(request.campaignId(), "Manual2");
@@ -177,6 +172,18 @@ public class Manual2Service {
 
     coreService.assertCallFinished(agentUser, campana, request.leadId(), request.callId(), telefono);
 
+    return transactionTemplate.execute(status -> persistGestionFinal(agentUser, request, telefono, campana, disposicion, tipificacion, comentarioGestion));
+  }
+
+  private Map<String, Object> persistGestionFinal(
+      String agentUser,
+      SaveGestionRequest request,
+      String telefono,
+      String campana,
+      String disposicion,
+      String tipificacion,
+      String comentarioGestion
+  ) {
     ContactoEntity contacto = coreService.upsertContacto(telefono, request.nombres(), request.apellidos(), request.documento(), request.origen());
 
     FormularioManual2Entity formulario = new FormularioManual2Entity();
@@ -203,46 +210,6 @@ public class Manual2Service {
         request.duracion()
     );
 
-    String vicidialSyncStatus = "SKIPPED";
-    String vicidialSyncError = null;
-    if (request.leadId() != null) {
-      var sessionOpt = agentVicidialCredentialRepository.findByAppUsername(agentUser).filter(s -> s.connected);
-      String agentPass = credentialService.resolveAgentPass(agentUser).orElse(null);
-      try {
-        if (sessionOpt.isPresent() && StringUtils.hasText(agentPass)) {
-          var sync = vicidialService.syncPostCallDisposition(
-              agentUser,
-              agentPass,
-              sessionOpt.get(),
-              campana,
-              request.leadId(),
-              request.callId(),
-              request.uniqueId(),
-              telefono,
-              disposicion
-          );
-          if (sync.synced()) {
-            vicidialSyncStatus = "SYNCED";
-            recordingName = coreService.firstNonBlank(recordingName, coreService.sanitizeRecordingName(sync.recordingFilename()));
-          } else {
-            vicidialSyncStatus = "FAILED";
-            vicidialSyncError = coreService.firstNonBlank(sync.error(), "Post-call sync failed");
-          }
-        } else {
-          vicidialClient.externalStatus(agentUser, disposicion, request.leadId(), campana);
-          vicidialSyncStatus = "SYNCED";
-        }
-      } catch (Exception ex) {
-        vicidialSyncStatus = "FAILED";
-        vicidialSyncError = coreService.firstNonBlank(ex.getMessage(), ex.getClass().getSimpleName());
-      }
-    }
-
-    if (StringUtils.hasText(recordingName)) {
-      interaccion.nombreAudio = recordingName;
-      interaccionRepository.save(interaccion);
-    }
-
     GestionLlamadaEntity gestion = new GestionLlamadaEntity();
     gestion.formularioManual2Id = formulario.id;
     gestion.contactoId = contacto.id;
@@ -261,9 +228,13 @@ public class Manual2Service {
     gestion.duracion = interaccion.duracion;
     gestion.campana = campana;
     gestion.telefono = telefono;
-    gestion.vicidialSyncStatus = vicidialSyncStatus;
-    gestion.vicidialSyncError = vicidialSyncError;
+    gestion.vicidialSyncStatus = request.leadId() == null ? "SKIPPED" : "PENDING";
     gestionLlamadaRepository.save(gestion);
+    if (request.leadId() != null && !dispositionSyncService.enqueue(gestion)) {
+      gestion.vicidialSyncStatus = "SKIPPED";
+      gestion.vicidialSyncError = "La disposicion de esta llamada ya fue registrada para Vicidial.";
+      gestionLlamadaRepository.save(gestion);
+    }
 
     return Map.of(
         "ok", true,
@@ -272,8 +243,8 @@ public class Manual2Service {
         "interaccionId", interaccion.id,
         "contactoId", contacto.id,
         "fechaGestion", coreService.formatLocal(gestion.fechaGestion),
-        "vicidialSyncStatus", vicidialSyncStatus,
-        "vicidialSyncError", Objects.toString(vicidialSyncError, ""),
+        "vicidialSyncStatus", gestion.vicidialSyncStatus,
+        "vicidialSyncError", Objects.toString(gestion.vicidialSyncError, ""),
         "nombreAudio", Objects.toString(gestion.nombreAudio, "")
     );
   }
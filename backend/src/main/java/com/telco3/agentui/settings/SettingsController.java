@@ -21,7 +21,9 @@ public class SettingsController {
   }
 
   public record SettingsReq(@NotBlank String baseUrl, @NotBlank String apiUser, @NotBlank String apiPass, String source,
-                            String dbHost, String dbPort, String dbName, String dbUser, String dbPass) {
+                            String dbHost, String dbPort, String dbName, String dbUser, String dbPass,
+                            String replicaDbHost, String replicaDbPort, String replicaDbName, String replicaDbUser,
+                            String replicaDbPass) {
   }
 
   @GetMapping("/vicidial")
@@ -37,6 +39,11 @@ public class SettingsController {
     response.put("dbName", n(s.dbName()));
     response.put("dbUser", n(s.dbUser()));
     response.put("dbPass", s.dbPassMasked());
+    response.put("replicaDbHost", n(s.replicaDbHost()));
+    response.put("replicaDbPort", n(s.replicaDbPort()));
+    response.put("replicaDbName", n(s.replicaDbName()));
+    response.put("replicaDbUser", n(s.replicaDbUser()));
+    response.put("replicaDbPass", s.replicaDbPassMasked());
     response.put("updatedAt", s.updatedAt());
     return response;
   }
@@ -44,7 +51,8 @@ public class SettingsController {
   @PutMapping("/vicidial")
   public Map<String, Object> put(@RequestBody SettingsReq req) {
     configService.saveConfig(new VicidialConfigService.VicidialConfigUpdateRequest(
-        req.baseUrl(), req.apiUser(), req.apiPass(), req.source(), req.dbHost(), req.dbPort(), req.dbName(), req.dbUser(), req.dbPass()
+        req.baseUrl(), req.apiUser(), req.apiPass(), req.source(), req.dbHost(), req.dbPort(), req.dbName(), req.dbUser(), req.dbPass(),
+        req.replicaDbHost(), req.replicaDbPort(), req.replicaDbName(), req.replicaDbUser(), req.replicaDbPass()
     ));
     return Map.of("ok", true);
   }
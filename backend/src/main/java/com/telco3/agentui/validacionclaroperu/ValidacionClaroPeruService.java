@@ -1,23 +1,19 @@
 package com.telco3.agentui.validacionclaroperu;
 
-import com.telco3.agentui.agent.VicidialCredentialService;
 import com.telco3.agentui.campaign.core.CampaignInteractionCoreService;
+import com.telco3.agentui.campaign.core.VicidialDispositionSyncService;
 import com.telco3.agentui.domain.ContactoEntity;
 import com.telco3.agentui.domain.GestionLlamadaEntity;
 import com.telco3.agentui.domain.GestionLlamadaRepository;
 import com.telco3.agentui.domain.InteraccionEntity;
-import com.telco3.agentui.domain.InteraccionRepository;
 import com.telco3.agentui.manual2.Manual2SubtipificacionService;
 import com.telco3.agentui.validacionclaroperu.domain.FormularioValidacionClaroPeruEntity;
 import com.telco3.agentui.validacionclaroperu.domain.FormularioValidacionClaroPeruRepository;
-import com.telco3.agentui.vicidial.VicidialClient;
 import com.telco3.agentui.vicidial.VicidialRealtimeQueryService;
-import com.telco3.agentui.vicidial.VicidialService;
 import com.telco3.agentui.vicidial.VicidialServiceException;
-import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
@@ -33,12 +29,9 @@ public class ValidacionClaroPeruService {
 
   private final FormularioValidacionClaroPeruRepository formularioRepository;
   private final GestionLlamadaRepository gestionLlamadaRepository;
-  private final InteraccionRepository interaccionRepository;
   private final VicidialRealtimeQueryService realtimeQueryService;
-  private final AgentVicidialCredentialRepository agentVicidialCredentialRepository;
-  private final VicidialCredentialService credentialService;
-  private final VicidialService vicidialService;
-  private final VicidialClient vicidialClient;
+  private final VicidialDispositionSyncService dispositionSyncService;
+  private final TransactionTemplate transactionTemplate;
   private final CampaignInteractionCoreService coreService;
   private final Manual2SubtipificacionService subtipificacionService;
   private final ValidacionClaroPeruReportService reportService;
@@ -46,24 +39,18 @@ public class ValidacionClaroPeruService {
   public ValidacionClaroPeruService(
       FormularioValidacionClaroPeruRepository formularioRepository,
       GestionLlamadaRepository gestionLlamadaRepository,
-      InteraccionRepository interaccionRepository,
       VicidialRealtimeQueryService realtimeQueryService,
-      AgentVicidialCredentialRepository agentVicidialCredentialRepository,
-      VicidialCredentialService credentialService,
-      VicidialService vicidialService,
-      VicidialClient vicidialClient,
+      VicidialDispositionSyncService dispositionSyncService,
+      TransactionTemplate transactionTemplate,
       CampaignInteractionCoreService coreService,
       Manual2SubtipificacionService subtipificacionService,
       ValidacionClaroPeruReportService reportService
   ) {
     this.formularioRepository = formularioRepository;
     this.gestionLlamadaRepository = gestionLlamadaRepository;
-    this.interaccionRepository = interaccionRepository;
     this.realtimeQueryService = realtimeQueryService;
-    this.agentVicidialCredentialRepository = agentVicidialCredentialRepository;
-    this.credentialService = credentialService;
-    this.vicidialService = vicidialService;
-    this.vicidialClient = vicidialClient;
+    this.dispositionSyncService = dispositionSyncService;
+    this.transactionTemplate = transactionTemplate;
     this.coreService = coreService;
     this.subtipificacionService = subtipificacionService;
     this.reportService = reportService;
@@ -112,7 +99,10 @@ public class ValidacionClaroPeruService {
     return payload;
   }
 
-  @Transactional
+  /**
+   * Checks with Vicidial that the call ended before opening the transaction; the disposition itself is queued in
+   * the disposition outbox, so the gestion commits as PENDING without waiting on Vicidial.
+   */
   public Map<String, Object> saveGestionFinal(String agentUser, SaveGestionRequest request) {
     String campaign = resolveCampaign(request.campaignId());
     String telefono = coreService.normalizePhone(request.phoneNumber());
@@ -161,6 +151,21 @@ public class ValidacionClaroPeruService {
 
     coreService.assertCallFinished(agentUser, campaign, request.leadId(), request.callId(), telefono);
 
+    return transactionTemplate.execute(status ->
+        persistGestionFinal(agentUser, request, campaign, telefono, disposicion, tipificacion, documento, comentarioGestion, encuesta));
+  }
+
+  private Map<String, Object> persistGestionFinal(
+      String agentUser,
+      SaveGestionRequest request,
+      String campaign,
+      String telefono,
+      String disposicion,
+      String tipificacion,
+      String documento,
+      String comentarioGestion,
+      String encuesta
+  ) {
     ContactoEntity contacto = coreService.upsertContacto(
         telefono,
         request.nombres(),
@@ -195,46 +200,6 @@ public class ValidacionClaroPeruService {
         request.duracion()
     );
 
-    String vicidialSyncStatus = "SKIPPED";
-    String vicidialSyncError = null;
-    if (request.leadId() != null) {
-      var sessionOpt = agentVicidialCredentialRepository.findByAppUsername(agentUser).filter(s -> s.connected);
-      String agentPass = credentialService.resolveAgentPass(agentUser).orElse(null);
-      try {
-        if (sessionOpt.isPresent() && StringUtils.hasText(agentPass)) {
-          var sync = vicidialService.syncPostCallDisposition(
-              agentUser,
-              agentPass,
-              sessionOpt.get(),
-              campaign,
-              request.leadId(),
-              request.callId(),
-              request.uniqueId(),
-              telefono,
-              disposicion
-          );
-          if (sync.synced()) {
-            vicidialSyncStatus = "SYNCED";
-            recordingName = coreService.firstNonBlank(recordingName, coreService.sanitizeRecordingName(sync.recordingFilename()));
-          } else {
-            vicidialSyncStatus = "FAILED";
-            vicidialSyncError = coreService.firstNonBlank(sync.error(), "Post-call sync failed");
-          }
-        } else {
-          vicidialClient.externalStatus(agentUser, disposicion, request.leadId(), campaign);
-          vicidialSyncStatus = "SYNCED";
-        }
-      } catch (Exception ex) {
-        vicidialSyncStatus = "FAILED";
-        vicidialSyncError = coreService.firstNonBlank(ex.getMessage(), ex.getClass().getSimpleName());
-      }
-    }
-
-    if (StringUtils.hasText(recordingName)) {
-      interaccion.nombreAudio = recordingName;
-      interaccionRepository.save(interaccion);
-    }
-
     GestionLlamadaEntity gestion = new GestionLlamadaEntity();
     gestion.formularioValidacionClaroPeruId = formulario.id;
     gestion.contactoId = contacto.id;
@@ -253,9 +218,13 @@ public class ValidacionClaroPeruService {
     gestion.duracion = interaccion.duracion;
     gestion.campana = campaign;
     gestion.telefono = telefono;
-    gestion.vicidialSyncStatus = vicidialSyncStatus;
-    gestion.vicidialSyncError = vicidialSyncError;
+    gestion.vicidialSyncStatus = request.leadId() == null ? "SKIPPED" : "PENDING";
     gestionLlamadaRepository.save(gestion);
+    if (request.leadId() != null && !dispositionSyncService.enqueue(gestion)) {
+      gestion.vicidialSyncStatus = "SKIPPED";
+      gestion.vicidialSyncError = "La disposicion de esta llamada ya fue registrada para Vicidial.";
+      gestionLlamadaRepository.save(gestion);
+    }
 
     return Map.of(
         "ok", true,
@@ -264,8 +233,8 @@ public class ValidacionClaroPeruService {
         "interaccionId", interaccion.id,
         "contactoId", contacto.id,
         "fechaGestion", coreService.formatLocal(gestion.fechaGestion),
-        "vicidialSyncStatus", vicidialSyncStatus,
-        "vicidialSyncError", Objects.toString(vicidialSyncError, ""),
+        "vicidialSyncStatus", gestion.vicidialSyncStatus,
+        "vicidialSyncError", Objects.toString(gestion.vicidialSyncError, ""),
         "nombreAudio", Objects.toString(gestion.nombreAudio, "")
     );
   }
@@ -0,0 +1,113 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every borrowed connection under the MariaDB breaker. The outcome is recorded when the connection is closed:
+ * a failure if {@code getConnection} or any {@link SQLException} thrown through the connection, its statements or
+ * their result sets (timeouts, lock waits, dropped sockets) says the server misbehaved. Syntax, constraint and data
+ * errors are the caller's fault and count as success.
+ */
+class CircuitBreakingDataSource extends DelegatingDataSource {
+  private static final Set<Class<?>> TRACKED_TYPES = Set.of(
+      Statement.class, PreparedStatement.class, CallableStatement.class, ResultSet.class);
+
+  private final VicidialCircuitBreaker breaker;
+
+  CircuitBreakingDataSource(DataSource target, VicidialCircuitBreaker breaker) {
+    super(target);
+    this.breaker = breaker;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    VicidialCircuitBreaker.Permit permit = acquire();
+    try {
+      return guard(super.getConnection(), permit);
+    } catch (SQLException | RuntimeException ex) {
+      permit.failure();
+      throw ex;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    VicidialCircuitBreaker.Permit permit = acquire();
+    try {
+      return guard(super.getConnection(username, password), permit);
+    } catch (SQLException | RuntimeException ex) {
+      permit.failure();
+      throw ex;
+    }
+  }
+
+  static boolean isServerFailure(SQLException ex) {
+    return !(ex instanceof SQLSyntaxErrorException
+        || ex instanceof SQLIntegrityConstraintViolationException
+        || ex instanceof SQLDataException);
+  }
+
+  private VicidialCircuitBreaker.Permit acquire() throws SQLException {
+    try {
+      return breaker.acquire();
+    } catch (VicidialServiceException ex) {
+      throw new SQLTransientConnectionException(ex.getMessage() + " [" + ex.code() + "]");
+    }
+  }
+
+  private Connection guard(Connection connection, VicidialCircuitBreaker.Permit permit) {
+    AtomicBoolean failed = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        (proxy, method, args) -> {
+          if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+            if (failed.get()) {
+              permit.failure();
+            } else {
+              permit.success();
+            }
+          }
+          return invoke(connection, method, args, failed);
+        });
+  }
+
+  /** Calls through to the JDBC object, flags server failures and wraps returned statements and result sets too. */
+  private static Object invoke(Object target, Method method, Object[] args, AtomicBoolean failed) throws Throwable {
+    Object result;
+    try {
+      result = method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      Throwable cause = ex.getTargetException();
+      if (cause instanceof SQLException sqlEx && isServerFailure(sqlEx)) {
+        failed.set(true);
+      }
+      throw cause;
+    }
+    Class<?> type = method.getReturnType();
+    if (result == null || !TRACKED_TYPES.contains(type)) {
+      return result;
+    }
+    return Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[]{type},
+        (proxy, nested, nestedArgs) -> invoke(result, nested, nestedArgs, failed));
+  }
+}
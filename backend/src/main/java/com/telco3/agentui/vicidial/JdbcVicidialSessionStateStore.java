@@ -0,0 +1,95 @@
+package com.telco3.agentui.vicidial;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link VicidialSessionStateStore} on the application Postgres ({@code vicidial_agc_sessions}, V13).
+ */
+@Component
+@ConditionalOnProperty(name = "app.vicidial.session-store", havingValue = "postgres")
+public class JdbcVicidialSessionStateStore implements VicidialSessionStateStore {
+  private static final TypeReference<List<StoredCookie>> COOKIE_LIST = new TypeReference<>() {
+  };
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+
+  public JdbcVicidialSessionStateStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public Optional<SharedCookies> load(String agentUser, Duration maxAge) {
+    return jdbcTemplate.query("""
+            SELECT revision, cookies_json
+            FROM vicidial_agc_sessions
+            WHERE agent_user = ? AND updated_at > ?
+            """,
+        rs -> rs.next() ? Optional.of(new SharedCookies(rs.getLong("revision"), readCookies(rs.getString("cookies_json")))) : Optional.empty(),
+        agentUser, Timestamp.from(Instant.now().minus(maxAge)));
+  }
+
+  @Override
+  public long revision(String agentUser) {
+    List<Long> revisions = jdbcTemplate.queryForList("SELECT revision FROM vicidial_agc_sessions WHERE agent_user = ?", Long.class, agentUser);
+    return revisions.isEmpty() ? -1 : revisions.get(0);
+  }
+
+  @Override
+  public long save(String agentUser, List<StoredCookie> cookies) {
+    Long revision = jdbcTemplate.queryForObject("""
+            INSERT INTO vicidial_agc_sessions(agent_user, cookies_json, revision, updated_at)
+            VALUES (?, ?, nextval('vicidial_agc_sessions_revision_seq'), now())
+            ON CONFLICT (agent_user) DO UPDATE
+              SET cookies_json = EXCLUDED.cookies_json,
+                  revision = EXCLUDED.revision,
+                  updated_at = EXCLUDED.updated_at
+            RETURNING revision
+            """,
+        Long.class, agentUser, writeCookies(cookies));
+    return revision == null ? -1 : revision;
+  }
+
+  @Override
+  public void touch(String agentUser) {
+    jdbcTemplate.update("UPDATE vicidial_agc_sessions SET updated_at = now() WHERE agent_user = ?", agentUser);
+  }
+
+  @Override
+  public void delete(String agentUser) {
+    jdbcTemplate.update("DELETE FROM vicidial_agc_sessions WHERE agent_user = ?", agentUser);
+  }
+
+  @Override
+  public int purgeOlderThan(Duration maxAge) {
+    return jdbcTemplate.update("DELETE FROM vicidial_agc_sessions WHERE updated_at < ?", Timestamp.from(Instant.now().minus(maxAge)));
+  }
+
+  private String writeCookies(List<StoredCookie> cookies) {
+    try {
+      return objectMapper.writeValueAsString(cookies);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("No se pudo serializar cookies AGC", ex);
+    }
+  }
+
+  private List<StoredCookie> readCookies(String json) {
+    try {
+      return json == null || json.isBlank() ? List.of() : objectMapper.readValue(json, COOKIE_LIST);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("No se pudo leer cookies AGC", ex);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-node stand-in for {@link VicidialSessionStateStore}; cookie jars are only visible to this JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vicidial.session-store", havingValue = "local", matchIfMissing = true)
+public class LocalVicidialSessionStateStore implements VicidialSessionStateStore {
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong revisions = new AtomicLong();
+
+  @Override
+  public Optional<SharedCookies> load(String agentUser, Duration maxAge) {
+    Entry entry = entries.get(agentUser);
+    if (entry == null || entry.updatedAt().isBefore(Instant.now().minus(maxAge))) {
+      return Optional.empty();
+    }
+    return Optional.of(new SharedCookies(entry.revision(), entry.cookies()));
+  }
+
+  @Override
+  public long revision(String agentUser) {
+    Entry entry = entries.get(agentUser);
+    return entry == null ? -1 : entry.revision();
+  }
+
+  @Override
+  public long save(String agentUser, List<StoredCookie> cookies) {
+    long revision = revisions.incrementAndGet();
+    entries.put(agentUser, new Entry(revision, List.copyOf(cookies), Instant.now()));
+    return revision;
+  }
+
+  @Override
+  public void touch(String agentUser) {
+    entries.computeIfPresent(agentUser, (key, entry) -> new Entry(entry.revision(), entry.cookies(), Instant.now()));
+  }
+
+  @Override
+  public void delete(String agentUser) {
+    entries.remove(agentUser);
+  }
+
+  @Override
+  public int purgeOlderThan(Duration maxAge) {
+    Instant cutoff = Instant.now().minus(maxAge);
+    int before = entries.size();
+    entries.values().removeIf(entry -> entry.updatedAt().isBefore(cutoff));
+    return before - entries.size();
+  }
+
+  private record Entry(long revision, List<StoredCookie> cookies, Instant updatedAt) {
+  }
+}
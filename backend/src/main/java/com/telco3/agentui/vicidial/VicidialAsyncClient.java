@@ -0,0 +1,46 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+@Component
+public class VicidialAsyncClient {
+  private final VicidialClient client;
+  private final Executor executor;
+
+  public VicidialAsyncClient(VicidialClient client, @Qualifier("vicidialExecutor") Executor executor) {
+    this.client = client;
+    this.executor = executor;
+  }
+
+  public CompletableFuture<String> leadInfo(Long leadId) {
+    return client.leadInfoAsync(leadId).toFuture().thenApplyAsync(body -> body, executor);
+  }
+
+  public CompletableFuture<VicidialClient.VicidialHttpResult> updateSettings(String agentUser, Map<String, String> params) {
+    return supply(() -> client.updateSettings(agentUser, params));
+  }
+
+  public CompletableFuture<VicidialClient.VicidialHttpResult> callbacksCount(String agentUser, Map<String, String> params) {
+    return supply(() -> client.callbacksCount(agentUser, params));
+  }
+
+  public <T> CompletableFuture<T> supply(Supplier<T> work) {
+    try {
+      return CompletableFuture.supplyAsync(work, executor);
+    } catch (RejectedExecutionException ex) {
+      return CompletableFuture.failedFuture(new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+          "VICIDIAL_BUSY",
+          "Hay demasiadas consultas a Vicidial en curso.",
+          "Reintente en unos segundos o aumente app.vicidial.executor.*.",
+          Map.of("cause", ex.getClass().getSimpleName())));
+    }
+  }
+}
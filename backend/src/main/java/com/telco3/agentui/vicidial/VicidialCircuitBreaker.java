@@ -0,0 +1,267 @@
+package com.telco3.agentui.vicidial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public final class VicidialCircuitBreaker {
+  /** {@code maxConcurrentCalls} for a breaker without bulkhead, when something else (a pool) already caps concurrency. */
+  public static final int NO_BULKHEAD = 0;
+  private static final Logger log = LoggerFactory.getLogger(VicidialCircuitBreaker.class);
+
+  private final String name;
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final int halfOpenMaxCalls;
+  private final int maxConcurrentCalls;
+  private final Duration bulkheadWait;
+  private final Semaphore bulkhead;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong rejectedCalls = new AtomicLong();
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private int halfOpenInFlight;
+  private Instant openedAt;
+
+  public VicidialCircuitBreaker(
+      String name,
+      int failureThreshold,
+      Duration openDuration,
+      int halfOpenMaxCalls,
+      int maxConcurrentCalls,
+      Duration bulkheadWait
+  ) {
+    this.name = name;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = openDuration;
+    this.halfOpenMaxCalls = Math.max(1, halfOpenMaxCalls);
+    this.maxConcurrentCalls = maxConcurrentCalls == NO_BULKHEAD ? NO_BULKHEAD : Math.max(1, maxConcurrentCalls);
+    this.bulkheadWait = bulkheadWait;
+    this.bulkhead = this.maxConcurrentCalls == NO_BULKHEAD ? null : new Semaphore(this.maxConcurrentCalls);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public <T> T execute(Supplier<T> call, Predicate<T> failedResult) {
+    Permit permit = acquire();
+    try {
+      T result = call.get();
+      if (failedResult.test(result)) {
+        permit.failure();
+      } else {
+        permit.success();
+      }
+      return result;
+    } catch (RuntimeException ex) {
+      if (isFailure(ex)) {
+        permit.failure();
+      } else {
+        permit.success();
+      }
+      throw ex;
+    } finally {
+      permit.release();
+    }
+  }
+
+  /** Waits up to the bulkhead wait for a slot; only for callers that may block. */
+  public Permit acquire() {
+    return acquire(true);
+  }
+
+  /** Takes a bulkhead slot without waiting, for reactive callers that may run on an event loop. */
+  public Permit tryAcquire() {
+    return acquire(false);
+  }
+
+  private Permit acquire(boolean wait) {
+    boolean probe = admit();
+    boolean acquired;
+    try {
+      acquired = bulkhead == null
+          || (wait ? bulkhead.tryAcquire(bulkheadWait.toMillis(), TimeUnit.MILLISECONDS) : bulkhead.tryAcquire());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      if (probe) {
+        releaseProbe();
+      }
+      rejectedCalls.incrementAndGet();
+      throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+          "VICIDIAL_BULKHEAD_FULL",
+          "Hay demasiadas solicitudes concurrentes hacia Vicidial.",
+          "Reintente en unos segundos.",
+          Map.of("endpoint", name, "maxConcurrentCalls", maxConcurrentCalls));
+    }
+    inFlight.incrementAndGet();
+    return new Permit(probe);
+  }
+
+  public Snapshot snapshot() {
+    synchronized (this) {
+      return new Snapshot(
+          name,
+          currentState(Instant.now()).name(),
+          consecutiveFailures,
+          openedAt,
+          inFlight.get(),
+          maxConcurrentCalls,
+          rejectedCalls.get()
+      );
+    }
+  }
+
+  public static boolean isFailure(Throwable ex) {
+    if (ex instanceof VicidialServiceException vicidialEx) {
+      return "VICIDIAL_UNREACHABLE".equals(vicidialEx.code());
+    }
+    return true;
+  }
+
+  private synchronized boolean admit() {
+    Instant now = Instant.now();
+    State current = currentState(now);
+    if (current == State.OPEN) {
+      rejectedCalls.incrementAndGet();
+      throw openException(now);
+    }
+    if (current == State.HALF_OPEN) {
+      if (state == State.OPEN) {
+        state = State.HALF_OPEN;
+        halfOpenInFlight = 0;
+        log.info("Vicidial circuit half-open endpoint={}", name);
+      }
+      if (halfOpenInFlight >= halfOpenMaxCalls) {
+        rejectedCalls.incrementAndGet();
+        throw openException(now);
+      }
+      halfOpenInFlight++;
+      return true;
+    }
+    return false;
+  }
+
+  private synchronized void releaseProbe() {
+    halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+  }
+
+  private synchronized void onSuccess(boolean probe) {
+    if (probe) {
+      halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+    }
+    if (state != State.CLOSED) {
+      log.info("Vicidial circuit closed endpoint={}", name);
+    }
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    openedAt = null;
+  }
+
+  private synchronized void onFailure(boolean probe) {
+    if (probe) {
+      halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+    }
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      if (state != State.OPEN) {
+        log.warn("Vicidial circuit opened endpoint={} consecutiveFailures={}", name, consecutiveFailures);
+      }
+      state = State.OPEN;
+      openedAt = Instant.now();
+    }
+  }
+
+  private State currentState(Instant now) {
+    if (state == State.OPEN && openedAt != null && !now.isBefore(openedAt.plus(openDuration))) {
+      return State.HALF_OPEN;
+    }
+    return state;
+  }
+
+  private VicidialServiceException openException(Instant now) {
+    long retryAfterMs = openedAt == null ? 0L : Math.max(0L, Duration.between(now, openedAt.plus(openDuration)).toMillis());
+    Map<String, Object> details = new LinkedHashMap<>();
+    details.put("endpoint", name);
+    details.put("state", state.name());
+    details.put("retryAfterMs", retryAfterMs);
+    return new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+        "VICIDIAL_CIRCUIT_OPEN",
+        "Vicidial no esta disponible temporalmente.",
+        "Se detectaron fallas consecutivas; se reintentara automaticamente en unos segundos.",
+        details);
+  }
+
+  public final class Permit {
+    private final boolean probe;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private Permit(boolean probe) {
+      this.probe = probe;
+    }
+
+    public void success() {
+      if (released.compareAndSet(false, true)) {
+        releaseSlot();
+        onSuccess(probe);
+      }
+    }
+
+    public void failure() {
+      if (released.compareAndSet(false, true)) {
+        releaseSlot();
+        onFailure(probe);
+      }
+    }
+
+    /** Frees the slot without recording an outcome (cancelled call, Error); a no-op once an outcome was recorded. */
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        releaseSlot();
+        if (probe) {
+          releaseProbe();
+        }
+      }
+    }
+  }
+
+  private void releaseSlot() {
+    inFlight.decrementAndGet();
+    if (bulkhead != null) {
+      bulkhead.release();
+    }
+  }
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  public record Snapshot(
+      String endpoint,
+      String state,
+      int consecutiveFailures,
+      Instant openedAt,
+      int inFlight,
+      int maxConcurrentCalls,
+      long rejectedCalls
+  ) {
+  }
+}
@@ -2,6 +2,7 @@ package com.telco3.agentui.vicidial;
 
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -10,25 +11,33 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.cookie.CookieStore;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.DefaultRedirectStrategy;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.apache.hc.client5.http.ConnectTimeoutException;
+import jakarta.annotation.PreDestroy;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.net.ConnectException;
 import java.util.HashMap;
 import java.util.ArrayList;
@@ -38,12 +47,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.net.SocketTimeoutException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
@@ -51,27 +60,95 @@ import java.util.stream.Collectors;
 @Component
 public class VicidialClient {
   private static final Logger log = LoggerFactory.getLogger(VicidialClient.class);
+  private static final Pattern DIAL_METHOD_PATTERN = Pattern.compile("(?i)dial_method\\s*[:=]\\s*([A-Z_]+)");
+  private static final Pattern AUTO_DIAL_LEVEL_PATTERN = Pattern.compile("(?i)auto_dial_level\\s*[:=]\\s*([0-9]+(?:\\.[0-9]+)?)");
   private final VicidialConfigService configService;
   private final Duration connectTimeout;
   private final Duration readTimeout;
   private final Duration writeTimeout;
   private final boolean vicidialDebug;
-  private final Duration cookieTtl;
-  private final ConcurrentHashMap<String, CookieSession> cookieSessions = new ConcurrentHashMap<>();
+  private final VicidialCookieSessionStore cookieSessions;
+  private final HttpPoolSettings poolSettings;
+  private final VicidialResilienceRegistry resilience;
+  private final VicidialRequestCoalescer coalescer;
+  private final VicidialRequestMetrics metrics;
+  private final ReentrantLock poolLock = new ReentrantLock();
+  private volatile PooledWebClient pooledWebClient;
+  private volatile PoolingHttpClientConnectionManager agcConnectionManager;
+  private volatile CloseableHttpClient agcHttpClient;
 
+  public VicidialClient(
+      VicidialConfigService configService,
+      long connectTimeoutMs,
+      long readTimeoutMs,
+      long writeTimeoutMs,
+      boolean vicidialDebug
+  ) {
+    this(configService, connectTimeoutMs, readTimeoutMs, writeTimeoutMs, vicidialDebug, HttpPoolSettings.defaults(),
+        VicidialCookieSessionStore.Settings.defaults(), new LocalVicidialSessionStateStore(), VicidialResilienceRegistry.defaults(),
+        VicidialRequestCoalescer.withoutResultCache(), VicidialRequestMetrics.noop());
+  }
+
+  @Autowired
   public VicidialClient(
       VicidialConfigService configService,
       @Value("${vicidial.http.connect-timeout-ms:4000}") long connectTimeoutMs,
       @Value("${vicidial.http.read-timeout-ms:12000}") long readTimeoutMs,
       @Value("${vicidial.http.write-timeout-ms:12000}") long writeTimeoutMs,
-      @Value("${app.vicidial.debug:false}") boolean vicidialDebug
+      @Value("${app.vicidial.debug:false}") boolean vicidialDebug,
+      @Value("${vicidial.http.pool.max-connections:200}") int poolMaxConnections,
+      @Value("${vicidial.http.pool.pending-acquire-max-count:400}") int poolPendingAcquireMaxCount,
+      @Value("${vicidial.http.pool.pending-acquire-timeout-ms:5000}") long poolPendingAcquireTimeoutMs,
+      @Value("${vicidial.http.pool.max-idle-ms:30000}") long poolMaxIdleMs,
+      @Value("${vicidial.http.pool.max-life-ms:300000}") long poolMaxLifeMs,
+      @Value("${vicidial.http.pool.evict-interval-ms:15000}") long poolEvictIntervalMs,
+      @Value("${vicidial.http.cookie.ttl-ms:1800000}") long cookieTtlMs,
+      @Value("${vicidial.http.cookie.max-sessions:5000}") int cookieMaxSessions,
+      @Value("${vicidial.http.cookie.sweep-interval-ms:60000}") long cookieSweepIntervalMs,
+      @Value("${vicidial.http.cookie.near-cache-ttl-ms:5000}") long cookieNearCacheTtlMs,
+      VicidialSessionStateStore sessionStateStore,
+      VicidialResilienceRegistry resilience,
+      VicidialRequestCoalescer coalescer,
+      VicidialRequestMetrics metrics
+  ) {
+    this(configService, connectTimeoutMs, readTimeoutMs, writeTimeoutMs, vicidialDebug, new HttpPoolSettings(
+        poolMaxConnections,
+        poolPendingAcquireMaxCount,
+        Duration.ofMillis(poolPendingAcquireTimeoutMs),
+        Duration.ofMillis(poolMaxIdleMs),
+        Duration.ofMillis(poolMaxLifeMs),
+        Duration.ofMillis(poolEvictIntervalMs)
+    ), new VicidialCookieSessionStore.Settings(
+        Duration.ofMillis(cookieTtlMs),
+        cookieMaxSessions,
+        Duration.ofMillis(cookieSweepIntervalMs),
+        Duration.ofMillis(cookieNearCacheTtlMs)
+    ), sessionStateStore, resilience, coalescer, metrics);
+  }
+
+  private VicidialClient(
+      VicidialConfigService configService,
+      long connectTimeoutMs,
+      long readTimeoutMs,
+      long writeTimeoutMs,
+      boolean vicidialDebug,
+      HttpPoolSettings poolSettings,
+      VicidialCookieSessionStore.Settings cookieSettings,
+      VicidialSessionStateStore sessionStateStore,
+      VicidialResilienceRegistry resilience,
+      VicidialRequestCoalescer coalescer,
+      VicidialRequestMetrics metrics
   ) {
     this.configService = configService;
     this.connectTimeout = Duration.ofMillis(connectTimeoutMs);
     this.readTimeout = Duration.ofMillis(readTimeoutMs);
     this.writeTimeout = Duration.ofMillis(writeTimeoutMs);
     this.vicidialDebug = vicidialDebug;
-    this.cookieTtl = Duration.ofMinutes(30);
+    this.cookieSessions = new VicidialCookieSessionStore(cookieSettings, sessionStateStore);
+    this.poolSettings = poolSettings;
+    this.resilience = resilience;
+    this.coalescer = coalescer;
+    this.metrics = metrics;
   }
 
   private VicidialHttpResult call(String path, Map<String, String> params) {
@@ -85,6 +162,35 @@ public class VicidialClient {
     return executeGet(s.baseUrl(), path, params);
   }
 
+  Mono<VicidialHttpResult> callAsync(String path, Map<String, String> params) {
+    return metrics.recordAsync(path, params, Mono.defer(() -> {
+      configService.assertVicidialApiConfigured();
+      var s = configService.resolve();
+      params.put("user", s.apiUser());
+      params.put("pass", s.apiPass());
+      if (StringUtils.hasText(s.source())) {
+        params.put("source", s.source());
+      }
+      VicidialCircuitBreaker.Permit permit = resilience.forPath(path).tryAcquire();
+      return exchangeGet(s.baseUrl(), path, params)
+          .doOnNext(result -> {
+            if (isFailedResult(result)) {
+              permit.failure();
+            } else {
+              permit.success();
+            }
+          })
+          .doOnError(ex -> {
+            if (VicidialCircuitBreaker.isFailure(ex)) {
+              permit.failure();
+            } else {
+              permit.success();
+            }
+          })
+          .doFinally(signal -> permit.release());
+    }));
+  }
+
   private VicidialHttpResult post(String path, Map<String, String> params) {
     configService.assertVicidialApiConfigured();
     var s = configService.resolve();
@@ -97,50 +203,165 @@ public class VicidialClient {
   }
 
   private VicidialHttpResult executeGet(String baseUrl, String path, Map<String, String> params) {
-    try {
-      return client(baseUrl)
-          .get()
-          .uri(u -> {
-            var b = u.path(path);
-            params.forEach(b::queryParam);
-            return b.build();
-          })
-          .exchangeToMono(resp -> resp.bodyToMono(String.class).defaultIfEmpty("").map(body -> new VicidialHttpResult(resp.statusCode().value(), body)))
-          .timeout(readTimeout)
-          .blockOptional()
-          .orElse(new VicidialHttpResult(0, ""));
-    } catch (Exception ex) {
-      throw mapClientException(ex);
-    }
+    return metrics.record(path, params,
+        () -> resilience.forPath(path).execute(() -> exchangeGet(baseUrl, path, params).block(), this::isFailedResult));
+  }
+
+  private Mono<VicidialHttpResult> exchangeGet(String baseUrl, String path, Map<String, String> params) {
+    return client(baseUrl)
+        .get()
+        .uri(u -> {
+          var b = u.path(path);
+          params.forEach(b::queryParam);
+          return b.build();
+        })
+        .exchangeToMono(resp -> resp.bodyToMono(String.class).defaultIfEmpty("").map(body -> new VicidialHttpResult(resp.statusCode().value(), body)))
+        .timeout(readTimeout)
+        .defaultIfEmpty(new VicidialHttpResult(0, ""))
+        .onErrorMap(this::mapClientException);
   }
 
   private VicidialHttpResult executePost(String baseUrl, String path, Map<String, String> params) {
+    return metrics.record(path, params, () -> resilience.forPath(path).execute(() -> {
+      try {
+        return client(baseUrl)
+            .post()
+            .uri(path)
+            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+            .bodyValue(toForm(params))
+            .exchangeToMono(resp -> resp.bodyToMono(String.class).defaultIfEmpty("").map(body -> new VicidialHttpResult(resp.statusCode().value(), body)))
+            .timeout(readTimeout)
+            .blockOptional()
+            .orElse(new VicidialHttpResult(0, ""));
+      } catch (Exception ex) {
+        throw mapClientException(ex);
+      }
+    }, this::isFailedResult));
+  }
+
+  private boolean isFailedResult(VicidialHttpResult result) {
+    return result != null && result.statusCode() >= 500;
+  }
+
+  private WebClient client(String baseUrl) {
+    long version = configService.configVersion();
+    PooledWebClient current = pooledWebClient;
+    if (current != null && current.matches(baseUrl, version)) {
+      return current.webClient();
+    }
+    poolLock.lock();
     try {
-      return client(baseUrl)
-          .post()
-          .uri(path)
-          .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-          .bodyValue(toForm(params))
-          .exchangeToMono(resp -> resp.bodyToMono(String.class).defaultIfEmpty("").map(body -> new VicidialHttpResult(resp.statusCode().value(), body)))
-          .timeout(readTimeout)
-          .blockOptional()
-          .orElse(new VicidialHttpResult(0, ""));
-    } catch (Exception ex) {
-      throw mapClientException(ex);
+      current = pooledWebClient;
+      if (current != null && current.matches(baseUrl, version)) {
+        return current.webClient();
+      }
+      PooledWebClient created = buildPooledWebClient(baseUrl, version);
+      pooledWebClient = created;
+      if (current != null) {
+        log.info("Vicidial HTTP pool rebuilt base_url={} config_version={}", baseUrl, version);
+        current.provider().disposeLater().subscribe();
+      }
+      return created.webClient();
+    } finally {
+      poolLock.unlock();
     }
   }
 
-  private WebClient client(String baseUrl) {
-    var httpClient = HttpClient.create()
+  private PooledWebClient buildPooledWebClient(String baseUrl, long version) {
+    ConnectionProvider provider = ConnectionProvider.builder("vicidial-api")
+        .maxConnections(poolSettings.maxConnections())
+        .pendingAcquireMaxCount(poolSettings.pendingAcquireMaxCount())
+        .pendingAcquireTimeout(poolSettings.pendingAcquireTimeout())
+        .maxIdleTime(poolSettings.maxIdleTime())
+        .maxLifeTime(poolSettings.maxLifeTime())
+        .evictInBackground(poolSettings.evictInterval())
+        .build();
+    var httpClient = HttpClient.create(provider)
+        .keepAlive(true)
         .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(connectTimeout.toMillis()))
+        .option(io.netty.channel.ChannelOption.SO_KEEPALIVE, true)
+        .doOnConnected(connection -> connection.addHandlerLast(
+            new io.netty.handler.timeout.WriteTimeoutHandler(writeTimeout.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS)))
         .responseTimeout(readTimeout);
-    return WebClient.builder()
+    WebClient webClient = WebClient.builder()
         .baseUrl(baseUrl)
         .clientConnector(new ReactorClientHttpConnector(httpClient))
         .build();
+    return new PooledWebClient(baseUrl, version, provider, webClient);
+  }
+
+  private CloseableHttpClient agcHttpClient() {
+    CloseableHttpClient current = agcHttpClient;
+    if (current != null) {
+      return current;
+    }
+    poolLock.lock();
+    try {
+      if (agcHttpClient == null) {
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(poolSettings.maxConnections())
+            .setMaxConnPerRoute(poolSettings.maxConnections())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .setTimeToLive(TimeValue.ofMilliseconds(poolSettings.maxLifeTime().toMillis()))
+                .build())
+            .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolSettings.pendingAcquireTimeout().toMillis()))
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+            .build();
+        agcConnectionManager = manager;
+        agcHttpClient = HttpClients.custom()
+            .setConnectionManager(manager)
+            .setDefaultRequestConfig(requestConfig)
+            .setRedirectStrategy(DefaultRedirectStrategy.INSTANCE)
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(poolSettings.maxIdleTime().toMillis()))
+            .build();
+      }
+      return agcHttpClient;
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+  public AgcPoolStats agcPoolStats() {
+    PoolingHttpClientConnectionManager manager = agcConnectionManager;
+    if (manager == null) {
+      return new AgcPoolStats(0, 0, 0, poolSettings.maxConnections());
+    }
+    PoolStats stats = manager.getTotalStats();
+    return new AgcPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+  }
+
+  public int cookieSessionCount() {
+    return cookieSessions.size();
+  }
+
+  public CookieSessionStats cookieSessionStats() {
+    return new CookieSessionStats(cookieSessions.size(), cookieSessions.createdCount(), cookieSessions.restoredCount(),
+        cookieSessions.expiredCount(), cookieSessions.evictedCount());
   }
 
-  private RuntimeException mapClientException(Exception ex) {
+  @PreDestroy
+  void shutdown() {
+    PooledWebClient current = pooledWebClient;
+    pooledWebClient = null;
+    if (current != null) {
+      current.provider().dispose();
+    }
+    CloseableHttpClient httpClient = agcHttpClient;
+    agcHttpClient = null;
+    agcConnectionManager = null;
+    if (httpClient != null) {
+      httpClient.close(CloseMode.GRACEFUL);
+    }
+    cookieSessions.shutdown();
+  }
+
+  private RuntimeException mapClientException(Throwable ex) {
     Throwable root = Exceptions.unwrap(ex);
     if (root instanceof TimeoutException) {
       return new VicidialServiceException(org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE,
@@ -156,6 +377,13 @@ public class VicidialClient {
           "Revise VICIDIAL_BASE_URL, DNS/ruta de red y disponibilidad del servidor.",
           Map.of("cause", root.getClass().getSimpleName()));
     }
+    if (root.getClass().getSimpleName().startsWith("PoolAcquire")) {
+      return new VicidialServiceException(org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE,
+          "VICIDIAL_POOL_EXHAUSTED",
+          "Vicidial tiene demasiadas solicitudes en cola.",
+          "Revise vicidial.http.pool.max-connections y vicidial.http.pool.pending-acquire-max-count.",
+          Map.of("cause", root.getClass().getSimpleName()));
+    }
     return new RuntimeException(root.getMessage(), root);
   }
 
@@ -270,10 +498,21 @@ public class VicidialClient {
   }
 
   public VicidialHttpResult updateLead(String agentUser, Map<String, String> params) {
+    String leadKey = StringUtils.hasText(params.get("lead_id")) ? coalesceKey(params.get("lead_id").trim()) : null;
+    if (leadKey != null) {
+      coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, leadKey);
+    }
     Map<String, String> payload = new LinkedHashMap<>(params);
     payload.put("ACTION", "updateLEAD");
     payload.putIfAbsent("format", "text");
-    return executeVdcQueryWithCookies(agentUser, payload);
+    try {
+      return executeVdcQueryWithCookies(agentUser, payload);
+    } finally {
+      // lead_all_info read while the update was in flight may hold the old row
+      if (leadKey != null) {
+        coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, leadKey);
+      }
+    }
   }
 
   public VicidialHttpResult updateDispo(String agentUser, Map<String, String> params) {
@@ -321,92 +560,14 @@ public class VicidialClient {
   }
 
   public Map<String, String> parseKeyValueLines(String rawBody) {
-    Map<String, String> parsed = new LinkedHashMap<>();
-    String safeBody = Objects.toString(rawBody, "");
-    String[] lines = safeBody.split("\\r?\\n");
-    Pattern pattern = Pattern.compile("^\\s*([A-Za-z0-9_\\-\\s]+?)\\s*[:=]\\s*(.*?)\\s*$");
-    for (String line : lines) {
-      String trimmed = Objects.toString(line, "").trim();
-      if (trimmed.isEmpty()) {
-        continue;
-      }
-      if (trimmed.contains("&") && trimmed.contains("=")) {
-        for (String pair : trimmed.split("&")) {
-          parsePair(parsed, pattern, pair);
-        }
-      }
-      if (trimmed.contains("|")) {
-        for (String part : trimmed.split("\\|")) {
-          parsePair(parsed, pattern, part);
-        }
-      }
-      parsePair(parsed, pattern, trimmed);
-    }
-    Matcher callIdMatcher = Pattern.compile("\\b(M[0-9A-Z]{6,})\\b").matcher(safeBody);
-    if (callIdMatcher.find()) {
-      putParsedValue(parsed, "call_id", callIdMatcher.group(1));
+    Map<String, String> parsed = VicidialResponseScanner.parseKeyValues(rawBody);
+    String callId = VicidialResponseScanner.findCallId(rawBody, 6);
+    if (callId != null) {
+      VicidialResponseScanner.put(parsed, "call_id", callId);
     }
     return parsed;
   }
 
-  private void parsePair(Map<String, String> parsed, Pattern pattern, String candidate) {
-    Matcher matcher = pattern.matcher(Objects.toString(candidate, ""));
-    if (!matcher.find()) {
-      return;
-    }
-    String key = matcher.group(1);
-    String value = matcher.group(2);
-    putParsedValue(parsed, key, value);
-  }
-
-  private void putParsedValue(Map<String, String> parsed, String rawKey, String rawValue) {
-    String key = normalizeParsedKey(rawKey);
-    String value = sanitizeParsedValue(rawValue);
-    if (!StringUtils.hasText(key) || !StringUtils.hasText(value)) {
-      return;
-    }
-    parsed.putIfAbsent(key, value);
-    String compact = key.replace("_", "");
-    if (!compact.equals(key)) {
-      parsed.putIfAbsent(compact, value);
-    }
-  }
-
-  private String normalizeParsedKey(String rawKey) {
-    String key = Objects.toString(rawKey, "").trim().toLowerCase();
-    if (!StringUtils.hasText(key)) {
-      return "";
-    }
-    key = key
-        .replaceAll("[^a-z0-9]+", "_")
-        .replaceAll("_+", "_")
-        .replaceAll("^_+", "")
-        .replaceAll("_+$", "");
-    if (key.startsWith("var_")) {
-      key = key.substring(4);
-    }
-    if (key.startsWith("window_")) {
-      key = key.substring(7);
-    }
-    if (key.startsWith("this_")) {
-      key = key.substring(5);
-    }
-    return key;
-  }
-
-  private String sanitizeParsedValue(String rawValue) {
-    String value = Objects.toString(rawValue, "").trim();
-    if (!StringUtils.hasText(value)) {
-      return value;
-    }
-    value = value
-        .replaceAll("^[\"']+", "")
-        .replaceAll("[\"']+$", "")
-        .replaceAll("[;,]+$", "")
-        .trim();
-    return value;
-  }
-
   public String activeLead(String agent) {
     return call("/agc/api.php", new HashMap<>(Map.of("function", "st_get_agent_active_lead", "agent_user", agent))).body();
   }
@@ -422,7 +583,17 @@ public class VicidialClient {
   }
 
   public String leadInfo(Long leadId) {
-    return call("/vicidial/non_agent_api.php", new HashMap<>(Map.of("function", "lead_all_info", "lead_id", String.valueOf(leadId)))).body();
+    return coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, coalesceKey(leadId),
+        () -> call("/vicidial/non_agent_api.php", leadInfoParams(leadId)).body());
+  }
+
+  Mono<String> leadInfoAsync(Long leadId) {
+    return coalescer.getAsync(VicidialRequestCoalescer.Function.LEAD_INFO, coalesceKey(leadId),
+        () -> callAsync("/vicidial/non_agent_api.php", leadInfoParams(leadId)).map(VicidialHttpResult::body));
+  }
+
+  private Map<String, String> leadInfoParams(Long leadId) {
+    return new HashMap<>(Map.of("function", "lead_all_info", "lead_id", String.valueOf(leadId)));
   }
 
   public String addLead(String phone, String first, String last, String dni, String listId) {
@@ -449,7 +620,8 @@ public class VicidialClient {
   }
 
   public String liveAgents() {
-    return call("/agc/api.php", new HashMap<>(Map.of("function", "live_agents"))).body();
+    return coalescer.get(VicidialRequestCoalescer.Function.LIVE_AGENTS, coalesceKey("all"),
+        () -> call("/agc/api.php", new HashMap<>(Map.of("function", "live_agents"))).body());
   }
 
   public VicidialHttpResult campaignsForAgent(String agentUser, String agentPass) {
@@ -473,13 +645,15 @@ public class VicidialClient {
     if (!StringUtils.hasText(campaignId)) {
       return new CampaignDialConfig(Optional.empty(), Optional.empty());
     }
-    var result = call("/vicidial/non_agent_api.php", new HashMap<>(Map.of("function", "campaign_status", "campaign_id", campaignId)));
-    String body = Objects.toString(result.body(), "");
-    return new CampaignDialConfig(extractDialMethod(body), extractAutoDialLevel(body));
+    return coalescer.get(VicidialRequestCoalescer.Function.CAMPAIGN_DIAL_CONFIG, coalesceKey(campaignId), () -> {
+      var result = call("/vicidial/non_agent_api.php", new HashMap<>(Map.of("function", "campaign_status", "campaign_id", campaignId)));
+      String body = Objects.toString(result.body(), "");
+      return new CampaignDialConfig(extractDialMethod(body), extractAutoDialLevel(body));
+    });
   }
 
   private Optional<String> extractDialMethod(String body) {
-    Matcher matcher = Pattern.compile("(?i)dial_method\\s*[:=]\\s*([A-Z_]+)").matcher(body);
+    Matcher matcher = DIAL_METHOD_PATTERN.matcher(body);
     if (matcher.find()) {
       return Optional.ofNullable(matcher.group(1)).map(String::trim).filter(v -> !v.isBlank());
     }
@@ -492,7 +666,7 @@ public class VicidialClient {
   }
 
   private Optional<Double> extractAutoDialLevel(String body) {
-    Matcher matcher = Pattern.compile("(?i)auto_dial_level\\s*[:=]\\s*([0-9]+(?:\\.[0-9]+)?)").matcher(body);
+    Matcher matcher = AUTO_DIAL_LEVEL_PATTERN.matcher(body);
     if (matcher.find()) {
       return parseDoubleSafe(matcher.group(1));
     }
@@ -516,7 +690,12 @@ public class VicidialClient {
   }
 
   public String campaigns() {
-    return call("/agc/api.php", new HashMap<>(Map.of("function", "campaign_status"))).body();
+    return coalescer.get(VicidialRequestCoalescer.Function.CAMPAIGNS, coalesceKey("all"),
+        () -> call("/agc/api.php", new HashMap<>(Map.of("function", "campaign_status"))).body());
+  }
+
+  private String coalesceKey(Object argument) {
+    return configService.configVersion() + ":" + argument;
   }
 
   public VicidialHttpResult connectCampaign(String agentUser, String agentPass, String phoneLogin, String campaignId) {
@@ -767,24 +946,20 @@ public class VicidialClient {
   }
 
   private String normalize(String body) {
-    return Pattern.compile("\\s+").matcher(Objects.toString(body, "").toLowerCase()).replaceAll(" ");
+    return VicidialResponseScanner.collapseWhitespaceLower(body);
   }
 
   private VicidialHttpResult executePostWithCookies(String baseUrl, String path, Map<String, String> params, String agentUser) {
-    CookieStore cookieStore = cookieStoreFor(agentUser);
-    RequestConfig requestConfig = RequestConfig.custom()
-        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
-        .setConnectionRequestTimeout(Timeout.ofMilliseconds(writeTimeout.toMillis()))
-        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
-        .build();
+    return metrics.record(path, params,
+        () -> resilience.forPath(path).execute(() -> doExecutePostWithCookies(baseUrl, path, params, agentUser), this::isFailedResult));
+  }
 
-    try (CloseableHttpClient httpClient = HttpClients.custom()
-        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create().build())
-        .setDefaultCookieStore(cookieStore)
-        .setDefaultRequestConfig(requestConfig)
-        .setRedirectStrategy(DefaultRedirectStrategy.INSTANCE)
-        .build()) {
+  private VicidialHttpResult doExecutePostWithCookies(String baseUrl, String path, Map<String, String> params, String agentUser) {
+    CookieStore cookieStore = cookieStoreFor(agentUser);
+    HttpClientContext context = HttpClientContext.create();
+    context.setCookieStore(cookieStore);
 
+    try {
       HttpPost request = new HttpPost(resolveUri(baseUrl, path));
       request.setHeader("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
       request.setHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124 Safari/537.36");
@@ -792,16 +967,22 @@ public class VicidialClient {
       request.setHeader("Accept", "text/html,*/*");
       request.setEntity(new UrlEncodedFormEntity(toNameValuePairs(params), StandardCharsets.UTF_8));
 
-      return httpClient.execute(request, response -> {
+      return agcHttpClient().execute(request, context, response -> {
         String body;
         try {
           body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
         } catch (ParseException ex) {
           throw new IOException("No fue posible parsear respuesta de Vicidial", ex);
         }
-        touchCookieSession(agentUser);
+        publishCookieSession(agentUser);
         return new VicidialHttpResult(response.getCode(), body);
       });
+    } catch (ConnectionRequestTimeoutException ex) {
+      throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+          "VICIDIAL_POOL_EXHAUSTED",
+          "Vicidial tiene demasiadas solicitudes en cola.",
+          "Revise vicidial.http.pool.max-connections y vicidial.http.pool.pending-acquire-timeout-ms.",
+          Map.of("cause", ex.getClass().getSimpleName()));
     } catch (ConnectTimeoutException ex) {
       throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE,
           "VICIDIAL_UNREACHABLE",
@@ -935,23 +1116,11 @@ public class VicidialClient {
   }
 
   private CookieStore cookieStoreFor(String agentUser) {
-    evictExpiredCookieSessions();
-    CookieSession session = cookieSessions.compute(agentUser, (key, existing) -> {
-      if (existing == null || existing.expiresAt().isBefore(Instant.now())) {
-        return new CookieSession(new BasicCookieStore(), Instant.now().plus(cookieTtl));
-      }
-      return new CookieSession(existing.cookieStore(), Instant.now().plus(cookieTtl));
-    });
-    return session.cookieStore();
-  }
-
-  private void touchCookieSession(String agentUser) {
-    cookieSessions.computeIfPresent(agentUser, (key, existing) -> new CookieSession(existing.cookieStore(), Instant.now().plus(cookieTtl)));
+    return cookieSessions.storeFor(agentUser);
   }
 
-  private void evictExpiredCookieSessions() {
-    Instant now = Instant.now();
-    cookieSessions.entrySet().removeIf(entry -> entry.getValue().expiresAt().isBefore(now));
+  private void publishCookieSession(String agentUser) {
+    cookieSessions.afterResponse(agentUser);
   }
 
   public record VicidialHttpResult(int statusCode, String body) {
@@ -996,6 +1165,28 @@ public class VicidialClient {
     UNKNOWN
   }
 
-  private record CookieSession(CookieStore cookieStore, Instant expiresAt) {
+  private record HttpPoolSettings(
+      int maxConnections,
+      int pendingAcquireMaxCount,
+      Duration pendingAcquireTimeout,
+      Duration maxIdleTime,
+      Duration maxLifeTime,
+      Duration evictInterval
+  ) {
+    static HttpPoolSettings defaults() {
+      return new HttpPoolSettings(200, 400, Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(15));
+    }
+  }
+
+  public record AgcPoolStats(int leased, int available, int pending, int max) {
+  }
+
+  private record PooledWebClient(String baseUrl, long configVersion, ConnectionProvider provider, WebClient webClient) {
+    boolean matches(String candidateBaseUrl, long candidateVersion) {
+      return configVersion == candidateVersion && Objects.equals(baseUrl, candidateBaseUrl);
+    }
+  }
+
+  public record CookieSessionStats(int sessions, long created, long restored, long expired, long evicted) {
   }
 }
@@ -3,6 +3,7 @@ package com.telco3.agentui.vicidial;
 import com.telco3.agentui.domain.AppConfigEntity;
 import com.telco3.agentui.domain.AppConfigRepository;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
@@ -14,8 +15,11 @@ import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class VicidialConfigService {
@@ -29,6 +33,11 @@ public class VicidialConfigService {
   public static final String KEY_DB_NAME = "vicidial.dbName";
   public static final String KEY_DB_USER = "vicidial.dbUser";
   public static final String KEY_DB_PASS = "vicidial.dbPass";
+  public static final String KEY_REPLICA_DB_HOST = "vicidial.replica.dbHost";
+  public static final String KEY_REPLICA_DB_PORT = "vicidial.replica.dbPort";
+  public static final String KEY_REPLICA_DB_NAME = "vicidial.replica.dbName";
+  public static final String KEY_REPLICA_DB_USER = "vicidial.replica.dbUser";
+  public static final String KEY_REPLICA_DB_PASS = "vicidial.replica.dbPass";
   public static final String KEY_BASE_URL_LOWER = "vicidial.baseUrl";
   public static final String KEY_API_USER_LOWER = "vicidial.apiUser";
   public static final String KEY_API_PASS_LOWER = "vicidial.apiPass";
@@ -43,6 +52,11 @@ public class VicidialConfigService {
       KEY_DB_NAME,
       KEY_DB_USER,
       KEY_DB_PASS,
+      KEY_REPLICA_DB_HOST,
+      KEY_REPLICA_DB_PORT,
+      KEY_REPLICA_DB_NAME,
+      KEY_REPLICA_DB_USER,
+      KEY_REPLICA_DB_PASS,
       KEY_BASE_URL_LOWER,
       KEY_API_USER_LOWER,
       KEY_API_PASS_LOWER,
@@ -54,17 +68,32 @@ public class VicidialConfigService {
   private final SecretKeySpec secretKey;
   private final boolean seedDevConfig;
   private final AtomicLong configVersion = new AtomicLong(0);
+  private final long snapshotMaxAgeNanos;
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+  private volatile ConfigSnapshot snapshot;
 
+  public VicidialConfigService(
+      AppConfigRepository configRepository,
+      Environment environment,
+      String cryptoKey,
+      boolean seedDevConfig
+  ) {
+    this(configRepository, environment, cryptoKey, seedDevConfig, 60000);
+  }
+
+  @Autowired
   public VicidialConfigService(
       AppConfigRepository configRepository,
       Environment environment,
       @Value("${app.crypto-key}") String cryptoKey,
-      @Value("${app.seed-dev-config:false}") boolean seedDevConfig
+      @Value("${app.seed-dev-config:false}") boolean seedDevConfig,
+      @Value("${app.vicidial.config.snapshot-max-age-ms:60000}") long snapshotMaxAgeMs
   ) {
     this.configRepository = configRepository;
     this.environment = environment;
     this.secretKey = new SecretKeySpec(cryptoKey.getBytes(StandardCharsets.UTF_8), "AES");
     this.seedDevConfig = seedDevConfig;
+    this.snapshotMaxAgeNanos = snapshotMaxAgeMs > 0 ? TimeUnit.MILLISECONDS.toNanos(snapshotMaxAgeMs) : 0;
   }
 
   @PostConstruct
@@ -82,9 +111,18 @@ public class VicidialConfigService {
     if (StringUtils.hasText(source)) {
       upsertIfMissing(KEY_SOURCE, source, false);
     }
+    configVersion.incrementAndGet();
   }
 
+  /**
+   * Returns the cached snapshot; it is reloaded when {@link #saveConfig} bumps the version or after
+   * {@code app.vicidial.config.snapshot-max-age-ms}, so edits made by another instance are also picked up.
+   */
   public ResolvedVicidialConfig resolve() {
+    return currentSnapshot().api();
+  }
+
+  private ResolvedVicidialConfig loadApiConfig() {
     ValueWithOrigin baseUrl = resolveValue(new String[]{KEY_BASE_URL_LOWER, KEY_BASE_URL}, false);
     ValueWithOrigin apiUser = resolveValue(new String[]{KEY_API_USER_LOWER, KEY_API_USER}, false);
     ValueWithOrigin apiPass = resolveValue(new String[]{KEY_API_PASS_LOWER, KEY_API_PASS}, true);
@@ -108,6 +146,11 @@ public class VicidialConfigService {
         firstStored(KEY_DB_NAME),
         firstStored(KEY_DB_USER),
         firstStored(KEY_DB_PASS) == null ? null : "********",
+        firstStored(KEY_REPLICA_DB_HOST),
+        firstStored(KEY_REPLICA_DB_PORT),
+        firstStored(KEY_REPLICA_DB_NAME),
+        firstStored(KEY_REPLICA_DB_USER),
+        firstStored(KEY_REPLICA_DB_PASS) == null ? null : "********",
         resolveLatestUpdateAt()
     );
   }
@@ -123,10 +166,61 @@ public class VicidialConfigService {
     upsertIfHasText(KEY_DB_NAME, trim(request.dbName()), false);
     upsertIfHasText(KEY_DB_USER, trim(request.dbUser()), false);
     upsertSecretIfProvided(KEY_DB_PASS, request.dbPass());
+    // A blank replica host (as opposed to a missing one) removes it, which turns the replica off.
+    if (request.replicaDbHost() != null && !StringUtils.hasText(request.replicaDbHost())) {
+      configRepository.deleteById(KEY_REPLICA_DB_HOST);
+    }
+    upsertIfHasText(KEY_REPLICA_DB_HOST, trim(request.replicaDbHost()), false);
+    upsertIfHasText(KEY_REPLICA_DB_PORT, trim(request.replicaDbPort()), false);
+    upsertIfHasText(KEY_REPLICA_DB_NAME, trim(request.replicaDbName()), false);
+    upsertIfHasText(KEY_REPLICA_DB_USER, trim(request.replicaDbUser()), false);
+    upsertSecretIfProvided(KEY_REPLICA_DB_PASS, request.replicaDbPass());
     configVersion.incrementAndGet();
   }
 
   public ResolvedVicidialDbConfig resolveDbConfig() {
+    return currentSnapshot().db();
+  }
+
+  /**
+   * Optional read replica for reporting queries, from {@code vicidial.replica.*}. Only the host is required; port,
+   * database and credentials default to the primary's. Shares the primary's config version.
+   */
+  public Optional<ResolvedVicidialDbConfig> resolveReplicaDbConfig() {
+    ResolvedVicidialDbConfig replica = currentSnapshot().replica();
+    return replica.missingRequired() ? Optional.empty() : Optional.of(replica);
+  }
+
+  private ConfigSnapshot currentSnapshot() {
+    ConfigSnapshot current = snapshot;
+    if (current != null && current.isFresh(configVersion.get(), snapshotMaxAgeNanos)) {
+      return current;
+    }
+    snapshotLock.lock();
+    try {
+      current = snapshot;
+      long version = configVersion.get();
+      if (current != null && current.isFresh(version, snapshotMaxAgeNanos)) {
+        return current;
+      }
+      ResolvedVicidialConfig api = loadApiConfig();
+      ResolvedVicidialDbConfig db = loadDbConfig(version);
+      ResolvedVicidialDbConfig replica = loadReplicaDbConfig(db);
+      if (current != null && current.version() == version
+          && (!current.api().equals(api) || !current.db().equals(db) || !current.replica().equals(replica))) {
+        version = configVersion.incrementAndGet();
+        db = db.withConfigVersion(version);
+        replica = replica.withConfigVersion(version);
+      }
+      ConfigSnapshot refreshed = new ConfigSnapshot(version, System.nanoTime(), api, db, replica);
+      snapshot = refreshed;
+      return refreshed;
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  private ResolvedVicidialDbConfig loadDbConfig(long version) {
     ValueWithOrigin host = resolveValue(new String[]{KEY_DB_HOST}, false);
     ValueWithOrigin port = resolveValue(new String[]{KEY_DB_PORT}, false);
     ValueWithOrigin dbName = resolveValue(new String[]{KEY_DB_NAME}, false);
@@ -139,7 +233,25 @@ public class VicidialConfigService {
         || !StringUtils.hasText(dbUser.value())
         || !StringUtils.hasText(dbPass.value());
 
-    return new ResolvedVicidialDbConfig(trim(host.value()), trim(port.value()), trim(dbName.value()), trim(dbUser.value()), trim(dbPass.value()), missing, configVersion.get());
+    return new ResolvedVicidialDbConfig(trim(host.value()), trim(port.value()), trim(dbName.value()), trim(dbUser.value()), trim(dbPass.value()), missing, version);
+  }
+
+  private ResolvedVicidialDbConfig loadReplicaDbConfig(ResolvedVicidialDbConfig primary) {
+    String host = trim(resolveValue(new String[]{KEY_REPLICA_DB_HOST}, false).value());
+    String port = trim(resolveValue(new String[]{KEY_REPLICA_DB_PORT}, false).value());
+    String dbName = trim(resolveValue(new String[]{KEY_REPLICA_DB_NAME}, false).value());
+    String dbUser = trim(resolveValue(new String[]{KEY_REPLICA_DB_USER}, false).value());
+    String dbPass = trim(resolveValue(new String[]{KEY_REPLICA_DB_PASS}, true).value());
+
+    return new ResolvedVicidialDbConfig(
+        host,
+        StringUtils.hasText(port) ? port : primary.dbPort(),
+        StringUtils.hasText(dbName) ? dbName : primary.dbName(),
+        StringUtils.hasText(dbUser) ? dbUser : primary.dbUser(),
+        StringUtils.hasText(dbPass) ? dbPass : primary.dbPass(),
+        !StringUtils.hasText(host) || primary.missingRequired(),
+        primary.configVersion()
+    );
   }
 
   public void assertVicidialApiConfigured() {
@@ -285,20 +397,37 @@ public class VicidialConfigService {
   private record ValueWithOrigin(String value, String origin) {
   }
 
+  private record ConfigSnapshot(long version, long loadedAtNanos, ResolvedVicidialConfig api, ResolvedVicidialDbConfig db,
+                                ResolvedVicidialDbConfig replica) {
+    boolean isFresh(long currentVersion, long maxAgeNanos) {
+      return version == currentVersion && (maxAgeNanos == 0 || System.nanoTime() - loadedAtNanos < maxAgeNanos);
+    }
+  }
+
   public record ResolvedVicidialConfig(String baseUrl, String apiUser, String apiPass, String source,
                                        boolean missingRequired, String originHint) {
   }
 
   public record StoredVicidialConfig(String baseUrl, String apiUser, String apiPassMasked, String source,
                                      String dbHost, String dbPort, String dbName, String dbUser, String dbPassMasked,
-                                     OffsetDateTime updatedAt) {
+                                     String replicaDbHost, String replicaDbPort, String replicaDbName,
+                                     String replicaDbUser, String replicaDbPassMasked, OffsetDateTime updatedAt) {
   }
 
   public record VicidialConfigUpdateRequest(String baseUrl, String apiUser, String apiPass, String source,
-                                            String dbHost, String dbPort, String dbName, String dbUser, String dbPass) {
+                                            String dbHost, String dbPort, String dbName, String dbUser, String dbPass,
+                                            String replicaDbHost, String replicaDbPort, String replicaDbName,
+                                            String replicaDbUser, String replicaDbPass) {
+    public VicidialConfigUpdateRequest(String baseUrl, String apiUser, String apiPass, String source,
+                                       String dbHost, String dbPort, String dbName, String dbUser, String dbPass) {
+      this(baseUrl, apiUser, apiPass, source, dbHost, dbPort, dbName, dbUser, dbPass, null, null, null, null, null);
+    }
   }
 
   public record ResolvedVicidialDbConfig(String dbHost, String dbPort, String dbName, String dbUser, String dbPass,
                                          boolean missingRequired, long configVersion) {
+    ResolvedVicidialDbConfig withConfigVersion(long version) {
+      return new ResolvedVicidialDbConfig(dbHost, dbPort, dbName, dbUser, dbPass, missingRequired, version);
+    }
   }
 }
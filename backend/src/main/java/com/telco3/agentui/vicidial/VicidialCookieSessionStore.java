@@ -0,0 +1,314 @@
+package com.telco3.agentui.vicidial;
+
+import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.cookie.CookieStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * AGC cookie jars per agent. Lookups and touches are O(1) and allocation-free; expired sessions are swept by a
+ * background task instead of on every request, and the store never holds more than {@code maxSessions} agents.
+ * <p>
+ * This is also the per-node near-cache of {@link VicidialSessionStateStore}: jars are hydrated from the shared store
+ * on first use, re-validated against its revision every {@code nearCacheTtl}, and written back when cookies change.
+ * Using a jar refreshes the shared row (at most every {@code touchInterval}) so the purge only drops idle agents, and a
+ * missing shared row never wipes a local jar; a logout publishes an empty jar instead of deleting the row.
+ */
+final class VicidialCookieSessionStore {
+  private static final Logger log = LoggerFactory.getLogger(VicidialCookieSessionStore.class);
+
+  private final Settings settings;
+  private final VicidialSessionStateStore shared;
+  private final LongSupplier nanoClock;
+  private final long ttlNanos;
+  private final long nearCacheTtlNanos;
+  private final long touchIntervalNanos;
+  private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder restored = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+  private final ReentrantLock sweeperLock = new ReentrantLock();
+  private volatile ScheduledExecutorService sweeper;
+
+  VicidialCookieSessionStore(Settings settings, VicidialSessionStateStore shared) {
+    this(settings, shared, System::nanoTime);
+  }
+
+  VicidialCookieSessionStore(Settings settings, VicidialSessionStateStore shared, LongSupplier nanoClock) {
+    this.settings = settings;
+    this.shared = shared;
+    this.nanoClock = nanoClock;
+    this.ttlNanos = settings.ttl().toNanos();
+    this.nearCacheTtlNanos = settings.nearCacheTtl().toNanos();
+    this.touchIntervalNanos = Math.max(nearCacheTtlNanos, ttlNanos / 4);
+  }
+
+  CookieStore storeFor(String agentUser) {
+    long now = nanoClock.getAsLong();
+    Session session = sessions.get(agentUser);
+    if (session == null || session.isExpired(now, ttlNanos)) {
+      session = createOrReuse(agentUser, now);
+    } else {
+      session.touch(now);
+    }
+    if (!session.synced || now - session.validatedAtNanos >= nearCacheTtlNanos) {
+      syncFromShared(agentUser, session, now);
+    }
+    if (session.sharedRevision >= 0 && now - session.sharedTouchedAtNanos >= touchIntervalNanos) {
+      touchShared(agentUser, session, now);
+    }
+    return session.cookieStore;
+  }
+
+  /** Marks the session as used and writes the jar to the shared store if the response changed any cookie. */
+  void afterResponse(String agentUser) {
+    Session session = sessions.get(agentUser);
+    if (session == null) {
+      return;
+    }
+    long now = nanoClock.getAsLong();
+    session.touch(now);
+    List<Cookie> cookies = session.cookieStore.getCookies();
+    String fingerprint = fingerprint(cookies);
+    if (fingerprint.equals(session.persistedFingerprint)) {
+      return;
+    }
+    session.lock.lock();
+    try {
+      if (fingerprint.equals(session.persistedFingerprint)) {
+        return;
+      }
+      session.sharedRevision = shared.save(agentUser, cookies.stream().map(VicidialSessionStateStore.StoredCookie::from).toList());
+      session.persistedFingerprint = fingerprint;
+      session.validatedAtNanos = now;
+      session.sharedTouchedAtNanos = now;
+      session.synced = true;
+    } catch (RuntimeException ex) {
+      log.warn("No se pudo publicar sesion AGC compartida agent={} cause={}", agentUser, ex.getMessage());
+    } finally {
+      session.lock.unlock();
+    }
+  }
+
+  /** Drops the agent's jar here and publishes an empty one, so other nodes clear theirs on their next check. */
+  void remove(String agentUser) {
+    sessions.remove(agentUser);
+    try {
+      shared.save(agentUser, List.of());
+    } catch (RuntimeException ex) {
+      log.warn("No se pudo eliminar sesion AGC compartida agent={} cause={}", agentUser, ex.getMessage());
+    }
+  }
+
+  int size() {
+    return sessions.size();
+  }
+
+  long createdCount() {
+    return created.sum();
+  }
+
+  long restoredCount() {
+    return restored.sum();
+  }
+
+  long expiredCount() {
+    return expired.sum();
+  }
+
+  long evictedCount() {
+    return evicted.sum();
+  }
+
+  void sweepExpired() {
+    long now = nanoClock.getAsLong();
+    sessions.forEach((agentUser, session) -> {
+      if (session.isExpired(now, ttlNanos) && sessions.remove(agentUser, session)) {
+        expired.increment();
+      }
+    });
+  }
+
+  void shutdown() {
+    ScheduledExecutorService current = sweeper;
+    sweeper = null;
+    if (current != null) {
+      current.shutdownNow();
+    }
+    sessions.clear();
+  }
+
+  private Session createOrReuse(String agentUser, long now) {
+    ensureSweeper();
+    Session current = sessions.compute(agentUser, (key, existing) -> {
+      if (existing != null && !existing.isExpired(now, ttlNanos)) {
+        existing.touch(now);
+        return existing;
+      }
+      if (existing != null) {
+        expired.increment();
+      }
+      return new Session(now);
+    });
+    if (sessions.size() > settings.maxSessions()) {
+      evictLeastRecentlyUsed(agentUser);
+    }
+    return current;
+  }
+
+  private void syncFromShared(String agentUser, Session session, long now) {
+    session.lock.lock();
+    try {
+      if (session.synced && now - session.validatedAtNanos < nearCacheTtlNanos) {
+        return;
+      }
+      boolean firstSync = !session.synced;
+      long revision = firstSync ? Long.MIN_VALUE : shared.revision(agentUser);
+      if (firstSync || revision != session.sharedRevision) {
+        var stored = shared.load(agentUser, settings.ttl());
+        if (stored.isPresent()) {
+          session.cookieStore.clear();
+          stored.get().cookies().forEach(cookie -> session.cookieStore.addCookie(cookie.toCookie()));
+          session.sharedRevision = stored.get().revision();
+          session.sharedTouchedAtNanos = now;
+          session.persistedFingerprint = fingerprint(session.cookieStore.getCookies());
+        } else {
+          // purged or never published: keep the local jar, it is still the agent's live session, and publish it again
+          session.sharedRevision = -1;
+          List<Cookie> local = session.cookieStore.getCookies();
+          session.persistedFingerprint = local.isEmpty() ? fingerprint(local) : null;
+        }
+        if (firstSync) {
+          (session.cookieStore.getCookies().isEmpty() ? created : restored).increment();
+        }
+      }
+    } catch (RuntimeException ex) {
+      if (!session.synced) {
+        created.increment();
+      }
+      log.warn("Sesion AGC compartida no disponible, usando cache local agent={} cause={}", agentUser, ex.getMessage());
+    } finally {
+      session.synced = true;
+      session.validatedAtNanos = now;
+      session.lock.unlock();
+    }
+  }
+
+  private void touchShared(String agentUser, Session session, long now) {
+    session.sharedTouchedAtNanos = now;
+    try {
+      shared.touch(agentUser);
+    } catch (RuntimeException ex) {
+      log.debug("No se pudo refrescar sesion AGC compartida agent={} cause={}", agentUser, ex.getMessage());
+    }
+  }
+
+  private void evictLeastRecentlyUsed(String keep) {
+    sweepExpired();
+    while (sessions.size() > settings.maxSessions()) {
+      Map.Entry<String, Session> oldest = null;
+      for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+        if (entry.getKey().equals(keep)) {
+          continue;
+        }
+        if (oldest == null || entry.getValue().lastAccessNanos - oldest.getValue().lastAccessNanos < 0) {
+          oldest = entry;
+        }
+      }
+      if (oldest == null) {
+        return;
+      }
+      if (sessions.remove(oldest.getKey(), oldest.getValue())) {
+        evicted.increment();
+      }
+    }
+  }
+
+  private void ensureSweeper() {
+    if (sweeper != null) {
+      return;
+    }
+    sweeperLock.lock();
+    try {
+      if (sweeper == null) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "vicidial-cookie-sweeper");
+          thread.setDaemon(true);
+          return thread;
+        });
+        long interval = settings.sweepInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        sweeper = executor;
+      }
+    } finally {
+      sweeperLock.unlock();
+    }
+  }
+
+  private void sweep() {
+    sweepExpired();
+    try {
+      shared.purgeOlderThan(settings.ttl());
+    } catch (RuntimeException ex) {
+      log.debug("No se pudo depurar sesiones AGC compartidas cause={}", ex.getMessage());
+    }
+  }
+
+  private static String fingerprint(List<Cookie> cookies) {
+    if (cookies.isEmpty()) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder(cookies.size() * 48);
+    for (Cookie cookie : cookies) {
+      sb.append(cookie.getName()).append('=').append(cookie.getValue())
+          .append(';').append(cookie.getDomain())
+          .append(';').append(cookie.getPath())
+          .append(';').append(Objects.toString(cookie.getExpiryInstant(), ""))
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  record Settings(Duration ttl, int maxSessions, Duration sweepInterval, Duration nearCacheTtl) {
+    static Settings defaults() {
+      return new Settings(Duration.ofMinutes(30), 5000, Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+  }
+
+  private static final class Session {
+    private final BasicCookieStore cookieStore = new BasicCookieStore();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long lastAccessNanos;
+    private volatile long validatedAtNanos;
+    private volatile long sharedTouchedAtNanos;
+    private volatile boolean synced;
+    private volatile long sharedRevision = -1;
+    private volatile String persistedFingerprint = "";
+
+    private Session(long now) {
+      this.lastAccessNanos = now;
+    }
+
+    void touch(long now) {
+      lastAccessNanos = now;
+    }
+
+    boolean isExpired(long now, long ttlNanos) {
+      return now - lastAccessNanos >= ttlNanos;
+    }
+  }
+}
@@ -3,7 +3,6 @@ package com.telco3.agentui.vicidial;
 import org.springframework.util.StringUtils;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -15,7 +14,10 @@ public class VicidialDialResponseParser {
   private static final Pattern CALL_ID_PATTERN = Pattern.compile("^M[0-9A-Z]{6,}$");
   private static final Pattern LEAD_ID_PATTERN = Pattern.compile("(?i)(?:lead_id|leadid)\\s*[:=]?\\s*([0-9]{1,12})");
   private static final Pattern FIRST_TOKEN = Pattern.compile("^\\s*([A-Za-z0-9_-]+)");
-  private static final Pattern KEY_VALUE_PATTERN = Pattern.compile("^\\s*([A-Za-z0-9_\\-\\s]+?)\\s*[:=]\\s*(.*?)\\s*$");
+  private static final Pattern LEAD_STATUS_TOKEN = Pattern.compile("[A-Za-z0-9_\\-]{1,20}");
+  private static final Pattern LIST_ID_TOKEN = Pattern.compile("[0-9]{2,6}");
+  private static final Pattern PHONE_TOKEN = Pattern.compile("[0-9]{7,15}");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
   public ParsedDialResponse parse(String rawBody) {
     DetailedParsedDialResponse detailed = parseDetailed(rawBody);
@@ -96,8 +98,7 @@ public class VicidialDialResponseParser {
     if (CALL_ID_PATTERN.matcher(firstToken).matches()) {
       return firstToken;
     }
-    Matcher matcher = Pattern.compile("\\b(M[0-9A-Z]{8,})\\b").matcher(body);
-    return matcher.find() ? matcher.group(1) : null;
+    return VicidialResponseScanner.findCallId(body, 8);
   }
 
   private Long findLeadId(String body) {
@@ -120,76 +121,11 @@ public class VicidialDialResponseParser {
   }
 
   private Map<String, String> parseKeyValues(String body) {
-    Map<String, String> parsed = new LinkedHashMap<>();
-    for (String line : Objects.toString(body, "").split("\\r?\\n")) {
-      String trimmed = Objects.toString(line, "").trim();
-      if (!StringUtils.hasText(trimmed)) {
-        continue;
-      }
-      if (trimmed.contains("&") && trimmed.contains("=")) {
-        for (String pair : trimmed.split("&")) {
-          parsePair(parsed, pair);
-        }
-      }
-      if (trimmed.contains("|")) {
-        for (String pair : trimmed.split("\\|")) {
-          parsePair(parsed, pair);
-        }
-      }
-      parsePair(parsed, trimmed);
-    }
-    return parsed;
-  }
-
-  private void parsePair(Map<String, String> parsed, String candidate) {
-    Matcher matcher = KEY_VALUE_PATTERN.matcher(Objects.toString(candidate, ""));
-    if (!matcher.find()) {
-      return;
-    }
-    String key = normalizeKey(matcher.group(1));
-    String value = sanitizeValue(matcher.group(2));
-    if (!StringUtils.hasText(key) || !StringUtils.hasText(value)) {
-      return;
-    }
-    parsed.putIfAbsent(key, value);
-    String compact = key.replace("_", "");
-    if (!compact.equals(key)) {
-      parsed.putIfAbsent(compact, value);
-    }
+    return VicidialResponseScanner.parseKeyValues(body);
   }
 
   private String normalizeKey(String raw) {
-    String key = Objects.toString(raw, "").trim().toLowerCase(Locale.ROOT);
-    if (!StringUtils.hasText(key)) {
-      return "";
-    }
-    key = key
-        .replaceAll("[^a-z0-9]+", "_")
-        .replaceAll("_+", "_")
-        .replaceAll("^_+", "")
-        .replaceAll("_+$", "");
-    if (key.startsWith("var_")) {
-      key = key.substring(4);
-    }
-    if (key.startsWith("window_")) {
-      key = key.substring(7);
-    }
-    if (key.startsWith("this_")) {
-      key = key.substring(5);
-    }
-    return key;
-  }
-
-  private String sanitizeValue(String raw) {
-    String value = Objects.toString(raw, "").trim();
-    if (!StringUtils.hasText(value)) {
-      return value;
-    }
-    return value
-        .replaceAll("^[\"']+", "")
-        .replaceAll("[\"']+$", "")
-        .replaceAll("[;,]+$", "")
-        .trim();
+    return VicidialResponseScanner.normalizeKey(raw);
   }
 
   private String firstNonBlank(Map<String, String> parsed, String... keys) {
@@ -229,31 +165,22 @@ public class VicidialDialResponseParser {
     if (!StringUtils.hasText(safeBody)) {
       return PositionalDialFields.empty();
     }
-    Matcher callMatcher = Pattern.compile("\\b(M[0-9A-Z]{8,})\\b").matcher(safeBody);
-    if (!callMatcher.find()) {
+    String callId = VicidialResponseScanner.findCallId(safeBody, 8);
+    if (callId == null) {
       return PositionalDialFields.empty();
     }
-    String callId = callMatcher.group(1);
-    String sourceLine = null;
-    for (String line : safeBody.split("\\r?\\n")) {
-      if (Objects.toString(line, "").contains(callId)) {
-        sourceLine = line;
-        break;
-      }
-    }
-    if (!StringUtils.hasText(sourceLine)) {
-      sourceLine = safeBody;
+    int callPos = safeBody.indexOf(callId);
+    int lineEnd = safeBody.indexOf('\n', callPos);
+    if (lineEnd < 0) {
+      lineEnd = safeBody.length();
     }
-    int callPos = sourceLine.indexOf(callId);
-    String tail = callPos >= 0
-        ? sourceLine.substring(Math.min(callPos + callId.length(), sourceLine.length())).trim()
-        : sourceLine.trim();
+    String tail = safeBody.substring(callPos + callId.length(), lineEnd).trim();
     if (!StringUtils.hasText(tail)) {
       return new PositionalDialFields(callId, null, null, null, null);
     }
-    String[] tokens = tail.split("\\s+");
+    String[] tokens = WHITESPACE.split(tail);
     Long leadId = tokens.length >= 1 ? parseLong(tokens[0]) : null;
-    String leadStatus = tokens.length >= 2 && tokens[1].matches("[A-Za-z0-9_\\-]{1,20}") ? tokens[1] : null;
+    String leadStatus = tokens.length >= 2 && LEAD_STATUS_TOKEN.matcher(tokens[1]).matches() ? tokens[1] : null;
     String listId = null;
     String phoneNumber = null;
     int startIndex = 0;
@@ -265,10 +192,10 @@ public class VicidialDialResponseParser {
     }
     for (int i = startIndex; i < tokens.length; i++) {
       String token = tokens[i];
-      if (listId == null && token.matches("[0-9]{2,6}")) {
+      if (listId == null && LIST_ID_TOKEN.matcher(token).matches()) {
         listId = token;
       }
-      if (phoneNumber == null && token.matches("[0-9]{7,15}")) {
+      if (phoneNumber == null && PHONE_TOKEN.matcher(token).matches()) {
         phoneNumber = token;
       }
       if (listId != null && phoneNumber != null) {
@@ -0,0 +1,46 @@
+package com.telco3.agentui.vicidial;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VicidialHttpPoolMetrics implements MeterBinder {
+  private final VicidialClient vicidialClient;
+
+  public VicidialHttpPoolMetrics(VicidialClient vicidialClient) {
+    this.vicidialClient = vicidialClient;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("vicidial.http.agc.pool.leased", vicidialClient, client -> client.agcPoolStats().leased())
+        .description("Conexiones AGC en uso")
+        .register(registry);
+    Gauge.builder("vicidial.http.agc.pool.available", vicidialClient, client -> client.agcPoolStats().available())
+        .description("Conexiones AGC ociosas reutilizables")
+        .register(registry);
+    Gauge.builder("vicidial.http.agc.pool.pending", vicidialClient, client -> client.agcPoolStats().pending())
+        .description("Solicitudes AGC esperando conexion")
+        .register(registry);
+    Gauge.builder("vicidial.http.agc.pool.max", vicidialClient, client -> client.agcPoolStats().max())
+        .register(registry);
+    Gauge.builder("vicidial.http.cookie.sessions", vicidialClient, VicidialClient::cookieSessionCount)
+        .description("Sesiones AGC con cookies activas")
+        .register(registry);
+    FunctionCounter.builder("vicidial.http.cookie.sessions.created", vicidialClient, client -> client.cookieSessionStats().created())
+        .description("Sesiones AGC nuevas (cookies vacias, el agente vuelve a loguearse en AGC)")
+        .register(registry);
+    FunctionCounter.builder("vicidial.http.cookie.sessions.restored", vicidialClient, client -> client.cookieSessionStats().restored())
+        .description("Sesiones AGC recuperadas del store compartido sin nuevo login")
+        .register(registry);
+    FunctionCounter.builder("vicidial.http.cookie.sessions.expired", vicidialClient, client -> client.cookieSessionStats().expired())
+        .description("Sesiones AGC expiradas por inactividad")
+        .register(registry);
+    FunctionCounter.builder("vicidial.http.cookie.sessions.evicted", vicidialClient, client -> client.cookieSessionStats().evicted())
+        .description("Sesiones AGC desalojadas por limite de vicidial.http.cookie.max-sessions")
+        .register(registry);
+  }
+}
@@ -0,0 +1,96 @@
+package com.telco3.agentui.vicidial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running intraday call totals. Rows older than {@code settleWindow} are folded once into settled totals and never
+ * read again; only the recent tail, where Vicidial still updates {@code length_in_sec} and {@code status} on hangup,
+ * is re-aggregated on each refresh. Totals reset at local midnight of {@code zone} and are rebuilt from a full-day
+ * scan every {@code reconcileInterval} to absorb late updates on settled rows.
+ */
+@Component
+public class VicidialIntradayCallAggregator {
+  private static final Logger log = LoggerFactory.getLogger(VicidialIntradayCallAggregator.class);
+
+  private final VicidialRealtimeQueryService queryService;
+  private final Clock clock;
+  private final Duration settleWindow;
+  private final Duration reconcileInterval;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private LocalDate day;
+  private int thresholdSec;
+  private LocalDateTime settledUntil;
+  private VicidialRealtimeQueryService.CallTotals settled = VicidialRealtimeQueryService.CallTotals.EMPTY;
+  private Instant reconciledAt = Instant.EPOCH;
+  private VicidialRealtimeQueryService.CallTotals lastTotals = VicidialRealtimeQueryService.CallTotals.EMPTY;
+
+  @Autowired
+  public VicidialIntradayCallAggregator(
+      VicidialRealtimeQueryService queryService,
+      @Value("${app.vicidial.realtime.metrics-zone:America/Lima}") String zone,
+      @Value("${app.vicidial.realtime.metrics-settle-window-ms:3600000}") long settleWindowMs,
+      @Value("${app.vicidial.realtime.metrics-reconcile-interval-ms:900000}") long reconcileIntervalMs
+  ) {
+    this(queryService, Clock.system(ZoneId.of(zone)), Duration.ofMillis(settleWindowMs), Duration.ofMillis(reconcileIntervalMs));
+  }
+
+  VicidialIntradayCallAggregator(VicidialRealtimeQueryService queryService, Clock clock, Duration settleWindow, Duration reconcileInterval) {
+    this.queryService = queryService;
+    this.clock = clock;
+    this.settleWindow = settleWindow;
+    this.reconcileInterval = reconcileInterval;
+  }
+
+  /**
+   * Today's totals. If MariaDB fails, the last totals of the same day are returned (zeros after midnight) and the
+   * settled watermark does not move, so the next refresh retries the same window.
+   */
+  public VicidialRealtimeQueryService.CallTotals current(int serviceLevelThresholdSec) {
+    lock.lock();
+    try {
+      LocalDateTime now = LocalDateTime.now(clock);
+      LocalDate today = now.toLocalDate();
+      Instant instant = clock.instant();
+      if (!today.equals(day) || thresholdSec != serviceLevelThresholdSec) {
+        reset(today, serviceLevelThresholdSec, instant);
+        lastTotals = VicidialRealtimeQueryService.CallTotals.EMPTY;
+      } else if (!instant.isBefore(reconciledAt.plus(reconcileInterval))) {
+        reset(today, serviceLevelThresholdSec, instant);
+      }
+      try {
+        LocalDateTime watermark = now.minus(settleWindow);
+        if (watermark.isAfter(settledUntil)) {
+          settled = settled.plus(queryService.aggregateCalls(settledUntil, watermark, thresholdSec));
+          settledUntil = watermark;
+        }
+        lastTotals = settled.plus(queryService.aggregateCalls(settledUntil, null, thresholdSec));
+      } catch (RuntimeException ex) {
+        log.warn("Vicidial intraday metrics refresh failed cause={}", ex.getClass().getSimpleName());
+      }
+      return lastTotals;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void reset(LocalDate today, int serviceLevelThresholdSec, Instant instant) {
+    day = today;
+    thresholdSec = serviceLevelThresholdSec;
+    settledUntil = today.atStartOfDay();
+    settled = VicidialRealtimeQueryService.CallTotals.EMPTY;
+    reconciledAt = instant;
+  }
+}
@@ -9,159 +9,82 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class VicidialRealtimeQueryService {
   private static final Logger log = LoggerFactory.getLogger(VicidialRealtimeQueryService.class);
-  private static final List<String> DROP_STATUSES = List.of("DROP", "XDROP", "ABANDON", "ABANDONED");
 
   private final VicidialRuntimeDataSourceFactory dataSourceFactory;
   private final long schemaCacheTtlMs;
-  private final Map<String, Boolean> schemaCache = new ConcurrentHashMap<>();
+  private final ReentrantLock profileLock = new ReentrantLock();
 
-  private volatile long schemaCacheValidUntilMs = 0L;
+  private volatile CachedProfile cachedProfile;
 
   public VicidialRealtimeQueryService(
       VicidialRuntimeDataSourceFactory dataSourceFactory,
-      @Value("${app.vicidial.realtime.schema-cache-ms:60000}") long schemaCacheTtlMs
+      @Value("${app.vicidial.realtime.schema-cache-ms:600000}") long schemaCacheTtlMs
   ) {
     this.dataSourceFactory = dataSourceFactory;
     this.schemaCacheTtlMs = schemaCacheTtlMs;
   }
 
   public List<RealtimeAgentRow> fetchLiveAgents(String campaign, String pauseCode, String search) {
-    JdbcTemplate jdbc = runtimeJdbc();
-    if (!hasTable(jdbc, "vicidial_live_agents")) {
-      log.warn("Vicidial realtime table missing table=vicidial_live_agents");
+    try {
+      return queryLiveAgents(campaign, pauseCode, search);
+    } catch (DataAccessException ex) {
+      log.warn("Vicidial realtime agents query failed cause={}", ex.getClass().getSimpleName());
       return List.of();
     }
+  }
 
-    boolean hasUser = hasColumn(jdbc, "vicidial_live_agents", "user");
-    boolean hasStatus = hasColumn(jdbc, "vicidial_live_agents", "status");
-    if (!hasUser || !hasStatus) {
-      log.warn("Vicidial realtime table missing required columns user/status on vicidial_live_agents");
+  /**
+   * {@link #fetchLiveAgents} without the fallback: schema scan and query failures propagate, so a caller that
+   * publishes the result never takes a MariaDB outage for an empty floor. A missing table still yields no rows.
+   */
+  public List<RealtimeAgentRow> queryLiveAgents(String campaign, String pauseCode, String search) {
+    JdbcTemplate jdbc = runtimeJdbc(VicidialRuntimeDataSourceFactory.Workload.REALTIME);
+    VicidialSchemaProfile.LiveAgentsQuery query = requireSchemaProfile(jdbc).liveAgents();
+    if (query == null) {
+      log.warn("Vicidial realtime table missing table=vicidial_live_agents or required columns user/status");
       return List.of();
     }
 
-    boolean hasCampaign = hasColumn(jdbc, "vicidial_live_agents", "campaign_id");
-    boolean hasExtension = hasColumn(jdbc, "vicidial_live_agents", "extension");
-    boolean hasLeadId = hasColumn(jdbc, "vicidial_live_agents", "lead_id");
-    boolean hasChannel = hasColumn(jdbc, "vicidial_live_agents", "channel");
-    boolean hasPauseCode = hasColumn(jdbc, "vicidial_live_agents", "pause_code");
-    boolean hasComments = hasColumn(jdbc, "vicidial_live_agents", "comments");
-    boolean hasConfExten = hasColumn(jdbc, "vicidial_live_agents", "conf_exten");
-    boolean hasLastStateChange = hasColumn(jdbc, "vicidial_live_agents", "last_state_change");
-    boolean hasLastUpdateTime = hasColumn(jdbc, "vicidial_live_agents", "last_update_time");
-    boolean hasLastCallTime = hasColumn(jdbc, "vicidial_live_agents", "last_call_time");
-
-    boolean hasUsers = hasTable(jdbc, "vicidial_users")
-        && hasColumn(jdbc, "vicidial_users", "user")
-        && hasColumn(jdbc, "vicidial_users", "full_name");
-    boolean hasListPhone = hasLeadId
-        && hasTable(jdbc, "vicidial_list")
-        && hasColumn(jdbc, "vicidial_list", "lead_id")
-        && hasColumn(jdbc, "vicidial_list", "phone_number");
-
-    String pauseExpr = hasPauseCode
-        ? "NULLIF(vla.`pause_code`, '')"
-        : (hasComments ? "NULLIF(vla.`comments`, '')" : "NULL");
-    String campaignExpr = hasCampaign ? "vla.`campaign_id`" : "NULL";
-    String extensionExpr = hasExtension ? "vla.`extension`" : "NULL";
-    String leadExpr = hasLeadId ? "vla.`lead_id`" : "NULL";
-    String channelExpr = hasChannel ? "vla.`channel`" : "NULL";
-    String confExtenExpr = hasConfExten ? "vla.`conf_exten`" : "NULL";
-    String currentPhoneExpr = hasListPhone ? "vll.`phone_number`" : "NULL";
-    String agentNameExpr = hasUsers ? "COALESCE(NULLIF(vu.`full_name`, ''), vla.`user`)" : "vla.`user`";
-
-    List<String> stateReferenceCandidates = new ArrayList<>();
-    if (hasLastStateChange) {
-      stateReferenceCandidates.add("vla.`last_state_change`");
-    }
-    if (hasLastUpdateTime) {
-      stateReferenceCandidates.add("vla.`last_update_time`");
-    }
-    if (hasLastCallTime) {
-      stateReferenceCandidates.add("vla.`last_call_time`");
-    }
-    String stateReferenceExpr = stateReferenceCandidates.isEmpty()
-        ? "NULL"
-        : "COALESCE(" + String.join(", ", stateReferenceCandidates) + ")";
-    String lastCallExpr = hasLastCallTime ? "vla.`last_call_time`" : "NULL";
-
-    StringBuilder sql = new StringBuilder("""
-        SELECT
-          vla.`user` AS agent_user,
-          %s AS agent_name,
-          %s AS extension,
-          %s AS campaign_id,
-          vla.`status` AS vicidial_status,
-          %s AS pause_code,
-          %s AS current_phone,
-          %s AS channel,
-          %s AS conf_exten,
-          %s AS lead_id,
-          %s AS state_reference_time,
-          %s AS last_call_time
-        FROM vicidial_live_agents vla
-        """.formatted(
-        agentNameExpr,
-        extensionExpr,
-        campaignExpr,
-        pauseExpr,
-        currentPhoneExpr,
-        channelExpr,
-        confExtenExpr,
-        leadExpr,
-        stateReferenceExpr,
-        lastCallExpr
-    ));
-
-    if (hasUsers) {
-      sql.append(" LEFT JOIN vicidial_users vu ON vu.`user` = vla.`user` ");
-    }
-    if (hasListPhone) {
-      sql.append(" LEFT JOIN vicidial_list vll ON vll.`lead_id` = vla.`lead_id` ");
-    }
-
-    sql.append(" WHERE 1 = 1 ");
+    StringBuilder sql = new StringBuilder(query.baseSql());
     List<Object> params = new ArrayList<>();
-
-    if (StringUtils.hasText(campaign) && hasCampaign) {
+    if (StringUtils.hasText(campaign) && query.hasCampaign()) {
       sql.append(" AND vla.`campaign_id` = ? ");
       params.add(campaign.trim());
     }
     if (StringUtils.hasText(pauseCode)) {
-      if (hasPauseCode || hasComments) {
-        sql.append(" AND UPPER(COALESCE(").append(pauseExpr).append(", '')) = ? ");
-        params.add(pauseCode.trim().toUpperCase(Locale.ROOT));
-      } else {
+      if (query.pauseExpr() == null) {
         return List.of();
       }
+      sql.append(" AND UPPER(COALESCE(").append(query.pauseExpr()).append(", '')) = ? ");
+      params.add(pauseCode.trim().toUpperCase(Locale.ROOT));
     }
     if (StringUtils.hasText(search)) {
       String like = "%" + search.trim().toLowerCase(Locale.ROOT) + "%";
-      sql.append(" AND (LOWER(vla.`user`) LIKE ? OR LOWER(").append(agentNameExpr).append(") LIKE ? ");
+      sql.append(" AND (LOWER(vla.`user`) LIKE ? OR LOWER(").append(query.agentNameExpr()).append(") LIKE ? ");
       params.add(like);
       params.add(like);
-      if (hasExtension) {
+      if (query.hasExtension()) {
         sql.append(" OR LOWER(COALESCE(vla.`extension`, '')) LIKE ? ");
         params.add(like);
       }
-      if (hasCampaign) {
+      if (query.hasCampaign()) {
         sql.append(" OR LOWER(COALESCE(vla.`campaign_id`, '')) LIKE ? ");
         params.add(like);
       }
-      if (hasListPhone) {
+      if (query.hasListPhone()) {
         sql.append(" OR LOWER(COALESCE(vll.`phone_number`, '')) LIKE ? ");
         params.add(like);
       }
@@ -169,68 +92,72 @@ public class VicidialRealtimeQueryService {
     }
 
     sql.append(" ORDER BY vla.`user` ASC ");
-    try {
-      return jdbc.query(sql.toString(), (rs, rowNum) -> {
-        Long leadId = rs.getLong("lead_id");
-        if (rs.wasNull() || leadId != null && leadId <= 0) {
-          leadId = null;
-        }
-        return new RealtimeAgentRow(
-            rs.getString("agent_user"),
-            rs.getString("agent_name"),
-            rs.getString("extension"),
-            rs.getString("campaign_id"),
-            rs.getString("vicidial_status"),
-            rs.getString("pause_code"),
-            rs.getString("current_phone"),
-            rs.getString("channel"),
-            rs.getString("conf_exten"),
-            leadId,
-            toOffsetDateTime(rs.getTimestamp("state_reference_time")),
-            toOffsetDateTime(rs.getTimestamp("last_call_time"))
+    return jdbc.query(sql.toString(), (rs, rowNum) -> {
+      Long leadId = rs.getLong("lead_id");
+      if (rs.wasNull() || leadId != null && leadId <= 0) {
+        leadId = null;
+      }
+      return new RealtimeAgentRow(
+          rs.getString("agent_user"),
+          rs.getString("agent_name"),
+          rs.getString("extension"),
+          rs.getString("campaign_id"),
+          rs.getString("vicidial_status"),
+          rs.getString("pause_code"),
+          rs.getString("current_phone"),
+          rs.getString("channel"),
+          rs.getString("conf_exten"),
+          leadId,
+          toOffsetDateTime(rs.getTimestamp("state_reference_time")),
+          toOffsetDateTime(rs.getTimestamp("last_call_time"))
+      );
+    }, params.toArray());
+  }
+
+  /**
+   * Call totals over {@code vicidial_log} and {@code vicidial_closer_log} for {@code call_date} in
+   * [{@code from}, {@code to}); {@code to == null} leaves the window open. Unlike the other fetch methods, query
+   * failures propagate so that callers folding windows into running totals never take an error for an empty window;
+   * that includes a failed schema scan with no profile to fall back on.
+   */
+  public CallTotals aggregateCalls(LocalDateTime from, LocalDateTime to, int serviceLevelThresholdSec) {
+    JdbcTemplate jdbc = replicaJdbc(VicidialRuntimeDataSourceFactory.Workload.REALTIME);
+    CallTotals.Accumulator totals = new CallTotals.Accumulator();
+    for (VicidialSchemaProfile.CallTableQuery query : requireSchemaProfile(jdbc).callTables()) {
+      List<Object> params = new ArrayList<>();
+      if (query.thresholdParam()) {
+        params.add(serviceLevelThresholdSec);
+      }
+      params.add(from);
+      if (to != null) {
+        params.add(to);
+      }
+      jdbc.query(to == null ? query.openWindowSql() : query.closedWindowSql(), rs -> {
+        totals.add(
+            rs.getLong("answered"),
+            rs.getLong("abandoned"),
+            rs.getLong("talk_seconds"),
+            rs.getLong("talk_calls"),
+            rs.getLong("queue_seconds"),
+            rs.getLong("queue_calls"),
+            rs.getLong("sla_calls"),
+            rs.getLong("within_sla")
         );
+        String user = rs.getString("agent_user");
+        if (query.groupedByUser() && StringUtils.hasText(user)) {
+          totals.addCompleted(user, rs.getLong("calls"));
+        }
       }, params.toArray());
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial realtime agents query failed cause={}", ex.getClass().getSimpleName());
-      return List.of();
     }
-  }
-
-  public Map<String, Long> fetchCompletedTodayByAgent() {
-    JdbcTemplate jdbc = runtimeJdbc();
-    Map<String, Long> totals = new HashMap<>();
-    mergeCountsByUser(jdbc, totals, "vicidial_log", "call_date");
-    mergeCountsByUser(jdbc, totals, "vicidial_closer_log", "call_date");
-    return totals;
-  }
-
-  public TodayMetrics fetchTodayMetrics(int serviceLevelThresholdSec) {
-    JdbcTemplate jdbc = runtimeJdbc();
-    long answeredCalls = answeredCount(jdbc, "vicidial_log")
-        + answeredCount(jdbc, "vicidial_closer_log");
-    long abandonedCalls = abandonedCount(jdbc);
-    long averageWaitSeconds = averageSeconds(jdbc, "vicidial_closer_log", "queue_seconds");
-    long averageTalkSeconds = averageTalkSeconds(jdbc);
-    int serviceLevelPercent = serviceLevelPercent(jdbc, serviceLevelThresholdSec);
-    return new TodayMetrics(answeredCalls, abandonedCalls, serviceLevelPercent, averageWaitSeconds, averageTalkSeconds);
+    return totals.toTotals();
   }
 
   public List<PauseCodeRow> fetchPauseCodes() {
-    JdbcTemplate jdbc = runtimeJdbc();
-    if (!hasTable(jdbc, "vicidial_pause_codes") || !hasColumn(jdbc, "vicidial_pause_codes", "pause_code")) {
+    JdbcTemplate jdbc = replicaJdbc(VicidialRuntimeDataSourceFactory.Workload.CATALOG);
+    String sql = schemaProfile(jdbc).pauseCodesSql();
+    if (sql == null) {
       return List.of();
     }
-    String pauseNameColumn = hasColumn(jdbc, "vicidial_pause_codes", "pause_code_name")
-        ? "pause_code_name"
-        : (hasColumn(jdbc, "vicidial_pause_codes", "pause_name") ? "pause_name" : null);
-    String billableColumn = hasColumn(jdbc, "vicidial_pause_codes", "billable") ? "billable" : null;
-    String nameExpr = pauseNameColumn == null ? "NULL" : ("`" + pauseNameColumn + "`");
-    String billableExpr = billableColumn == null ? "NULL" : ("`" + billableColumn + "`");
-    String sql = """
-        SELECT `pause_code` AS pause_code, %s AS pause_name, %s AS billable
-          FROM vicidial_pause_codes
-         ORDER BY `pause_code` ASC
-        """.formatted(nameExpr, billableExpr);
     try {
       return jdbc.query(sql, (rs, rowNum) -> new PauseCodeRow(
           rs.getString("pause_code"),
@@ -244,336 +171,103 @@ public class VicidialRealtimeQueryService {
   }
 
   public List<String> fetchCampaigns() {
-    JdbcTemplate jdbc = runtimeJdbc();
-    List<String> campaigns = activeCampaignsFromLiveAgents(jdbc);
+    JdbcTemplate jdbc = replicaJdbc(VicidialRuntimeDataSourceFactory.Workload.CATALOG);
+    VicidialSchemaProfile profile = schemaProfile(jdbc);
+    List<String> campaigns = queryCampaigns(jdbc, profile.liveCampaignsSql(), "realtime");
     if (!campaigns.isEmpty()) {
       return campaigns;
     }
-    return activeCampaignsFromCatalog(jdbc);
+    return queryCampaigns(jdbc, profile.catalogCampaignsSql(), "catalog");
   }
 
   public List<DispositionRow> fetchActiveDispositions(String campaignId) {
-    JdbcTemplate jdbc = runtimeJdbc();
-    List<DispositionRow> campaignStatuses = activeDispositionsFromCampaign(jdbc, campaignId);
-    if (!campaignStatuses.isEmpty()) {
-      return campaignStatuses;
-    }
-    return activeDispositionsFromCatalog(jdbc);
-  }
-
-  private List<String> activeCampaignsFromLiveAgents(JdbcTemplate jdbc) {
-    if (!hasTable(jdbc, "vicidial_live_agents") || !hasColumn(jdbc, "vicidial_live_agents", "campaign_id")) {
-      return List.of();
+    JdbcTemplate jdbc = replicaJdbc(VicidialRuntimeDataSourceFactory.Workload.CATALOG);
+    VicidialSchemaProfile profile = schemaProfile(jdbc);
+    if (StringUtils.hasText(campaignId) && profile.campaignDispositionsSql() != null) {
+      List<DispositionRow> campaignStatuses = queryDispositions(jdbc, profile.campaignDispositionsSql(),
+          "vicidial_campaign_statuses", campaignId, campaignId.trim());
+      if (!campaignStatuses.isEmpty()) {
+        return campaignStatuses;
+      }
     }
-    String sql = """
-        SELECT DISTINCT `campaign_id`
-          FROM vicidial_live_agents
-         WHERE `campaign_id` IS NOT NULL
-           AND `campaign_id` <> ''
-         ORDER BY `campaign_id` ASC
-        """;
-    try {
-      return jdbc.query(sql, (rs, rowNum) -> rs.getString("campaign_id"));
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial campaigns realtime query failed cause={}", ex.getClass().getSimpleName());
+    if (profile.catalogDispositionsSql() == null) {
       return List.of();
     }
+    return queryDispositions(jdbc, profile.catalogDispositionsSql(), "vicidial_statuses", campaignId);
   }
 
-  private List<String> activeCampaignsFromCatalog(JdbcTemplate jdbc) {
-    if (!hasTable(jdbc, "vicidial_campaigns") || !hasColumn(jdbc, "vicidial_campaigns", "campaign_id")) {
+  private List<String> queryCampaigns(JdbcTemplate jdbc, String sql, String source) {
+    if (sql == null) {
       return List.of();
     }
-    boolean hasActive = hasColumn(jdbc, "vicidial_campaigns", "active");
-    String sql = hasActive
-        ? """
-          SELECT `campaign_id`
-            FROM vicidial_campaigns
-           WHERE `active` = 'Y'
-           ORDER BY `campaign_id` ASC
-          """
-        : """
-          SELECT `campaign_id`
-            FROM vicidial_campaigns
-           ORDER BY `campaign_id` ASC
-          """;
     try {
       return jdbc.query(sql, (rs, rowNum) -> rs.getString("campaign_id"));
     } catch (DataAccessException ex) {
-      log.warn("Vicidial campaigns catalog query failed cause={}", ex.getClass().getSimpleName());
+      log.warn("Vicidial campaigns {} query failed cause={}", source, ex.getClass().getSimpleName());
       return List.of();
     }
   }
 
-  private List<DispositionRow> activeDispositionsFromCampaign(JdbcTemplate jdbc, String campaignId) {
-    if (!StringUtils.hasText(campaignId)
-        || !hasTable(jdbc, "vicidial_campaign_statuses")
-        || !hasColumn(jdbc, "vicidial_campaign_statuses", "campaign_id")
-        || !hasColumn(jdbc, "vicidial_campaign_statuses", "status")) {
-      return List.of();
-    }
-    boolean hasStatusName = hasColumn(jdbc, "vicidial_campaign_statuses", "status_name");
-    boolean hasSelectable = hasColumn(jdbc, "vicidial_campaign_statuses", "selectable");
-    boolean hasActive = hasColumn(jdbc, "vicidial_campaign_statuses", "active");
-    String statusNameExpr = hasStatusName ? "status_name" : "status";
-
-    StringBuilder sql = new StringBuilder("""
-        SELECT status, COALESCE(NULLIF(%s, ''), status) AS status_name
-          FROM vicidial_campaign_statuses
-         WHERE campaign_id = ?
-        """.formatted(statusNameExpr));
-    List<Object> params = new ArrayList<>();
-    params.add(campaignId.trim());
-    if (hasSelectable) {
-      sql.append(" AND selectable = 'Y' ");
-    }
-    if (hasActive) {
-      sql.append(" AND active = 'Y' ");
-    }
-    sql.append(" ORDER BY status ASC ");
+  private List<DispositionRow> queryDispositions(JdbcTemplate jdbc, String sql, String sourceTable, String campaignId, Object... params) {
     try {
-      return jdbc.query(sql.toString(), (rs, rowNum) -> new DispositionRow(
+      return jdbc.query(sql, (rs, rowNum) -> new DispositionRow(
           rs.getString("status"),
           rs.getString("status_name"),
-          "vicidial_campaign_statuses"
-      ), params.toArray());
+          sourceTable
+      ), params);
     } catch (DataAccessException ex) {
-      log.warn("Vicidial campaign statuses query failed campaign={} cause={}", campaignId, ex.getClass().getSimpleName());
+      log.warn("Vicidial {} query failed campaign={} cause={}", sourceTable, campaignId, ex.getClass().getSimpleName());
       return List.of();
     }
   }
 
-  private List<DispositionRow> activeDispositionsFromCatalog(JdbcTemplate jdbc) {
-    if (!hasTable(jdbc, "vicidial_statuses") || !hasColumn(jdbc, "vicidial_statuses", "status")) {
-      return List.of();
-    }
-    boolean hasStatusName = hasColumn(jdbc, "vicidial_statuses", "status_name");
-    boolean hasSelectable = hasColumn(jdbc, "vicidial_statuses", "selectable");
-    boolean hasActive = hasColumn(jdbc, "vicidial_statuses", "active");
-    String statusNameExpr = hasStatusName ? "status_name" : "status";
-
-    StringBuilder sql = new StringBuilder("""
-        SELECT status, COALESCE(NULLIF(%s, ''), status) AS status_name
-          FROM vicidial_statuses
-         WHERE 1 = 1
-        """.formatted(statusNameExpr));
-    if (hasSelectable) {
-      sql.append(" AND selectable = 'Y' ");
-    }
-    if (hasActive) {
-      sql.append(" AND active = 'Y' ");
-    }
-    sql.append(" ORDER BY status ASC ");
-    try {
-      return jdbc.query(sql.toString(), (rs, rowNum) -> new DispositionRow(
-          rs.getString("status"),
-          rs.getString("status_name"),
-          "vicidial_statuses"
-      ));
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial statuses catalog query failed cause={}", ex.getClass().getSimpleName());
-      return List.of();
-    }
+  private JdbcTemplate runtimeJdbc(VicidialRuntimeDataSourceFactory.Workload workload) {
+    return new JdbcTemplate(dataSourceFactory.runtimeDataSource(workload));
   }
 
-  private long answeredCount(JdbcTemplate jdbc, String table) {
-    if (!hasTable(jdbc, table) || !hasColumn(jdbc, table, "call_date")) {
-      return 0;
-    }
-    boolean hasLength = hasColumn(jdbc, table, "length_in_sec");
-    String sql = hasLength
-        ? "SELECT COUNT(*) FROM `%s` WHERE `call_date` >= CURDATE() AND COALESCE(`length_in_sec`, 0) > 0".formatted(table)
-        : "SELECT COUNT(*) FROM `%s` WHERE `call_date` >= CURDATE()".formatted(table);
-    try {
-      Long value = jdbc.queryForObject(sql, Long.class);
-      return value == null ? 0 : value;
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial answered count query failed table={} cause={}", table, ex.getClass().getSimpleName());
-      return 0;
-    }
+  /** Aggregates and catalogs tolerate replication lag; live agent state always reads the primary. */
+  private JdbcTemplate replicaJdbc(VicidialRuntimeDataSourceFactory.Workload workload) {
+    return new JdbcTemplate(dataSourceFactory.replicaDataSource(workload));
   }
 
-  private long abandonedCount(JdbcTemplate jdbc) {
-    if (!hasTable(jdbc, "vicidial_closer_log")
-        || !hasColumn(jdbc, "vicidial_closer_log", "call_date")
-        || !hasColumn(jdbc, "vicidial_closer_log", "status")) {
-      return 0;
-    }
-    String placeholders = String.join(",", DROP_STATUSES.stream().map(v -> "?").toList());
-    String sql = """
-        SELECT COUNT(*)
-          FROM vicidial_closer_log
-         WHERE call_date >= CURDATE()
-           AND UPPER(status) IN (%s)
-        """.formatted(placeholders);
-    try {
-      Long value = jdbc.queryForObject(sql, Long.class, DROP_STATUSES.toArray());
-      return value == null ? 0 : value;
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial abandoned count query failed cause={}", ex.getClass().getSimpleName());
-      return 0;
-    }
-  }
-
-  private long averageSeconds(JdbcTemplate jdbc, String table, String column) {
-    if (!hasTable(jdbc, table)
-        || !hasColumn(jdbc, table, "call_date")
-        || !hasColumn(jdbc, table, column)) {
-      return 0;
-    }
-    String sql = "SELECT COALESCE(AVG(`%s`), 0) FROM `%s` WHERE `call_date` >= CURDATE()".formatted(column, table);
+  /**
+   * Profile for the current MariaDB settings, rebuilt with one {@code information_schema} scan when the settings
+   * version changes or after {@code schemaCacheTtlMs}. A failed scan is not cached; callers get the previous profile
+   * for the same version, or an empty one.
+   */
+  VicidialSchemaProfile schemaProfile(JdbcTemplate jdbc) {
     try {
-      Number value = jdbc.queryForObject(sql, Number.class);
-      return value == null ? 0 : Math.round(value.doubleValue());
+      return requireSchemaProfile(jdbc);
     } catch (DataAccessException ex) {
-      log.warn("Vicidial average seconds query failed table={} column={} cause={}", table, column, ex.getClass().getSimpleName());
-      return 0;
+      return VicidialSchemaProfile.empty();
     }
   }
 
-  private long averageTalkSeconds(JdbcTemplate jdbc) {
-    TalkAggregate logAgg = talkAggregate(jdbc, "vicidial_log");
-    TalkAggregate closerAgg = talkAggregate(jdbc, "vicidial_closer_log");
-    long totalSeconds = logAgg.totalSeconds() + closerAgg.totalSeconds();
-    long totalCalls = logAgg.calls() + closerAgg.calls();
-    if (totalCalls <= 0) {
-      return 0;
-    }
-    return Math.round((double) totalSeconds / (double) totalCalls);
-  }
-
-  private TalkAggregate talkAggregate(JdbcTemplate jdbc, String table) {
-    if (!hasTable(jdbc, table)
-        || !hasColumn(jdbc, table, "call_date")
-        || !hasColumn(jdbc, table, "length_in_sec")) {
-      return new TalkAggregate(0, 0);
-    }
-    String sql = """
-        SELECT COALESCE(SUM(length_in_sec), 0) AS total_seconds, COUNT(*) AS calls
-          FROM %s
-         WHERE call_date >= CURDATE()
-           AND COALESCE(length_in_sec, 0) > 0
-        """.formatted(table);
-    try {
-      return jdbc.query(sql, rs -> {
-        if (!rs.next()) {
-          return new TalkAggregate(0, 0);
-        }
-        return new TalkAggregate(rs.getLong("total_seconds"), rs.getLong("calls"));
-      });
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial talk aggregate query failed table={} cause={}", table, ex.getClass().getSimpleName());
-      return new TalkAggregate(0, 0);
-    }
-  }
-
-  private int serviceLevelPercent(JdbcTemplate jdbc, int serviceLevelThresholdSec) {
-    if (!hasTable(jdbc, "vicidial_closer_log")
-        || !hasColumn(jdbc, "vicidial_closer_log", "call_date")
-        || !hasColumn(jdbc, "vicidial_closer_log", "queue_seconds")) {
-      return 0;
-    }
-    String sql = """
-        SELECT COUNT(*) AS total_calls,
-               SUM(CASE WHEN COALESCE(queue_seconds, 0) <= ? THEN 1 ELSE 0 END) AS within_sla
-          FROM vicidial_closer_log
-         WHERE call_date >= CURDATE()
-        """;
-    try {
-      return jdbc.query(sql, rs -> {
-        if (!rs.next()) {
-          return 0;
-        }
-        long totalCalls = rs.getLong("total_calls");
-        long withinSla = rs.getLong("within_sla");
-        if (totalCalls <= 0) {
-          return 0;
-        }
-        return (int) Math.round((withinSla * 100.0d) / totalCalls);
-      }, serviceLevelThresholdSec);
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial service level query failed cause={}", ex.getClass().getSimpleName());
-      return 0;
-    }
-  }
-
-  private void mergeCountsByUser(JdbcTemplate jdbc, Map<String, Long> target, String table, String dateColumn) {
-    if (!hasTable(jdbc, table) || !hasColumn(jdbc, table, "user") || !hasColumn(jdbc, table, dateColumn)) {
-      return;
+  /** Like {@link #schemaProfile} but rethrows the scan failure when no profile exists for the current version. */
+  VicidialSchemaProfile requireSchemaProfile(JdbcTemplate jdbc) {
+    long configVersion = dataSourceFactory.configVersion();
+    long now = System.currentTimeMillis();
+    CachedProfile current = cachedProfile;
+    if (current != null && current.configVersion() == configVersion && now < current.expiresAt()) {
+      return current.profile();
     }
-    String sql = """
-        SELECT `user`, COUNT(*) AS qty
-          FROM `%s`
-         WHERE `%s` >= CURDATE()
-         GROUP BY `user`
-        """.formatted(table, dateColumn);
+    profileLock.lock();
     try {
-      jdbc.query(sql, rs -> {
-        String user = rs.getString("user");
-        long qty = rs.getLong("qty");
-        if (!StringUtils.hasText(user)) {
-          return;
-        }
-        target.merge(user, qty, Long::sum);
-      });
-    } catch (DataAccessException ex) {
-      log.warn("Vicidial per-agent count query failed table={} cause={}", table, ex.getClass().getSimpleName());
-    }
-  }
-
-  private JdbcTemplate runtimeJdbc() {
-    return new JdbcTemplate(dataSourceFactory.getOrCreate());
-  }
-
-  private boolean hasTable(JdbcTemplate jdbc, String tableName) {
-    String key = "table:" + tableName;
-    return resolveSchemaCache(key, () -> {
-      Long count = jdbc.queryForObject("""
-          SELECT COUNT(*)
-            FROM information_schema.tables
-           WHERE table_schema = DATABASE()
-             AND table_name = ?
-          """, Long.class, tableName);
-      return count != null && count > 0;
-    });
-  }
-
-  private boolean hasColumn(JdbcTemplate jdbc, String tableName, String columnName) {
-    String key = "column:" + tableName + "." + columnName;
-    return resolveSchemaCache(key, () -> {
-      Long count = jdbc.queryForObject("""
-          SELECT COUNT(*)
-            FROM information_schema.columns
-           WHERE table_schema = DATABASE()
-             AND table_name = ?
-             AND column_name = ?
-          """, Long.class, tableName, columnName);
-      return count != null && count > 0;
-    });
-  }
-
-  private boolean resolveSchemaCache(String key, java.util.function.Supplier<Boolean> supplier) {
-    evictSchemaCacheIfExpired();
-    return schemaCache.computeIfAbsent(key, ignored -> {
-      try {
-        return supplier.get();
-      } catch (DataAccessException ex) {
-        log.warn("Vicidial schema lookup failed key={} cause={}", key, ex.getClass().getSimpleName());
-        return false;
+      current = cachedProfile;
+      if (current != null && current.configVersion() == configVersion && now < current.expiresAt()) {
+        return current.profile();
       }
-    });
-  }
-
-  private void evictSchemaCacheIfExpired() {
-    long now = System.currentTimeMillis();
-    if (now <= schemaCacheValidUntilMs) {
-      return;
-    }
-    synchronized (this) {
-      if (now > schemaCacheValidUntilMs) {
-        schemaCache.clear();
-        schemaCacheValidUntilMs = now + schemaCacheTtlMs;
+      VicidialSchemaProfile profile = VicidialSchemaProfile.scan(jdbc);
+      cachedProfile = new CachedProfile(profile, configVersion, now + schemaCacheTtlMs);
+      return profile;
+    } catch (DataAccessException ex) {
+      log.warn("Vicidial schema scan failed cause={}", ex.getClass().getSimpleName());
+      if (current != null && current.configVersion() == configVersion) {
+        return current.profile();
       }
+      throw ex;
+    } finally {
+      profileLock.unlock();
     }
   }
 
@@ -584,7 +278,7 @@ public class VicidialRealtimeQueryService {
     return ts.toInstant().atOffset(ZoneOffset.UTC);
   }
 
-  private record TalkAggregate(long totalSeconds, long calls) {
+  private record CachedProfile(VicidialSchemaProfile profile, long configVersion, long expiresAt) {
   }
 
   public record RealtimeAgentRow(
@@ -617,4 +311,64 @@ public class VicidialRealtimeQueryService {
       long averageTalkSeconds
   ) {
   }
+
+  /**
+   * Additive call totals for a {@code call_date} window; {@link #plus} folds consecutive windows together and
+   * {@link #toTodayMetrics} derives the averages and service level shown to supervisors.
+   */
+  public record CallTotals(
+      long answeredCalls,
+      long abandonedCalls,
+      long talkSeconds,
+      long talkCalls,
+      long queueSeconds,
+      long queueCalls,
+      long slaCalls,
+      long withinSlaCalls,
+      Map<String, Long> completedByAgent
+  ) {
+    public static final CallTotals EMPTY = new CallTotals(0, 0, 0, 0, 0, 0, 0, 0, Map.of());
+
+    public CallTotals plus(CallTotals other) {
+      Map<String, Long> completed = new HashMap<>(completedByAgent);
+      other.completedByAgent.forEach((user, qty) -> completed.merge(user, qty, Long::sum));
+      return new CallTotals(
+          answeredCalls + other.answeredCalls,
+          abandonedCalls + other.abandonedCalls,
+          talkSeconds + other.talkSeconds,
+          talkCalls + other.talkCalls,
+          queueSeconds + other.queueSeconds,
+          queueCalls + other.queueCalls,
+          slaCalls + other.slaCalls,
+          withinSlaCalls + other.withinSlaCalls,
+          Map.copyOf(completed)
+      );
+    }
+
+    public TodayMetrics toTodayMetrics() {
+      int serviceLevelPercent = slaCalls <= 0 ? 0 : (int) Math.round((withinSlaCalls * 100.0d) / slaCalls);
+      long averageWaitSeconds = queueCalls <= 0 ? 0 : Math.round((double) queueSeconds / (double) queueCalls);
+      long averageTalkSeconds = talkCalls <= 0 ? 0 : Math.round((double) talkSeconds / (double) talkCalls);
+      return new TodayMetrics(answeredCalls, abandonedCalls, serviceLevelPercent, averageWaitSeconds, averageTalkSeconds);
+    }
+
+    private static final class Accumulator {
+      private final long[] sums = new long[8];
+      private final Map<String, Long> completed = new HashMap<>();
+
+      void add(long... values) {
+        for (int i = 0; i < values.length; i++) {
+          sums[i] += values[i];
+        }
+      }
+
+      void addCompleted(String user, long qty) {
+        completed.merge(user, qty, Long::sum);
+      }
+
+      CallTotals toTotals() {
+        return new CallTotals(sums[0], sums[1], sums[2], sums[3], sums[4], sums[5], sums[6], sums[7], Map.copyOf(completed));
+      }
+    }
+  }
 }
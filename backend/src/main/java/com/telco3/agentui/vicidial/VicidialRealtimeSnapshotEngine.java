@@ -0,0 +1,237 @@
+package com.telco3.agentui.vicidial;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Single poller over {@code vicidial_live_agents} and today's call logs. Admin realtime reads are served from the
+ * last immutable {@link RealtimeSnapshot}, so MariaDB load depends on the refresh interval, not on how many
+ * supervisors are watching. Polling starts on the first read and pauses while nobody reads the snapshot.
+ * <p>
+ * The last {@code historySize} versions are retained so readers can compute deltas from a version they already hold,
+ * and listeners are notified whenever a new version is published. A failed refresh publishes nothing: readers keep
+ * the last good snapshot, whose {@code capturedAt} shows how old it is.
+ */
+@Component
+public class VicidialRealtimeSnapshotEngine {
+  private static final Logger log = LoggerFactory.getLogger(VicidialRealtimeSnapshotEngine.class);
+
+  private final VicidialRealtimeQueryService queryService;
+  private final VicidialIntradayCallAggregator callAggregator;
+  private final long intervalMs;
+  private final long staleAfterNanos;
+  private final long idleAfterNanos;
+  private final int serviceLevelThresholdSec;
+  private final int historySize;
+  private final long firstVersion = System.currentTimeMillis();
+  private final ConcurrentSkipListMap<Long, RealtimeSnapshot> history = new ConcurrentSkipListMap<>();
+  private final List<Consumer<RealtimeSnapshot>> listeners = new CopyOnWriteArrayList<>();
+  private final ReentrantLock refreshLock = new ReentrantLock();
+  private final ReentrantLock pollerLock = new ReentrantLock();
+
+  private volatile RealtimeSnapshot snapshot;
+  private volatile long lastReadNanos = System.nanoTime();
+  private volatile long lastFailureNanos;
+  private volatile ScheduledExecutorService poller;
+
+  public VicidialRealtimeSnapshotEngine(
+      VicidialRealtimeQueryService queryService,
+      VicidialIntradayCallAggregator callAggregator,
+      @Value("${app.vicidial.realtime.snapshot-interval-ms:2000}") long intervalMs,
+      @Value("${app.vicidial.realtime.snapshot-idle-after-ms:60000}") long idleAfterMs,
+      @Value("${app.vicidial.realtime.service-level-threshold-seconds:20}") int serviceLevelThresholdSec,
+      @Value("${app.vicidial.realtime.snapshot-history-size:120}") int historySize
+  ) {
+    this.queryService = queryService;
+    this.callAggregator = callAggregator;
+    this.intervalMs = Math.max(intervalMs, 100);
+    this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(this.intervalMs * 3);
+    this.idleAfterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(idleAfterMs, this.intervalMs));
+    this.serviceLevelThresholdSec = serviceLevelThresholdSec;
+    this.historySize = Math.max(historySize, 1);
+  }
+
+  /**
+   * Latest snapshot. Only the first read, or a read after the poller went idle or kept failing, loads from MariaDB
+   * in the caller thread; concurrent callers wait for that single load instead of issuing their own. When that load
+   * fails the last good snapshot is returned as is (at most one retry per interval); with none, it is a 503.
+   */
+  public RealtimeSnapshot current() {
+    long now = System.nanoTime();
+    lastReadNanos = now;
+    ensurePoller();
+    RealtimeSnapshot current = snapshot;
+    if (servable(current, now)) {
+      return current;
+    }
+    refreshLock.lock();
+    try {
+      current = snapshot;
+      if (servable(current, System.nanoTime())) {
+        return current;
+      }
+      try {
+        return rebuild();
+      } catch (RuntimeException ex) {
+        if (current == null) {
+          log.warn("Vicidial realtime snapshot load failed cause={}", ex.getClass().getSimpleName());
+          throw new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "VICIDIAL_REALTIME_UNAVAILABLE",
+              "No se pudo leer el estado realtime de Vicidial.");
+        }
+        log.warn("Vicidial realtime snapshot refresh failed, serving version={} cause={}", current.version(),
+            ex.getClass().getSimpleName());
+        return current;
+      }
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /** Snapshot published with {@code version}, if it is still within the retained history. */
+  public Optional<RealtimeSnapshot> snapshotAt(long version) {
+    return Optional.ofNullable(history.get(version));
+  }
+
+  /** Called from the refreshing thread each time a new version is published; listeners must not block. */
+  public void addListener(Consumer<RealtimeSnapshot> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Consumer<RealtimeSnapshot> listener) {
+    listeners.remove(listener);
+  }
+
+  /** Counts as a read for idle detection without forcing a load, for consumers that only wait for pushes. */
+  public void keepAlive() {
+    lastReadNanos = System.nanoTime();
+    ensurePoller();
+  }
+
+  void poll() {
+    if (System.nanoTime() - lastReadNanos > idleAfterNanos || !refreshLock.tryLock()) {
+      return;
+    }
+    try {
+      rebuild();
+    } catch (RuntimeException ex) {
+      log.warn("Vicidial realtime snapshot refresh failed cause={}", ex.getClass().getSimpleName());
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    ScheduledExecutorService current = poller;
+    poller = null;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+
+  /** Fresh enough, or too soon after a failed refresh to try MariaDB again from a reader thread. */
+  private boolean servable(RealtimeSnapshot current, long now) {
+    if (current == null) {
+      return false;
+    }
+    long failedAt = lastFailureNanos;
+    return now - current.capturedAtNanos() < staleAfterNanos
+        || failedAt != 0 && now - failedAt < TimeUnit.MILLISECONDS.toNanos(intervalMs);
+  }
+
+  private RealtimeSnapshot rebuild() {
+    List<VicidialRealtimeQueryService.RealtimeAgentRow> agents;
+    try {
+      agents = List.copyOf(queryService.queryLiveAgents(null, null, null));
+    } catch (RuntimeException ex) {
+      lastFailureNanos = System.nanoTime();
+      throw ex;
+    }
+    lastFailureNanos = 0;
+    VicidialRealtimeQueryService.CallTotals calls = callAggregator.current(serviceLevelThresholdSec);
+    Map<String, Long> completedByAgent = calls.completedByAgent();
+    VicidialRealtimeQueryService.TodayMetrics metrics = calls.toTodayMetrics();
+
+    RealtimeSnapshot previous = snapshot;
+    boolean unchanged = previous != null
+        && previous.agents().equals(agents)
+        && previous.completedByAgent().equals(completedByAgent)
+        && Objects.equals(previous.metrics(), metrics);
+    RealtimeSnapshot next = new RealtimeSnapshot(
+        unchanged ? previous.version() : (previous == null ? firstVersion : previous.version() + 1),
+        OffsetDateTime.now(ZoneOffset.UTC),
+        System.nanoTime(),
+        unchanged ? previous.agents() : agents,
+        unchanged ? previous.completedByAgent() : completedByAgent,
+        metrics
+    );
+    snapshot = next;
+    if (!unchanged) {
+      history.put(next.version(), next);
+      while (history.size() > historySize) {
+        history.pollFirstEntry();
+      }
+      for (Consumer<RealtimeSnapshot> listener : listeners) {
+        try {
+          listener.accept(next);
+        } catch (RuntimeException ex) {
+          log.warn("Vicidial realtime snapshot listener failed cause={}", ex.getClass().getSimpleName());
+        }
+      }
+    }
+    return next;
+  }
+
+  private void ensurePoller() {
+    if (poller != null) {
+      return;
+    }
+    pollerLock.lock();
+    try {
+      if (poller == null) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "vicidial-realtime-snapshot");
+          thread.setDaemon(true);
+          return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        poller = executor;
+      }
+    } finally {
+      pollerLock.unlock();
+    }
+  }
+
+  /**
+   * Immutable view of the realtime tables. {@code version} only changes when agents, per-agent totals or today's
+   * metrics change; {@code capturedAt} moves on every refresh. Versions start at the engine start time in millis so
+   * a version held by a client is not mistaken for another node's or a previous process's.
+   */
+  public record RealtimeSnapshot(
+      long version,
+      OffsetDateTime capturedAt,
+      long capturedAtNanos,
+      List<VicidialRealtimeQueryService.RealtimeAgentRow> agents,
+      Map<String, Long> completedByAgent,
+      VicidialRealtimeQueryService.TodayMetrics metrics
+  ) {
+  }
+}
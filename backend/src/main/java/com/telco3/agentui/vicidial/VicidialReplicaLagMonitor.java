@@ -0,0 +1,91 @@
+package com.telco3.agentui.vicidial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether the Vicidial read replica is fresh enough to serve reporting queries. Replication lag is read at
+ * most once per {@code checkIntervalMs} by a single caller; everyone else uses the last verdict. An unknown lag
+ * (replication stopped, not a replica, missing privilege, unreachable) counts as too far behind.
+ */
+final class VicidialReplicaLagMonitor {
+  private static final Logger log = LoggerFactory.getLogger(VicidialReplicaLagMonitor.class);
+
+  private final long maxLagSeconds;
+  private final long checkIntervalNanos;
+  private final Function<DataSource, Long> lagProbe;
+  private final LongSupplier nanoClock;
+  private final ReentrantLock probeLock = new ReentrantLock();
+  private volatile Verdict verdict;
+
+  VicidialReplicaLagMonitor(long maxLagSeconds, long checkIntervalMs) {
+    this(maxLagSeconds, checkIntervalMs, VicidialReplicaLagMonitor::secondsBehindMaster, System::nanoTime);
+  }
+
+  VicidialReplicaLagMonitor(long maxLagSeconds, long checkIntervalMs, Function<DataSource, Long> lagProbe, LongSupplier nanoClock) {
+    this.maxLagSeconds = maxLagSeconds;
+    this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMs);
+    this.lagProbe = lagProbe;
+    this.nanoClock = nanoClock;
+  }
+
+  boolean usable(long configVersion, Supplier<DataSource> replica) {
+    Verdict current = verdict;
+    long now = nanoClock.getAsLong();
+    if (current != null && current.configVersion() == configVersion && now - current.checkedAtNanos() < checkIntervalNanos) {
+      return current.usable();
+    }
+    if (!probeLock.tryLock()) {
+      return current != null && current.configVersion() == configVersion && current.usable();
+    }
+    try {
+      current = verdict;
+      if (current != null && current.configVersion() == configVersion && now - current.checkedAtNanos() < checkIntervalNanos) {
+        return current.usable();
+      }
+      Long lagSeconds = probe(replica);
+      boolean usable = lagSeconds != null && lagSeconds <= maxLagSeconds;
+      if (current == null || current.usable() != usable) {
+        if (usable) {
+          log.info("Vicidial replica in use lagSeconds={}", lagSeconds);
+        } else {
+          log.warn("Vicidial replica bypassed, reporting queries go to primary lagSeconds={} maxLagSeconds={}", lagSeconds, maxLagSeconds);
+        }
+      }
+      verdict = new Verdict(configVersion, nanoClock.getAsLong(), usable);
+      return usable;
+    } finally {
+      probeLock.unlock();
+    }
+  }
+
+  private Long probe(Supplier<DataSource> replica) {
+    try {
+      return lagProbe.apply(replica.get());
+    } catch (RuntimeException ex) {
+      log.warn("Vicidial replica lag check failed cause={}", ex.getClass().getSimpleName());
+      return null;
+    }
+  }
+
+  static Long secondsBehindMaster(DataSource dataSource) {
+    return new JdbcTemplate(dataSource).query("SHOW SLAVE STATUS", rs -> {
+      if (!rs.next()) {
+        return null;
+      }
+      long lag = rs.getLong("Seconds_Behind_Master");
+      return rs.wasNull() ? null : lag;
+    });
+  }
+
+  private record Verdict(long configVersion, long checkedAtNanos, boolean usable) {
+  }
+}
@@ -0,0 +1,203 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Component
+public class VicidialRequestCoalescer {
+  private static final int MAX_CACHED_RESULTS = 5000;
+
+  private final Map<Function, Duration> ttls;
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, CachedResult> results = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<CompletableFuture<Object>, Long> runningLoads = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public VicidialRequestCoalescer(
+      @Value("${app.vicidial.coalesce.lead-info-ttl-ms:1500}") long leadInfoTtlMs,
+      @Value("${app.vicidial.coalesce.campaigns-ttl-ms:5000}") long campaignsTtlMs,
+      @Value("${app.vicidial.coalesce.live-agents-ttl-ms:2000}") long liveAgentsTtlMs,
+      @Value("${app.vicidial.coalesce.campaign-dial-config-ttl-ms:30000}") long campaignDialConfigTtlMs
+  ) {
+    this.ttls = Map.of(
+        Function.LEAD_INFO, Duration.ofMillis(Math.max(0L, leadInfoTtlMs)),
+        Function.CAMPAIGNS, Duration.ofMillis(Math.max(0L, campaignsTtlMs)),
+        Function.LIVE_AGENTS, Duration.ofMillis(Math.max(0L, liveAgentsTtlMs)),
+        Function.CAMPAIGN_DIAL_CONFIG, Duration.ofMillis(Math.max(0L, campaignDialConfigTtlMs))
+    );
+  }
+
+  /** In-flight coalescing only; results are never reused once the call completes. */
+  public static VicidialRequestCoalescer withoutResultCache() {
+    return new VicidialRequestCoalescer(0, 0, 0, 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(Function function, String key, Supplier<T> loader) {
+    String cacheKey = function.name() + ":" + key;
+    Duration ttl = ttls.get(function);
+    CachedResult cached = results.get(cacheKey);
+    if (cached != null && cached.isValid()) {
+      return (T) cached.value();
+    }
+
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(cacheKey, mine);
+    if (existing != null) {
+      return (T) join(existing);
+    }
+    long generation = startLoad(mine);
+    try {
+      T value = loader.get();
+      remember(cacheKey, ttl, value, generation);
+      mine.complete(value);
+      return value;
+    } catch (Throwable ex) {
+      mine.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(cacheKey, mine);
+      runningLoads.remove(mine);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> getAsync(Function function, String key, Supplier<Mono<T>> loader) {
+    return Mono.defer(() -> {
+      String cacheKey = function.name() + ":" + key;
+      Duration ttl = ttls.get(function);
+      CachedResult cached = results.get(cacheKey);
+      if (cached != null && cached.isValid()) {
+        return Mono.just((T) cached.value());
+      }
+
+      CompletableFuture<Object> mine = new CompletableFuture<>();
+      CompletableFuture<Object> existing = inFlight.putIfAbsent(cacheKey, mine);
+      if (existing != null) {
+        return Mono.fromFuture(existing, true).map(value -> (T) value);
+      }
+      long generation = startLoad(mine);
+      Mono<T> load;
+      try {
+        load = loader.get();
+      } catch (Throwable ex) {
+        inFlight.remove(cacheKey, mine);
+        runningLoads.remove(mine);
+        mine.completeExceptionally(ex);
+        return Mono.error(ex);
+      }
+      load.subscribe(
+          value -> {
+            remember(cacheKey, ttl, value, generation);
+            inFlight.remove(cacheKey, mine);
+            runningLoads.remove(mine);
+            mine.complete(value);
+          },
+          error -> {
+            inFlight.remove(cacheKey, mine);
+            runningLoads.remove(mine);
+            mine.completeExceptionally(error);
+          },
+          () -> {
+            runningLoads.remove(mine);
+            if (inFlight.remove(cacheKey, mine)) {
+              mine.complete(null);
+            }
+          });
+      return Mono.fromFuture(mine, true).map(value -> (T) value);
+    });
+  }
+
+  /**
+   * Drops the cached result and detaches the in-flight load, which will not be cached when it completes: a read
+   * that started before a write finished must not outlive it for a whole TTL.
+   */
+  public void invalidate(Function function, String key) {
+    String cacheKey = function.name() + ":" + key;
+    if (invalidatedAt.size() >= MAX_CACHED_RESULTS) {
+      evictSettledInvalidations();
+    }
+    invalidatedAt.put(cacheKey, invalidations.incrementAndGet());
+    inFlight.remove(cacheKey);
+    results.remove(cacheKey);
+  }
+
+  public void clear() {
+    results.clear();
+  }
+
+  /**
+   * Registers a load and returns the generation it started in. The entry is published before the generation is read,
+   * so {@link #evictSettledInvalidations} never drops a marker this load still has to honour.
+   */
+  private long startLoad(CompletableFuture<Object> load) {
+    runningLoads.put(load, Long.MIN_VALUE);
+    long generation = invalidations.get();
+    runningLoads.put(load, generation);
+    return generation;
+  }
+
+  /**
+   * A marker only matters to loads that started before it. Markers no older than the oldest running load (detached
+   * loads included) can no longer stop anything from being cached, so they are dropped; newer ones are kept.
+   */
+  private void evictSettledInvalidations() {
+    long oldestRunning = runningLoads.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+    invalidatedAt.values().removeIf(generation -> generation <= oldestRunning);
+  }
+
+  private void remember(String cacheKey, Duration ttl, Object value, long generation) {
+    if (ttl.isZero() || value == null) {
+      return;
+    }
+    Long invalidated = invalidatedAt.get(cacheKey);
+    if (invalidated != null && invalidated > generation) {
+      return;
+    }
+    if (results.size() >= MAX_CACHED_RESULTS) {
+      long now = System.nanoTime();
+      results.entrySet().removeIf(entry -> entry.getValue().expiresAtNanos() <= now);
+      if (results.size() >= MAX_CACHED_RESULTS) {
+        results.clear();
+      }
+    }
+    results.put(cacheKey, new CachedResult(value, System.nanoTime() + ttl.toNanos()));
+  }
+
+  private Object join(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (ex.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw ex;
+    }
+  }
+
+  private record CachedResult(Object value, long expiresAtNanos) {
+    boolean isValid() {
+      return System.nanoTime() < expiresAtNanos;
+    }
+  }
+
+  public enum Function {
+    LEAD_INFO,
+    CAMPAIGNS,
+    LIVE_AGENTS,
+    CAMPAIGN_DIAL_CONFIG
+  }
+}
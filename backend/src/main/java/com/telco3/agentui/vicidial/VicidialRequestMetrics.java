@@ -0,0 +1,145 @@
+package com.telco3.agentui.vicidial;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Latency and failure meters for outgoing Vicidial HTTP calls, tagged by path, function/ACTION, outcome and status.
+ */
+@Component
+public class VicidialRequestMetrics {
+  static final String TIMER = "vicidial.http.client.requests";
+  static final String TIMEOUTS = "vicidial.http.client.timeouts";
+  static final String UNREACHABLE = "vicidial.http.client.unreachable";
+  private static final int MAX_FUNCTION_LENGTH = 48;
+
+  private final MeterRegistry registry;
+
+  public VicidialRequestMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  public static VicidialRequestMetrics noop() {
+    return new VicidialRequestMetrics(new SimpleMeterRegistry());
+  }
+
+  public VicidialClient.VicidialHttpResult record(String path, Map<String, String> params, Supplier<VicidialClient.VicidialHttpResult> call) {
+    long start = System.nanoTime();
+    try {
+      VicidialClient.VicidialHttpResult result = call.get();
+      recordResult(path, params, result, System.nanoTime() - start);
+      return result;
+    } catch (RuntimeException ex) {
+      recordError(path, params, ex, System.nanoTime() - start);
+      throw ex;
+    }
+  }
+
+  public Mono<VicidialClient.VicidialHttpResult> recordAsync(String path, Map<String, String> params, Mono<VicidialClient.VicidialHttpResult> call) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return call
+          .doOnNext(result -> recordResult(path, params, result, System.nanoTime() - start))
+          .doOnError(ex -> recordError(path, params, ex, System.nanoTime() - start));
+    });
+  }
+
+  private void recordResult(String path, Map<String, String> params, VicidialClient.VicidialHttpResult result, long nanos) {
+    int status = result == null ? 0 : result.statusCode();
+    String outcome = status >= 200 && status < 300 ? "success" : status >= 500 ? "server_error" : status == 0 ? "empty" : "client_error";
+    timer(path, params, outcome, String.valueOf(status)).record(Duration.ofNanos(nanos));
+  }
+
+  private void recordError(String path, Map<String, String> params, Throwable error, long nanos) {
+    Throwable root = Exceptions.unwrap(error);
+    String outcome = classify(root);
+    timer(path, params, outcome, "none").record(Duration.ofNanos(nanos));
+    if ("timeout".equals(outcome)) {
+      Counter.builder(TIMEOUTS)
+          .description("Llamadas a Vicidial que excedieron el timeout")
+          .tags(baseTags(path, params))
+          .register(registry)
+          .increment();
+    }
+    if (root instanceof VicidialServiceException vex && "VICIDIAL_UNREACHABLE".equals(vex.code())) {
+      Counter.builder(UNREACHABLE)
+          .description("Errores mapeados a VICIDIAL_UNREACHABLE")
+          .tags(baseTags(path, params).and("cause", causeOf(vex)))
+          .register(registry)
+          .increment();
+    }
+  }
+
+  private Timer timer(String path, Map<String, String> params, String outcome, String status) {
+    return Timer.builder(TIMER)
+        .description("Latencia de llamadas HTTP a Vicidial")
+        .tags(baseTags(path, params).and("outcome", outcome, "status", status))
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(5))
+        .maximumExpectedValue(Duration.ofSeconds(30))
+        .register(registry);
+  }
+
+  static String classify(Throwable root) {
+    if (root instanceof VicidialServiceException vex) {
+      return switch (Objects.toString(vex.code(), "")) {
+        case "VICIDIAL_UNREACHABLE" -> causeOf(vex).contains("Timeout") ? "timeout" : "unreachable";
+        case "VICIDIAL_CIRCUIT_OPEN" -> "circuit_open";
+        case "VICIDIAL_BULKHEAD_FULL" -> "bulkhead_full";
+        case "VICIDIAL_POOL_EXHAUSTED" -> "pool_exhausted";
+        default -> "error";
+      };
+    }
+    Throwable cause = root;
+    while (cause != null) {
+      if (cause.getClass().getSimpleName().contains("Timeout")) {
+        return "timeout";
+      }
+      cause = cause.getCause() == cause ? null : cause.getCause();
+    }
+    return "error";
+  }
+
+  private static String causeOf(VicidialServiceException ex) {
+    return ex.details().map(details -> Objects.toString(details.get("cause"), "unknown")).orElse("unknown");
+  }
+
+  private static Tags baseTags(String path, Map<String, String> params) {
+    return Tags.of("path", Objects.toString(path, "unknown"), "function", functionOf(params));
+  }
+
+  static String functionOf(Map<String, String> params) {
+    if (params == null) {
+      return "none";
+    }
+    String function = params.get("function");
+    if (function == null || function.isBlank()) {
+      function = params.get("ACTION");
+    }
+    if (function == null || function.isBlank()) {
+      return "none";
+    }
+    String trimmed = function.trim();
+    if (trimmed.length() > MAX_FUNCTION_LENGTH) {
+      return "other";
+    }
+    for (int i = 0; i < trimmed.length(); i++) {
+      char c = trimmed.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+        return "other";
+      }
+    }
+    return trimmed;
+  }
+}
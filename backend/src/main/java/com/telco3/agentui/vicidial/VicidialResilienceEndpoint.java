@@ -0,0 +1,23 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "vicidialcircuits")
+public class VicidialResilienceEndpoint {
+  private final VicidialResilienceRegistry registry;
+
+  public VicidialResilienceEndpoint(VicidialResilienceRegistry registry) {
+    this.registry = registry;
+  }
+
+  @ReadOperation
+  public Map<String, List<VicidialCircuitBreaker.Snapshot>> circuits() {
+    return Map.of("circuits", registry.snapshots());
+  }
+}
@@ -0,0 +1,82 @@
+package com.telco3.agentui.vicidial;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class VicidialResilienceRegistry implements MeterBinder {
+  private final Map<EndpointFamily, VicidialCircuitBreaker> breakers = new EnumMap<>(EndpointFamily.class);
+
+  public VicidialResilienceRegistry(
+      @Value("${app.vicidial.resilience.failure-threshold:5}") int failureThreshold,
+      @Value("${app.vicidial.resilience.open-ms:10000}") long openMs,
+      @Value("${app.vicidial.resilience.half-open-probes:1}") int halfOpenProbes,
+      @Value("${app.vicidial.resilience.bulkhead-wait-ms:250}") long bulkheadWaitMs,
+      @Value("${app.vicidial.resilience.bulkhead.api:100}") int apiMaxConcurrent,
+      @Value("${app.vicidial.resilience.bulkhead.agc:150}") int agcMaxConcurrent,
+      @Value("${app.vicidial.resilience.bulkhead.agent-login:20}") int agentLoginMaxConcurrent
+  ) {
+    Duration open = Duration.ofMillis(openMs);
+    Duration wait = Duration.ofMillis(bulkheadWaitMs);
+    breakers.put(EndpointFamily.API, new VicidialCircuitBreaker("api.php", failureThreshold, open, halfOpenProbes, apiMaxConcurrent, wait));
+    breakers.put(EndpointFamily.AGC, new VicidialCircuitBreaker("vdc_db_query.php", failureThreshold, open, halfOpenProbes, agcMaxConcurrent, wait));
+    breakers.put(EndpointFamily.AGENT_LOGIN, new VicidialCircuitBreaker("vicidial.php", failureThreshold, open, halfOpenProbes, agentLoginMaxConcurrent, wait));
+    // MariaDB concurrency is already capped per workload by the Hikari pools; a shared semaphore on top would either
+    // never bind or let one workload take another's connections, so the database breakers have no bulkhead.
+    breakers.put(EndpointFamily.RUNTIME_DB, new VicidialCircuitBreaker("mariadb", failureThreshold, open, halfOpenProbes,
+        VicidialCircuitBreaker.NO_BULKHEAD, wait));
+    breakers.put(EndpointFamily.REPLICA_DB, new VicidialCircuitBreaker("mariadb-replica", failureThreshold, open, halfOpenProbes,
+        VicidialCircuitBreaker.NO_BULKHEAD, wait));
+  }
+
+  public static VicidialResilienceRegistry defaults() {
+    return new VicidialResilienceRegistry(5, 10000, 1, 250, 100, 150, 20);
+  }
+
+  public VicidialCircuitBreaker breaker(EndpointFamily family) {
+    return breakers.get(family);
+  }
+
+  public VicidialCircuitBreaker forPath(String path) {
+    String safePath = path == null ? "" : path;
+    if (safePath.endsWith("/api.php") || safePath.endsWith("/non_agent_api.php")) {
+      return breaker(EndpointFamily.API);
+    }
+    if (safePath.endsWith("/vicidial.php")) {
+      return breaker(EndpointFamily.AGENT_LOGIN);
+    }
+    return breaker(EndpointFamily.AGC);
+  }
+
+  public List<VicidialCircuitBreaker.Snapshot> snapshots() {
+    return breakers.values().stream().map(VicidialCircuitBreaker::snapshot).toList();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    breakers.values().forEach(breaker -> Gauge.builder("vicidial.circuit.state", breaker, b -> switch (VicidialCircuitBreaker.State.valueOf(b.snapshot().state())) {
+          case CLOSED -> 0;
+          case HALF_OPEN -> 1;
+          case OPEN -> 2;
+        })
+        .description("Estado del circuito Vicidial (0=closed, 1=half_open, 2=open)")
+        .tag("endpoint", breaker.name())
+        .register(registry));
+  }
+
+  public enum EndpointFamily {
+    API,
+    AGC,
+    AGENT_LOGIN,
+    RUNTIME_DB,
+    REPLICA_DB
+  }
+}
@@ -0,0 +1,269 @@
+package com.telco3.agentui.vicidial;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single-pass, regex-free scanner for Vicidial text responses (key:value, key=value, a=1&b=2 and pipe-delimited).
+ * Produces the same keys and values as the former per-line regex parsing.
+ */
+final class VicidialResponseScanner {
+
+  private VicidialResponseScanner() {
+  }
+
+  static Map<String, String> parseKeyValues(String body) {
+    Map<String, String> parsed = new LinkedHashMap<>();
+    if (body == null || body.isEmpty()) {
+      return parsed;
+    }
+    int length = body.length();
+    int lineStart = 0;
+    while (lineStart <= length) {
+      int lineEnd = body.indexOf('\n', lineStart);
+      if (lineEnd < 0) {
+        lineEnd = length;
+      }
+      int end = lineEnd;
+      if (end > lineStart && body.charAt(end - 1) == '\r') {
+        end--;
+      }
+      scanLine(parsed, body, lineStart, end);
+      lineStart = lineEnd + 1;
+    }
+    return parsed;
+  }
+
+  static void put(Map<String, String> parsed, String rawKey, String rawValue) {
+    String key = normalizeKey(rawKey);
+    String value = sanitizeValue(rawValue);
+    if (key.isEmpty() || !hasText(value)) {
+      return;
+    }
+    parsed.putIfAbsent(key, value);
+    if (key.indexOf('_') >= 0) {
+      parsed.putIfAbsent(key.replace("_", ""), value);
+    }
+  }
+
+  /** Finds the first word-bounded {@code M[0-9A-Z]{minTail,}} token, or null. */
+  static String findCallId(String body, int minTail) {
+    if (body == null) {
+      return null;
+    }
+    int length = body.length();
+    for (int i = 0; i < length; i++) {
+      if (body.charAt(i) != 'M' || (i > 0 && isWordChar(body.charAt(i - 1)))) {
+        continue;
+      }
+      int j = i + 1;
+      while (j < length && isUpperAlnum(body.charAt(j))) {
+        j++;
+      }
+      if (j - i - 1 >= minTail && (j == length || !isWordChar(body.charAt(j)))) {
+        return body.substring(i, j);
+      }
+      i = j - 1;
+    }
+    return null;
+  }
+
+  static String collapseWhitespaceLower(String body) {
+    if (body == null || body.isEmpty()) {
+      return "";
+    }
+    String lower = body.toLowerCase(Locale.ROOT);
+    StringBuilder out = null;
+    int length = lower.length();
+    for (int i = 0; i < length; i++) {
+      char c = lower.charAt(i);
+      if (!isRegexWhitespace(c)) {
+        if (out != null) {
+          out.append(c);
+        }
+        continue;
+      }
+      int j = i + 1;
+      while (j < length && isRegexWhitespace(lower.charAt(j))) {
+        j++;
+      }
+      if (c == ' ' && j == i + 1) {
+        if (out != null) {
+          out.append(' ');
+        }
+        continue;
+      }
+      if (out == null) {
+        out = new StringBuilder(length);
+        out.append(lower, 0, i);
+      }
+      out.append(' ');
+      i = j - 1;
+    }
+    return out == null ? lower : out.toString();
+  }
+
+  static String normalizeKey(String rawKey) {
+    if (rawKey == null) {
+      return "";
+    }
+    String lower = rawKey.trim().toLowerCase(Locale.ROOT);
+    StringBuilder key = new StringBuilder(lower.length());
+    boolean pendingSeparator = false;
+    for (int i = 0; i < lower.length(); i++) {
+      char c = lower.charAt(i);
+      if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+        if (pendingSeparator && key.length() > 0) {
+          key.append('_');
+        }
+        pendingSeparator = false;
+        key.append(c);
+      } else {
+        pendingSeparator = true;
+      }
+    }
+    String normalized = key.toString();
+    if (normalized.startsWith("var_")) {
+      normalized = normalized.substring(4);
+    }
+    if (normalized.startsWith("window_")) {
+      normalized = normalized.substring(7);
+    }
+    if (normalized.startsWith("this_")) {
+      normalized = normalized.substring(5);
+    }
+    return normalized;
+  }
+
+  static String sanitizeValue(String rawValue) {
+    if (rawValue == null) {
+      return "";
+    }
+    String value = rawValue.trim();
+    if (!hasText(value)) {
+      return value;
+    }
+    int start = 0;
+    int end = value.length();
+    while (start < end && isQuote(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && isQuote(value.charAt(end - 1))) {
+      end--;
+    }
+    while (end > start && (value.charAt(end - 1) == ';' || value.charAt(end - 1) == ',')) {
+      end--;
+    }
+    return value.substring(start, end).trim();
+  }
+
+  private static void scanLine(Map<String, String> parsed, String body, int from, int to) {
+    while (from < to && body.charAt(from) <= ' ') {
+      from++;
+    }
+    while (to > from && body.charAt(to - 1) <= ' ') {
+      to--;
+    }
+    if (from >= to) {
+      return;
+    }
+    boolean hasAmp = false;
+    boolean hasEq = false;
+    boolean hasPipe = false;
+    for (int i = from; i < to; i++) {
+      char c = body.charAt(i);
+      if (c == '&') {
+        hasAmp = true;
+      } else if (c == '=') {
+        hasEq = true;
+      } else if (c == '|') {
+        hasPipe = true;
+      }
+    }
+    if (hasAmp && hasEq) {
+      scanSegments(parsed, body, from, to, '&');
+    }
+    if (hasPipe) {
+      scanSegments(parsed, body, from, to, '|');
+    }
+    scanPair(parsed, body, from, to);
+  }
+
+  private static void scanSegments(Map<String, String> parsed, String body, int from, int to, char separator) {
+    int segmentStart = from;
+    for (int i = from; i <= to; i++) {
+      if (i == to || body.charAt(i) == separator) {
+        scanPair(parsed, body, segmentStart, i);
+        segmentStart = i + 1;
+      }
+    }
+  }
+
+  private static void scanPair(Map<String, String> parsed, String body, int from, int to) {
+    int i = from;
+    while (i < to && isRegexWhitespace(body.charAt(i))) {
+      i++;
+    }
+    int keyStart = i;
+    while (i < to) {
+      char c = body.charAt(i);
+      if (c == ':' || c == '=') {
+        break;
+      }
+      if (!isKeyChar(c)) {
+        return;
+      }
+      i++;
+    }
+    if (i >= to || i == keyStart) {
+      return;
+    }
+    int valueEnd = to;
+    if (valueEnd > i + 1 && isLineTerminator(body.charAt(valueEnd - 1))) {
+      valueEnd--;
+    }
+    while (valueEnd > i + 1 && isRegexWhitespace(body.charAt(valueEnd - 1))) {
+      valueEnd--;
+    }
+    for (int v = i + 1; v < valueEnd; v++) {
+      if (isLineTerminator(body.charAt(v))) {
+        return;
+      }
+    }
+    put(parsed, body.substring(keyStart, i), body.substring(i + 1, to));
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static boolean isKeyChar(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-' || isRegexWhitespace(c);
+  }
+
+  private static boolean isRegexWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static boolean isWordChar(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
+  private static boolean isUpperAlnum(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '\'';
+  }
+
+  private static boolean hasText(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isWhitespace(value.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -2,71 +2,220 @@ package com.telco3.agentui.vicidial;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/**
+ * Runtime MariaDB pools, one per {@link Workload} so a burst of realtime dashboard reads cannot starve agent
+ * call-state lookups. Pools live until the Admin > Settings version changes; the replacement is built before the
+ * old pool is retired, and the old pool is only closed once its borrowed connections are returned (or after
+ * {@code retireGraceMs}), so in-flight queries finish on the connection they started on. When a read replica is
+ * configured, {@link #replicaDataSource} serves lag-tolerant reads from a matching set of replica pools.
+ */
 @Component
 public class VicidialRuntimeDataSourceFactory {
   private static final Logger log = LoggerFactory.getLogger(VicidialRuntimeDataSourceFactory.class);
+  private static final long RETIRE_CHECK_MS = 1000;
+
+  public enum Workload {
+    /** Supervisor dashboards: live agents snapshot and intraday call aggregates. */
+    REALTIME("realtime"),
+    /** Agent-facing lookups on the call path: live agent state, auto calls, campaign dial method, logout checks. */
+    CALL_STATE("call-state"),
+    /** Admin catalogs: campaigns, pause codes and dispositions. */
+    CATALOG("catalog");
+
+    private final String key;
+
+    Workload(String key) {
+      this.key = key;
+    }
+
+    public String key() {
+      return key;
+    }
+  }
+
+  public record PoolSize(int maximumPoolSize, int minimumIdle) {
+  }
+
+  private enum Target {
+    PRIMARY("VicidialRuntimePool-"),
+    REPLICA("VicidialReplicaPool-");
+
+    private final String poolPrefix;
+
+    Target(String poolPrefix) {
+      this.poolPrefix = poolPrefix;
+    }
+  }
+
+  private record PoolKey(Target target, Workload workload) {
+  }
 
   private final VicidialConfigService configService;
   private final String defaultDriverClassName;
-  private final long ttlMillis;
+  private final Map<Workload, PoolSize> poolSizes;
+  private final long retireGraceMs;
+  private final VicidialResilienceRegistry resilience;
+  private final Function<HikariConfig, HikariDataSource> poolBuilder;
+  private final VicidialReplicaLagMonitor replicaLag;
 
-  private volatile CachedDataSource cached;
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Map<PoolKey, CachedDataSource> cached = new ConcurrentHashMap<>();
+  private final ReentrantLock reaperLock = new ReentrantLock();
+  private volatile ScheduledExecutorService reaper;
+
+  public VicidialRuntimeDataSourceFactory(VicidialConfigService configService, String defaultDriverClassName) {
+    this(configService, defaultDriverClassName, defaultPoolSizes(), 30000, VicidialResilienceRegistry.defaults(),
+        HikariDataSource::new, new VicidialReplicaLagMonitor(30, 5000));
+  }
 
+  @Autowired
   public VicidialRuntimeDataSourceFactory(
       VicidialConfigService configService,
       @Value("${vicidial.datasource.driver-class-name:org.mariadb.jdbc.Driver}") String defaultDriverClassName,
-      @Value("${vicidial.datasource.ttl-ms:60000}") long ttlMillis
+      @Value("${vicidial.datasource.pools.realtime.max-size:4}") int realtimeMaxSize,
+      @Value("${vicidial.datasource.pools.realtime.min-idle:1}") int realtimeMinIdle,
+      @Value("${vicidial.datasource.pools.call-state.max-size:6}") int callStateMaxSize,
+      @Value("${vicidial.datasource.pools.call-state.min-idle:1}") int callStateMinIdle,
+      @Value("${vicidial.datasource.pools.catalog.max-size:2}") int catalogMaxSize,
+      @Value("${vicidial.datasource.pools.catalog.min-idle:0}") int catalogMinIdle,
+      @Value("${vicidial.datasource.retire-grace-ms:30000}") long retireGraceMs,
+      @Value("${vicidial.replica.max-lag-seconds:30}") long replicaMaxLagSeconds,
+      @Value("${vicidial.replica.lag-check-ms:5000}") long replicaLagCheckMs,
+      VicidialResilienceRegistry resilience
+  ) {
+    this(configService, defaultDriverClassName, Map.of(
+        Workload.REALTIME, new PoolSize(realtimeMaxSize, realtimeMinIdle),
+        Workload.CALL_STATE, new PoolSize(callStateMaxSize, callStateMinIdle),
+        Workload.CATALOG, new PoolSize(catalogMaxSize, catalogMinIdle)
+    ), retireGraceMs, resilience, HikariDataSource::new, new VicidialReplicaLagMonitor(replicaMaxLagSeconds, replicaLagCheckMs));
+  }
+
+  VicidialRuntimeDataSourceFactory(
+      VicidialConfigService configService,
+      String defaultDriverClassName,
+      Map<Workload, PoolSize> poolSizes,
+      long retireGraceMs,
+      VicidialResilienceRegistry resilience,
+      Function<HikariConfig, HikariDataSource> poolBuilder,
+      VicidialReplicaLagMonitor replicaLag
   ) {
     this.configService = configService;
     this.defaultDriverClassName = defaultDriverClassName;
-    this.ttlMillis = ttlMillis;
+    this.poolSizes = new EnumMap<>(Workload.class);
+    this.poolSizes.putAll(poolSizes);
+    this.retireGraceMs = retireGraceMs;
+    this.resilience = resilience;
+    this.poolBuilder = poolBuilder;
+    this.replicaLag = replicaLag;
+  }
+
+  public DataSource runtimeDataSource(Workload workload) {
+    return new CircuitBreakingDataSource(getOrCreate(workload), resilience.breaker(VicidialResilienceRegistry.EndpointFamily.RUNTIME_DB));
+  }
+
+  /**
+   * Datasource for reads that tolerate replication lag (aggregates, catalogs). Uses the replica pool of the workload
+   * while a replica is configured and within {@code vicidial.replica.max-lag-seconds}; otherwise the primary.
+   */
+  public DataSource replicaDataSource(Workload workload) {
+    var replica = configService.resolveReplicaDbConfig();
+    if (replica.isPresent()) {
+      PoolKey key = new PoolKey(Target.REPLICA, workload);
+      var cfg = replica.get();
+      if (replicaLag.usable(cfg.configVersion(), () -> pool(key, cfg))) {
+        try {
+          return new CircuitBreakingDataSource(pool(key, cfg), resilience.breaker(VicidialResilienceRegistry.EndpointFamily.REPLICA_DB));
+        } catch (RuntimeException ex) {
+          log.warn("Vicidial replica datasource unavailable workload={} cause={}", workload.key(), ex.getClass().getSimpleName());
+        }
+      }
+    }
+    return runtimeDataSource(workload);
   }
 
-  public DataSource getOrCreate() {
+  /** Version of the MariaDB settings the runtime datasource is built from; changes whenever Admin > Settings does. */
+  public long configVersion() {
+    return configService.resolveDbConfig().configVersion();
+  }
+
+  public DataSource getOrCreate(Workload workload) {
     var cfg = configService.resolveDbConfig();
     if (cfg.missingRequired()) {
       throw new VicidialServiceException(HttpStatus.CONFLICT, "VICIDIAL_SETTINGS_MISSING", "Falta configuración MariaDB de Vicidial.", "configure en Admin > Settings", null);
     }
 
-    long now = System.currentTimeMillis();
-    CachedDataSource current = cached;
-    if (current != null && current.configVersion == cfg.configVersion() && now < current.expiresAt) {
+    return pool(new PoolKey(Target.PRIMARY, workload), cfg);
+  }
+
+  private HikariDataSource pool(PoolKey key, VicidialConfigService.ResolvedVicidialDbConfig cfg) {
+    CachedDataSource current = cached.get(key);
+    if (current != null && current.configVersion == cfg.configVersion()) {
       return current.dataSource;
     }
 
-    synchronized (this) {
-      current = cached;
-      if (current != null && current.configVersion == cfg.configVersion() && now < current.expiresAt) {
+    rebuildLock.lock();
+    try {
+      current = cached.get(key);
+      if (current != null && current.configVersion == cfg.configVersion()) {
         return current.dataSource;
       }
 
-      HikariDataSource next = build(cfg);
-      cached = new CachedDataSource(next, cfg.configVersion(), now + ttlMillis);
+      HikariDataSource next = poolBuilder.apply(hikariConfig(cfg, key.workload(), key.target()));
+      cached.put(key, new CachedDataSource(next, cfg.configVersion()));
       if (current != null) {
-        current.dataSource.close();
+        retire(current.dataSource);
       }
+      // Pools of other workloads or of a replica that is no longer configured drain now rather than on next use.
+      cached.entrySet().removeIf(entry -> {
+        if (entry.getValue().configVersion == cfg.configVersion()) {
+          return false;
+        }
+        retire(entry.getValue().dataSource);
+        return true;
+      });
       return next;
+    } finally {
+      rebuildLock.unlock();
     }
   }
 
-  private HikariDataSource build(VicidialConfigService.ResolvedVicidialDbConfig cfg) {
+  HikariConfig hikariConfig(VicidialConfigService.ResolvedVicidialDbConfig cfg, Workload workload) {
+    return hikariConfig(cfg, workload, Target.PRIMARY);
+  }
+
+  private HikariConfig hikariConfig(VicidialConfigService.ResolvedVicidialDbConfig cfg, Workload workload, Target target) {
     String jdbcUrl = buildJdbcUrl(cfg);
+    PoolSize size = poolSizes.getOrDefault(workload, new PoolSize(2, 0));
     log.info(
-        "Building Vicidial datasource host={} port={} database={} driver={} jdbcUrl={}",
+        "Building Vicidial datasource target={} workload={} host={} port={} database={} driver={} jdbcUrl={} maxPoolSize={}",
+        target.name().toLowerCase(),
+        workload.key(),
         cfg.dbHost(),
         cfg.dbPort(),
         cfg.dbName(),
         defaultDriverClassName,
-        jdbcUrl
+        jdbcUrl,
+        size.maximumPoolSize()
     );
 
     HikariConfig hk = new HikariConfig();
@@ -74,14 +223,14 @@ public class VicidialRuntimeDataSourceFactory {
     hk.setJdbcUrl(jdbcUrl);
     hk.setUsername(cfg.dbUser());
     hk.setPassword(cfg.dbPass());
-    hk.setMaximumPoolSize(3);
-    hk.setMinimumIdle(0);
-    hk.setPoolName("VicidialRuntimePool");
+    hk.setMaximumPoolSize(size.maximumPoolSize());
+    hk.setMinimumIdle(Math.min(size.minimumIdle(), size.maximumPoolSize()));
+    hk.setPoolName(target.poolPrefix + workload.key());
     hk.setInitializationFailTimeout(2000);
     hk.setConnectionTimeout(3000);
     hk.setIdleTimeout(60000);
     hk.setMaxLifetime(180000);
-    return new HikariDataSource(hk);
+    return hk;
   }
 
   private String buildJdbcUrl(VicidialConfigService.ResolvedVicidialDbConfig cfg) {
@@ -89,22 +238,91 @@ public class VicidialRuntimeDataSourceFactory {
   }
 
   public void invalidate() {
-    CachedDataSource current = cached;
-    cached = null;
+    rebuildLock.lock();
+    try {
+      cached.values().forEach(entry -> retire(entry.dataSource));
+      cached.clear();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    ScheduledExecutorService current = reaper;
+    reaper = null;
     if (current != null) {
-      current.dataSource.close();
+      current.shutdownNow();
     }
+    cached.values().forEach(entry -> entry.dataSource.close());
+    cached.clear();
+  }
+
+  /**
+   * Stops handing out the pool's idle connections and closes it once nothing is borrowed from it. Borrowed
+   * connections are evicted on return, so the old pool drains without interrupting the queries running on it.
+   */
+  private void retire(HikariDataSource dataSource) {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    if (pool == null) {
+      dataSource.close();
+      return;
+    }
+    pool.softEvictConnections();
+    long deadline = System.currentTimeMillis() + retireGraceMs;
+    ensureReaper().execute(() -> closeWhenDrained(dataSource, pool, deadline));
+  }
+
+  private void closeWhenDrained(HikariDataSource dataSource, HikariPoolMXBean pool, long deadline) {
+    int active = pool.getActiveConnections();
+    if (active > 0 && System.currentTimeMillis() < deadline) {
+      ScheduledExecutorService current = reaper;
+      if (current != null) {
+        current.schedule(() -> closeWhenDrained(dataSource, pool, deadline), RETIRE_CHECK_MS, TimeUnit.MILLISECONDS);
+        return;
+      }
+    }
+    if (active > 0) {
+      log.warn("Closing retired Vicidial datasource pool={} with activeConnections={}", dataSource.getPoolName(), active);
+    }
+    dataSource.close();
+  }
+
+  private ScheduledExecutorService ensureReaper() {
+    ScheduledExecutorService current = reaper;
+    if (current != null) {
+      return current;
+    }
+    reaperLock.lock();
+    try {
+      if (reaper == null) {
+        reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "vicidial-runtime-pool-reaper");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      return reaper;
+    } finally {
+      reaperLock.unlock();
+    }
+  }
+
+  private static Map<Workload, PoolSize> defaultPoolSizes() {
+    return Map.of(
+        Workload.REALTIME, new PoolSize(4, 1),
+        Workload.CALL_STATE, new PoolSize(6, 1),
+        Workload.CATALOG, new PoolSize(2, 0)
+    );
   }
 
   private static class CachedDataSource {
     private final HikariDataSource dataSource;
     private final long configVersion;
-    private final long expiresAt;
 
-    private CachedDataSource(HikariDataSource dataSource, long configVersion, long expiresAt) {
+    private CachedDataSource(HikariDataSource dataSource, long configVersion) {
       this.dataSource = Objects.requireNonNull(dataSource);
       this.configVersion = configVersion;
-      this.expiresAt = expiresAt;
     }
   }
 }
@@ -0,0 +1,319 @@
+package com.telco3.agentui.vicidial;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which Vicidial tables and columns exist, read with a single {@code information_schema.columns} scan, and every
+ * realtime query shape compiled once into its final SQL for that schema. Immutable; a new profile is built when the
+ * runtime datasource configuration changes.
+ */
+final class VicidialSchemaProfile {
+  static final List<String> TABLES = List.of(
+      "vicidial_live_agents",
+      "vicidial_users",
+      "vicidial_list",
+      "vicidial_pause_codes",
+      "vicidial_campaigns",
+      "vicidial_campaign_statuses",
+      "vicidial_statuses",
+      "vicidial_log",
+      "vicidial_closer_log"
+  );
+  private static final List<String> DROP_STATUSES = List.of("DROP", "XDROP", "ABANDON", "ABANDONED");
+
+  private final Map<String, Set<String>> columnsByTable;
+  private final LiveAgentsQuery liveAgents;
+  private final String pauseCodesSql;
+  private final String liveCampaignsSql;
+  private final String catalogCampaignsSql;
+  private final String campaignDispositionsSql;
+  private final String catalogDispositionsSql;
+  private final List<CallTableQuery> callTables;
+
+  VicidialSchemaProfile(Map<String, Set<String>> columnsByTable) {
+    Map<String, Set<String>> normalized = new HashMap<>();
+    columnsByTable.forEach((table, columns) -> {
+      Set<String> lower = new HashSet<>();
+      columns.forEach(column -> lower.add(column.toLowerCase(Locale.ROOT)));
+      normalized.put(table.toLowerCase(Locale.ROOT), Set.copyOf(lower));
+    });
+    this.columnsByTable = Map.copyOf(normalized);
+    this.liveAgents = compileLiveAgents();
+    this.pauseCodesSql = compilePauseCodes();
+    this.liveCampaignsSql = compileLiveCampaigns();
+    this.catalogCampaignsSql = compileCatalogCampaigns();
+    this.campaignDispositionsSql = compileDispositions("vicidial_campaign_statuses", true);
+    this.catalogDispositionsSql = compileDispositions("vicidial_statuses", false);
+    List<CallTableQuery> calls = new ArrayList<>();
+    addCallTable(calls, "vicidial_log", false);
+    addCallTable(calls, "vicidial_closer_log", true);
+    this.callTables = List.copyOf(calls);
+  }
+
+  static VicidialSchemaProfile scan(JdbcTemplate jdbc) {
+    String placeholders = String.join(",", TABLES.stream().map(t -> "?").toList());
+    Map<String, Set<String>> columns = new HashMap<>();
+    jdbc.query("""
+        SELECT table_name AS table_name, column_name AS column_name
+          FROM information_schema.columns
+         WHERE table_schema = DATABASE()
+           AND table_name IN (%s)
+        """.formatted(placeholders), rs -> {
+      columns.computeIfAbsent(rs.getString("table_name"), key -> new HashSet<>()).add(rs.getString("column_name"));
+    }, TABLES.toArray());
+    return new VicidialSchemaProfile(columns);
+  }
+
+  static VicidialSchemaProfile empty() {
+    return new VicidialSchemaProfile(Map.of());
+  }
+
+  boolean hasTable(String table) {
+    return columnsByTable.containsKey(table);
+  }
+
+  boolean hasColumn(String table, String column) {
+    Set<String> columns = columnsByTable.get(table);
+    return columns != null && columns.contains(column);
+  }
+
+  /** {@code null} when {@code vicidial_live_agents} lacks the table or the user/status columns. */
+  LiveAgentsQuery liveAgents() {
+    return liveAgents;
+  }
+
+  String pauseCodesSql() {
+    return pauseCodesSql;
+  }
+
+  String liveCampaignsSql() {
+    return liveCampaignsSql;
+  }
+
+  String catalogCampaignsSql() {
+    return catalogCampaignsSql;
+  }
+
+  String campaignDispositionsSql() {
+    return campaignDispositionsSql;
+  }
+
+  String catalogDispositionsSql() {
+    return catalogDispositionsSql;
+  }
+
+  List<CallTableQuery> callTables() {
+    return callTables;
+  }
+
+  private LiveAgentsQuery compileLiveAgents() {
+    String t = "vicidial_live_agents";
+    if (!hasTable(t) || !hasColumn(t, "user") || !hasColumn(t, "status")) {
+      return null;
+    }
+    boolean hasCampaign = hasColumn(t, "campaign_id");
+    boolean hasExtension = hasColumn(t, "extension");
+    boolean hasLeadId = hasColumn(t, "lead_id");
+    boolean hasPauseCode = hasColumn(t, "pause_code");
+    boolean hasComments = hasColumn(t, "comments");
+    boolean hasLastCallTime = hasColumn(t, "last_call_time");
+    boolean hasUsers = hasTable("vicidial_users")
+        && hasColumn("vicidial_users", "user")
+        && hasColumn("vicidial_users", "full_name");
+    boolean hasListPhone = hasLeadId
+        && hasTable("vicidial_list")
+        && hasColumn("vicidial_list", "lead_id")
+        && hasColumn("vicidial_list", "phone_number");
+
+    String pauseExpr = hasPauseCode
+        ? "NULLIF(vla.`pause_code`, '')"
+        : (hasComments ? "NULLIF(vla.`comments`, '')" : null);
+    String agentNameExpr = hasUsers ? "COALESCE(NULLIF(vu.`full_name`, ''), vla.`user`)" : "vla.`user`";
+
+    List<String> stateReferenceCandidates = new ArrayList<>();
+    for (String column : List.of("last_state_change", "last_update_time", "last_call_time")) {
+      if (hasColumn(t, column)) {
+        stateReferenceCandidates.add("vla.`" + column + "`");
+      }
+    }
+    String stateReferenceExpr = stateReferenceCandidates.isEmpty()
+        ? "NULL"
+        : "COALESCE(" + String.join(", ", stateReferenceCandidates) + ")";
+
+    StringBuilder sql = new StringBuilder("""
+        SELECT
+          vla.`user` AS agent_user,
+          %s AS agent_name,
+          %s AS extension,
+          %s AS campaign_id,
+          vla.`status` AS vicidial_status,
+          %s AS pause_code,
+          %s AS current_phone,
+          %s AS channel,
+          %s AS conf_exten,
+          %s AS lead_id,
+          %s AS state_reference_time,
+          %s AS last_call_time
+        FROM vicidial_live_agents vla
+        """.formatted(
+        agentNameExpr,
+        hasExtension ? "vla.`extension`" : "NULL",
+        hasCampaign ? "vla.`campaign_id`" : "NULL",
+        pauseExpr == null ? "NULL" : pauseExpr,
+        hasListPhone ? "vll.`phone_number`" : "NULL",
+        hasColumn(t, "channel") ? "vla.`channel`" : "NULL",
+        hasColumn(t, "conf_exten") ? "vla.`conf_exten`" : "NULL",
+        hasLeadId ? "vla.`lead_id`" : "NULL",
+        stateReferenceExpr,
+        hasLastCallTime ? "vla.`last_call_time`" : "NULL"
+    ));
+    if (hasUsers) {
+      sql.append(" LEFT JOIN vicidial_users vu ON vu.`user` = vla.`user` ");
+    }
+    if (hasListPhone) {
+      sql.append(" LEFT JOIN vicidial_list vll ON vll.`lead_id` = vla.`lead_id` ");
+    }
+    sql.append(" WHERE 1 = 1 ");
+    return new LiveAgentsQuery(sql.toString(), pauseExpr, agentNameExpr, hasCampaign, hasExtension, hasListPhone);
+  }
+
+  private String compilePauseCodes() {
+    String t = "vicidial_pause_codes";
+    if (!hasTable(t) || !hasColumn(t, "pause_code")) {
+      return null;
+    }
+    String pauseNameColumn = hasColumn(t, "pause_code_name")
+        ? "pause_code_name"
+        : (hasColumn(t, "pause_name") ? "pause_name" : null);
+    String nameExpr = pauseNameColumn == null ? "NULL" : ("`" + pauseNameColumn + "`");
+    String billableExpr = hasColumn(t, "billable") ? "`billable`" : "NULL";
+    return """
+        SELECT `pause_code` AS pause_code, %s AS pause_name, %s AS billable
+          FROM vicidial_pause_codes
+         ORDER BY `pause_code` ASC
+        """.formatted(nameExpr, billableExpr);
+  }
+
+  private String compileLiveCampaigns() {
+    if (!hasTable("vicidial_live_agents") || !hasColumn("vicidial_live_agents", "campaign_id")) {
+      return null;
+    }
+    return """
+        SELECT DISTINCT `campaign_id`
+          FROM vicidial_live_agents
+         WHERE `campaign_id` IS NOT NULL
+           AND `campaign_id` <> ''
+         ORDER BY `campaign_id` ASC
+        """;
+  }
+
+  private String compileCatalogCampaigns() {
+    if (!hasTable("vicidial_campaigns") || !hasColumn("vicidial_campaigns", "campaign_id")) {
+      return null;
+    }
+    return hasColumn("vicidial_campaigns", "active")
+        ? """
+          SELECT `campaign_id`
+            FROM vicidial_campaigns
+           WHERE `active` = 'Y'
+           ORDER BY `campaign_id` ASC
+          """
+        : """
+          SELECT `campaign_id`
+            FROM vicidial_campaigns
+           ORDER BY `campaign_id` ASC
+          """;
+  }
+
+  private String compileDispositions(String table, boolean byCampaign) {
+    if (!hasTable(table) || !hasColumn(table, "status") || (byCampaign && !hasColumn(table, "campaign_id"))) {
+      return null;
+    }
+    String statusNameExpr = hasColumn(table, "status_name") ? "status_name" : "status";
+    StringBuilder sql = new StringBuilder("""
+        SELECT status, COALESCE(NULLIF(%s, ''), status) AS status_name
+          FROM %s
+         WHERE %s
+        """.formatted(statusNameExpr, table, byCampaign ? "campaign_id = ?" : "1 = 1"));
+    if (hasColumn(table, "selectable")) {
+      sql.append(" AND selectable = 'Y' ");
+    }
+    if (hasColumn(table, "active")) {
+      sql.append(" AND active = 'Y' ");
+    }
+    sql.append(" ORDER BY status ASC ");
+    return sql.toString();
+  }
+
+  private void addCallTable(List<CallTableQuery> target, String table, boolean closer) {
+    if (!hasTable(table) || !hasColumn(table, "call_date")) {
+      return;
+    }
+    boolean hasUser = hasColumn(table, "user");
+    boolean hasLength = hasColumn(table, "length_in_sec");
+    boolean hasStatus = closer && hasColumn(table, "status");
+    boolean hasQueue = closer && hasColumn(table, "queue_seconds");
+
+    String answeredExpr = hasLength ? "SUM(CASE WHEN COALESCE(`length_in_sec`, 0) > 0 THEN 1 ELSE 0 END)" : "COUNT(*)";
+    String dropStatuses = String.join(",", DROP_STATUSES.stream().map(v -> "'" + v + "'").toList());
+    String select = """
+        SELECT %s AS agent_user,
+               COUNT(*) AS calls,
+               %s AS answered,
+               %s AS talk_seconds,
+               %s AS talk_calls,
+               %s AS abandoned,
+               %s AS queue_seconds,
+               %s AS queue_calls,
+               %s AS sla_calls,
+               %s AS within_sla
+          FROM `%s`
+         WHERE `call_date` >= ?
+        """.formatted(
+        hasUser ? "`user`" : "NULL",
+        answeredExpr,
+        hasLength ? "COALESCE(SUM(CASE WHEN COALESCE(`length_in_sec`, 0) > 0 THEN `length_in_sec` ELSE 0 END), 0)" : "0",
+        hasLength ? answeredExpr : "0",
+        hasStatus ? "SUM(CASE WHEN UPPER(`status`) IN (" + dropStatuses + ") THEN 1 ELSE 0 END)" : "0",
+        hasQueue ? "COALESCE(SUM(`queue_seconds`), 0)" : "0",
+        hasQueue ? "COUNT(`queue_seconds`)" : "0",
+        hasQueue ? "COUNT(*)" : "0",
+        hasQueue ? "SUM(CASE WHEN COALESCE(`queue_seconds`, 0) <= ? THEN 1 ELSE 0 END)" : "0",
+        table
+    );
+    String groupBy = hasUser ? " GROUP BY `user` " : "";
+    target.add(new CallTableQuery(
+        table,
+        select + " AND `call_date` < ? " + groupBy,
+        select + groupBy,
+        hasQueue,
+        hasUser
+    ));
+  }
+
+  /**
+   * Live agents SELECT up to {@code WHERE 1 = 1}; optional filters are appended per call. {@code pauseExpr} is null
+   * when the table has neither {@code pause_code} nor {@code comments}.
+   */
+  record LiveAgentsQuery(
+      String baseSql,
+      String pauseExpr,
+      String agentNameExpr,
+      boolean hasCampaign,
+      boolean hasExtension,
+      boolean hasListPhone
+  ) {
+  }
+
+  /** Per-table call aggregate for a closed [from, to) or open [from, ...) {@code call_date} window. */
+  record CallTableQuery(String table, String closedWindowSql, String openWindowSql, boolean thresholdParam, boolean groupedByUser) {
+  }
+}
@@ -4,6 +4,8 @@ import com.telco3.agentui.agent.VicidialCredentialService;
 import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -12,30 +14,77 @@ import org.springframework.util.StringUtils;
 
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class VicidialService {
   private static final Logger log = LoggerFactory.getLogger(VicidialService.class);
-  private static final int CONF_EXTEN_CHECK_MAX_ATTEMPTS = 20;
-  private static final long CONF_EXTEN_CHECK_WAIT_MS = 400L;
+  public static final String STEP_LOG_END = "logEnd";
+  public static final String STEP_UPDATE_DISPO = "updateDispo";
+  public static final String STEP_RUN_URLS = "runUrls";
+  public static final String STEP_UPDATE_LEAD = "updateLead";
+  /** Post-call steps recorded in {@code completed_steps} so a retry resumes after them, in chain order. */
+  public static final List<String> POST_CALL_STEPS = List.of(STEP_LOG_END, STEP_UPDATE_DISPO, STEP_RUN_URLS, STEP_UPDATE_LEAD);
+  /** Steps that must each complete once for a disposition to count as synced; logEnd is tracked but not required. */
+  public static final List<String> SYNC_REQUIRED_STEPS = List.of(STEP_UPDATE_DISPO, STEP_RUN_URLS, STEP_UPDATE_LEAD);
+  private static final Pattern[] AGENT_STATUS_PATTERNS = {
+      Pattern.compile("(?im)\\bLogged-?in\\s*[:=]\\s*([A-Z_]+)\\b"),
+      Pattern.compile("(?im)\\bStatus\\s*[:=]\\s*([A-Z_]+)\\b"),
+      Pattern.compile("(?im)\\blast_VDRP_stage\\s*[:=]\\s*([A-Z_]+)\\b"),
+      Pattern.compile("(?im)\\bagent_status\\s*[:=]\\s*([A-Z_]+)\\b"),
+      Pattern.compile("(?im)\\b(?:var\\s+)?status\\s*=\\s*['\\\"]?([A-Z_]+)['\\\"]?\\s*;?"),
+      Pattern.compile("(?im)\\b(?:var\\s+)?last_VDRP_stage\\s*=\\s*['\\\"]?([A-Z_]+)['\\\"]?\\s*;?")
+  };
+  private static final Pattern[] UNIQUE_ID_PATTERNS = {
+      Pattern.compile("(?im)\\buniqueid\\s*[:=]\\s*([0-9]{8,}\\.[0-9]+)\\b"),
+      Pattern.compile("(?im)^\\s*([0-9]{8,}\\.[0-9]+)\\s+(?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/"),
+      Pattern.compile("(?im)^\\s*([0-9]{8,}\\.[0-9]+)\\s*$")
+  };
+  private static final Pattern[] CHANNEL_PATTERNS = {
+      Pattern.compile("(?im)\\bchannel\\s*[:=]\\s*((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)"),
+      Pattern.compile("(?im)^[0-9]{8,}\\.[0-9]+\\s+((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)"),
+      Pattern.compile("(?im)^\\s*((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)\\s*$"),
+      Pattern.compile("(?im)(?:^|[|\\s])((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|~]+)")
+  };
+  private static final Pattern OUTBOUND_CHANNEL_PATTERN = Pattern.compile("(?im)((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|~]+)");
 
   private final VicidialClient client;
   private final VicidialCredentialService credentialService;
   private final Environment environment;
   private final VicidialRuntimeDataSourceFactory dataSourceFactory;
+  private final Executor executor;
 
   public VicidialService(VicidialClient client, VicidialDialResponseParser dialResponseParser, VicidialCredentialService credentialService,
                          Environment environment, VicidialRuntimeDataSourceFactory dataSourceFactory) {
+    this(client, dialResponseParser, credentialService, environment, dataSourceFactory, Runnable::run);
+  }
+
+  @Autowired
+  public VicidialService(VicidialClient client, VicidialDialResponseParser dialResponseParser, VicidialCredentialService credentialService,
+                         Environment environment, VicidialRuntimeDataSourceFactory dataSourceFactory,
+                         @Qualifier("vicidialExecutor") Executor executor) {
     this.client = client;
     this.credentialService = credentialService;
     this.environment = environment;
     this.dataSourceFactory = dataSourceFactory;
+    this.executor = executor;
   }
 
   public String resolveModeForCampaign(String appUsername, String campaignId) {
@@ -48,7 +97,7 @@ public class VicidialService {
   }
 
   public CampaignMode campaignMode(String campaignId) {
-    JdbcTemplate jdbc = new JdbcTemplate(dataSourceFactory.getOrCreate());
+    JdbcTemplate jdbc = new JdbcTemplate(dataSourceFactory.runtimeDataSource(VicidialRuntimeDataSourceFactory.Workload.CALL_STATE));
     Map<String, Object> row = jdbc.query(
         "SELECT campaign_id, dial_method FROM vicidial_campaigns WHERE campaign_id = ?",
         rs -> rs.next() ? Map.of("campaign_id", rs.getString("campaign_id"), "dial_method", rs.getString("dial_method")) : null,
@@ -69,7 +118,7 @@ public class VicidialService {
     }
     JdbcTemplate jdbc;
     try {
-      jdbc = new JdbcTemplate(dataSourceFactory.getOrCreate());
+      jdbc = new JdbcTemplate(dataSourceFactory.runtimeDataSource(VicidialRuntimeDataSourceFactory.Workload.CALL_STATE));
     } catch (Exception ex) {
       log.warn("Vicidial runtime datasource unavailable for list_id cause={}", ex.getClass().getSimpleName());
       return Optional.empty();
@@ -124,7 +173,12 @@ public class VicidialService {
     return new DialNextResult(resolvedCallId, resolvedLeadId, classification);
   }
 
-  public DialFollowUpResult followUpManualDial(
+  /**
+   * First step of the manual-dial follow-up: loads the script display and seeds the follow-up state from the
+   * manDiaLnextCaLL response. {@link #probeManualDial} and {@link #completeManualDialFollowUp} continue it from
+   * {@code AgentDialFollowUpService}, which spaces the probes on a scheduler instead of sleeping between them.
+   */
+  public ManualDialFollowUp startManualDialFollowUp(
       String agentUser,
       String agentPass,
       AgentVicidialCredentialEntity session,
@@ -132,120 +186,148 @@ public class VicidialService {
       VicidialDialResponseParser.DetailedParsedDialResponse parsedResponse,
       String requestedPhoneNumber
   ) {
-    Map<String, Object> details = new LinkedHashMap<>();
     Map<String, String> basePayload = buildAgentRuntimePayload(agentUser, agentPass, session, campaignId);
+    ManualDialFollowUp followUp = new ManualDialFollowUp(
+        agentUser,
+        agentPass,
+        session,
+        campaignId,
+        basePayload,
+        normalizeConfExten(session.confExten, session.connectedPhoneLogin),
+        normalizeEndpointDigits(resolveDialExten(session))
+    );
 
     var scriptDisplayResult = client.vdcScriptDisplay(agentUser, basePayload);
-    details.put("scriptDisplayHttpStatus", scriptDisplayResult.statusCode());
-
-    String callId = firstNonBlank(parsedResponse.callId(), session.currentCallId);
-    Long leadId = parsedResponse.leadId();
-    String phoneNumber = firstNonBlank(parsedResponse.phoneNumber(), requestedPhoneNumber);
-    String listId = parsedResponse.listId();
-    listId = firstNonBlank(listId, basePayload.get("list_id"));
-    String leadStatus = parsedResponse.leadStatus();
-    String normalizedConfExten = normalizeConfExten(session.confExten, session.connectedPhoneLogin);
-    String normalizedMonitorExten = normalizeEndpointDigits(resolveDialExten(session));
-    String agentStatus = null;
-    String uniqueId = null;
-    String channel = null;
-
-    boolean incallConfirmed = false;
-    boolean lookCallConsistent = false;
-    for (int attempt = 1; attempt <= CONF_EXTEN_CHECK_MAX_ATTEMPTS; attempt++) {
-      Map<String, String> confPayload = buildConfExtenCheckPayload(basePayload, callId, phoneNumber, attempt - 1, (attempt % 3) == 0);
-      var confResult = client.confExtenCheck(agentUser, confPayload);
-      Map<String, String> confParsed = client.parseKeyValueLines(confResult.body());
-      String confStatus = firstNonBlank(extractAgentStatus(confParsed), extractAgentStatusFromBody(confResult.body()));
-      if (StringUtils.hasText(confStatus)) {
-        agentStatus = confStatus;
+    followUp.details.put("scriptDisplayHttpStatus", scriptDisplayResult.statusCode());
+
+    followUp.callId = firstNonBlank(parsedResponse.callId(), session.currentCallId);
+    followUp.leadId = parsedResponse.leadId();
+    followUp.phoneNumber = firstNonBlank(parsedResponse.phoneNumber(), requestedPhoneNumber);
+    followUp.listId = firstNonBlank(parsedResponse.listId(), basePayload.get("list_id"));
+    followUp.leadStatus = parsedResponse.leadStatus();
+    return followUp;
+  }
+
+  /** One conf_exten_check (plus manDiaLlookCaLL when there is something to look up); true once INCALL has evidence. */
+  public boolean probeManualDial(ManualDialFollowUp followUp, int attempt) {
+    String agentUser = followUp.agentUser;
+    AgentVicidialCredentialEntity session = followUp.session;
+    Map<String, Object> details = followUp.details;
+    String normalizedConfExten = followUp.normalizedConfExten;
+    String normalizedMonitorExten = followUp.normalizedMonitorExten;
+
+    Map<String, String> confPayload = buildConfExtenCheckPayload(followUp.basePayload, followUp.callId, followUp.phoneNumber, attempt - 1, (attempt % 3) == 0);
+    var confResult = client.confExtenCheck(agentUser, confPayload);
+    Map<String, String> confParsed = client.parseKeyValueLines(confResult.body());
+    String confStatus = firstNonBlank(extractAgentStatus(confParsed), extractAgentStatusFromBody(confResult.body()));
+    if (StringUtils.hasText(confStatus)) {
+      followUp.agentStatus = confStatus;
+    }
+    followUp.callId = firstNonBlank(followUp.callId, firstPresent(confParsed, "call_id", "callid", "callerid"));
+    followUp.leadId = firstNonNull(followUp.leadId, toLong(firstPresent(confParsed, "lead_id", "leadid")));
+    followUp.phoneNumber = firstNonBlank(followUp.phoneNumber, firstPresent(confParsed, "phone_number", "phonenumber"));
+    followUp.listId = firstNonBlank(followUp.listId, firstPresent(confParsed, "list_id", "listid"));
+    followUp.leadStatus = firstNonBlank(followUp.leadStatus, firstPresent(confParsed, "lead_status", "leadstatus", "status"));
+    followUp.uniqueId = firstNonBlank(followUp.uniqueId, firstPresent(confParsed, "uniqueid", "unique_id"));
+    followUp.channel = selectBestChannel(
+        followUp.channel,
+        firstPresent(confParsed, "channel"),
+        session.connectedPhoneLogin,
+        normalizedConfExten,
+        normalizedMonitorExten
+    );
+    details.put("confExtenCheckAttempt", attempt);
+    details.put("confExtenCheckHttpStatus", confResult.statusCode());
+    details.put("confAgentStatus", confStatus);
+
+    if (StringUtils.hasText(followUp.callId) || followUp.leadId != null || StringUtils.hasText(followUp.phoneNumber)) {
+      Map<String, String> lookProbePayload = buildLookCallPayload(followUp.basePayload, followUp.callId, followUp.leadId, followUp.phoneNumber);
+      var lookProbeResult = client.manualDialLookCall(agentUser, lookProbePayload);
+      details.put("lookCallProbeHttpStatus", lookProbeResult.statusCode());
+      Map<String, String> lookProbeParsed = client.parseKeyValueLines(lookProbeResult.body());
+      String probeCallId = firstPresent(lookProbeParsed, "call_id", "callid", "callerid");
+      Long probeLeadId = toLong(firstPresent(lookProbeParsed, "lead_id", "leadid"));
+      String probeUniqueId = firstNonBlank(
+          firstPresent(lookProbeParsed, "uniqueid", "unique_id"),
+          extractUniqueIdFromBody(lookProbeResult.body())
+      );
+      String probeChannel = firstNonBlank(
+          firstPresent(lookProbeParsed, "channel"),
+          extractChannelFromBody(lookProbeResult.body())
+      );
+      if (!isOutboundCustomerChannel(probeChannel, session.connectedPhoneLogin, normalizedConfExten, normalizedMonitorExten)) {
+        probeChannel = firstNonBlank(
+            extractBestOutboundChannelFromBody(
+                lookProbeResult.body(),
+                session.connectedPhoneLogin,
+                normalizedConfExten,
+                normalizedMonitorExten
+            ),
+            probeChannel
+        );
       }
-      callId = firstNonBlank(callId, firstPresent(confParsed, "call_id", "callid", "callerid"));
-      leadId = firstNonNull(leadId, toLong(firstPresent(confParsed, "lead_id", "leadid")));
-      phoneNumber = firstNonBlank(phoneNumber, firstPresent(confParsed, "phone_number", "phonenumber"));
-      listId = firstNonBlank(listId, firstPresent(confParsed, "list_id", "listid"));
-      leadStatus = firstNonBlank(leadStatus, firstPresent(confParsed, "lead_status", "leadstatus", "status"));
-      uniqueId = firstNonBlank(uniqueId, firstPresent(confParsed, "uniqueid", "unique_id"));
-      channel = selectBestChannel(
-          channel,
-          firstPresent(confParsed, "channel"),
+      followUp.callId = firstNonBlank(followUp.callId, probeCallId);
+      followUp.leadId = firstNonNull(followUp.leadId, probeLeadId);
+      followUp.uniqueId = firstNonBlank(followUp.uniqueId, probeUniqueId);
+      followUp.channel = selectBestChannel(
+          followUp.channel,
+          probeChannel,
           session.connectedPhoneLogin,
           normalizedConfExten,
           normalizedMonitorExten
       );
-      details.put("confExtenCheckAttempt", attempt);
-      details.put("confExtenCheckHttpStatus", confResult.statusCode());
-      details.put("confAgentStatus", confStatus);
-
-      if (StringUtils.hasText(callId) || leadId != null || StringUtils.hasText(phoneNumber)) {
-        Map<String, String> lookProbePayload = buildLookCallPayload(basePayload, callId, leadId, phoneNumber);
-        var lookProbeResult = client.manualDialLookCall(agentUser, lookProbePayload);
-        details.put("lookCallProbeHttpStatus", lookProbeResult.statusCode());
-        Map<String, String> lookProbeParsed = client.parseKeyValueLines(lookProbeResult.body());
-        String probeCallId = firstPresent(lookProbeParsed, "call_id", "callid", "callerid");
-        Long probeLeadId = toLong(firstPresent(lookProbeParsed, "lead_id", "leadid"));
-        String probeUniqueId = firstNonBlank(
-            firstPresent(lookProbeParsed, "uniqueid", "unique_id"),
-            extractUniqueIdFromBody(lookProbeResult.body())
-        );
-        String probeChannel = firstNonBlank(
-            firstPresent(lookProbeParsed, "channel"),
-            extractChannelFromBody(lookProbeResult.body())
-        );
-        if (!isOutboundCustomerChannel(probeChannel, session.connectedPhoneLogin, normalizedConfExten, normalizedMonitorExten)) {
-          probeChannel = firstNonBlank(
-              extractBestOutboundChannelFromBody(
-                  lookProbeResult.body(),
-                  session.connectedPhoneLogin,
-                  normalizedConfExten,
-                  normalizedMonitorExten
-              ),
-              probeChannel
-          );
-        }
-        callId = firstNonBlank(callId, probeCallId);
-        leadId = firstNonNull(leadId, probeLeadId);
-        uniqueId = firstNonBlank(uniqueId, probeUniqueId);
-        channel = selectBestChannel(
-            channel,
-            probeChannel,
-            session.connectedPhoneLogin,
-            normalizedConfExten,
-            normalizedMonitorExten
-        );
-        phoneNumber = firstNonBlank(phoneNumber, firstPresent(lookProbeParsed, "phone_number", "phonenumber"));
-        leadStatus = firstNonBlank(leadStatus, firstPresent(lookProbeParsed, "status", "lead_status"));
-        boolean leadMatch = probeLeadId != null && leadId != null && Objects.equals(probeLeadId, leadId);
-        boolean probeHasOutboundChannel = isOutboundCustomerChannel(
-            probeChannel,
-            session.connectedPhoneLogin,
-            normalizedConfExten,
-            normalizedMonitorExten
-        );
-        boolean probeHasMediaEvidence = probeHasOutboundChannel && (StringUtils.hasText(probeUniqueId) || StringUtils.hasText(probeChannel));
-        boolean probeHasIdentity = StringUtils.hasText(probeCallId) || probeLeadId != null;
-        if (StringUtils.hasText(callId) && probeHasMediaEvidence && (leadMatch || probeHasIdentity)) {
-          lookCallConsistent = true;
-        }
-      }
-
-      if (hasDialEvidence(
-          callId,
-          leadId,
-          uniqueId,
-          channel,
-          confStatus,
-          lookCallConsistent,
+      followUp.phoneNumber = firstNonBlank(followUp.phoneNumber, firstPresent(lookProbeParsed, "phone_number", "phonenumber"));
+      followUp.leadStatus = firstNonBlank(followUp.leadStatus, firstPresent(lookProbeParsed, "status", "lead_status"));
+      boolean leadMatch = probeLeadId != null && followUp.leadId != null && Objects.equals(probeLeadId, followUp.leadId);
+      boolean probeHasOutboundChannel = isOutboundCustomerChannel(
+          probeChannel,
           session.connectedPhoneLogin,
           normalizedConfExten,
           normalizedMonitorExten
-      )) {
-        incallConfirmed = true;
-        break;
+      );
+      boolean probeHasMediaEvidence = probeHasOutboundChannel && (StringUtils.hasText(probeUniqueId) || StringUtils.hasText(probeChannel));
+      boolean probeHasIdentity = StringUtils.hasText(probeCallId) || probeLeadId != null;
+      if (StringUtils.hasText(followUp.callId) && probeHasMediaEvidence && (leadMatch || probeHasIdentity)) {
+        followUp.lookCallConsistent = true;
       }
-      sleepQuietly(CONF_EXTEN_CHECK_WAIT_MS);
     }
 
+    return hasDialEvidence(
+        followUp.callId,
+        followUp.leadId,
+        followUp.uniqueId,
+        followUp.channel,
+        confStatus,
+        followUp.lookCallConsistent,
+        session.connectedPhoneLogin,
+        normalizedConfExten,
+        normalizedMonitorExten
+    );
+  }
+
+  /**
+   * Last step of the manual-dial follow-up. When the probes did not confirm INCALL a realtime snapshot gets the final
+   * say; a confirmed call is then logged (monitor_conf, manDiaLlogCaLL start) and the dial runtime updated.
+   */
+  public DialFollowUpResult completeManualDialFollowUp(ManualDialFollowUp followUp, boolean probesConfirmed) {
+    String agentUser = followUp.agentUser;
+    String agentPass = followUp.agentPass;
+    AgentVicidialCredentialEntity session = followUp.session;
+    String campaignId = followUp.campaignId;
+    Map<String, String> basePayload = followUp.basePayload;
+    Map<String, Object> details = followUp.details;
+    String normalizedConfExten = followUp.normalizedConfExten;
+    String normalizedMonitorExten = followUp.normalizedMonitorExten;
+    String callId = followUp.callId;
+    Long leadId = followUp.leadId;
+    String phoneNumber = followUp.phoneNumber;
+    String listId = followUp.listId;
+    String leadStatus = followUp.leadStatus;
+    String agentStatus = followUp.agentStatus;
+    String uniqueId = followUp.uniqueId;
+    String channel = followUp.channel;
+    boolean incallConfirmed = probesConfirmed;
+
     if (!incallConfirmed) {
       RealtimeCallSnapshot snapshot = resolveRealtimeCallSnapshot(agentUser, agentPass, session, callId, leadId, phoneNumber, campaignId, true);
       callId = firstNonBlank(callId, snapshot.callId());
@@ -389,6 +471,15 @@ public class VicidialService {
     credentialService.updateDialRuntime(agentUser, null, null, null);
   }
 
+  /**
+   * Post-call AGC sequence after "Guardar gestion". Calls that only need the agent payload (callbacks count,
+   * update settings, list id) start together with the realtime snapshot; once the snapshot is in, update lead runs
+   * beside the ordered chain log end, update dispo, run URLs (dispo URLs read the disposition just written).
+   * {@code details.stepTimingsMs} holds each step's duration and {@code details.totalMs} the wall time. Every step is
+   * awaited before any result is read; a step that threw shows up as {@code details.<step>Error} instead of aborting
+   * the sequence while the dispo chain is still in flight. The result carries the resolved call identifiers and the
+   * steps that completed, so a retry can {@link #resumePostCallDisposition resume} instead of starting over.
+   */
   public PostCallSyncResult syncPostCallDisposition(
       String agentUser,
       String agentPass,
@@ -405,9 +496,12 @@ public class VicidialService {
       return new PostCallSyncResult(false, null, "Missing agent_pass", details);
     }
 
+    long startedAt = System.nanoTime();
+    Map<String, Long> timings = new ConcurrentHashMap<>();
     String resolvedCampaign = firstNonBlank(campaignId, session.connectedCampaign);
     Map<String, String> basePayload = buildAgentRuntimePayload(agentUser, agentPass, session, resolvedCampaign);
-    RealtimeCallSnapshot snapshot = resolveRealtimeCallSnapshot(
+
+    var snapshotStep = timedStep("snapshot", timings, () -> resolveRealtimeCallSnapshot(
         agentUser,
         agentPass,
         session,
@@ -416,83 +510,233 @@ public class VicidialService {
         phoneNumberHint,
         resolvedCampaign,
         true
+    ));
+    var listIdStep = timedStep("listId", timings, () -> resolveManualDialListId(resolvedCampaign).orElse(null));
+    var callbacksStep = timedStep("callbacksCount", timings, () -> client.callbacksCount(agentUser, basePayload));
+    var updateSettingsStep = timedStep("updateSettings", timings, () -> client.updateSettings(agentUser, basePayload));
+
+    settle(snapshotStep, listIdStep);
+    RealtimeCallSnapshot snapshot = stepResult("snapshot", snapshotStep, details);
+    PostCallIdentifiers identifiers = new PostCallIdentifiers(
+        firstNonBlank(callIdHint, snapshot == null ? null : snapshot.callId(), session.currentCallId),
+        firstNonNull(leadIdHint, snapshot == null ? null : snapshot.leadId(), session.currentLeadId),
+        firstNonBlank(uniqueIdHint, snapshot == null ? null : snapshot.uniqueId()),
+        snapshot == null ? null : firstNonBlank(snapshot.channel()),
+        firstNonBlank(phoneNumberHint, snapshot == null ? null : snapshot.phoneNumber()),
+        stepResult("listId", listIdStep, details)
     );
+    PostCallSyncResult result = runPostCallSteps(agentUser, session, resolvedCampaign, basePayload, identifiers, Set.of(),
+        dispo, callbacksStep, updateSettingsStep, details, timings, startedAt);
+    if (result.synced()) {
+      credentialService.updateDialRuntime(agentUser, null, null, null);
+    }
+    return result;
+  }
 
-    String callId = firstNonBlank(callIdHint, snapshot.callId(), session.currentCallId);
-    Long leadId = firstNonNull(leadIdHint, snapshot.leadId(), session.currentLeadId);
-    String uniqueId = firstNonBlank(uniqueIdHint, snapshot.uniqueId());
-    String channel = firstNonBlank(snapshot.channel());
-    String phoneNumber = firstNonBlank(phoneNumberHint, snapshot.phoneNumber());
+  /**
+   * Retry of {@link #syncPostCallDisposition} for a call that is already over. Uses only the identifiers stored by the
+   * earlier attempt (no realtime snapshot, so the agent's next call cannot leak in) and skips the steps in
+   * {@code completedSteps}: log end and update dispo are not idempotent in Vicidial and must not be sent twice.
+   * Callbacks count and update settings belong to the live screen and are not repeated; the dial runtime is left alone.
+   */
+  public PostCallSyncResult resumePostCallDisposition(
+      String agentUser,
+      String agentPass,
+      AgentVicidialCredentialEntity session,
+      String campaignId,
+      PostCallIdentifiers identifiers,
+      Set<String> completedSteps,
+      String dispo
+  ) {
+    Map<String, Object> details = new LinkedHashMap<>();
+    if (!StringUtils.hasText(agentPass)) {
+      return new PostCallSyncResult(false, null, "Missing agent_pass", details, identifiers, completedSteps);
+    }
+    long startedAt = System.nanoTime();
+    String resolvedCampaign = firstNonBlank(campaignId, session.connectedCampaign);
+    Map<String, String> basePayload = buildAgentRuntimePayload(agentUser, agentPass, session, resolvedCampaign);
+    details.put("resumedAfter", new TreeSet<>(completedSteps));
+    return runPostCallSteps(agentUser, session, resolvedCampaign, basePayload, identifiers, completedSteps, dispo,
+        CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null), details,
+        new ConcurrentHashMap<>(), startedAt);
+  }
+
+  private PostCallSyncResult runPostCallSteps(
+      String agentUser,
+      AgentVicidialCredentialEntity session,
+      String resolvedCampaign,
+      Map<String, String> basePayload,
+      PostCallIdentifiers ids,
+      Set<String> completedSteps,
+      String dispo,
+      CompletableFuture<VicidialClient.VicidialHttpResult> callbacksStep,
+      CompletableFuture<VicidialClient.VicidialHttpResult> updateSettingsStep,
+      Map<String, Object> details,
+      Map<String, Long> timings,
+      long startedAt
+  ) {
     String confExten = normalizeConfExten(session.confExten, session.connectedPhoneLogin);
-    String listId = resolveManualDialListId(resolvedCampaign).orElse(null);
-    String recordingFilename = buildRecordingFilename(phoneNumber, callId, uniqueId);
+    String recordingFilename = buildRecordingFilename(ids.phoneNumber(), ids.callId(), ids.uniqueId());
 
-    details.put("callId", callId);
-    details.put("leadId", leadId);
-    details.put("uniqueId", uniqueId);
-    details.put("channel", channel);
+    details.put("callId", ids.callId());
+    details.put("leadId", ids.leadId());
+    details.put("uniqueId", ids.uniqueId());
+    details.put("channel", ids.channel());
     details.put("campaign", resolvedCampaign);
     details.put("recordingFilename", recordingFilename);
 
-    if (leadId == null) {
-      return new PostCallSyncResult(false, recordingFilename, "Missing lead_id", details);
+    if (ids.leadId() == null) {
+      settle(callbacksStep, updateSettingsStep);
+      putHttpStatus("callbacksCount", callbacksStep, details);
+      putHttpStatus("updateSettings", updateSettingsStep, details);
+      putTimings(details, timings, startedAt);
+      return new PostCallSyncResult(false, recordingFilename, "Missing lead_id", details, ids, completedSteps);
     }
 
-    var callbacksResult = client.callbacksCount(agentUser, basePayload);
-    details.put("callbacksCountHttpStatus", callbacksResult.statusCode());
-
     Map<String, String> logEndPayload = buildLogPayload(
         basePayload,
         session,
-        callId,
-        leadId,
-        uniqueId,
-        channel,
-        phoneNumber,
+        ids.callId(),
+        ids.leadId(),
+        ids.uniqueId(),
+        ids.channel(),
+        ids.phoneNumber(),
         resolvedCampaign,
-        listId
+        ids.listId()
     );
     if (StringUtils.hasText(dispo)) {
       logEndPayload.put("status", dispo);
     }
-    var logEndResult = client.manualDialLogCall(agentUser, logEndPayload, "end");
-    details.put("logEndHttpStatus", logEndResult.statusCode());
-
-    Map<String, String> updateLeadPayload = buildUpdateLeadPayload(basePayload, leadId, phoneNumber, resolvedCampaign);
-    var updateLeadResult = client.updateLead(agentUser, updateLeadPayload);
-    details.put("updateLeadHttpStatus", updateLeadResult.statusCode());
-
+    Map<String, String> updateLeadPayload = buildUpdateLeadPayload(basePayload, ids.leadId(), ids.phoneNumber(), resolvedCampaign);
     Map<String, String> updateDispoPayload = buildUpdateDispoPayload(
         basePayload,
         session,
         resolvedCampaign,
-        callId,
-        leadId,
-        uniqueId,
-        channel,
-        phoneNumber,
-        listId,
+        ids.callId(),
+        ids.leadId(),
+        ids.uniqueId(),
+        ids.channel(),
+        ids.phoneNumber(),
+        ids.listId(),
         firstNonBlank(dispo, "N"),
         confExten
     );
-    var updateDispoResult = client.updateDispo(agentUser, updateDispoPayload);
-    details.put("updateDispoHttpStatus", updateDispoResult.statusCode());
-
     Map<String, String> runUrlsPayload = buildRunUrlsPayload(basePayload, resolvedCampaign);
-    var runUrlsResult = client.runUrls(agentUser, runUrlsPayload);
-    details.put("runUrlsHttpStatus", runUrlsResult.statusCode());
 
-    var updateSettingsResult = client.updateSettings(agentUser, basePayload);
-    details.put("updateSettingsHttpStatus", updateSettingsResult.statusCode());
+    Set<String> done = ConcurrentHashMap.newKeySet();
+    done.addAll(completedSteps);
+    var updateLeadStep = postCallStep(STEP_UPDATE_LEAD, done, timings, () -> client.updateLead(agentUser, updateLeadPayload));
+    var logEndStep = postCallStep(STEP_LOG_END, done, timings, () -> client.manualDialLogCall(agentUser, logEndPayload, "end"));
+    var updateDispoStep = afterSettled(logEndStep, () ->
+        postCallStep(STEP_UPDATE_DISPO, done, timings, () -> client.updateDispo(agentUser, updateDispoPayload)));
+    var runUrlsStep = afterSettled(updateDispoStep, () ->
+        postCallStep(STEP_RUN_URLS, done, timings, () -> client.runUrls(agentUser, runUrlsPayload)));
+
+    settle(callbacksStep, updateSettingsStep, updateLeadStep, logEndStep, updateDispoStep, runUrlsStep);
+    putHttpStatus("callbacksCount", callbacksStep, details);
+    putHttpStatus(STEP_LOG_END, logEndStep, details);
+    putHttpStatus(STEP_UPDATE_LEAD, updateLeadStep, details);
+    putHttpStatus(STEP_UPDATE_DISPO, updateDispoStep, details);
+    putHttpStatus(STEP_RUN_URLS, runUrlsStep, details);
+    putHttpStatus("updateSettings", updateSettingsStep, details);
+    details.put("completedSteps", new TreeSet<>(done));
+    putTimings(details, timings, startedAt);
+
+    Set<String> completed = Set.copyOf(done);
+    String pendingStep = SYNC_REQUIRED_STEPS.stream().filter(step -> !completed.contains(step)).findFirst().orElse(null);
+    if (pendingStep == null) {
+      return new PostCallSyncResult(true, recordingFilename, null, details, ids, completed);
+    }
+    return new PostCallSyncResult(false, recordingFilename, "Post-call AGC sequence failed at " + pendingStep, details,
+        ids, completed);
+  }
+
+  /**
+   * One resumable post-call step: already-completed steps are skipped (null result), and the step is added to
+   * {@code done} once Vicidial answers below 400.
+   */
+  private CompletableFuture<VicidialClient.VicidialHttpResult> postCallStep(
+      String name,
+      Set<String> done,
+      Map<String, Long> timings,
+      Supplier<VicidialClient.VicidialHttpResult> call
+  ) {
+    if (done.contains(name)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return timedStep(name, timings, call).thenApply(result -> {
+      if (result != null && result.statusCode() < 400) {
+        done.add(name);
+      }
+      return result;
+    });
+  }
 
-    boolean synced = updateLeadResult.statusCode() < 400
-        && updateDispoResult.statusCode() < 400
-        && runUrlsResult.statusCode() < 400;
-    if (synced) {
-      credentialService.updateDialRuntime(agentUser, null, null, null);
-      return new PostCallSyncResult(true, recordingFilename, null, details);
+  /**
+   * Starts the next step of the dispo chain once the previous one has settled, whatever its outcome: Vicidial still
+   * needs the disposition when the log end failed.
+   */
+  private static CompletableFuture<VicidialClient.VicidialHttpResult> afterSettled(
+      CompletableFuture<VicidialClient.VicidialHttpResult> previous,
+      Supplier<CompletableFuture<VicidialClient.VicidialHttpResult>> next
+  ) {
+    return previous.handle((result, ex) -> null).thenCompose(ignored -> next.get());
+  }
+
+  /** Runs one post-call step on the Vicidial executor (inline when it is saturated) and records its duration. */
+  private <T> CompletableFuture<T> timedStep(String name, Map<String, Long> timings, Supplier<T> work) {
+    Supplier<T> timed = () -> {
+      long started = System.nanoTime();
+      try {
+        return work.get();
+      } finally {
+        timings.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      }
+    };
+    try {
+      return CompletableFuture.supplyAsync(timed, executor);
+    } catch (RejectedExecutionException ex) {
+      try {
+        return CompletableFuture.completedFuture(timed.get());
+      } catch (RuntimeException stepEx) {
+        return CompletableFuture.failedFuture(stepEx);
+      }
     }
-    return new PostCallSyncResult(false, recordingFilename, "Post-call AGC sequence failed", details);
+  }
+
+  /** Waits until every step has finished, successfully or not, so no step is still writing when results are read. */
+  private static void settle(CompletableFuture<?>... steps) {
+    CompletableFuture.allOf(steps).handle((ignored, ex) -> null).join();
+  }
+
+  /** Result of a settled step, or null with {@code <name>Error} recorded in details when the step threw. */
+  private <T> T stepResult(String name, CompletableFuture<T> step, Map<String, Object> details) {
+    try {
+      return step.join();
+    } catch (CompletionException | CancellationException ex) {
+      Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+      details.put(name + "Error", firstNonBlank(cause.getMessage(), cause.getClass().getSimpleName()));
+      return null;
+    }
+  }
+
+  /**
+   * Records {@code <name>HttpStatus} (or {@code <name>Error}); nothing for a step that was skipped (null result). True
+   * when the step answered below 400.
+   */
+  private boolean putHttpStatus(String name, CompletableFuture<VicidialClient.VicidialHttpResult> step,
+                                       Map<String, Object> details) {
+    VicidialClient.VicidialHttpResult result = stepResult(name, step, details);
+    if (result == null) {
+      return false;
+    }
+    details.put(name + "HttpStatus", result.statusCode());
+    return result.statusCode() < 400;
+  }
+
+  private static void putTimings(Map<String, Object> details, Map<String, Long> timings, long startedAt) {
+    details.put("stepTimingsMs", new TreeMap<>(timings));
+    details.put("totalMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
   }
 
   public LogoutFlowResult logoutAgentSession(
@@ -655,6 +899,11 @@ public class VicidialService {
 
   public ActiveLeadState classifyActiveLead(String agentUser, AgentVicidialCredentialEntity session) {
     RealtimeCallSnapshot snapshot = resolveRealtimeCallSnapshot(agentUser, session, session.currentCallId, session.currentLeadId, null, session.connectedCampaign, true);
+    return classifyActiveLead(agentUser, session, snapshot);
+  }
+
+  /** Classifies an already resolved snapshot and records the dial runtime it implies. */
+  public ActiveLeadState classifyActiveLead(String agentUser, AgentVicidialCredentialEntity session, RealtimeCallSnapshot snapshot) {
     if (snapshot.reloginRequired()) {
       return ActiveLeadState.relogin(snapshot.httpStatus(), "");
     }
@@ -823,7 +1072,7 @@ public class VicidialService {
   public RuntimeLeadResolution resolveLeadFromRuntimeTables(AgentVicidialCredentialEntity session, String callId, String phoneNumber) {
     JdbcTemplate jdbc;
     try {
-      jdbc = new JdbcTemplate(dataSourceFactory.getOrCreate());
+      jdbc = new JdbcTemplate(dataSourceFactory.runtimeDataSource(VicidialRuntimeDataSourceFactory.Workload.CALL_STATE));
     } catch (Exception ex) {
       log.warn("Vicidial runtime datasource unavailable cause={}", ex.getClass().getSimpleName());
       return RuntimeLeadResolution.empty();
@@ -1474,16 +1723,8 @@ public class VicidialService {
     if (!StringUtils.hasText(safeBody)) {
       return null;
     }
-    String[] patterns = new String[]{
-        "(?im)\\bLogged-?in\\s*[:=]\\s*([A-Z_]+)\\b",
-        "(?im)\\bStatus\\s*[:=]\\s*([A-Z_]+)\\b",
-        "(?im)\\blast_VDRP_stage\\s*[:=]\\s*([A-Z_]+)\\b",
-        "(?im)\\bagent_status\\s*[:=]\\s*([A-Z_]+)\\b",
-        "(?im)\\b(?:var\\s+)?status\\s*=\\s*['\\\"]?([A-Z_]+)['\\\"]?\\s*;?",
-        "(?im)\\b(?:var\\s+)?last_VDRP_stage\\s*=\\s*['\\\"]?([A-Z_]+)['\\\"]?\\s*;?"
-    };
-    for (String regex : patterns) {
-      Matcher matcher = Pattern.compile(regex).matcher(safeBody);
+    for (Pattern pattern : AGENT_STATUS_PATTERNS) {
+      Matcher matcher = pattern.matcher(safeBody);
       if (matcher.find()) {
         String status = Objects.toString(matcher.group(1), "").trim();
         if (StringUtils.hasText(status)) {
@@ -1499,13 +1740,8 @@ public class VicidialService {
     if (!StringUtils.hasText(safeBody)) {
       return null;
     }
-    String[] patterns = new String[]{
-        "(?im)\\buniqueid\\s*[:=]\\s*([0-9]{8,}\\.[0-9]+)\\b",
-        "(?im)^\\s*([0-9]{8,}\\.[0-9]+)\\s+(?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/",
-        "(?im)^\\s*([0-9]{8,}\\.[0-9]+)\\s*$"
-    };
-    for (String regex : patterns) {
-      Matcher matcher = Pattern.compile(regex).matcher(safeBody);
+    for (Pattern pattern : UNIQUE_ID_PATTERNS) {
+      Matcher matcher = pattern.matcher(safeBody);
       if (matcher.find()) {
         String value = Objects.toString(matcher.group(1), "").trim();
         if (StringUtils.hasText(value)) {
@@ -1521,14 +1757,8 @@ public class VicidialService {
     if (!StringUtils.hasText(safeBody)) {
       return null;
     }
-    String[] patterns = new String[]{
-        "(?im)\\bchannel\\s*[:=]\\s*((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)",
-        "(?im)^[0-9]{8,}\\.[0-9]+\\s+((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)",
-        "(?im)^\\s*((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|]+)\\s*$",
-        "(?im)(?:^|[|\\s])((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|~]+)"
-    };
-    for (String regex : patterns) {
-      Matcher matcher = Pattern.compile(regex).matcher(safeBody);
+    for (Pattern pattern : CHANNEL_PATTERNS) {
+      Matcher matcher = pattern.matcher(safeBody);
       if (matcher.find()) {
         String value = Objects.toString(matcher.group(1), "").trim();
         if (StringUtils.hasText(value)) {
@@ -1549,7 +1779,7 @@ public class VicidialService {
     if (!StringUtils.hasText(safeBody)) {
       return null;
     }
-    Matcher matcher = Pattern.compile("(?im)((?:SIP|PJSIP|IAX2?|Local|DAHDI|Zap|Agent)/[^\\s|~]+)").matcher(safeBody);
+    Matcher matcher = OUTBOUND_CHANNEL_PATTERN.matcher(safeBody);
     String fallback = null;
     while (matcher.find()) {
       String candidate = Objects.toString(matcher.group(1), "").trim();
@@ -1720,8 +1950,21 @@ public class VicidialService {
     if (StringUtils.hasText(value)) {
       return value;
     }
-    var matcher = java.util.regex.Pattern.compile(key + "=([^&\\n]+)").matcher(Objects.toString(raw, ""));
-    return matcher.find() ? matcher.group(1) : "";
+    String body = Objects.toString(raw, "");
+    String marker = key + "=";
+    int from = body.indexOf(marker);
+    while (from >= 0) {
+      int start = from + marker.length();
+      int end = start;
+      while (end < body.length() && body.charAt(end) != '&' && body.charAt(end) != '\n') {
+        end++;
+      }
+      if (end > start) {
+        return body.substring(start, end);
+      }
+      from = body.indexOf(marker, from + 1);
+    }
+    return "";
   }
 
   private Long extractLong(String raw, String key) {
@@ -1789,14 +2032,6 @@ public class VicidialService {
     return null;
   }
 
-  private void sleepQuietly(long millis) {
-    try {
-      Thread.sleep(millis);
-    } catch (InterruptedException ignored) {
-      Thread.currentThread().interrupt();
-    }
-  }
-
   private boolean isDevEnvironment() {
     boolean profileDev = Arrays.stream(environment.getActiveProfiles()).anyMatch("dev"::equalsIgnoreCase);
     String appEnv = environment.getProperty("APP_ENV", environment.getProperty("app.env", ""));
@@ -1809,6 +2044,61 @@ public class VicidialService {
   public record DialNextResult(String callId, Long leadId, String classification) {
   }
 
+  /** Mutable state of one manual-dial follow-up, threaded through start, probe and complete. */
+  public static final class ManualDialFollowUp {
+    private final String agentUser;
+    private final String agentPass;
+    private final AgentVicidialCredentialEntity session;
+    private final String campaignId;
+    private final Map<String, String> basePayload;
+    private final String normalizedConfExten;
+    private final String normalizedMonitorExten;
+    private final Map<String, Object> details = new LinkedHashMap<>();
+    private String callId;
+    private Long leadId;
+    private String phoneNumber;
+    private String listId;
+    private String leadStatus;
+    private String agentStatus;
+    private String uniqueId;
+    private String channel;
+    private boolean lookCallConsistent;
+
+    private ManualDialFollowUp(
+        String agentUser,
+        String agentPass,
+        AgentVicidialCredentialEntity session,
+        String campaignId,
+        Map<String, String> basePayload,
+        String normalizedConfExten,
+        String normalizedMonitorExten
+    ) {
+      this.agentUser = agentUser;
+      this.agentPass = agentPass;
+      this.session = session;
+      this.campaignId = campaignId;
+      this.basePayload = basePayload;
+      this.normalizedConfExten = normalizedConfExten;
+      this.normalizedMonitorExten = normalizedMonitorExten;
+    }
+
+    public String agentUser() {
+      return agentUser;
+    }
+
+    public String callId() {
+      return callId;
+    }
+
+    public Long leadId() {
+      return leadId;
+    }
+
+    public String phoneNumber() {
+      return phoneNumber;
+    }
+  }
+
   public record DialFollowUpResult(
       boolean incallConfirmed,
       String classification,
@@ -1855,7 +2145,23 @@ public class VicidialService {
       boolean synced,
       String recordingFilename,
       String error,
-      Map<String, Object> details
+      Map<String, Object> details,
+      PostCallIdentifiers identifiers,
+      Set<String> completedSteps
+  ) {
+    public PostCallSyncResult(boolean synced, String recordingFilename, String error, Map<String, Object> details) {
+      this(synced, recordingFilename, error, details, null, Set.of());
+    }
+  }
+
+  /** Call identifiers the post-call sequence was built from; stored so a retry never re-reads the agent's live call. */
+  public record PostCallIdentifiers(
+      String callId,
+      Long leadId,
+      String uniqueId,
+      String channel,
+      String phoneNumber,
+      String listId
   ) {
   }
 
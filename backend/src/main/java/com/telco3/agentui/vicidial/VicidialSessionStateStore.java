@@ -0,0 +1,68 @@
+package com.telco3.agentui.vicidial;
+
+import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cluster-visible AGC cookie jars per Vicidial agent, so any backend replica can continue an agent's AGC session.
+ * Selected with {@code app.vicidial.session-store} ({@code local} or {@code postgres}); each node keeps a near-cache
+ * in {@link VicidialCookieSessionStore}.
+ */
+public interface VicidialSessionStateStore {
+
+  Optional<SharedCookies> load(String agentUser, Duration maxAge);
+
+  /** Current revision for the agent, or {@code -1} when nothing is stored. */
+  long revision(String agentUser);
+
+  /** Stores the cookie jar and returns the new revision. */
+  long save(String agentUser, List<StoredCookie> cookies);
+
+  /** Marks the agent's jar as still in use without changing its revision. */
+  void touch(String agentUser);
+
+  void delete(String agentUser);
+
+  int purgeOlderThan(Duration maxAge);
+
+  record SharedCookies(long revision, List<StoredCookie> cookies) {
+  }
+
+  record StoredCookie(String name, String value, String domain, String path, Instant expiresAt,
+                      boolean secure, boolean httpOnly, boolean hostOnly) {
+
+    static StoredCookie from(Cookie cookie) {
+      return new StoredCookie(
+          cookie.getName(),
+          cookie.getValue(),
+          cookie.getDomain(),
+          cookie.getPath(),
+          cookie.getExpiryInstant(),
+          cookie.isSecure(),
+          cookie.isHttpOnly(),
+          !cookie.containsAttribute(Cookie.DOMAIN_ATTR)
+      );
+    }
+
+    BasicClientCookie toCookie() {
+      BasicClientCookie cookie = new BasicClientCookie(name, value);
+      cookie.setDomain(domain);
+      cookie.setPath(path);
+      cookie.setExpiryDate(expiresAt);
+      cookie.setSecure(secure);
+      cookie.setHttpOnly(httpOnly);
+      if (!hostOnly && domain != null) {
+        cookie.setAttribute(Cookie.DOMAIN_ATTR, domain);
+      }
+      if (path != null) {
+        cookie.setAttribute(Cookie.PATH_ATTR, path);
+      }
+      return cookie;
+    }
+  }
+}
@@ -29,6 +29,9 @@ public class AgentVicidialCredentialEntity {
   public String lastCampaign;
   public boolean rememberCredentials = true;
   public boolean connected;
+  public boolean phoneConnected;
+  public String phoneLogin;
+  public String manualDialListId;
   public String connectedPhoneLogin;
   public String connectedCampaign;
   public String connectedMode;
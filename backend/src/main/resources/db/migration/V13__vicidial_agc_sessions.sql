@@ -0,0 +1,11 @@
+CREATE SEQUENCE IF NOT EXISTS vicidial_agc_sessions_revision_seq;
+
+CREATE TABLE IF NOT EXISTS vicidial_agc_sessions (
+  agent_user VARCHAR(120) PRIMARY KEY,
+  cookies_json TEXT NOT NULL,
+  revision BIGINT NOT NULL,
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS ix_vicidial_agc_sessions_updated_at
+  ON vicidial_agc_sessions(updated_at);
@@ -0,0 +1,26 @@
+CREATE TABLE IF NOT EXISTS vicidial_disposition_outbox (
+  id BIGSERIAL PRIMARY KEY,
+  idempotency_key VARCHAR(255) NOT NULL UNIQUE,
+  gestion_id BIGINT NOT NULL REFERENCES gestiones_llamadas(id),
+  interaccion_id BIGINT REFERENCES interacciones(id),
+  agent_user VARCHAR(120) NOT NULL,
+  campana VARCHAR(120),
+  lead_id BIGINT NOT NULL,
+  call_id VARCHAR(120),
+  unique_id VARCHAR(120),
+  telefono VARCHAR(40),
+  disposicion VARCHAR(60) NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+  attempts INTEGER NOT NULL DEFAULT 0,
+  next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  last_error TEXT,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  synced_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS ix_vicidial_disposition_outbox_due
+  ON vicidial_disposition_outbox(next_attempt_at)
+  WHERE status IN ('PENDING', 'IN_PROGRESS');
+
+CREATE INDEX IF NOT EXISTS ix_vicidial_disposition_outbox_gestion_id
+  ON vicidial_disposition_outbox(gestion_id);
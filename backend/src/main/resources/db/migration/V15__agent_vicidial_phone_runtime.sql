@@ -0,0 +1,4 @@
+ALTER TABLE agent_vicidial_credentials
+  ADD COLUMN IF NOT EXISTS phone_connected BOOLEAN NOT NULL DEFAULT FALSE,
+  ADD COLUMN IF NOT EXISTS phone_login VARCHAR(40),
+  ADD COLUMN IF NOT EXISTS manual_dial_list_id VARCHAR(40);
@@ -0,0 +1,4 @@
+ALTER TABLE vicidial_disposition_outbox
+  ADD COLUMN IF NOT EXISTS channel VARCHAR(255),
+  ADD COLUMN IF NOT EXISTS list_id VARCHAR(40),
+  ADD COLUMN IF NOT EXISTS completed_steps VARCHAR(120);
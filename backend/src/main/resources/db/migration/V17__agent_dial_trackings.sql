@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS agent_dial_trackings (
+  tracking_id VARCHAR(36) PRIMARY KEY,
+  agent_user VARCHAR(120) NOT NULL,
+  node_id VARCHAR(36) NOT NULL,
+  state VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+  attempts INTEGER NOT NULL DEFAULT 0,
+  outcome_json TEXT,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  finished_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS ix_agent_dial_trackings_finished_at
+  ON agent_dial_trackings(finished_at);
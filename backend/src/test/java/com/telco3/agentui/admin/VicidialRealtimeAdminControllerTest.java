@@ -0,0 +1,46 @@
+package com.telco3.agentui.admin;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VicidialRealtimeAdminControllerTest {
+  private final VicidialRealtimeAdminService service = mock(VicidialRealtimeAdminService.class);
+  private final VicidialRealtimeAdminController controller = new VicidialRealtimeAdminController(service, mock(VicidialRealtimeStreamService.class));
+
+  @Test
+  void fullRosterCarriesVersionAsEtagAndHonoursIfNoneMatch() {
+    when(service.agents(null, null, null, null)).thenReturn(new VicidialRealtimeAdminService.RealtimeAgentsResponse(List.of(), 0, OffsetDateTime.now(), 42));
+
+    var first = controller.agents(null, null, null, null, null, null);
+    assertEquals(HttpStatus.OK, first.getStatusCode());
+    assertEquals("\"42\"", first.getHeaders().getETag());
+
+    var revalidated = controller.agents(null, null, null, null, null, "\"42\"");
+    assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+    assertNull(revalidated.getBody());
+  }
+
+  @Test
+  void sinceReturnsNotModifiedWhenNothingChangedAndDeltaOtherwise() {
+    when(service.agentsDelta(42L, "CAMP1", null, null, null))
+        .thenReturn(new VicidialRealtimeAdminService.RealtimeAgentsDelta(43, 42L, false, List.of(), List.of(), 5, OffsetDateTime.now()));
+    when(service.agentsDelta(40L, "CAMP1", null, null, null))
+        .thenReturn(new VicidialRealtimeAdminService.RealtimeAgentsDelta(43, 40L, false, List.of(), List.of("agent9"), 5, OffsetDateTime.now()));
+
+    var unchanged = controller.agents("CAMP1", null, null, null, 42L, null);
+    assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+    assertEquals("\"43\"", unchanged.getHeaders().getETag());
+
+    var changed = controller.agents("CAMP1", null, null, null, 40L, null);
+    assertEquals(HttpStatus.OK, changed.getStatusCode());
+    var delta = assertInstanceOf(VicidialRealtimeAdminService.RealtimeAgentsDelta.class, changed.getBody());
+    assertEquals(List.of("agent9"), delta.removed());
+  }
+}
@@ -0,0 +1,97 @@
+package com.telco3.agentui.admin;
+
+import com.telco3.agentui.vicidial.VicidialRealtimeQueryService;
+import com.telco3.agentui.vicidial.VicidialRealtimeSnapshotEngine;
+import com.telco3.agentui.vicidial.VicidialRealtimeStatusMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VicidialRealtimeAdminServiceTest {
+  private static final OffsetDateTime STATE_SINCE = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(2);
+
+  private final VicidialRealtimeSnapshotEngine engine = mock(VicidialRealtimeSnapshotEngine.class);
+  private final VicidialRealtimeAdminService service = new VicidialRealtimeAdminService(
+      mock(VicidialRealtimeQueryService.class), engine, new VicidialRealtimeStatusMapper());
+
+  @Test
+  void agentsAreFilteredInMemoryFromSnapshot() {
+    when(engine.current()).thenReturn(snapshot(10,
+        agent("agent1", "CAMP1", "READY", null, "Ana Perez"),
+        agent("agent2", "CAMP2", "PAUSED", "BREAK", "Luis Soto"),
+        agent("agent3", "CAMP1", "PAUSED", "bano", "Rosa Diaz")));
+
+    assertEquals(List.of("agent1", "agent3"), users(service.agents("camp1", null, null, null).items()));
+    assertEquals(List.of("agent3"), users(service.agents(null, null, "BANO", null).items()));
+    assertEquals(List.of("agent2"), users(service.agents(null, null, null, "soto").items()));
+  }
+
+  @Test
+  void deltaOnlyCarriesChangedAndRemovedAgents() {
+    var base = snapshot(10,
+        agent("agent1", "CAMP1", "READY", null, "Ana"),
+        agent("agent2", "CAMP1", "READY", null, "Luis"),
+        agent("agent3", "CAMP1", "READY", null, "Rosa"));
+    var current = snapshot(11,
+        agent("agent1", "CAMP1", "READY", null, "Ana"),
+        agent("agent2", "CAMP1", "INCALL", null, "Luis"),
+        agent("agent4", "CAMP1", "READY", null, "Juan"));
+    when(engine.current()).thenReturn(current);
+    when(engine.snapshotAt(10)).thenReturn(Optional.of(base));
+
+    var delta = service.agentsDelta(10L, null, null, null, null);
+
+    assertFalse(delta.full());
+    assertEquals(11, delta.version());
+    assertEquals(10L, delta.baseVersion());
+    assertEquals(List.of("agent2", "agent4"), users(delta.upserts()));
+    assertEquals(List.of("agent3"), delta.removed());
+    assertEquals(3, delta.total());
+  }
+
+  @Test
+  void unknownVersionFallsBackToFullList() {
+    when(engine.current()).thenReturn(snapshot(11, agent("agent1", "CAMP1", "READY", null, "Ana")));
+    when(engine.snapshotAt(3)).thenReturn(Optional.empty());
+
+    var delta = service.agentsDelta(3L, null, null, null, null);
+
+    assertTrue(delta.full());
+    assertNull(delta.baseVersion());
+    assertEquals(List.of("agent1"), users(delta.upserts()));
+  }
+
+  @Test
+  void agentRowsCarryStateSinceAndTimeInStateAtCapture() {
+    var current = new VicidialRealtimeSnapshotEngine.RealtimeSnapshot(12, STATE_SINCE.plusSeconds(75), System.nanoTime(),
+        List.of(agent("agent1", "CAMP1", "READY", null, "Ana")), Map.of(),
+        new VicidialRealtimeQueryService.TodayMetrics(0, 0, 0, 0, 0));
+    when(engine.current()).thenReturn(current);
+
+    var item = service.agents(null, null, null, null).items().get(0);
+
+    assertEquals(STATE_SINCE, item.stateSince());
+    assertEquals(75, item.stateSeconds());
+  }
+
+  private List<String> users(List<VicidialRealtimeAdminService.RealtimeAgentItem> items) {
+    return items.stream().map(VicidialRealtimeAdminService.RealtimeAgentItem::agentUser).sorted().toList();
+  }
+
+  private VicidialRealtimeSnapshotEngine.RealtimeSnapshot snapshot(long version, VicidialRealtimeQueryService.RealtimeAgentRow... agents) {
+    return new VicidialRealtimeSnapshotEngine.RealtimeSnapshot(version, OffsetDateTime.now(ZoneOffset.UTC), System.nanoTime(),
+        List.of(agents), Map.of(), new VicidialRealtimeQueryService.TodayMetrics(0, 0, 0, 0, 0));
+  }
+
+  private VicidialRealtimeQueryService.RealtimeAgentRow agent(String user, String campaign, String status, String pauseCode, String name) {
+    return new VicidialRealtimeQueryService.RealtimeAgentRow(user, name, "SIP/" + user, campaign, status, pauseCode, null, null, null, null, STATE_SINCE, null);
+  }
+}
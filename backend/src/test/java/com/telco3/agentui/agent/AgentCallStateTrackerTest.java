@@ -0,0 +1,147 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
+import com.telco3.agentui.vicidial.VicidialClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class AgentCallStateTrackerTest {
+  private final VicidialService vicidialService = mock(VicidialService.class);
+  private final AgentSessionGuardService sessionGuardService = mock(AgentSessionGuardService.class);
+  private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+  private final AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+  private AgentCallStateTracker tracker;
+
+  @BeforeEach
+  void setUp() {
+    session.agentUser = "agent1";
+    session.connectedCampaign = "MANUAL01";
+    when(sessionGuardService.requireConnectedSession("agent1")).thenReturn(session);
+    tracker = new AgentCallStateTracker(vicidialService, new VicidialAsyncClient(mock(VicidialClient.class), Runnable::run),
+        sessionGuardService, 1000, 2500, 6000, 30000, 60000, nanos::get);
+  }
+
+  @AfterEach
+  void tearDown() {
+    tracker.shutdown();
+  }
+
+  @Test
+  void servesActiveLeadAndContextFromOneRefresh() {
+    stubState("INCALL", VicidialService.ActiveLeadState.dialing("call-1"));
+
+    var first = tracker.current("agent1", session).join();
+    var second = tracker.current("agent1", session).join();
+
+    assertSame(first, second);
+    assertTrue(second.activeLead().dialing());
+    assertEquals("INCALL", second.snapshot().agentStatus());
+    verify(vicidialService, times(1)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+  }
+
+  @Test
+  void backgroundCadenceFollowsAgentState() {
+    stubState("PAUSED", VicidialService.ActiveLeadState.none(200, "AGENT_PAUSED", ""));
+    tracker.current("agent1", session).join();
+
+    advanceMs(2500);
+    tracker.tick();
+    verify(vicidialService, times(1)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+
+    advanceMs(3500);
+    stubState("INCALL", VicidialService.ActiveLeadState.dialing("call-1"));
+    tracker.tick();
+    verify(vicidialService, times(2)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+
+    advanceMs(1000);
+    tracker.tick();
+    verify(vicidialService, times(3)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+  }
+
+  @Test
+  void invalidateForcesRefreshAndIdleAgentsAreDropped() {
+    stubState("READY", VicidialService.ActiveLeadState.none(200, "NO_ACTIVE_CALL", ""));
+    tracker.current("agent1", session).join();
+
+    tracker.invalidate("agent1");
+    tracker.current("agent1", session).join();
+    verify(vicidialService, times(2)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+
+    advanceMs(30001);
+    tracker.tick();
+    assertEquals(0, tracker.trackedAgents());
+  }
+
+  @Test
+  void failedRefreshesBackOffInsteadOfRetryingEveryTick() {
+    stubState("INCALL", VicidialService.ActiveLeadState.dialing("call-1"));
+    tracker.current("agent1", session).join();
+    when(vicidialService.resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean()))
+        .thenThrow(new IllegalStateException("vicidial down"));
+
+    advanceMs(1000);
+    tracker.tick();
+    for (int i = 0; i < 3; i++) {
+      advanceMs(250);
+      tracker.tick();
+    }
+    verify(vicidialService, times(2)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+
+    advanceMs(250);
+    tracker.tick();
+    verify(vicidialService, times(3)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+
+    advanceMs(1500);
+    tracker.tick();
+    verify(vicidialService, times(3)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+    advanceMs(500);
+    tracker.tick();
+    verify(vicidialService, times(4)).resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean());
+    assertEquals(TimeUnit.SECONDS.toNanos(40), tracker.retryDelayNanos(null, 9));
+  }
+
+  @Test
+  void notifiesListenersOnlyWhenTheCallChanges() {
+    List<String> transitions = new ArrayList<>();
+    tracker.addListener((agentUser, previous, current) -> transitions.add(
+        (previous == null ? "-" : previous.snapshot().classification()) + ">" + current.snapshot().classification()));
+    stubState("INCALL", VicidialService.ActiveLeadState.dialing("call-1"));
+    tracker.current("agent1", session).join();
+    advanceMs(1000);
+    tracker.tick();
+
+    stubState("INCALL", VicidialService.ActiveLeadState.ready(77L, "999888777", "MANUAL01"));
+    advanceMs(1000);
+    tracker.tick();
+
+    assertEquals(List.of("->DIALING", "DIALING>SUCCESS"), transitions);
+  }
+
+  private void stubState(String agentStatus, VicidialService.ActiveLeadState state) {
+    var snapshot = new VicidialService.RealtimeCallSnapshot(false, 200, state.classification(), agentStatus,
+        state.callId(), state.leadId(), null, "MANUAL01", null, null, Map.of());
+    when(vicidialService.resolveRealtimeCallSnapshot(eq("agent1"), eq(session), any(), any(), isNull(), any(), anyBoolean()))
+        .thenReturn(snapshot);
+    when(vicidialService.classifyActiveLead("agent1", session, snapshot)).thenReturn(state);
+  }
+
+  private void advanceMs(long ms) {
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+  }
+}
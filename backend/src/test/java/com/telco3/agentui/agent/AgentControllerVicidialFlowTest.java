@@ -6,6 +6,7 @@ import com.telco3.agentui.domain.UserRepository;
 import com.telco3.agentui.legacy.CustomerPhoneRepository;
 import com.telco3.agentui.legacy.CustomerRepository;
 import com.telco3.agentui.legacy.InteractionRepository;
+import com.telco3.agentui.manual2.Manual2Service;
 import com.telco3.agentui.vicidial.*;
 import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
 import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
@@ -17,8 +18,11 @@ import org.springframework.security.core.Authentication;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 class AgentControllerVicidialFlowTest {
@@ -37,10 +41,10 @@ class AgentControllerVicidialFlowTest {
   @Test
   void activeLeadNoLeadClassificationReturnsBusinessCode() {
     Fixture f = fixtureConnected();
-    when(f.vicidialService.classifyActiveLead(eq("48373608"), any()))
+    when(f.vicidialService.classifyActiveLead(eq("48373608"), any(), any()))
         .thenReturn(VicidialService.ActiveLeadState.none(200, "NO_ACTIVE_LEAD", "no active lead", Map.of()));
 
-    Map<String, Object> response = f.controller.active(new UsernamePasswordAuthenticationToken("48373608", "n/a"));
+    Map<String, Object> response = f.controller.active(new UsernamePasswordAuthenticationToken("48373608", "n/a")).join();
 
     assertEquals(false, response.get("ok"));
     assertEquals("VICIDIAL_NO_ACTIVE_LEAD", response.get("code"));
@@ -49,11 +53,12 @@ class AgentControllerVicidialFlowTest {
   @Test
   void activeLeadReloginRequiredReturnsConflict() {
     Fixture f = fixtureConnected();
-    when(f.vicidialService.classifyActiveLead(eq("48373608"), any()))
+    when(f.vicidialService.classifyActiveLead(eq("48373608"), any(), any()))
         .thenReturn(VicidialService.ActiveLeadState.relogin(200, "<html>login</html>"));
 
-    VicidialServiceException ex = assertThrows(VicidialServiceException.class,
-        () -> f.controller.active(new UsernamePasswordAuthenticationToken("48373608", "n/a")));
+    CompletionException failure = assertThrows(CompletionException.class,
+        () -> f.controller.active(new UsernamePasswordAuthenticationToken("48373608", "n/a")).join());
+    VicidialServiceException ex = assertInstanceOf(VicidialServiceException.class, failure.getCause());
 
     assertEquals("VICIDIAL_RELOGIN_REQUIRED", ex.code());
     assertEquals(HttpStatus.CONFLICT, ex.status());
@@ -74,6 +79,9 @@ class AgentControllerVicidialFlowTest {
     session.sessionName = "session";
     session.agentLogId = 99L;
     when(f.agentVicidialCredentialRepository.findByAppUsername("48373608")).thenReturn(Optional.of(session));
+    when(f.vicidialService.resolveRealtimeCallSnapshot(eq("48373608"), eq(session), any(), any(), isNull(), eq("MANUAL01"), anyBoolean()))
+        .thenReturn(new VicidialService.RealtimeCallSnapshot(false, 200, "NO_ACTIVE_LEAD", "READY", null, null, null,
+            "MANUAL01", null, null, Map.of()));
     return f;
   }
 
@@ -95,10 +103,18 @@ class AgentControllerVicidialFlowTest {
     u.active = true;
     when(userRepository.findByUsernameAndActiveTrue("48373608")).thenReturn(Optional.of(u));
 
+    VicidialClient vicidialClient = mock(VicidialClient.class);
+    VicidialAsyncClient vicidialAsync = new VicidialAsyncClient(vicidialClient, Runnable::run);
+    AgentSessionGuardService sessionGuardService = new AgentSessionGuardService(userRepository, agentVicidialCredentialRepository);
+    AgentCallStateTracker callStateTracker = new AgentCallStateTracker(vicidialService, vicidialAsync, sessionGuardService,
+        1000, 2500, 6000, 30000, 60000);
+    AgentEventStreamService eventStreamService = mock(AgentEventStreamService.class);
+
     AgentController controller = new AgentController(
-        mock(VicidialClient.class), interactions, customers, phones, credentialService, vicidialSessionService,
-        userRepository, agentVicidialCredentialRepository, dialRequestBuilder, dialResponseParser,
-        new MockEnvironment(), vicidialService, false
+        vicidialClient, interactions, customers, phones, credentialService, vicidialSessionService,
+        sessionGuardService, agentVicidialCredentialRepository, dialRequestBuilder, dialResponseParser,
+        new MockEnvironment(), vicidialService, mock(AgentSessionLifecycleService.class), mock(Manual2Service.class),
+        vicidialAsync, callStateTracker, eventStreamService, mock(AgentDialFollowUpService.class), false
     );
     return new Fixture(controller, agentVicidialCredentialRepository, vicidialService);
   }
@@ -0,0 +1,130 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.VicidialServiceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AgentDialFollowUpServiceTest {
+
+  @Test
+  void confirmsAfterBackoffAndPublishesTheOutcome() throws Exception {
+    VicidialService vicidialService = mock(VicidialService.class);
+    VicidialService.ManualDialFollowUp followUp = followUp();
+    when(vicidialService.probeManualDial(eq(followUp), anyInt())).thenReturn(false, false, true);
+    when(vicidialService.completeManualDialFollowUp(followUp, true)).thenReturn(new VicidialService.DialFollowUpResult(
+        true, "READY", "M1", 77L, "1772.1", "SIP/trunk-1", "999888777", null, null, "INCALL", Map.of()));
+    AgentCallStateTracker tracker = mock(AgentCallStateTracker.class);
+    AgentEventStreamService events = mock(AgentEventStreamService.class);
+    var service = new AgentDialFollowUpService(vicidialService, inlineAsync(), tracker, events,
+        new LocalAgentDialTrackingStore(), 5, 10, 30, 2.0, 60000, 1000, System::nanoTime);
+
+    var started = service.start(followUp, result -> Map.of("ok", true, "callId", result.callId()));
+    assertEquals(AgentDialFollowUpService.DialState.PENDING, started.state());
+
+    var done = awaitFinal(service, started.trackingId());
+    assertEquals(AgentDialFollowUpService.DialState.CONFIRMED, done.state());
+    assertEquals(3, done.attempts());
+    assertEquals("M1", done.outcome().get("callId"));
+    verify(tracker).invalidate("agent1");
+    verify(events, timeout(1000)).publish(eq("agent1"), eq("dial"), any(AgentDialFollowUpService.DialTracking.class));
+    assertTrue(service.find("agent2", started.trackingId()).isEmpty());
+
+    assertEquals(10, service.delayAfter(1));
+    assertEquals(20, service.delayAfter(2));
+    assertEquals(30, service.delayAfter(3));
+    assertEquals(30, service.delayAfter(8));
+    service.shutdown();
+  }
+
+  @Test
+  void recordsNotConfirmedOutcomeAfterTheLastAttempt() throws Exception {
+    VicidialService vicidialService = mock(VicidialService.class);
+    VicidialService.ManualDialFollowUp followUp = followUp();
+    when(vicidialService.probeManualDial(eq(followUp), anyInt())).thenReturn(false);
+    when(vicidialService.completeManualDialFollowUp(followUp, false)).thenReturn(new VicidialService.DialFollowUpResult(
+        false, "AGENT_PAUSED", "M1", null, null, null, "999888777", null, null, "PAUSED", Map.of()));
+    var service = new AgentDialFollowUpService(vicidialService, inlineAsync(), mock(AgentCallStateTracker.class),
+        mock(AgentEventStreamService.class), new LocalAgentDialTrackingStore(), 2, 1, 1, 1.5, 60000, 1000, System::nanoTime);
+
+    var started = service.start(followUp, result -> {
+      throw new VicidialServiceException(HttpStatus.CONFLICT, "VICIDIAL_DIAL_NOT_CONFIRMED", "no confirmado", null,
+          Map.of("classification", result.classification()));
+    });
+
+    var done = awaitFinal(service, started.trackingId());
+    assertEquals(AgentDialFollowUpService.DialState.NOT_CONFIRMED, done.state());
+    assertEquals(false, done.outcome().get("ok"));
+    assertEquals("VICIDIAL_DIAL_NOT_CONFIRMED", done.outcome().get("code"));
+    assertEquals(Map.of("classification", "AGENT_PAUSED"), done.outcome().get("details"));
+    verify(vicidialService, times(2)).probeManualDial(eq(followUp), anyInt());
+    service.shutdown();
+  }
+
+  @Test
+  void relaysOutcomesFinishedOnAnotherNodeOnceToAgentsStreamingHere() {
+    AgentEventStreamService events = mock(AgentEventStreamService.class);
+    AgentDialTrackingStore store = mock(AgentDialTrackingStore.class);
+    var confirmed = new AgentDialFollowUpService.DialTracking("t-1", AgentDialFollowUpService.DialState.CONFIRMED, 3,
+        Map.of("ok", true));
+    when(events.subscribedAgents()).thenReturn(Set.of("agent1"));
+    when(store.finishedElsewhere(eq(Set.of("agent1")), any(), any()))
+        .thenReturn(List.of(new AgentDialTrackingStore.FinishedDial("agent1", confirmed)));
+    var service = new AgentDialFollowUpService(mock(VicidialService.class), inlineAsync(), mock(AgentCallStateTracker.class),
+        events, store, 2, 1, 1, 1.5, 60000, 1000, System::nanoTime);
+
+    service.relayFinishedElsewhere();
+    service.relayFinishedElsewhere();
+
+    verify(events, times(1)).publish("agent1", "dial", confirmed);
+    when(store.find("agent1", "t-1")).thenReturn(Optional.of(confirmed));
+    assertEquals(confirmed, service.find("agent1", "t-1").orElseThrow());
+    service.shutdown();
+  }
+
+  private VicidialService.ManualDialFollowUp followUp() {
+    VicidialService.ManualDialFollowUp followUp = mock(VicidialService.ManualDialFollowUp.class);
+    when(followUp.agentUser()).thenReturn("agent1");
+    return followUp;
+  }
+
+  @SuppressWarnings("unchecked")
+  private VicidialAsyncClient inlineAsync() {
+    VicidialAsyncClient async = mock(VicidialAsyncClient.class);
+    when(async.supply(any())).thenAnswer(invocation -> {
+      try {
+        return CompletableFuture.completedFuture(((Supplier<Object>) invocation.getArgument(0)).get());
+      } catch (RuntimeException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    });
+    return async;
+  }
+
+  private AgentDialFollowUpService.DialTracking awaitFinal(AgentDialFollowUpService service, String trackingId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 3000;
+    while (System.currentTimeMillis() < deadline) {
+      var tracking = service.find("agent1", trackingId).orElseThrow();
+      if (tracking.state() != AgentDialFollowUpService.DialState.PENDING) {
+        return tracking;
+      }
+      Thread.sleep(10);
+    }
+    fail("dial follow-up did not finish");
+    return null;
+  }
+}
@@ -0,0 +1,194 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.VicidialServiceException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class AgentEventStreamServiceTest {
+  private final AgentCallStateTracker callStateTracker = mock(AgentCallStateTracker.class);
+  private final AgentVicidialSessionService sessionService = mock(AgentVicidialSessionService.class);
+  private AgentEventStreamService service;
+
+  @AfterEach
+  void tearDown() {
+    if (service != null) {
+      service.shutdown();
+    }
+  }
+
+  @Test
+  void rejectsSubscribersOverTheLimitUntilOneLeaves() {
+    service = service(1);
+    SseEmitter first = service.subscribe("agent1", null);
+
+    VicidialServiceException ex = assertThrows(VicidialServiceException.class, () -> service.subscribe("agent2", null));
+    assertEquals("AGENT_EVENTS_BUSY", ex.code());
+    assertEquals(503, ex.status().value());
+    assertEquals(1, service.subscriberCount());
+
+    first.complete();
+    service.publish("agent1", "dial", Map.of("trackingId", "t-1"));
+    assertTimeoutPreemptively(java.time.Duration.ofSeconds(2), () -> {
+      while (service.subscriberCount() != 0) {
+        Thread.sleep(10);
+      }
+    });
+    assertNotNull(service.subscribe("agent2", null));
+  }
+
+  @Test
+  void sendsStatusFirstAndHeartbeatComments() throws Exception {
+    service = service(10);
+    MvcResult result = open(null);
+
+    awaitContent(result, "event:status");
+    assertTrue(content(result).startsWith("event:status"));
+    assertTrue(content(result).contains("retry:3000"));
+    service.heartbeat();
+    awaitContent(result, ":heartbeat");
+  }
+
+  @Test
+  void pushesStatusChangesFromTheCredentialRowWithoutProbingVicidial() throws Exception {
+    when(sessionService.sessionStatus("agent1")).thenReturn(Map.of("ok", true, "agentUser", "agent1", "phoneConnected", false));
+    service = service(10);
+    MvcResult result = open(null);
+    awaitContent(result, "\"phoneConnected\":false");
+
+    when(sessionService.sessionStatus("agent1")).thenReturn(Map.of("ok", true, "agentUser", "agent1", "campaign", "MANUAL01"));
+    service.checkStatus();
+
+    awaitContent(result, "MANUAL01");
+    verify(callStateTracker).keepAlive("agent1");
+    verify(sessionService, never()).status(any());
+  }
+
+  @Test
+  void completionAndTimeoutReleaseTheSubscriber() throws Exception {
+    service = service(10);
+    MvcResult completed = open(null);
+    MvcResult timedOut = open(null);
+    awaitContent(timedOut, "event:status");
+    assertEquals(2, service.subscriberCount());
+
+    ((MockAsyncContext) completed.getRequest().getAsyncContext()).complete();
+    assertEquals(1, service.subscriberCount());
+
+    MockAsyncContext asyncContext = (MockAsyncContext) timedOut.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+    assertEquals(0, service.subscriberCount());
+  }
+
+  @Test
+  void reconnectWithBufferedLastEventIdReplaysOnlyMissedEvents() throws Exception {
+    when(sessionService.sessionStatus("agent1")).thenReturn(Map.of("ok", true, "agentUser", "agent1", "campaign", "MANUAL01"));
+    when(callStateTracker.current(eq("agent1"), any())).thenReturn(CompletableFuture.completedFuture(
+        state("PAUSED", "PAUSED", VicidialService.ActiveLeadState.none(200, "PAUSED", ""), null)));
+    service = service(10);
+    MvcResult first = open(null);
+    awaitContent(first, "event:call");
+    service.publish("agent1", "dial", Map.of("trackingId", "t-1"));
+    awaitContent(first, "t-1");
+    String seen = content(first);
+    String lastId = seen.substring(seen.lastIndexOf("id:") + 3, seen.indexOf('\n', seen.lastIndexOf("id:")));
+    ((MockAsyncContext) first.getRequest().getAsyncContext()).complete();
+
+    service.publish("agent1", "dial", Map.of("trackingId", "t-2"));
+    MvcResult resumed = open(lastId);
+    awaitContent(resumed, "t-2");
+    assertFalse(content(resumed).contains("t-1"));
+    assertFalse(content(resumed).contains("event:call"));
+
+    MvcResult unknown = open("999999");
+    awaitContent(unknown, "event:call");
+    assertFalse(content(unknown).contains("trackingId"));
+  }
+
+  @Test
+  void flagsDialingToIncallTransition() {
+    var dialing = state("INCALL", "DIALING_NO_LEAD_YET", VicidialService.ActiveLeadState.dialing("call-1"), null);
+    var answered = state("INCALL", "READY", VicidialService.ActiveLeadState.ready(77L, "999888777", "MANUAL01"), 77L);
+
+    Map<String, Object> payload = AgentEventStreamService.callPayload(dialing, answered);
+
+    assertEquals("DIALING_TO_INCALL", payload.get("transition"));
+    assertEquals("DIALING_NO_LEAD_YET", payload.get("previousClassification"));
+    assertEquals(77L, payload.get("leadId"));
+    assertEquals(true, payload.get("hasLead"));
+    assertNull(AgentEventStreamService.callPayload(null, dialing).get("transition"));
+  }
+
+  private AgentEventStreamService service(int maxSubscribers) {
+    AgentEventStreamService created = new AgentEventStreamService(callStateTracker, sessionService, 60000, 60000, 60000, 3000,
+        maxSubscribers, 60000);
+    created.start();
+    return created;
+  }
+
+  private MvcResult open(String lastEventId) throws Exception {
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new EventsProbe(service)).build();
+    var request = get("/events");
+    if (lastEventId != null) {
+      request.header("Last-Event-ID", lastEventId);
+    }
+    return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+  }
+
+  private static String content(MvcResult result) throws Exception {
+    return result.getResponse().getContentAsString();
+  }
+
+  private static void awaitContent(MvcResult result, String expected) throws Exception {
+    long deadline = System.nanoTime() + 2_000_000_000L;
+    while (!content(result).contains(expected)) {
+      if (System.nanoTime() > deadline) {
+        fail("Missing '" + expected + "' in stream: " + content(result));
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @RestController
+  static class EventsProbe {
+    private final AgentEventStreamService service;
+
+    EventsProbe(AgentEventStreamService service) {
+      this.service = service;
+    }
+
+    @GetMapping("/events")
+    SseEmitter events(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+      return service.subscribe("agent1", lastEventId);
+    }
+  }
+
+  private AgentCallStateTracker.CallState state(String agentStatus, String classification,
+                                                VicidialService.ActiveLeadState activeLead, Long leadId) {
+    var snapshot = new VicidialService.RealtimeCallSnapshot(false, 200, classification, agentStatus, "call-1", leadId,
+        "999888777", "MANUAL01", null, null, Map.of());
+    return new AgentCallStateTracker.CallState(snapshot, activeLead, 0L, 1L);
+  }
+}
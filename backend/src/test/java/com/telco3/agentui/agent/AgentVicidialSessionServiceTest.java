@@ -1,20 +1,29 @@
 package com.telco3.agentui.agent;
 
+import com.telco3.agentui.domain.UserEntity;
+import com.telco3.agentui.domain.UserRepository;
 import com.telco3.agentui.vicidial.VicidialClient;
 import com.telco3.agentui.vicidial.VicidialCampaignParser;
 import com.telco3.agentui.vicidial.VicidialDiagnosticsService;
 import com.telco3.agentui.vicidial.VicidialService;
 import com.telco3.agentui.vicidial.VicidialServiceException;
 import com.telco3.agentui.vicidial.VicidialSessionClient;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.env.MockEnvironment;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -42,6 +51,9 @@ class AgentVicidialSessionServiceTest {
 
     when(sessionClient.connectPhone("48373608", "1001", "anexo_1001")).thenReturn("SUCCESS");
     service.connectPhone("48373608", "1001");
+    verify(credentialService).updatePhoneSession("48373608", "1001");
+    when(credentialService.runtimeState("48373608"))
+        .thenReturn(Optional.of(new VicidialCredentialService.AgentRuntimeState("1001", null, null, null)));
 
     when(credentialService.resolveAgentCredentials("48373608"))
         .thenReturn(new VicidialCredentialService.AgentVicidialCredentials("48373608", null, false, null));
@@ -68,8 +80,10 @@ class AgentVicidialSessionServiceTest {
 
     when(sessionClient.connectPhone("agent1", "1001", "anexo_1001")).thenReturn("SUCCESS");
     service.connectPhone("agent1", "1001");
+    when(credentialService.runtimeState("agent1"))
+        .thenReturn(Optional.of(new VicidialCredentialService.AgentRuntimeState("1001", null, null, null)));
 
-    when(credentialService.resolveAgentPass("agent1")).thenReturn(java.util.Optional.of("secret"));
+    when(credentialService.resolveAgentPass("agent1")).thenReturn(Optional.of("secret"));
     when(vicidialClient.connectToCampaign(eq("agent1"), eq("secret"), eq("1001"), eq("anexo_1001"), eq("MANUAL2"), any(), any()))
         .thenReturn(new VicidialClient.VicidialHttpResult(200, """
             <script>
@@ -117,8 +131,10 @@ class AgentVicidialSessionServiceTest {
 
     when(sessionClient.connectPhone("agent1", "1001", "anexo_1001")).thenReturn("SUCCESS");
     service.connectPhone("agent1", "1001");
+    when(credentialService.runtimeState("agent1"))
+        .thenReturn(Optional.of(new VicidialCredentialService.AgentRuntimeState("1001", null, null, null)));
 
-    when(credentialService.resolveAgentPass("agent1")).thenReturn(java.util.Optional.of("secret"));
+    when(credentialService.resolveAgentPass("agent1")).thenReturn(Optional.of("secret"));
     when(vicidialClient.connectToCampaign(eq("agent1"), eq("secret"), eq("1001"), eq("anexo_1001"), eq("MANUAL2"), any(), any()))
         .thenReturn(new VicidialClient.VicidialHttpResult(200, """
             <script>
@@ -135,7 +151,56 @@ class AgentVicidialSessionServiceTest {
 
     service.connectCampaign("agent1", "MANUAL2", true);
 
-    assertTrue(service.currentManualDialListId("agent1").isPresent());
-    assertEquals("998", service.currentManualDialListId("agent1").orElse(""));
+    verify(credentialService).updateManualDialListId("agent1", "998");
+  }
+
+  @Test
+  void phoneAndCampaignStateIsVisibleFromAnotherInstance() {
+    VicidialSessionClient sessionClient = mock(VicidialSessionClient.class);
+    VicidialClient vicidialClient = mock(VicidialClient.class);
+    VicidialDiagnosticsService diagnosticsService = mock(VicidialDiagnosticsService.class);
+    MockEnvironment env = new MockEnvironment();
+    Map<String, AgentVicidialCredentialEntity> rows = new ConcurrentHashMap<>();
+    AgentVicidialCredentialRepository repo = mock(AgentVicidialCredentialRepository.class);
+    when(repo.findByAppUsername(anyString())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+    when(repo.save(any())).thenAnswer(invocation -> {
+      AgentVicidialCredentialEntity entity = invocation.getArgument(0);
+      rows.put(entity.appUsername, entity);
+      return entity;
+    });
+    UserEntity user = new UserEntity();
+    user.username = "agent1";
+    UserRepository users = mock(UserRepository.class);
+    when(users.findByUsername("agent1")).thenReturn(Optional.of(user));
+    when(users.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    VicidialCredentialService credentials = new VicidialCredentialService(repo, users, "1234567890123456", env, 0);
+
+    AgentVicidialSessionService nodeA = new AgentVicidialSessionService(
+        sessionClient, vicidialClient, credentials, new VicidialCampaignParser(), diagnosticsService, env, vicidialService);
+    AgentVicidialSessionService nodeB = new AgentVicidialSessionService(
+        sessionClient, vicidialClient, credentials, new VicidialCampaignParser(), diagnosticsService, env, vicidialService);
+
+    assertThrows(IllegalStateException.class, () -> nodeB.connectCampaign("agent1", "MANUAL2", true));
+    when(sessionClient.connectPhone("agent1", "1001", "anexo_1001")).thenReturn("SUCCESS");
+    nodeA.connectPhone("agent1", "1001");
+    assertEquals(true, nodeB.status("agent1").get("phoneConnected"));
+    assertEquals("1001", nodeB.status("agent1").get("phoneLogin"));
+
+    when(vicidialClient.connectToCampaign(eq("agent1"), anyString(), eq("1001"), eq("anexo_1001"), eq("MANUAL2"), any(), any()))
+        .thenReturn(new VicidialClient.VicidialHttpResult(200, "<input type=\"hidden\" name=\"mdnLisT_id\" value=\"998\" />"));
+    when(vicidialService.resolveModeForCampaign("agent1", "MANUAL2")).thenReturn("manual");
+    assertDoesNotThrow(() -> credentials.updateAgentPass("agent1", "secret"));
+    nodeB.connectCampaign("agent1", "MANUAL2", true);
+
+    Map<String, Object> status = nodeA.status("agent1");
+    assertEquals("MANUAL2", status.get("campaign"));
+    assertEquals("manual", status.get("mode"));
+    assertEquals(true, status.get("typingEnabled"));
+    assertEquals(Optional.of("998"), nodeA.currentManualDialListId("agent1"));
+
+    nodeA.disconnectPhone("agent1");
+    assertEquals(false, nodeB.status("agent1").get("phoneConnected"));
+    assertEquals(Optional.empty(), nodeB.currentManualDialListId("agent1"));
+    assertThrows(IllegalStateException.class, () -> nodeB.listCampaigns("agent1"));
   }
 }
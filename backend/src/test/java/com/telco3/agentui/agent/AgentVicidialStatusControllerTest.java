@@ -1,20 +1,26 @@
 package com.telco3.agentui.agent;
 
+import com.telco3.agentui.config.SecurityConfig;
 import com.telco3.agentui.domain.UserRepository;
 import com.telco3.agentui.legacy.CustomerPhoneRepository;
 import com.telco3.agentui.legacy.CustomerRepository;
 import com.telco3.agentui.legacy.InteractionRepository;
+import com.telco3.agentui.manual2.Manual2Service;
+import com.telco3.agentui.vicidial.VicidialAsyncClient;
 import com.telco3.agentui.vicidial.VicidialClient;
 import com.telco3.agentui.vicidial.VicidialDialRequestBuilder;
 import com.telco3.agentui.vicidial.VicidialDialResponseParser;
 import com.telco3.agentui.vicidial.VicidialServiceException;
 import com.telco3.agentui.vicidial.VicidialService;
 import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -24,13 +30,16 @@ import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = AgentController.class)
-@AutoConfigureMockMvc(addFilters = false)
+@Import({SecurityConfig.class, SecurityConfig.JwtService.class, AgentSessionGuardService.class, AgentVicidialStatusControllerTest.AgentRuntimeConfig.class})
 class AgentVicidialStatusControllerTest {
 
   @Autowired
@@ -69,6 +78,37 @@ class AgentVicidialStatusControllerTest {
   @MockBean
   private VicidialService vicidialService;
 
+  @MockBean
+  private AgentSessionLifecycleService agentSessionLifecycleService;
+
+  @MockBean
+  private Manual2Service manual2Service;
+
+  @MockBean
+  private AgentEventStreamService eventStreamService;
+
+  /** Real call-state tracker and dial follow-up over the mocked Vicidial beans, running inline. */
+  @TestConfiguration
+  static class AgentRuntimeConfig {
+    @Bean
+    VicidialAsyncClient vicidialAsyncClient(VicidialClient vicidialClient) {
+      return new VicidialAsyncClient(vicidialClient, Runnable::run);
+    }
+
+    @Bean
+    AgentCallStateTracker agentCallStateTracker(VicidialService vicidialService, VicidialAsyncClient vicidialAsync,
+                                                AgentSessionGuardService sessionGuardService) {
+      return new AgentCallStateTracker(vicidialService, vicidialAsync, sessionGuardService, 1000, 2500, 6000, 30000, 60000);
+    }
+
+    @Bean
+    AgentDialFollowUpService agentDialFollowUpService(VicidialService vicidialService, VicidialAsyncClient vicidialAsync,
+                                                      AgentCallStateTracker callStateTracker, AgentEventStreamService eventStreamService) {
+      return new AgentDialFollowUpService(vicidialService, vicidialAsync, callStateTracker, eventStreamService,
+          new LocalAgentDialTrackingStore(), 3, 10, 20, 1.5, 60000, 1000);
+    }
+  }
+
   @Test
   @WithMockUser(username = "agent1")
   void statusReturns503WhenBaseUrlMissing() throws Exception {
@@ -146,13 +186,17 @@ class AgentVicidialStatusControllerTest {
     session.connected = true;
     session.connectedPhoneLogin = "1001";
     session.connectedCampaign = "IVR";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.agentLogId = 99L;
 
     when(userRepository.findByUsernameAndActiveTrue("agent1")).thenReturn(Optional.of(user));
     when(agentVicidialCredentialRepository.findByAppUsername("agent1")).thenReturn(Optional.of(session));
-    when(vicidialService.classifyActiveLead(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.any()))
+    stubCallState("READY");
+    when(vicidialService.classifyActiveLead(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any()))
         .thenReturn(VicidialService.ActiveLeadState.none(200, "NO_ACTIVE_LEAD", "no active lead"));
 
-    mockMvc.perform(get("/api/agent/active-lead"))
+    mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/agent/active-lead")).andExpect(request().asyncStarted()).andReturn()))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.ok").value(false))
         .andExpect(jsonPath("$.code").value("VICIDIAL_NO_ACTIVE_LEAD"));
@@ -167,13 +211,17 @@ class AgentVicidialStatusControllerTest {
     session.connected = true;
     session.connectedPhoneLogin = "1001";
     session.connectedCampaign = "IVR";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.agentLogId = 99L;
 
     when(userRepository.findByUsernameAndActiveTrue("agent1")).thenReturn(Optional.of(user));
     when(agentVicidialCredentialRepository.findByAppUsername("agent1")).thenReturn(Optional.of(session));
-    when(vicidialService.classifyActiveLead(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.any()))
+    stubCallState("READY");
+    when(vicidialService.classifyActiveLead(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any()))
         .thenReturn(VicidialService.ActiveLeadState.dialing("M123"));
 
-    mockMvc.perform(get("/api/agent/active-lead"))
+    mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/agent/active-lead")).andExpect(request().asyncStarted()).andReturn()))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.code").value("VICIDIAL_DIALING"));
   }
@@ -357,7 +405,7 @@ class AgentVicidialStatusControllerTest {
 
   @Test
   @WithMockUser(username = "agent1")
-  void manualDialPausedSignalDoesNotShortCircuitFlow() throws Exception {
+  void manualDialTrackingIdResolvesToTheFollowUpOutcomeForItsAgentOnly() throws Exception {
     var user = new com.telco3.agentui.domain.UserEntity();
     user.username = "agent1";
     var session = new com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity();
@@ -392,16 +440,53 @@ class AgentVicidialStatusControllerTest {
     when(vicidialDialResponseParser.parseDetailed(org.mockito.ArgumentMatchers.anyString()))
         .thenReturn(new VicidialDialResponseParser.DetailedParsedDialResponse(
             VicidialDialResponseParser.DialClassification.SUCCESS, true, "M1", null, "970222277", null, null, Map.of()));
-    when(vicidialService.followUpManualDial(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.eq("secret"), org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.eq("Manual2"), org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.eq("970222277")))
-        .thenReturn(new VicidialService.DialFollowUpResult(
-            false, "AGENT_PAUSED", "M1", null, null, null, "970222277", null, null, "PAUSED", Map.of("confExtenCheckAttempt", 3)));
-
-    mockMvc.perform(post("/api/agent/vicidial/dial/manual")
+    VicidialService.ManualDialFollowUp followUp = org.mockito.Mockito.mock(VicidialService.ManualDialFollowUp.class);
+    when(followUp.agentUser()).thenReturn("agent1");
+    when(vicidialService.startManualDialFollowUp(
+        org.mockito.ArgumentMatchers.eq("agent1"),
+        org.mockito.ArgumentMatchers.eq("secret"),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.eq("Manual2"),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.eq("970222277")))
+        .thenReturn(followUp);
+    when(vicidialService.probeManualDial(org.mockito.ArgumentMatchers.eq(followUp), org.mockito.ArgumentMatchers.anyInt()))
+        .thenReturn(false, true);
+    when(vicidialService.completeManualDialFollowUp(followUp, true)).thenReturn(new VicidialService.DialFollowUpResult(
+        true, "READY", "M1", 77L, "1772.1", "SIP/trunk-1", "970222277", null, null, "INCALL", Map.of()));
+
+    String body = mockMvc.perform(post("/api/agent/vicidial/dial/manual")
             .contentType("application/json")
             .content("{\"campaignId\":\"Manual2\",\"phoneNumber\":\"970222277\"}"))
-        .andExpect(status().isConflict())
-        .andExpect(jsonPath("$.code").value("VICIDIAL_DIAL_NOT_CONFIRMED"))
-        .andExpect(jsonPath("$.details.classification").value("AGENT_PAUSED"));
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.trackingId").isNotEmpty())
+        .andExpect(jsonPath("$.classification").value("DIALING_PENDING_CONFIRMATION"))
+        .andExpect(jsonPath("$.callId").value("M1"))
+        .andReturn().getResponse().getContentAsString();
+    String trackingId = JsonPath.read(body, "$.trackingId");
+
+    long deadline = System.nanoTime() + 2_000_000_000L;
+    String state;
+    do {
+      Thread.sleep(10);
+      String tracking = mockMvc.perform(get("/api/agent/vicidial/dial/{trackingId}", trackingId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.trackingId").value(trackingId))
+          .andReturn().getResponse().getContentAsString();
+      state = JsonPath.read(tracking, "$.state");
+    } while ("PENDING".equals(state) && System.nanoTime() < deadline);
+
+    mockMvc.perform(get("/api/agent/vicidial/dial/{trackingId}", trackingId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.state").value("CONFIRMED"))
+        .andExpect(jsonPath("$.attempts").value(2))
+        .andExpect(jsonPath("$.outcome.result.code").value("VICIDIAL_DIAL_NEXT_OK"))
+        .andExpect(jsonPath("$.outcome.uniqueId").value("1772.1"));
+    mockMvc.perform(get("/api/agent/vicidial/dial/{trackingId}", trackingId).with(user("agent2")))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.code").value("VICIDIAL_DIAL_TRACKING_NOT_FOUND"));
+    mockMvc.perform(get("/api/agent/vicidial/dial/{trackingId}", "missing"))
+        .andExpect(status().isNotFound());
   }
 
   @Test
@@ -464,7 +549,7 @@ class AgentVicidialStatusControllerTest {
     when(vicidialClient.callbacksCount(org.mockito.ArgumentMatchers.eq("agent1"), org.mockito.ArgumentMatchers.anyMap()))
         .thenReturn(new VicidialClient.VicidialHttpResult(200, "CALLBACKS=0"));
 
-    mockMvc.perform(post("/api/agent/vicidial/poll"))
+    mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/agent/vicidial/poll")).andExpect(request().asyncStarted()).andReturn()))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.ok").value(true))
         .andExpect(jsonPath("$.updateSettingsHttpStatus").value(200))
@@ -484,6 +569,18 @@ class AgentVicidialStatusControllerTest {
         .andExpect(jsonPath("$.code").value("VICIDIAL_NOT_CONNECTED"));
   }
 
+  private void stubCallState(String agentStatus) {
+    when(vicidialService.resolveRealtimeCallSnapshot(
+        org.mockito.ArgumentMatchers.eq("agent1"),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.isNull(),
+        org.mockito.ArgumentMatchers.any(),
+        org.mockito.ArgumentMatchers.anyBoolean()))
+        .thenReturn(realtimeSnapshot("NO_ACTIVE_LEAD", agentStatus, null, null, null, null));
+  }
+
   private VicidialService.RealtimeCallSnapshot realtimeSnapshot(
       String classification,
       String agentStatus,
@@ -0,0 +1,94 @@
+package com.telco3.agentui.agent;
+
+import com.telco3.agentui.domain.UserEntity;
+import com.telco3.agentui.domain.UserRepository;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VicidialCredentialServiceTest {
+  private final UserRepository users = mock(UserRepository.class);
+  private final UserEntity user = new UserEntity();
+
+  private VicidialCredentialService service(long ttlMs) {
+    user.username = "agent1";
+    when(users.findByUsername("agent1")).thenReturn(Optional.of(user));
+    when(users.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    return new VicidialCredentialService(mock(AgentVicidialCredentialRepository.class), users, "1234567890123456", new MockEnvironment(), ttlMs);
+  }
+
+  @Test
+  void resolveAgentPassIsCachedUntilUpdated() throws Exception {
+    VicidialCredentialService service = service(60000);
+    service.updateAgentPass("agent1", "first");
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(Optional.of("first"), service.resolveAgentPass("agent1"));
+    }
+    verify(users, times(2)).findByUsername("agent1");
+
+    service.updateAgentPass("agent1", "second");
+    assertEquals(Optional.of("second"), service.resolveAgentPass("agent1"));
+  }
+
+  @Test
+  void invalidateDropsCachedEntry() throws Exception {
+    VicidialCredentialService service = service(60000);
+    service.updateAgentPass("agent1", "first");
+    assertEquals(Optional.of("first"), service.resolveAgentPass("agent1"));
+
+    user.agentPassEncrypted = null;
+    assertEquals(Optional.of("first"), service.resolveAgentPass("agent1"));
+    service.invalidateAgentPass("agent1");
+    assertEquals(Optional.empty(), service.resolveAgentPass("agent1"));
+  }
+
+  @Test
+  void loadOverlappingAnInvalidationIsNotCached() throws Exception {
+    VicidialCredentialService service = service(60000);
+    service.updateAgentPass("agent1", "stale");
+    String staleEncrypted = user.agentPassEncrypted;
+    service.updateAgentPass("agent1", "fresh");
+    String freshEncrypted = user.agentPassEncrypted;
+    user.agentPassEncrypted = staleEncrypted;
+    when(users.findByUsername("agent1")).thenAnswer(invocation -> {
+      UserEntity read = new UserEntity();
+      read.agentPassEncrypted = user.agentPassEncrypted;
+      user.agentPassEncrypted = freshEncrypted;
+      service.invalidateAgentPass("agent1");
+      return Optional.of(read);
+    }).thenReturn(Optional.of(user));
+
+    assertEquals(Optional.of("stale"), service.resolveAgentPass("agent1"));
+    assertEquals(Optional.of("fresh"), service.resolveAgentPass("agent1"));
+  }
+
+  @Test
+  void zeroTtlAlwaysReadsRepository() throws Exception {
+    VicidialCredentialService service = service(0);
+    service.updateAgentPass("agent1", "secret");
+    service.resolveAgentPass("agent1");
+    service.resolveAgentPass("agent1");
+    verify(users, times(3)).findByUsername("agent1");
+  }
+
+  @Test
+  void pooledCiphersDecryptConcurrently() throws Exception {
+    VicidialCredentialService service = service(0);
+    service.updateAgentPass("agent1", "concurrent-secret");
+
+    List<Optional<String>> results = IntStream.range(0, 500).parallel()
+        .mapToObj(i -> service.resolveAgentPass("agent1"))
+        .toList();
+
+    assertTrue(results.stream().allMatch(Optional.of("concurrent-secret")::equals));
+  }
+}
@@ -0,0 +1,73 @@
+package com.telco3.agentui.campaign.core;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VicidialDispositionOutboxStoreTest {
+
+  @Test
+  void conflictOnFailedRowRequeuesItWithTheNewDisposition() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1, 0);
+    var store = new VicidialDispositionOutboxStore(jdbcTemplate);
+    var retry = entry(10L);
+
+    assertTrue(store.enqueue(retry));
+    assertFalse(store.enqueue(retry));
+
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    verify(jdbcTemplate, times(2)).update(sql.capture(), args.capture());
+    String statement = sql.getValue().replaceAll("\\s+", " ");
+    assertTrue(statement.contains("ON CONFLICT (idempotency_key) DO UPDATE"));
+    assertTrue(statement.contains("disposicion = EXCLUDED.disposicion"));
+    assertTrue(statement.contains("gestion_id = EXCLUDED.gestion_id"));
+    assertTrue(statement.contains("status = 'PENDING', attempts = CASE WHEN vicidial_disposition_outbox.status = 'FAILED' THEN 0"
+        + " ELSE vicidial_disposition_outbox.attempts END, next_attempt_at = now(), last_error = NULL, created_at = now(), synced_at = NULL"));
+    assertTrue(statement.contains("WHERE vicidial_disposition_outbox.status = 'FAILED'"
+        + " OR (vicidial_disposition_outbox.status = 'PENDING'"
+        + " AND NOT string_to_array(COALESCE(vicidial_disposition_outbox.completed_steps, ''), ',') && ARRAY['updateDispo', 'runUrls'])"));
+    assertFalse(statement.contains("IN_PROGRESS"));
+    assertArrayEquals(new Object[]{"lead:77:call:M1", 10L, 4L, "agent1", "Manual2", 77L, "M1", "1772.1", "999888777", "CALLBK"},
+        args.getValue());
+  }
+
+  @Test
+  void replacingAPendingRowSkipsTheGestionItSuperseded() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForList(contains("FOR UPDATE"), eq(Long.class), any(Object[].class))).thenReturn(List.of(9L));
+    when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+    var store = new VicidialDispositionOutboxStore(jdbcTemplate);
+
+    assertTrue(store.enqueue(entry(10L)));
+
+    verify(jdbcTemplate).update(contains("vicidial_sync_status = 'SKIPPED'"), eq(9L));
+  }
+
+  @Test
+  void keepsTheGestionWhenThePendingRowCouldNotBeReplaced() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForList(contains("FOR UPDATE"), eq(Long.class), any(Object[].class))).thenReturn(List.of(9L));
+    when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+    var store = new VicidialDispositionOutboxStore(jdbcTemplate);
+
+    assertFalse(store.enqueue(entry(10L)));
+
+    verify(jdbcTemplate, never()).update(contains("gestiones_llamadas"), any(Object[].class));
+  }
+
+  private VicidialDispositionOutboxStore.OutboxEntry entry(long gestionId) {
+    return new VicidialDispositionOutboxStore.OutboxEntry("lead:77:call:M1", gestionId, 4L, "agent1", "Manual2", 77L, "M1",
+        "1772.1", "999888777", "CALLBK");
+  }
+}
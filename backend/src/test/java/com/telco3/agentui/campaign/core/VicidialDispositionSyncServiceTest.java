@@ -0,0 +1,161 @@
+package com.telco3.agentui.campaign.core;
+
+import com.telco3.agentui.agent.VicidialCredentialService;
+import com.telco3.agentui.domain.ContactoRepository;
+import com.telco3.agentui.domain.GestionLlamadaEntity;
+import com.telco3.agentui.domain.InteraccionRepository;
+import com.telco3.agentui.vicidial.VicidialClient;
+import com.telco3.agentui.vicidial.VicidialService;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VicidialDispositionSyncServiceTest {
+  private static final Instant NOW = Instant.parse("2026-03-02T15:00:00Z");
+
+  private final VicidialDispositionOutboxStore store = mock(VicidialDispositionOutboxStore.class);
+  private final AgentVicidialCredentialRepository credentialRepository = mock(AgentVicidialCredentialRepository.class);
+  private final VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+  private final VicidialService vicidialService = mock(VicidialService.class);
+  private final VicidialClient vicidialClient = mock(VicidialClient.class);
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void syncsConnectedAgentThroughPostCallPipelineAndRecordsLag() {
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.connected = true;
+    when(credentialRepository.findByAppUsername("agent1")).thenReturn(Optional.of(session));
+    when(credentialService.resolveAgentPass("agent1")).thenReturn(Optional.of("secret"));
+    when(vicidialService.syncPostCallDisposition("agent1", "secret", session, "Manual2", 77L, "M1", "1772.1", "999888777", "SALE"))
+        .thenReturn(new VicidialService.PostCallSyncResult(true, " rec_77.wav ", null, Map.of()));
+    when(store.markSynced(any(), any())).thenReturn(true);
+    var service = service();
+    var item = item(1);
+
+    service.process(item);
+
+    verify(store).markSynced(item, "rec_77.wav");
+    verifyNoInteractions(vicidialClient);
+    assertEquals(1.0, registry.get(VicidialDispositionSyncService.ATTEMPTS).tag("outcome", "synced").counter().count());
+    var lag = registry.get(VicidialDispositionSyncService.SYNC_LAG).tag("outcome", "synced").timer();
+    assertEquals(1, lag.count());
+    assertEquals(45.0, lag.totalTime(TimeUnit.SECONDS), 0.001);
+    service.shutdown();
+  }
+
+  @Test
+  void retriesWithBackoffAndMarksFailedAfterTheLastAttempt() {
+    when(credentialRepository.findByAppUsername("agent1")).thenReturn(Optional.empty());
+    when(credentialService.resolveAgentPass("agent1")).thenReturn(Optional.empty());
+    when(vicidialClient.externalStatus("agent1", "SALE", 77L, "Manual2")).thenThrow(new IllegalStateException("api.php timeout"));
+    when(store.markRetry(any(), any(), anyLong(), any())).thenReturn(true);
+    when(store.markFailed(any(), any(), any())).thenReturn(true);
+    var service = service();
+
+    service.process(item(2));
+    service.process(item(3));
+
+    verify(store).markRetry(item(2), "api.php timeout", 20, VicidialDispositionOutboxStore.SyncProgress.NONE);
+    verify(store).markFailed(item(3), "api.php timeout", VicidialDispositionOutboxStore.SyncProgress.NONE);
+    verify(store, never()).markSynced(any(), any());
+    assertEquals(1.0, registry.get(VicidialDispositionSyncService.ATTEMPTS).tag("outcome", "retry").counter().count());
+    assertEquals(1.0, registry.get(VicidialDispositionSyncService.ATTEMPTS).tag("outcome", "failed").counter().count());
+    assertEquals(10, service.retryDelayMs(1));
+    assertEquals(40, service.retryDelayMs(3));
+    assertEquals(50, service.retryDelayMs(6));
+    service.shutdown();
+  }
+
+  @Test
+  void storesProgressOfAFailedRunUrlsAndResumesFromStoredIdentifiersOnly() {
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.connected = true;
+    session.currentCallId = "M2-next-call";
+    when(credentialRepository.findByAppUsername("agent1")).thenReturn(Optional.of(session));
+    when(credentialService.resolveAgentPass("agent1")).thenReturn(Optional.of("secret"));
+    var ids = new VicidialService.PostCallIdentifiers("M1", 77L, "1772.1", "SIP/trunk-01", "999888777", "106");
+    Set<String> done = Set.of(VicidialService.STEP_LOG_END, VicidialService.STEP_UPDATE_DISPO, VicidialService.STEP_UPDATE_LEAD);
+    when(vicidialService.syncPostCallDisposition("agent1", "secret", session, "Manual2", 77L, "M1", "1772.1", "999888777", "SALE"))
+        .thenReturn(new VicidialService.PostCallSyncResult(false, "rec_77.wav", "Post-call AGC sequence failed at runUrls",
+            Map.of(), ids, done));
+    when(store.markRetry(any(), any(), anyLong(), any())).thenReturn(true);
+    var service = service();
+
+    service.process(item(1));
+
+    verify(store).markRetry(item(1), "Post-call AGC sequence failed at runUrls", 10,
+        new VicidialDispositionOutboxStore.SyncProgress("M1", "1772.1", "SIP/trunk-01", "999888777", "106", done));
+
+    var stored = new VicidialDispositionOutboxStore.OutboxItem(5L, 9L, 4L, "agent1", "Manual2", 77L, "M1", "1772.1",
+        "999888777", "SIP/trunk-01", "106", done, "SALE", 2, NOW.minusSeconds(45));
+    when(vicidialService.resumePostCallDisposition("agent1", "secret", session, "Manual2", ids, done, "SALE"))
+        .thenReturn(new VicidialService.PostCallSyncResult(true, "rec_77.wav", null, Map.of(), ids,
+            Set.copyOf(VicidialService.POST_CALL_STEPS)));
+    when(store.markSynced(any(), any())).thenReturn(true);
+
+    service.process(stored);
+
+    verify(store).markSynced(stored, "rec_77.wav");
+    verify(vicidialService, times(1)).syncPostCallDisposition(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    service.shutdown();
+  }
+
+  @Test
+  void enqueuesOncePerLeadAndCallAndExposesBacklogLag() {
+    when(store.enqueue(any())).thenReturn(true, false);
+    when(store.stats()).thenReturn(new VicidialDispositionOutboxStore.OutboxStats(3, NOW.minusSeconds(30)));
+    when(store.claimDue(anyInt(), anyLong())).thenReturn(List.of());
+    var service = service();
+    GestionLlamadaEntity gestion = new GestionLlamadaEntity();
+    gestion.id = 9L;
+    gestion.leadId = 77L;
+    gestion.callId = "M1";
+    gestion.agente = "agent1";
+    gestion.disposicion = "SALE";
+
+    assertTrue(service.enqueue(gestion));
+    assertFalse(service.enqueue(gestion));
+    verify(store, times(2)).enqueue(argThat(entry -> "lead:77:call:M1".equals(entry.idempotencyKey()) && entry.gestionId() == 9L));
+    assertEquals("lead:77:call:1772.1", VicidialDispositionSyncService.idempotencyKey(77L, " ", "1772.1", 9L));
+    assertEquals("lead:77:call:gestion-9", VicidialDispositionSyncService.idempotencyKey(77L, null, null, 9L));
+
+    service.poll();
+
+    verify(store).claimDue(eq(2), anyLong());
+    assertEquals(3.0, registry.get(VicidialDispositionSyncService.PENDING).gauge().value());
+    assertEquals(30.0, registry.get(VicidialDispositionSyncService.LAG).gauge().value(), 0.001);
+    service.shutdown();
+  }
+
+  private VicidialDispositionSyncService service() {
+    var coreService = new CampaignInteractionCoreService(mock(ContactoRepository.class), mock(InteraccionRepository.class),
+        credentialRepository, credentialService, vicidialService);
+    VicidialDispositionSyncService created = new VicidialDispositionSyncService(store, credentialRepository, credentialService,
+        vicidialService, vicidialClient, coreService, registry, false, 2, 1000, 20, 60000, 3, 10, 50, 2.0,
+        Clock.fixed(NOW, ZoneOffset.UTC));
+    created.start();
+    return created;
+  }
+
+  private VicidialDispositionOutboxStore.OutboxItem item(int attempts) {
+    return new VicidialDispositionOutboxStore.OutboxItem(5L, 9L, 4L, "agent1", "Manual2", 77L, "M1", "1772.1", "999888777",
+        null, null, null, "SALE", attempts, NOW.minusSeconds(45));
+  }
+}
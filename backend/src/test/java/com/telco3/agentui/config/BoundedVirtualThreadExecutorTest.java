@@ -0,0 +1,46 @@
+package com.telco3.agentui.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedVirtualThreadExecutorTest {
+
+  @Test
+  void rejectsWithoutBlockingWhenTheLimitIsReachedAndAcceptsAgainOnceATaskEnds() throws Exception {
+    BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("test-vt-", 2);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable blocked = () -> {
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    try {
+      executor.execute(blocked);
+      executor.execute(blocked);
+
+      long started = System.nanoTime();
+      assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+      assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+
+      release.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (executor.availablePermits() < 2 && System.nanoTime() < deadline) {
+        Thread.onSpinWait();
+      }
+      assertEquals(2, executor.availablePermits());
+      CountDownLatch ran = new CountDownLatch(1);
+      executor.execute(ran::countDown);
+      assertTrue(ran.await(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.close();
+    }
+  }
+}
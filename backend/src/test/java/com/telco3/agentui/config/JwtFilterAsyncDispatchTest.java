@@ -0,0 +1,91 @@
+package com.telco3.agentui.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = JwtFilterAsyncDispatchTest.AsyncProbeController.class)
+@Import({SecurityConfig.class, SecurityConfig.JwtService.class, JwtFilterAsyncDispatchTest.AsyncProbeController.class})
+class JwtFilterAsyncDispatchTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private SecurityConfig.JwtService jwtService;
+
+  @Test
+  void asyncDispatchStaysAuthenticatedWithBearerToken() throws Exception {
+    String token = jwtService.generate("agent1", "AGENT");
+
+    MvcResult started = mockMvc.perform(get("/api/agent/async-probe").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.user").value("agent1"));
+  }
+
+  @Test
+  void sseStreamDispatchStaysAuthenticatedWithBearerToken() throws Exception {
+    String token = jwtService.generate("admin1", "REPORT_ADMIN");
+
+    MvcResult started = mockMvc.perform(get("/api/admin/sse-probe").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("data:admin1")));
+  }
+
+  @Test
+  void requestWithoutTokenIsRejected() throws Exception {
+    mockMvc.perform(get("/api/agent/async-probe"))
+        .andExpect(status().isForbidden());
+  }
+
+  @RestController
+  static class AsyncProbeController {
+    @GetMapping("/api/agent/async-probe")
+    CompletableFuture<Map<String, Object>> probe(Authentication auth) {
+      return CompletableFuture.supplyAsync(() -> Map.of("user", auth.getName()));
+    }
+
+    @GetMapping(path = "/api/admin/sse-probe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter stream(Authentication auth) {
+      SseEmitter emitter = new SseEmitter(5000L);
+      CompletableFuture.runAsync(() -> {
+        try {
+          emitter.send(SseEmitter.event().name("summary").data(auth.getName()));
+          emitter.complete();
+        } catch (IOException ex) {
+          emitter.completeWithError(ex);
+        }
+      });
+      return emitter;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.telco3.agentui.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = PrometheusScrapeTokenTest.ScrapeProbeController.class)
+@Import({SecurityConfig.class, SecurityConfig.JwtService.class, PrometheusScrapeTokenTest.ScrapeProbeController.class})
+@TestPropertySource(properties = "app.metrics.scrape-token=scrape-secret")
+class PrometheusScrapeTokenTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private SecurityConfig.JwtService jwtService;
+
+  @Test
+  void scrapeTokenOpensThePrometheusEndpoint() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer scrape-secret"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void scrapeTokenIsRejectedOutsideThePrometheusEndpoint() throws Exception {
+    mockMvc.perform(get("/actuator/vicidialcircuits").header(HttpHeaders.AUTHORIZATION, "Bearer scrape-secret"))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void prometheusStillRequiresAdminWithoutTheScrapeToken() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer wrong"))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/prometheus")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generate("agent1", "AGENT")))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/prometheus")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generate("admin1", "REPORT_ADMIN")))
+        .andExpect(status().isOk());
+  }
+
+  @RestController
+  static class ScrapeProbeController {
+    @GetMapping("/actuator/prometheus")
+    String prometheus() {
+      return "# scrape";
+    }
+
+    @GetMapping("/actuator/vicidialcircuits")
+    String circuits() {
+      return "{}";
+    }
+  }
+}
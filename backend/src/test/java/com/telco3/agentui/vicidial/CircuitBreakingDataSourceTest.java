@@ -0,0 +1,86 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CircuitBreakingDataSourceTest {
+
+  @Test
+  void statementTimeoutsCountAsFailuresAndOpenTheCircuit() throws Exception {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("mariadb", 2, Duration.ofMinutes(1), 1,
+        VicidialCircuitBreaker.NO_BULKHEAD, Duration.ZERO);
+    CircuitBreakingDataSource dataSource = new CircuitBreakingDataSource(
+        failingDataSource(new SQLTimeoutException("Query execution was interrupted")), breaker);
+
+    for (int i = 0; i < 2; i++) {
+      try (Connection connection = dataSource.getConnection();
+           PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+        assertThrows(SQLTimeoutException.class, statement::executeQuery);
+      }
+    }
+
+    assertEquals("OPEN", breaker.snapshot().state());
+    assertEquals(0, breaker.snapshot().inFlight());
+    assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+  }
+
+  @Test
+  void syntaxErrorsLeaveTheCircuitClosed() throws Exception {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("mariadb", 1, Duration.ofMinutes(1), 1,
+        VicidialCircuitBreaker.NO_BULKHEAD, Duration.ZERO);
+    CircuitBreakingDataSource dataSource = new CircuitBreakingDataSource(
+        failingDataSource(new SQLSyntaxErrorException("Unknown column 'x'")), breaker);
+
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement("SELECT x")) {
+      assertThrows(SQLSyntaxErrorException.class, statement::executeQuery);
+    }
+
+    assertEquals("CLOSED", breaker.snapshot().state());
+    assertEquals(0, breaker.snapshot().consecutiveFailures());
+  }
+
+  @Test
+  void resultSetFailuresAreTrackedThroughTheWrappedStatement() throws Exception {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("mariadb", 1, Duration.ofMinutes(1), 1,
+        VicidialCircuitBreaker.NO_BULKHEAD, Duration.ZERO);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenThrow(new SQLTransientConnectionException("Connection reset"));
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    DataSource target = mock(DataSource.class);
+    when(target.getConnection()).thenReturn(connection);
+
+    try (Connection guarded = new CircuitBreakingDataSource(target, breaker).getConnection();
+         ResultSet rows = guarded.prepareStatement("SELECT 1").executeQuery()) {
+      assertThrows(SQLTransientConnectionException.class, rows::next);
+    }
+
+    assertEquals("OPEN", breaker.snapshot().state());
+    verify(connection).close();
+  }
+
+  private static DataSource failingDataSource(SQLException failure) throws SQLException {
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(statement.executeQuery()).thenThrow(failure);
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    DataSource target = mock(DataSource.class);
+    when(target.getConnection()).thenReturn(connection);
+    return target;
+  }
+}
@@ -0,0 +1,66 @@
+package com.telco3.agentui.vicidial;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VicidialAsyncClientTest {
+
+  private HttpServer server;
+
+  @AfterEach
+  void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void leadInfoCompletesOnExecutorWithoutBlockingCaller() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/vicidial/non_agent_api.php", exchange -> {
+      byte[] response = "vendor_lead_code=12345678|phone_number=970222277".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(response);
+      }
+    });
+    server.start();
+
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolve()).thenReturn(new VicidialConfigService.ResolvedVicidialConfig(
+        "http://localhost:" + server.getAddress().getPort(), "api", "apiPass", "react_crm", false, "test"
+    ));
+    VicidialClient client = new VicidialClient(configService, 4000, 4000, 4000, false);
+    VicidialAsyncClient asyncClient = new VicidialAsyncClient(client, Runnable::run);
+
+    String body = asyncClient.leadInfo(1166L).get(5, TimeUnit.SECONDS);
+
+    assertTrue(body.contains("vendor_lead_code=12345678"));
+    client.shutdown();
+  }
+
+  @Test
+  void supplyReturnsVicidialBusyWhenExecutorRejects() {
+    VicidialAsyncClient asyncClient = new VicidialAsyncClient(
+        mock(VicidialClient.class),
+        command -> {
+          throw new RejectedExecutionException("full");
+        });
+
+    CompletionException ex = assertThrows(CompletionException.class, () -> asyncClient.supply(() -> "x").join());
+    VicidialServiceException cause = assertInstanceOf(VicidialServiceException.class, ex.getCause());
+    assertEquals("VICIDIAL_BUSY", cause.code());
+  }
+}
@@ -0,0 +1,113 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialCircuitBreakerTest {
+
+  private static final VicidialServiceException UNREACHABLE = new VicidialServiceException(
+      HttpStatus.SERVICE_UNAVAILABLE, "VICIDIAL_UNREACHABLE", "down", null, Map.of());
+
+  @Test
+  void opensAfterConsecutiveFailuresAndRejectsWithoutCallingVicidial() {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("api.php", 3, Duration.ofMinutes(1), 1, 10, Duration.ZERO);
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(VicidialServiceException.class, () -> breaker.execute(() -> {
+        calls.incrementAndGet();
+        throw UNREACHABLE;
+      }, result -> false));
+    }
+
+    VicidialServiceException ex = assertThrows(VicidialServiceException.class,
+        () -> breaker.execute(() -> calls.incrementAndGet(), result -> false));
+    assertEquals("VICIDIAL_CIRCUIT_OPEN", ex.code());
+    assertEquals(3, calls.get());
+    assertEquals("OPEN", breaker.snapshot().state());
+  }
+
+  @Test
+  void halfOpenProbeClosesCircuitOnSuccess() throws Exception {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("vdc_db_query.php", 1, Duration.ofMillis(20), 1, 10, Duration.ZERO);
+    assertThrows(VicidialServiceException.class, () -> breaker.execute(() -> {
+      throw UNREACHABLE;
+    }, result -> false));
+    assertEquals("OPEN", breaker.snapshot().state());
+
+    Thread.sleep(40);
+    assertEquals("HALF_OPEN", breaker.snapshot().state());
+    assertEquals("ok", breaker.execute(() -> "ok", result -> false));
+    assertEquals("CLOSED", breaker.snapshot().state());
+  }
+
+  @Test
+  void businessErrorsDoNotTripCircuit() {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("api.php", 1, Duration.ofMinutes(1), 1, 10, Duration.ZERO);
+    assertThrows(VicidialServiceException.class, () -> breaker.execute(() -> {
+      throw new VicidialServiceException(HttpStatus.CONFLICT, "VICIDIAL_RELOGIN_REQUIRED", "relogin");
+    }, result -> false));
+    assertEquals("CLOSED", breaker.snapshot().state());
+  }
+
+  @Test
+  void bulkheadRejectsWhenConcurrencyLimitReached() {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("mariadb", 5, Duration.ofMinutes(1), 1, 1, Duration.ZERO);
+    VicidialCircuitBreaker.Permit held = breaker.acquire();
+
+    VicidialServiceException ex = assertThrows(VicidialServiceException.class, breaker::acquire);
+    assertEquals("VICIDIAL_BULKHEAD_FULL", ex.code());
+
+    held.success();
+    breaker.acquire().success();
+    assertEquals(1, breaker.snapshot().rejectedCalls());
+  }
+
+  @Test
+  void errorThrownByCallReleasesTheBulkheadSlot() {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("api.php", 5, Duration.ofMinutes(1), 1, 1, Duration.ZERO);
+
+    assertThrows(StackOverflowError.class, () -> breaker.execute(() -> {
+      throw new StackOverflowError();
+    }, result -> false));
+
+    assertEquals(0, breaker.snapshot().inFlight());
+    assertEquals("ok", breaker.execute(() -> "ok", result -> false));
+  }
+
+  @Test
+  void tryAcquireDoesNotWaitForBulkheadSlot() {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("api.php", 5, Duration.ofMinutes(1), 1, 1, Duration.ofSeconds(5));
+    VicidialCircuitBreaker.Permit held = breaker.tryAcquire();
+
+    long start = System.nanoTime();
+    VicidialServiceException ex = assertThrows(VicidialServiceException.class, breaker::tryAcquire);
+    assertEquals("VICIDIAL_BULKHEAD_FULL", ex.code());
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    held.release();
+  }
+
+  @Test
+  void releasedProbeLeavesHalfOpenCircuitWithoutClosingIt() throws Exception {
+    VicidialCircuitBreaker breaker = new VicidialCircuitBreaker("api.php", 1, Duration.ofMillis(20), 1, 10, Duration.ZERO);
+    assertThrows(VicidialServiceException.class, () -> breaker.execute(() -> {
+      throw UNREACHABLE;
+    }, result -> false));
+    Thread.sleep(40);
+
+    VicidialCircuitBreaker.Permit probe = breaker.tryAcquire();
+    probe.release();
+    probe.success();
+
+    assertEquals("HALF_OPEN", breaker.snapshot().state());
+    assertEquals(0, breaker.snapshot().inFlight());
+    breaker.tryAcquire().success();
+    assertEquals("CLOSED", breaker.snapshot().state());
+  }
+}
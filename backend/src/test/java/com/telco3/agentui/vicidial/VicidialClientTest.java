@@ -1,9 +1,11 @@
 package com.telco3.agentui.vicidial;
 
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
@@ -11,6 +13,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -146,6 +154,111 @@ class VicidialClientTest {
     assertEquals("VICIDIAL_UNREACHABLE", ex.code());
   }
 
+  @Test
+  void apiCallsReuseKeepAliveConnectionFromSharedPool() throws Exception {
+    Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+    server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/agc/api.php", exchange -> {
+      remotePorts.add(exchange.getRemoteAddress().getPort());
+      byte[] response = "SUCCESS".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(response);
+      }
+    });
+    server.start();
+
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolve()).thenReturn(new VicidialConfigService.ResolvedVicidialConfig(
+        "http://localhost:" + server.getAddress().getPort(), "api", "apiPass", "react_crm", false, "test"
+    ));
+    when(configService.configVersion()).thenReturn(1L);
+
+    VicidialClient client = new VicidialClient(configService, 4000, 4000, 4000, false);
+    int calls = 10;
+    for (int i = 0; i < calls; i++) {
+      assertEquals("SUCCESS", client.externalStatus("1001", "SALE", 10L, "IVR"));
+    }
+
+    assertTrue(remotePorts.size() < calls, "expected pooled connections to be reused, ports=" + remotePorts);
+    client.shutdown();
+  }
+
+  @Test
+  void leadInfoReadDuringUpdateLeadIsNotServedAfterTheUpdate() throws Exception {
+    AtomicReference<String> leadRow = new AtomicReference<>("first_name=OLD");
+    CountDownLatch updateArrived = new CountDownLatch(1);
+    CountDownLatch concurrentReadDone = new CountDownLatch(1);
+    server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/vicidial/non_agent_api.php", exchange -> respond(exchange, leadRow.get()));
+    server.createContext("/agc/vdc_db_query.php", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      updateArrived.countDown();
+      try {
+        concurrentReadDone.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      leadRow.set("first_name=NEW");
+      respond(exchange, "OK");
+    });
+    server.start();
+
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolve()).thenReturn(new VicidialConfigService.ResolvedVicidialConfig(
+        "http://localhost:" + server.getAddress().getPort(), "api", "apiPass", "react_crm", false, "test"
+    ));
+    when(configService.configVersion()).thenReturn(1L);
+    VicidialClient client = new VicidialClient(configService, 4000, 4000, 4000, false, 20, 40, 5000, 30000, 300000, 15000,
+        1800000, 100, 60000, 5000, new LocalVicidialSessionStateStore(), VicidialResilienceRegistry.defaults(),
+        new VicidialRequestCoalescer(60000, 0, 0, 0), VicidialRequestMetrics.noop());
+
+    CompletableFuture<VicidialClient.VicidialHttpResult> update = CompletableFuture.supplyAsync(() ->
+        client.updateLead("1001", new LinkedHashMap<>(Map.of("lead_id", "77", "first_name", "NEW"))));
+    assertTrue(updateArrived.await(5, TimeUnit.SECONDS));
+    assertEquals("first_name=OLD", client.leadInfo(77L));
+    concurrentReadDone.countDown();
+    update.get(5, TimeUnit.SECONDS);
+
+    assertEquals("first_name=NEW", client.leadInfo(77L));
+    client.shutdown();
+  }
+
+  @Test
+  void agcCallsShareConnectionPoolButKeepCookiesPerAgent() throws Exception {
+    Map<String, String> cookiesByAgent = new ConcurrentHashMap<>();
+    server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/agc/vdc_db_query.php", exchange -> {
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      String agent = parseForm(body).get("user");
+      String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+      cookiesByAgent.merge(agent, cookie == null ? "-" : cookie, (a, b) -> a + "|" + b);
+      exchange.getResponseHeaders().add("Set-Cookie", "sid=" + agent + "; Path=/");
+      byte[] response = "OK".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(response);
+      }
+    });
+    server.start();
+
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolve()).thenReturn(new VicidialConfigService.ResolvedVicidialConfig(
+        "http://localhost:" + server.getAddress().getPort(), "api", "apiPass", "react_crm", false, "test"
+    ));
+
+    VicidialClient client = new VicidialClient(configService, 4000, 4000, 4000, false);
+    client.callbacksCount("1001", new LinkedHashMap<>(Map.of("user", "1001")));
+    client.callbacksCount("1002", new LinkedHashMap<>(Map.of("user", "1002")));
+    client.callbacksCount("1001", new LinkedHashMap<>(Map.of("user", "1001")));
+
+    assertEquals("-|sid=1001", cookiesByAgent.get("1001"));
+    assertEquals("-", cookiesByAgent.get("1002"));
+    assertTrue(client.agcPoolStats().available() >= 1);
+    client.shutdown();
+  }
+
   @Test
   void parseKeyValueLinesExtractsCallIdFromMultilineResponse() {
     VicidialClient client = new VicidialClient(mock(VicidialConfigService.class), 4000, 4000, 4000, false);
@@ -158,6 +271,14 @@ class VicidialClientTest {
     assertEquals("M22423581234", parsed.get("call_id"));
   }
 
+  private void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] response = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, response.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
+
   private Map<String, String> parseForm(String body) {
     Map<String, String> result = new LinkedHashMap<>();
     if (body == null || body.isBlank()) {
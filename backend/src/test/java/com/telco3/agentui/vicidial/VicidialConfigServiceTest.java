@@ -75,6 +75,99 @@ class VicidialConfigServiceTest {
     assertEquals("plain-pass", resolved.apiPass());
   }
 
+  @Test
+  void resolveServesCachedSnapshotUntilSaveBumpsVersion() {
+    when(repo.findById("vicidial.baseUrl")).thenReturn(Optional.of(entity("vicidial.baseUrl", "http://first")));
+
+    for (int i = 0; i < 50; i++) {
+      assertEquals("http://first", service.resolve().baseUrl());
+      service.resolveDbConfig();
+    }
+    verify(repo, times(1)).findById("vicidial.baseUrl");
+
+    when(repo.findById("vicidial.baseUrl")).thenReturn(Optional.of(entity("vicidial.baseUrl", "http://second")));
+    assertEquals("http://first", service.resolve().baseUrl());
+
+    long before = service.configVersion();
+    service.saveConfig(new VicidialConfigService.VicidialConfigUpdateRequest(null, null, null, null, null, null, null, null, null));
+
+    assertEquals("http://second", service.resolve().baseUrl());
+    assertEquals(before + 1, service.resolveDbConfig().configVersion());
+  }
+
+  @Test
+  void expiredSnapshotPicksUpExternalChangesAndBumpsVersion() throws Exception {
+    VicidialConfigService shortLived = new VicidialConfigService(repo, environment, "1234567890123456", false, 1);
+    when(repo.findById("vicidial.baseUrl")).thenReturn(Optional.of(entity("vicidial.baseUrl", "http://first")));
+    assertEquals("http://first", shortLived.resolve().baseUrl());
+    long version = shortLived.configVersion();
+
+    Thread.sleep(5);
+    shortLived.resolve();
+    assertEquals(version, shortLived.configVersion());
+
+    when(repo.findById("vicidial.baseUrl")).thenReturn(Optional.of(entity("vicidial.baseUrl", "http://other-node")));
+    Thread.sleep(5);
+    assertEquals("http://other-node", shortLived.resolve().baseUrl());
+    assertEquals(version + 1, shortLived.configVersion());
+  }
+
+  @Test
+  void replicaIsSavedFromSettingsAndBlankHostTurnsItOff() {
+    environment.setProperty("vicidial.dbHost", "10.0.0.1");
+    environment.setProperty("vicidial.dbPort", "3306");
+    environment.setProperty("vicidial.dbName", "asterisk");
+    environment.setProperty("vicidial.dbUser", "cron");
+    environment.setProperty("vicidial.dbPass", "secret");
+    var saved = new ArrayList<AppConfigEntity>();
+    when(repo.save(any())).thenAnswer(invocation -> {
+      AppConfigEntity entity = invocation.getArgument(0);
+      saved.add(entity);
+      return entity;
+    });
+
+    service.saveConfig(new VicidialConfigService.VicidialConfigUpdateRequest(null, null, null, null, null, null, null, null, null,
+        " 10.0.0.6 ", "3307", null, "report", "replica-pass"));
+
+    assertEquals("10.0.0.6", saved.stream().filter(e -> "vicidial.replica.dbHost".equals(e.key)).findFirst().orElseThrow().value);
+    assertEquals("3307", saved.stream().filter(e -> "vicidial.replica.dbPort".equals(e.key)).findFirst().orElseThrow().value);
+    String encrypted = saved.stream().filter(e -> "vicidial.replica.dbPass".equals(e.key)).map(e -> e.value).findFirst().orElseThrow();
+    assertNotEquals("replica-pass", encrypted);
+    when(repo.findById("vicidial.replica.dbHost")).thenReturn(Optional.of(entity("vicidial.replica.dbHost", "10.0.0.6")));
+    when(repo.findById("vicidial.replica.dbPass")).thenReturn(Optional.of(entity("vicidial.replica.dbPass", encrypted)));
+    assertEquals("replica-pass", service.resolveReplicaDbConfig().orElseThrow().dbPass());
+    assertEquals("********", service.getStoredConfigMasked().replicaDbPassMasked());
+
+    service.saveConfig(new VicidialConfigService.VicidialConfigUpdateRequest(null, null, null, null, null, null, null, null, null));
+    verify(repo, never()).deleteById(any());
+    service.saveConfig(new VicidialConfigService.VicidialConfigUpdateRequest(null, null, null, null, null, null, null, null, null,
+        "", "", "", "", ""));
+    verify(repo).deleteById("vicidial.replica.dbHost");
+  }
+
+  @Test
+  void replicaIsOptionalAndInheritsPrimaryCredentials() {
+    environment.setProperty("vicidial.dbHost", "10.0.0.1");
+    environment.setProperty("vicidial.dbPort", "3306");
+    environment.setProperty("vicidial.dbName", "asterisk");
+    environment.setProperty("vicidial.dbUser", "cron");
+    environment.setProperty("vicidial.dbPass", "secret");
+    VicidialConfigService local = new VicidialConfigService(repo, environment, "1234567890123456", false);
+    assertTrue(local.resolveReplicaDbConfig().isEmpty());
+
+    environment.setProperty("vicidial.replica.dbHost", "10.0.0.2");
+    environment.setProperty("vicidial.replica.dbUser", "report");
+    VicidialConfigService withReplica = new VicidialConfigService(repo, environment, "1234567890123456", false);
+    var replica = withReplica.resolveReplicaDbConfig().orElseThrow();
+
+    assertEquals("10.0.0.2", replica.dbHost());
+    assertEquals("3306", replica.dbPort());
+    assertEquals("asterisk", replica.dbName());
+    assertEquals("report", replica.dbUser());
+    assertEquals("secret", replica.dbPass());
+    assertEquals(withReplica.resolveDbConfig().configVersion(), replica.configVersion());
+  }
+
   private String captureEncryptedPass(VicidialConfigService localService, String plainPass) {
     var saved = new ArrayList<AppConfigEntity>();
     when(repo.save(any())).thenAnswer(invocation -> {
@@ -0,0 +1,144 @@
+package com.telco3.agentui.vicidial;
+
+import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialCookieSessionStoreTest {
+  private final AtomicLong clock = new AtomicLong();
+  private VicidialCookieSessionStore store;
+
+  @AfterEach
+  void tearDown() {
+    if (store != null) {
+      store.shutdown();
+    }
+  }
+
+  @Test
+  void reusesCookieStorePerAgentUntilRemoved() {
+    store = new VicidialCookieSessionStore(VicidialCookieSessionStore.Settings.defaults(), new LocalVicidialSessionStateStore());
+
+    var first = store.storeFor("agent1");
+    assertSame(first, store.storeFor("agent1"));
+    assertNotSame(first, store.storeFor("agent2"));
+    assertEquals(2, store.createdCount());
+
+    store.remove("agent1");
+    assertNotSame(first, store.storeFor("agent1"));
+    assertEquals(3, store.createdCount());
+  }
+
+  @Test
+  void idleSessionsExpireOnAccessAndOnSweep() {
+    store = new VicidialCookieSessionStore(new VicidialCookieSessionStore.Settings(Duration.ofMinutes(30), 100, Duration.ofHours(1), Duration.ofSeconds(5)), new LocalVicidialSessionStateStore(), clock::get);
+    var first = store.storeFor("agent1");
+    store.storeFor("agent2");
+
+    advance(Duration.ofMinutes(30));
+    assertNotSame(first, store.storeFor("agent1"));
+    assertEquals(1, store.expiredCount());
+
+    store.sweepExpired();
+    assertEquals(1, store.size());
+    assertEquals(2, store.expiredCount());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedAgentWhenFull() {
+    store = new VicidialCookieSessionStore(new VicidialCookieSessionStore.Settings(Duration.ofMinutes(30), 2, Duration.ofHours(1), Duration.ofSeconds(5)), new LocalVicidialSessionStateStore(), clock::get);
+    var agent1 = store.storeFor("agent1");
+    advance(Duration.ofSeconds(1));
+    store.storeFor("agent2");
+    advance(Duration.ofSeconds(1));
+    store.afterResponse("agent1");
+
+    store.storeFor("agent3");
+
+    assertEquals(2, store.size());
+    assertEquals(1, store.evictedCount());
+    assertSame(agent1, store.storeFor("agent1"));
+    assertEquals(3, store.createdCount());
+  }
+
+  @Test
+  void anotherNodeContinuesAgentSessionFromSharedStore() {
+    LocalVicidialSessionStateStore shared = new LocalVicidialSessionStateStore();
+    var settings = new VicidialCookieSessionStore.Settings(Duration.ofMinutes(30), 100, Duration.ofHours(1), Duration.ofSeconds(5));
+    store = new VicidialCookieSessionStore(settings, shared, clock::get);
+    VicidialCookieSessionStore otherNode = new VicidialCookieSessionStore(settings, shared, clock::get);
+    try {
+      store.storeFor("agent1").addCookie(cookie("PHPSESSID", "abc"));
+      store.afterResponse("agent1");
+
+      var restored = otherNode.storeFor("agent1");
+      assertEquals("abc", restored.getCookies().get(0).getValue());
+      assertEquals(1, otherNode.restoredCount());
+      assertEquals(0, otherNode.createdCount());
+
+      restored.clear();
+      restored.addCookie(cookie("PHPSESSID", "relogged"));
+      otherNode.afterResponse("agent1");
+
+      advance(settings.nearCacheTtl());
+      assertEquals("relogged", store.storeFor("agent1").getCookies().get(0).getValue());
+
+      otherNode.remove("agent1");
+      advance(settings.nearCacheTtl());
+      assertTrue(store.storeFor("agent1").getCookies().isEmpty());
+    } finally {
+      otherNode.shutdown();
+    }
+  }
+
+  @Test
+  void activeAgentKeepsSharedRowAcrossSweepsWithUnchangedCookies() throws Exception {
+    LocalVicidialSessionStateStore shared = new LocalVicidialSessionStateStore();
+    var settings = new VicidialCookieSessionStore.Settings(Duration.ofMillis(400), 100, Duration.ofMillis(100), Duration.ofMillis(50));
+    store = new VicidialCookieSessionStore(settings, shared);
+    store.storeFor("agent1").addCookie(cookie("PHPSESSID", "abc"));
+    store.afterResponse("agent1");
+
+    long deadline = System.nanoTime() + Duration.ofMillis(1200).toNanos();
+    while (System.nanoTime() < deadline) {
+      assertEquals("abc", store.storeFor("agent1").getCookies().get(0).getValue());
+      store.afterResponse("agent1");
+      Thread.sleep(50);
+    }
+
+    assertTrue(shared.load("agent1", settings.ttl()).isPresent());
+    assertEquals("abc", store.storeFor("agent1").getCookies().get(0).getValue());
+  }
+
+  @Test
+  void missingSharedRowNeverClearsLocalJar() {
+    LocalVicidialSessionStateStore shared = new LocalVicidialSessionStateStore();
+    var settings = new VicidialCookieSessionStore.Settings(Duration.ofMinutes(30), 100, Duration.ofHours(1), Duration.ofSeconds(5));
+    store = new VicidialCookieSessionStore(settings, shared, clock::get);
+    store.storeFor("agent1").addCookie(cookie("PHPSESSID", "abc"));
+    store.afterResponse("agent1");
+
+    shared.delete("agent1");
+    advance(settings.nearCacheTtl());
+
+    assertEquals("abc", store.storeFor("agent1").getCookies().get(0).getValue());
+    store.afterResponse("agent1");
+    assertEquals("abc", shared.load("agent1", settings.ttl()).orElseThrow().cookies().get(0).value());
+  }
+
+  private void advance(Duration duration) {
+    clock.addAndGet(duration.toNanos());
+  }
+
+  private BasicClientCookie cookie(String name, String value) {
+    BasicClientCookie cookie = new BasicClientCookie(name, value);
+    cookie.setDomain("vicidial.local");
+    cookie.setPath("/");
+    return cookie;
+  }
+}
@@ -0,0 +1,160 @@
+package com.telco3.agentui.vicidial;
+
+import com.sun.net.httpserver.HttpServer;
+import com.telco3.agentui.config.BoundedVirtualThreadExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the Vicidial executor modes at their configured limits (application.properties defaults): the platform
+ * pool (16-64 threads, queue 500), virtual threads capped at 200 and, for reference, uncapped virtual threads. 500
+ * simulated agents poll a slow Vicidial in a closed loop; a VICIDIAL_BUSY rejection is retried after a short backoff,
+ * as the screen would, and counted. Each mode is warmed up first.
+ * Run with: mvn test -Dtest=VicidialExecutorBenchmarkTest -Dvicidial.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vicidial.benchmark", matches = "true")
+class VicidialExecutorBenchmarkTest {
+  private static final int AGENTS = 500;
+  private static final int POLLS_PER_AGENT = 4;
+  private static final long VICIDIAL_LATENCY_MS = 80;
+  private static final long BUSY_BACKOFF_MS = 20;
+  private static final int PLATFORM_CORE_SIZE = 16;
+  private static final int PLATFORM_MAX_SIZE = 64;
+  private static final int PLATFORM_QUEUE_CAPACITY = 500;
+  private static final int VIRTUAL_CONCURRENCY_LIMIT = 200;
+
+  private HttpServer server;
+  private VicidialClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(0), 1024);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/agc/vdc_db_query.php", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      try {
+        Thread.sleep(VICIDIAL_LATENCY_MS);
+      } catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] response = "0".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(response);
+      }
+    });
+    server.start();
+
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolve()).thenReturn(new VicidialConfigService.ResolvedVicidialConfig(
+        "http://localhost:" + server.getAddress().getPort(), "api", "apiPass", "react_crm", false, "test"
+    ));
+    client = new VicidialClient(configService, 4000, 12000, 12000, false);
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.shutdown();
+    server.stop(0);
+  }
+
+  @Test
+  void compareThroughputPlatformVsVirtualThreads(TestReporter reporter) {
+    ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+    platform.setCorePoolSize(PLATFORM_CORE_SIZE);
+    platform.setMaxPoolSize(PLATFORM_MAX_SIZE);
+    platform.setQueueCapacity(PLATFORM_QUEUE_CAPACITY);
+    platform.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    platform.initialize();
+
+    BoundedVirtualThreadExecutor virtual = new BoundedVirtualThreadExecutor("bench-vt-", VIRTUAL_CONCURRENCY_LIMIT);
+
+    SimpleAsyncTaskExecutor uncapped = new SimpleAsyncTaskExecutor("bench-vt-uncapped-");
+    uncapped.setVirtualThreads(true);
+
+    try {
+      run(platform);
+      double platformRps = report(reporter, "platform", PLATFORM_CORE_SIZE + "-" + PLATFORM_MAX_SIZE + " threads, queue " + PLATFORM_QUEUE_CAPACITY,
+          run(platform));
+      run(virtual);
+      double virtualRps = report(reporter, "virtual", String.valueOf(VIRTUAL_CONCURRENCY_LIMIT), run(virtual));
+      run(uncapped);
+      double uncappedRps = report(reporter, "virtual-uncapped", "none", run(uncapped));
+      reporter.publishEntry("speedup", String.format(Locale.ROOT, "virtual %.2fx, uncapped %.2fx",
+          virtualRps / platformRps, uncappedRps / platformRps));
+    } finally {
+      platform.shutdown();
+      virtual.close();
+      uncapped.close();
+    }
+  }
+
+  /** Every agent completes its polls one after another; returns the elapsed time and how many polls were rejected. */
+  private RunResult run(AsyncTaskExecutor executor) {
+    VicidialAsyncClient asyncClient = new VicidialAsyncClient(client, executor);
+    AtomicInteger rejected = new AtomicInteger();
+    long started = System.nanoTime();
+    try (ExecutorService agents = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int agent = 0; agent < AGENTS; agent++) {
+        String agentUser = "agent" + agent;
+        agents.submit(() -> {
+          for (int poll = 0; poll < POLLS_PER_AGENT; ) {
+            try {
+              var result = asyncClient.callbacksCount(agentUser, new LinkedHashMap<>(Map.of("user", agentUser))).join();
+              assertEquals(200, result.statusCode());
+              poll++;
+            } catch (CompletionException ex) {
+              if (!(ex.getCause() instanceof VicidialServiceException busy) || !"VICIDIAL_BUSY".equals(busy.code())) {
+                throw ex;
+              }
+              rejected.incrementAndGet();
+              Thread.sleep(BUSY_BACKOFF_MS);
+            }
+          }
+          return null;
+        });
+      }
+    }
+    return new RunResult(System.nanoTime() - started, rejected.get());
+  }
+
+  private double report(TestReporter reporter, String mode, String limit, RunResult run) {
+    int requests = AGENTS * POLLS_PER_AGENT;
+    double seconds = run.elapsedNanos() / 1_000_000_000.0;
+    double rps = requests / seconds;
+    Map<String, String> entry = new LinkedHashMap<>();
+    entry.put("mode", mode);
+    entry.put("limit", limit);
+    entry.put("requests", String.valueOf(requests));
+    entry.put("rejected", String.valueOf(run.rejected()));
+    entry.put("seconds", String.format(Locale.ROOT, "%.2f", seconds));
+    entry.put("rps", String.format(Locale.ROOT, "%.1f", rps));
+    reporter.publishEntry(entry);
+    return rps;
+  }
+
+  private record RunResult(long elapsedNanos, int rejected) {
+  }
+}
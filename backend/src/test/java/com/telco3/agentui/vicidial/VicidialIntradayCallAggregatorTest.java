@@ -0,0 +1,124 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class VicidialIntradayCallAggregatorTest {
+  private static final ZoneId LIMA = ZoneId.of("America/Lima");
+
+  private final VicidialRealtimeQueryService queryService = mock(VicidialRealtimeQueryService.class);
+  private final MutableClock clock = new MutableClock(LocalDateTime.of(2026, 3, 10, 15, 0));
+  private final VicidialIntradayCallAggregator aggregator =
+      new VicidialIntradayCallAggregator(queryService, clock, Duration.ofHours(1), Duration.ofMinutes(15));
+
+  @Test
+  void foldsOnlyNewlySettledRowsAndRescansTheTail() {
+    LocalDateTime midnight = LocalDateTime.of(2026, 3, 10, 0, 0);
+    when(queryService.aggregateCalls(midnight, LocalDateTime.of(2026, 3, 10, 14, 0), 20)).thenReturn(totals(100, "agent1", 100));
+    when(queryService.aggregateCalls(eq(LocalDateTime.of(2026, 3, 10, 14, 0)), isNull(), eq(20))).thenReturn(totals(5, "agent1", 5));
+    when(queryService.aggregateCalls(LocalDateTime.of(2026, 3, 10, 14, 0), LocalDateTime.of(2026, 3, 10, 14, 1), 20)).thenReturn(totals(2, "agent2", 2));
+    when(queryService.aggregateCalls(eq(LocalDateTime.of(2026, 3, 10, 14, 1)), isNull(), eq(20))).thenReturn(totals(4, "agent1", 4));
+
+    var first = aggregator.current(20);
+    assertEquals(105, first.answeredCalls());
+    assertEquals(105L, first.completedByAgent().get("agent1"));
+
+    clock.advance(Duration.ofMinutes(1));
+    var second = aggregator.current(20);
+    assertEquals(106, second.answeredCalls());
+    assertEquals(104L, second.completedByAgent().get("agent1"));
+    assertEquals(2L, second.completedByAgent().get("agent2"));
+    verify(queryService, times(1)).aggregateCalls(midnight, LocalDateTime.of(2026, 3, 10, 14, 0), 20);
+  }
+
+  @Test
+  void resetsAtLimaMidnightAndReconcilesPeriodically() {
+    when(queryService.aggregateCalls(any(), any(), anyInt())).thenReturn(totals(1, "agent1", 1));
+    aggregator.current(20);
+
+    clock.set(LocalDateTime.of(2026, 3, 11, 0, 30));
+    aggregator.current(20);
+    verify(queryService).aggregateCalls(eq(LocalDateTime.of(2026, 3, 11, 0, 0)), isNull(), eq(20));
+
+    clock.advance(Duration.ofHours(2));
+    aggregator.current(20);
+    verify(queryService).aggregateCalls(LocalDateTime.of(2026, 3, 11, 0, 0), LocalDateTime.of(2026, 3, 11, 1, 30), 20);
+  }
+
+  @Test
+  void failedRefreshKeepsLastTotalsAndRetriesSameWindow() {
+    LocalDateTime midnight = LocalDateTime.of(2026, 3, 10, 0, 0);
+    LocalDateTime watermark = LocalDateTime.of(2026, 3, 10, 14, 0);
+    when(queryService.aggregateCalls(midnight, watermark, 20)).thenReturn(totals(10, "agent1", 10));
+    when(queryService.aggregateCalls(eq(watermark), isNull(), eq(20))).thenReturn(totals(1, "agent1", 1));
+    aggregator.current(20);
+
+    clock.advance(Duration.ofMinutes(1));
+    when(queryService.aggregateCalls(watermark, watermark.plusMinutes(1), 20)).thenThrow(new IllegalStateException("mariadb down"));
+    assertEquals(11, aggregator.current(20).answeredCalls());
+
+    reset(queryService);
+    when(queryService.aggregateCalls(watermark, watermark.plusMinutes(1), 20)).thenReturn(totals(3, "agent1", 3));
+    when(queryService.aggregateCalls(eq(watermark.plusMinutes(1)), isNull(), eq(20))).thenReturn(VicidialRealtimeQueryService.CallTotals.EMPTY);
+    assertEquals(13, aggregator.current(20).answeredCalls());
+  }
+
+  @Test
+  void metricsAreDerivedFromAdditiveTotals() {
+    var metrics = new VicidialRealtimeQueryService.CallTotals(4, 1, 300, 4, 45, 3, 5, 4, Map.of()).toTodayMetrics();
+
+    assertEquals(4, metrics.answeredCalls());
+    assertEquals(1, metrics.abandonedCalls());
+    assertEquals(80, metrics.serviceLevelPercent());
+    assertEquals(15, metrics.averageWaitSeconds());
+    assertEquals(75, metrics.averageTalkSeconds());
+  }
+
+  private VicidialRealtimeQueryService.CallTotals totals(long answered, String user, long completed) {
+    return new VicidialRealtimeQueryService.CallTotals(answered, 0, answered * 60, answered, 0, 0, 0, 0, Map.of(user, completed));
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant instant;
+
+    MutableClock(LocalDateTime limaTime) {
+      set(limaTime);
+    }
+
+    void set(LocalDateTime limaTime) {
+      instant = limaTime.atZone(LIMA).toInstant();
+    }
+
+    void advance(Duration duration) {
+      instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return LIMA;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VicidialRealtimeQueryServiceTest {
+
+  @Test
+  void failedSchemaScanWithoutProfileFailsAggregatesButNotCatalogReads() throws Exception {
+    VicidialRuntimeDataSourceFactory factory = mock(VicidialRuntimeDataSourceFactory.class);
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("mariadb down"));
+    when(factory.replicaDataSource(any())).thenReturn(dataSource);
+    when(factory.configVersion()).thenReturn(3L);
+    VicidialRealtimeQueryService service = new VicidialRealtimeQueryService(factory, 600000);
+
+    LocalDateTime from = LocalDateTime.of(2026, 3, 2, 0, 0);
+    assertThrows(DataAccessException.class, () -> service.aggregateCalls(from, from.plusHours(1), 20));
+    assertTrue(service.fetchPauseCodes().isEmpty());
+  }
+}
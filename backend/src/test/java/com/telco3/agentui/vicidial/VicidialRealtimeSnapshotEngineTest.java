@@ -0,0 +1,124 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class VicidialRealtimeSnapshotEngineTest {
+  private final VicidialRealtimeQueryService queryService = mock(VicidialRealtimeQueryService.class);
+  private final VicidialIntradayCallAggregator callAggregator = mock(VicidialIntradayCallAggregator.class);
+  private VicidialRealtimeSnapshotEngine engine;
+
+  @AfterEach
+  void tearDown() {
+    if (engine != null) {
+      engine.shutdown();
+    }
+  }
+
+  @Test
+  void concurrentReadersShareOneDatabaseLoad() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(queryService.queryLiveAgents(null, null, null)).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return List.of(agent("agent1", "READY"));
+    });
+    when(callAggregator.current(anyInt())).thenReturn(calls(10, Map.of("agent1", 3L)));
+    engine = new VicidialRealtimeSnapshotEngine(queryService, callAggregator, 60_000, 60_000, 20, 120);
+
+    ExecutorService pool = Executors.newFixedThreadPool(10);
+    try {
+      List<Future<VicidialRealtimeSnapshotEngine.RealtimeSnapshot>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(pool.submit(engine::current));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      long version = futures.get(0).get(5, TimeUnit.SECONDS).version();
+      for (var future : futures) {
+        assertEquals(version, future.get(5, TimeUnit.SECONDS).version());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    verify(queryService, times(1)).queryLiveAgents(null, null, null);
+    verify(callAggregator, times(1)).current(20);
+  }
+
+  @Test
+  void versionOnlyMovesWhenRealtimeDataChanges() {
+    when(queryService.queryLiveAgents(null, null, null))
+        .thenReturn(List.of(agent("agent1", "READY")))
+        .thenReturn(List.of(agent("agent1", "READY")))
+        .thenReturn(List.of(agent("agent1", "INCALL")));
+    when(callAggregator.current(anyInt())).thenReturn(calls(10, Map.of()));
+    engine = new VicidialRealtimeSnapshotEngine(queryService, callAggregator, 60_000, 60_000, 20, 120);
+
+    var first = engine.current();
+    engine.poll();
+    var unchanged = engine.current();
+    engine.poll();
+    var changed = engine.current();
+
+    assertEquals(first.version(), unchanged.version());
+    assertSame(first.agents(), unchanged.agents());
+    assertEquals(first.version() + 1, changed.version());
+    assertTrue(engine.snapshotAt(first.version()).isPresent());
+    assertEquals("INCALL", changed.agents().get(0).vicidialStatus());
+  }
+
+  @Test
+  void failedRefreshKeepsServingPreviousSnapshot() {
+    when(queryService.queryLiveAgents(null, null, null))
+        .thenReturn(List.of(agent("agent1", "READY")))
+        .thenThrow(new IllegalStateException("mariadb down"));
+    when(callAggregator.current(anyInt())).thenReturn(calls(10, Map.of()));
+    engine = new VicidialRealtimeSnapshotEngine(queryService, callAggregator, 60_000, 60_000, 20, 120);
+
+    var first = engine.current();
+    engine.poll();
+
+    assertSame(first, engine.current());
+  }
+
+  @Test
+  void staleReadDuringOutageServesLastGoodSnapshotWithoutPublishing() throws Exception {
+    when(queryService.queryLiveAgents(null, null, null))
+        .thenReturn(List.of(agent("agent1", "READY")))
+        .thenThrow(new org.springframework.dao.TransientDataAccessResourceException("breaker open"));
+    when(callAggregator.current(anyInt())).thenReturn(calls(10, Map.of()));
+    engine = new VicidialRealtimeSnapshotEngine(queryService, callAggregator, 100, 60_000, 20, 120);
+    List<VicidialRealtimeSnapshotEngine.RealtimeSnapshot> published = new ArrayList<>();
+
+    var first = engine.current();
+    engine.addListener(published::add);
+    Thread.sleep(400);
+    var served = engine.current();
+
+    assertSame(first, served);
+    assertEquals(1, served.agents().size());
+    assertTrue(published.isEmpty());
+    assertFalse(engine.snapshotAt(first.version() + 1).isPresent());
+  }
+
+  private VicidialRealtimeQueryService.RealtimeAgentRow agent(String user, String status) {
+    return new VicidialRealtimeQueryService.RealtimeAgentRow(user, user, "SIP/" + user, "CAMP1", status, null, null, null, null, null, null, null);
+  }
+
+  private VicidialRealtimeQueryService.CallTotals calls(long answered, Map<String, Long> completedByAgent) {
+    return new VicidialRealtimeQueryService.CallTotals(answered, 0, answered * 60, answered, 0, 0, 0, 0, completedByAgent);
+  }
+}
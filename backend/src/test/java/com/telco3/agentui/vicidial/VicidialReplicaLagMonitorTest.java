@@ -0,0 +1,49 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class VicidialReplicaLagMonitorTest {
+  private final DataSource replica = mock(DataSource.class);
+  private final AtomicReference<Long> lag = new AtomicReference<>(0L);
+  private final AtomicInteger probes = new AtomicInteger();
+  private final AtomicLong nanos = new AtomicLong();
+  private final VicidialReplicaLagMonitor monitor = new VicidialReplicaLagMonitor(30, 5000, ds -> {
+    probes.incrementAndGet();
+    return lag.get();
+  }, nanos::get);
+
+  @Test
+  void probesOncePerIntervalAndConfigVersion() {
+    assertTrue(monitor.usable(1L, () -> replica));
+    lag.set(31L);
+    assertTrue(monitor.usable(1L, () -> replica));
+    assertEquals(1, probes.get());
+
+    assertFalse(monitor.usable(2L, () -> replica));
+    assertEquals(2, probes.get());
+
+    lag.set(30L);
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+    assertTrue(monitor.usable(2L, () -> replica));
+  }
+
+  @Test
+  void unknownLagOrUnreachableReplicaFallsBack() {
+    lag.set(null);
+    assertFalse(monitor.usable(1L, () -> replica));
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertFalse(monitor.usable(1L, () -> {
+      throw new IllegalStateException("replica down");
+    }));
+  }
+}
@@ -0,0 +1,187 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialRequestCoalescerTest {
+
+  @Test
+  void concurrentIdenticalCallsShareOneInFlightRequest() throws Exception {
+    VicidialRequestCoalescer coalescer = VicidialRequestCoalescer.withoutResultCache();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch entered = new CountDownLatch(8);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Thread> callers = new CopyOnWriteArrayList<>();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(pool.submit(() -> {
+          callers.add(Thread.currentThread());
+          entered.countDown();
+          return coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:1166", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            awaitQuietly(release);
+            return "lead=1166";
+          });
+        }));
+      }
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      awaitParked(callers);
+      release.countDown();
+      for (Future<String> future : futures) {
+        assertEquals("lead=1166", future.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertEquals(1, loads.get());
+  }
+
+  /** Waits until every caller is blocked inside {@code get}: the owner on the loader, the rest on its future. */
+  private static void awaitParked(List<Thread> threads) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING
+        || thread.getState() == Thread.State.TIMED_WAITING)) {
+      assertTrue(System.nanoTime() < deadline, "callers did not block on the in-flight load");
+      Thread.onSpinWait();
+    }
+  }
+
+  @Test
+  void resultIsReusedWithinTtlAndReloadedAfterInvalidate() {
+    VicidialRequestCoalescer coalescer = new VicidialRequestCoalescer(60000, 0, 0, 0);
+    AtomicInteger loads = new AtomicInteger();
+
+    coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:10", () -> "v" + loads.incrementAndGet());
+    String second = coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:10", () -> "v" + loads.incrementAndGet());
+    assertEquals("v1", second);
+
+    coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, "1:10");
+    assertEquals("v2", coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:10", () -> "v" + loads.incrementAndGet()));
+  }
+
+  @Test
+  void failuresAreNotCached() {
+    VicidialRequestCoalescer coalescer = new VicidialRequestCoalescer(0, 60000, 0, 0);
+    assertThrows(IllegalStateException.class, () -> coalescer.get(VicidialRequestCoalescer.Function.CAMPAIGNS, "1:all", () -> {
+      throw new IllegalStateException("down");
+    }));
+    assertEquals("ok", coalescer.get(VicidialRequestCoalescer.Function.CAMPAIGNS, "1:all", () -> "ok"));
+  }
+
+  @Test
+  void asyncCallsShareOneSubscription() {
+    VicidialRequestCoalescer coalescer = VicidialRequestCoalescer.withoutResultCache();
+    AtomicInteger subscriptions = new AtomicInteger();
+    Mono<String> slow = Mono.delay(Duration.ofMillis(100)).map(ignored -> "lead").doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+    Mono<String> first = coalescer.getAsync(VicidialRequestCoalescer.Function.LEAD_INFO, "1:5", () -> slow);
+    Mono<String> second = coalescer.getAsync(VicidialRequestCoalescer.Function.LEAD_INFO, "1:5", () -> slow);
+
+    assertEquals(List.of("lead", "lead"), Mono.zip(first, second).map(t -> List.of(t.getT1(), t.getT2())).block(Duration.ofSeconds(5)));
+    assertEquals(1, subscriptions.get());
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  void loadStartedBeforeInvalidateIsNotCached() throws Exception {
+    VicidialRequestCoalescer coalescer = new VicidialRequestCoalescer(60000, 0, 0, 0);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> stale = pool.submit(() -> coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77", () -> {
+        loading.countDown();
+        awaitQuietly(release);
+        return "old";
+      }));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77");
+      release.countDown();
+      assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+
+      assertEquals("new", coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77", () -> "new"));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void errorFromLoaderReleasesWaitingCallers() throws Exception {
+    VicidialRequestCoalescer coalescer = VicidialRequestCoalescer.withoutResultCache();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> owner = pool.submit(() -> coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:9", () -> {
+        loading.countDown();
+        awaitQuietly(release);
+        throw new AssertionError("mock misconfigured");
+      }));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      Future<String> waiter = pool.submit(() -> coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:9", () -> "late"));
+      Thread.sleep(50);
+      release.countDown();
+
+      assertInstanceOf(AssertionError.class, assertThrows(java.util.concurrent.ExecutionException.class,
+          () -> owner.get(5, TimeUnit.SECONDS)).getCause());
+      try {
+        assertEquals("late", waiter.get(5, TimeUnit.SECONDS));
+      } catch (java.util.concurrent.ExecutionException ex) {
+        assertInstanceOf(AssertionError.class, ex.getCause());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void fullInvalidationMapKeepsMarkersOfLoadsStillRunning() throws Exception {
+    VicidialRequestCoalescer coalescer = new VicidialRequestCoalescer(60000, 0, 0, 0);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> stale = pool.submit(() -> coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77", () -> {
+        loading.countDown();
+        awaitQuietly(release);
+        return "old";
+      }));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77");
+      for (int i = 0; i < 5000; i++) {
+        coalescer.invalidate(VicidialRequestCoalescer.Function.LEAD_INFO, "2:" + i);
+      }
+      release.countDown();
+      assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+
+      assertEquals("new", coalescer.get(VicidialRequestCoalescer.Function.LEAD_INFO, "1:77", () -> "new"));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
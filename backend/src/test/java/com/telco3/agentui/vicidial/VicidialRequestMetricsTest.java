@@ -0,0 +1,68 @@
+package com.telco3.agentui.vicidial;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialRequestMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final VicidialRequestMetrics metrics = new VicidialRequestMetrics(registry);
+
+  @Test
+  void recordsTimerTaggedByPathFunctionOutcomeAndStatus() {
+    metrics.record("/agc/api.php", Map.of("function", "external_status"), () -> new VicidialClient.VicidialHttpResult(200, "SUCCESS"));
+    metrics.record("/agc/vdc_db_query.php", Map.of("ACTION", "manDiaLlookCaLL"), () -> new VicidialClient.VicidialHttpResult(502, ""));
+
+    assertEquals(1, registry.get(VicidialRequestMetrics.TIMER)
+        .tags("path", "/agc/api.php", "function", "external_status", "outcome", "success", "status", "200")
+        .timer().count());
+    assertEquals(1, registry.get(VicidialRequestMetrics.TIMER)
+        .tags("path", "/agc/vdc_db_query.php", "function", "manDiaLlookCaLL", "outcome", "server_error", "status", "502")
+        .timer().count());
+  }
+
+  @Test
+  void countsTimeoutsAndUnreachableMappings() {
+    VicidialServiceException timeout = new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "VICIDIAL_UNREACHABLE",
+        "timeout", null, Map.of("cause", "SocketTimeoutException"));
+    VicidialServiceException refused = new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "VICIDIAL_UNREACHABLE",
+        "refused", null, Map.of("cause", "ConnectException"));
+
+    assertThrows(VicidialServiceException.class, () -> metrics.record("/agc/conf_exten_check.php", Map.of("ACTION", "conf_exten_check"), () -> {
+      throw timeout;
+    }));
+    assertThrows(VicidialServiceException.class, () -> metrics.record("/agc/api.php", Map.of("function", "agent_status"), () -> {
+      throw refused;
+    }));
+
+    assertEquals(1.0, registry.get(VicidialRequestMetrics.TIMEOUTS).tags("function", "conf_exten_check").counter().count());
+    assertEquals(1.0, registry.get(VicidialRequestMetrics.UNREACHABLE).tags("function", "agent_status", "cause", "ConnectException").counter().count());
+    assertEquals(1.0, registry.get(VicidialRequestMetrics.UNREACHABLE).tags("function", "conf_exten_check", "cause", "SocketTimeoutException").counter().count());
+    assertEquals(1, registry.get(VicidialRequestMetrics.TIMER).tags("function", "agent_status", "outcome", "unreachable").timer().count());
+  }
+
+  @Test
+  void recordsAsyncCallsAndCircuitRejections() {
+    metrics.recordAsync("/agc/api.php", Map.of("function", "st_get_agent_active_lead"),
+        Mono.just(new VicidialClient.VicidialHttpResult(200, "ok"))).block();
+    VicidialServiceException open = new VicidialServiceException(HttpStatus.SERVICE_UNAVAILABLE, "VICIDIAL_CIRCUIT_OPEN", "open");
+    assertThrows(VicidialServiceException.class, () -> metrics.recordAsync("/agc/api.php", Map.of("function", "st_get_agent_active_lead"),
+        Mono.<VicidialClient.VicidialHttpResult>error(open)).block());
+
+    assertEquals(1, registry.get(VicidialRequestMetrics.TIMER).tags("outcome", "success").timer().count());
+    assertEquals(1, registry.get(VicidialRequestMetrics.TIMER).tags("outcome", "circuit_open").timer().count());
+  }
+
+  @Test
+  void functionTagFallsBackForMissingOrUnboundedValues() {
+    assertEquals("none", VicidialRequestMetrics.functionOf(Map.of()));
+    assertEquals("other", VicidialRequestMetrics.functionOf(Map.of("function", "x y")));
+    assertEquals("update_settings", VicidialRequestMetrics.functionOf(Map.of("ACTION", "update_settings")));
+  }
+}
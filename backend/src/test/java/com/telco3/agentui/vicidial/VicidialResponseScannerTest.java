@@ -0,0 +1,128 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialResponseScannerTest {
+
+  private static final List<String> FIXTURES = List.of(
+      "",
+      "   \n\n",
+      "SUCCESS: st_get_agent_active_lead\nlead_id: 12345\nphone_number: 51987654321\nstatus: INCALL",
+      "lead_id=123&phone_number=999&list_id=55&campaign=CAMP1",
+      "SUCCESS|12345|51987654321|INCALL|M251231123456789",
+      "var lead_id = '777';\nvar phone_number = \"555\";\nwindow.campaign = 'VENTAS';\nthis.uniqueid = \"1700000000.123\";",
+      "Logged-in: PAUSED\r\nagent status: READY\r\nlast_VDRP_stage=PAUSED;\r\n",
+      "status=\"SENT\";,\nkey_with--dashes : value , \n : novalue\n=empty\nno separator here",
+      "a=1&b=&=3&c\nx|y:2|z=3&w=4",
+      "<html><body><form><input name=\"VD_login\"/></form>Please login</body></html>",
+      "M251231123456789\nlead_id: 12345\nstatus: SENT\nMX12\nAM251231123456789",
+      "callerid: M1234567 uniqueid: 1700000000.55 channel: SIP/1001-0000001a",
+      "Lead ID :  42  \n  Phone Number=  51999  \nVAR_Dial_Method: RATIO\nRésumé: x",
+      "\t\tindented\t:\tvalue\t\nmulti   space   key = v\u000Bw\n\u0085odd: line\u2028sep"
+  );
+
+  @Test
+  void parseKeyValuesMatchesLegacyRegexParser() {
+    for (String fixture : FIXTURES) {
+      Map<String, String> expected = legacyParse(fixture);
+      Map<String, String> actual = VicidialResponseScanner.parseKeyValues(fixture);
+      String callId = VicidialResponseScanner.findCallId(fixture, 6);
+      if (callId != null) {
+        VicidialResponseScanner.put(actual, "call_id", callId);
+      }
+      assertEquals(expected, actual, () -> "fixture: " + fixture);
+      assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()), () -> "order: " + fixture);
+    }
+  }
+
+  @Test
+  void findCallIdMatchesLegacyRegex() {
+    Pattern legacy = Pattern.compile("\\b(M[0-9A-Z]{8,})\\b");
+    for (String fixture : FIXTURES) {
+      Matcher matcher = legacy.matcher(fixture);
+      String expected = matcher.find() ? matcher.group(1) : null;
+      assertEquals(expected, VicidialResponseScanner.findCallId(fixture, 8), () -> "fixture: " + fixture);
+    }
+  }
+
+  @Test
+  void collapseWhitespaceLowerMatchesLegacyRegex() {
+    for (String fixture : FIXTURES) {
+      String expected = Pattern.compile("\\s+").matcher(fixture.toLowerCase()).replaceAll(" ");
+      assertEquals(expected, VicidialResponseScanner.collapseWhitespaceLower(fixture), () -> "fixture: " + fixture);
+    }
+  }
+
+  private static Map<String, String> legacyParse(String rawBody) {
+    Map<String, String> parsed = new LinkedHashMap<>();
+    String safeBody = Objects.toString(rawBody, "");
+    Pattern pattern = Pattern.compile("^\\s*([A-Za-z0-9_\\-\\s]+?)\\s*[:=]\\s*(.*?)\\s*$");
+    for (String line : safeBody.split("\\r?\\n")) {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      if (trimmed.contains("&") && trimmed.contains("=")) {
+        for (String pair : trimmed.split("&")) {
+          legacyPair(parsed, pattern, pair);
+        }
+      }
+      if (trimmed.contains("|")) {
+        for (String part : trimmed.split("\\|")) {
+          legacyPair(parsed, pattern, part);
+        }
+      }
+      legacyPair(parsed, pattern, trimmed);
+    }
+    Matcher callIdMatcher = Pattern.compile("\\b(M[0-9A-Z]{6,})\\b").matcher(safeBody);
+    if (callIdMatcher.find()) {
+      legacyPut(parsed, "call_id", callIdMatcher.group(1));
+    }
+    return parsed;
+  }
+
+  private static void legacyPair(Map<String, String> parsed, Pattern pattern, String candidate) {
+    Matcher matcher = pattern.matcher(candidate);
+    if (matcher.find()) {
+      legacyPut(parsed, matcher.group(1), matcher.group(2));
+    }
+  }
+
+  private static void legacyPut(Map<String, String> parsed, String rawKey, String rawValue) {
+    String key = rawKey.trim().toLowerCase()
+        .replaceAll("[^a-z0-9]+", "_")
+        .replaceAll("_+", "_")
+        .replaceAll("^_+", "")
+        .replaceAll("_+$", "");
+    if (key.startsWith("var_")) {
+      key = key.substring(4);
+    }
+    if (key.startsWith("window_")) {
+      key = key.substring(7);
+    }
+    if (key.startsWith("this_")) {
+      key = key.substring(5);
+    }
+    String value = rawValue.trim();
+    if (!value.isBlank()) {
+      value = value.replaceAll("^[\"']+", "").replaceAll("[\"']+$", "").replaceAll("[;,]+$", "").trim();
+    }
+    if (key.isEmpty() || value.isBlank()) {
+      return;
+    }
+    parsed.putIfAbsent(key, value);
+    String compact = key.replace("_", "");
+    if (!compact.equals(key)) {
+      parsed.putIfAbsent(compact, value);
+    }
+  }
+}
@@ -1,14 +1,25 @@
 package com.telco3.agentui.vicidial;
 
+import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
 
 class VicidialRuntimeDataSourceFactoryTest {
 
@@ -21,18 +32,108 @@ class VicidialRuntimeDataSourceFactoryTest {
 
     VicidialRuntimeDataSourceFactory factory = new VicidialRuntimeDataSourceFactory(
         configService,
-        "org.mariadb.jdbc.Driver",
-        60000
+        "org.mariadb.jdbc.Driver"
     );
 
-    DataSource dataSource = factory.getOrCreate();
+    DataSource dataSource = factory.getOrCreate(VicidialRuntimeDataSourceFactory.Workload.REALTIME);
     HikariDataSource hikariDataSource = assertInstanceOf(HikariDataSource.class, dataSource);
 
     assertEquals("org.mariadb.jdbc.Driver", hikariDataSource.getDriverClassName());
     assertEquals("jdbc:mariadb://172.17.248.220:3306/asterisk", hikariDataSource.getJdbcUrl());
     assertEquals("api_vicidial", hikariDataSource.getUsername());
-    assertEquals("VicidialRuntimePool", hikariDataSource.getPoolName());
+    assertEquals("VicidialRuntimePool-realtime", hikariDataSource.getPoolName());
 
-    factory.invalidate();
+    factory.shutdown();
+  }
+
+  @Test
+  void sizesEachWorkloadPoolIndependently() {
+    VicidialRuntimeDataSourceFactory factory = new VicidialRuntimeDataSourceFactory(
+        mock(VicidialConfigService.class), "org.mariadb.jdbc.Driver", Map.of(
+            VicidialRuntimeDataSourceFactory.Workload.REALTIME, new VicidialRuntimeDataSourceFactory.PoolSize(4, 1),
+            VicidialRuntimeDataSourceFactory.Workload.CALL_STATE, new VicidialRuntimeDataSourceFactory.PoolSize(8, 2),
+            VicidialRuntimeDataSourceFactory.Workload.CATALOG, new VicidialRuntimeDataSourceFactory.PoolSize(2, 5)
+        ), 30000, VicidialResilienceRegistry.defaults(), cfg -> mock(HikariDataSource.class),
+        new VicidialReplicaLagMonitor(30, 5000));
+
+    HikariConfig callState = factory.hikariConfig(config(1L), VicidialRuntimeDataSourceFactory.Workload.CALL_STATE);
+    assertEquals(8, callState.getMaximumPoolSize());
+    assertEquals(2, callState.getMinimumIdle());
+    assertEquals("VicidialRuntimePool-call-state", callState.getPoolName());
+
+    HikariConfig catalog = factory.hikariConfig(config(1L), VicidialRuntimeDataSourceFactory.Workload.CATALOG);
+    assertEquals(2, catalog.getMaximumPoolSize());
+    assertEquals(2, catalog.getMinimumIdle());
+  }
+
+  @Test
+  void rebuildsOnlyOnConfigVersionChangeAndDrainsTheOldPool() throws Exception {
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolveDbConfig()).thenReturn(config(1L));
+    List<HikariDataSource> built = new ArrayList<>();
+    HikariPoolMXBean oldPool = mock(HikariPoolMXBean.class);
+    when(oldPool.getActiveConnections()).thenReturn(1, 0);
+    VicidialRuntimeDataSourceFactory factory = new VicidialRuntimeDataSourceFactory(
+        configService, "org.mariadb.jdbc.Driver", Map.of(), 30000, VicidialResilienceRegistry.defaults(), cfg -> {
+          HikariDataSource dataSource = mock(HikariDataSource.class);
+          when(dataSource.getHikariPoolMXBean()).thenReturn(built.isEmpty() ? oldPool : mock(HikariPoolMXBean.class));
+          built.add(dataSource);
+          return dataSource;
+        }, new VicidialReplicaLagMonitor(30, 5000));
+
+    DataSource first = factory.getOrCreate(VicidialRuntimeDataSourceFactory.Workload.REALTIME);
+    assertSame(first, factory.getOrCreate(VicidialRuntimeDataSourceFactory.Workload.REALTIME));
+    assertNotSame(first, factory.getOrCreate(VicidialRuntimeDataSourceFactory.Workload.CALL_STATE));
+    assertEquals(2, built.size());
+
+    when(configService.resolveDbConfig()).thenReturn(config(2L));
+    DataSource second = factory.getOrCreate(VicidialRuntimeDataSourceFactory.Workload.REALTIME);
+    assertNotSame(first, second);
+    verify(oldPool).softEvictConnections();
+    verify(built.get(0), never()).close();
+    verify(built.get(0), timeout(3000)).close();
+
+    factory.shutdown();
+  }
+
+  @Test
+  void routesReplicaReadsWhileLagIsWithinLimit() throws Exception {
+    VicidialConfigService configService = mock(VicidialConfigService.class);
+    when(configService.resolveDbConfig()).thenReturn(config(1L));
+    when(configService.resolveReplicaDbConfig()).thenReturn(Optional.of(new VicidialConfigService.ResolvedVicidialDbConfig(
+        "10.0.0.6", "3306", "asterisk", "report", "secret", false, 1L
+    )));
+    Map<String, HikariDataSource> pools = new HashMap<>();
+    AtomicReference<Long> lag = new AtomicReference<>(2L);
+    AtomicLong nanos = new AtomicLong();
+    VicidialRuntimeDataSourceFactory factory = new VicidialRuntimeDataSourceFactory(
+        configService, "org.mariadb.jdbc.Driver", Map.of(), 30000, VicidialResilienceRegistry.defaults(), cfg -> {
+          HikariDataSource dataSource = mock(HikariDataSource.class);
+          pools.put(cfg.getPoolName(), dataSource);
+          return dataSource;
+        }, new VicidialReplicaLagMonitor(30, 5000, ds -> lag.get(), nanos::get));
+
+    assertRoutedTo(pools, "VicidialReplicaPool-catalog", factory.replicaDataSource(VicidialRuntimeDataSourceFactory.Workload.CATALOG));
+
+    lag.set(120L);
+    assertRoutedTo(pools, "VicidialReplicaPool-catalog", factory.replicaDataSource(VicidialRuntimeDataSourceFactory.Workload.CATALOG));
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+    assertRoutedTo(pools, "VicidialRuntimePool-catalog", factory.replicaDataSource(VicidialRuntimeDataSourceFactory.Workload.CATALOG));
+
+    lag.set(null);
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+    assertRoutedTo(pools, "VicidialRuntimePool-realtime", factory.replicaDataSource(VicidialRuntimeDataSourceFactory.Workload.REALTIME));
+
+    factory.shutdown();
+  }
+
+  private void assertRoutedTo(Map<String, HikariDataSource> pools, String poolName, DataSource dataSource) {
+    assertSame(pools.get(poolName), ((CircuitBreakingDataSource) dataSource).getTargetDataSource());
+  }
+
+  private VicidialConfigService.ResolvedVicidialDbConfig config(long version) {
+    return new VicidialConfigService.ResolvedVicidialDbConfig(
+        "10.0.0.5", "3306", "asterisk", "api_vicidial", "secret", false, version
+    );
   }
 }
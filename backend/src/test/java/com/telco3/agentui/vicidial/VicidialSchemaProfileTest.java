@@ -0,0 +1,73 @@
+package com.telco3.agentui.vicidial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VicidialSchemaProfileTest {
+
+  @Test
+  void compilesLiveAgentsQueryFromAvailableColumns() {
+    var profile = new VicidialSchemaProfile(Map.of(
+        "vicidial_live_agents", Set.of("USER", "status", "campaign_id", "comments", "last_update_time", "lead_id"),
+        "vicidial_users", Set.of("user", "full_name")
+    ));
+
+    var query = profile.liveAgents();
+    assertNotNull(query);
+    assertEquals("NULLIF(vla.`comments`, '')", query.pauseExpr());
+    assertTrue(query.hasCampaign());
+    assertFalse(query.hasListPhone());
+    assertTrue(query.baseSql().contains("LEFT JOIN vicidial_users vu"));
+    assertFalse(query.baseSql().contains("vicidial_list"));
+    assertTrue(query.baseSql().contains("COALESCE(vla.`last_update_time`) AS state_reference_time"));
+    assertTrue(query.baseSql().contains("NULL AS extension"));
+  }
+
+  @Test
+  void missingRequiredColumnsDisableQueries() {
+    var profile = new VicidialSchemaProfile(Map.of(
+        "vicidial_live_agents", Set.of("user"),
+        "vicidial_pause_codes", Set.of("pause_name")
+    ));
+
+    assertNull(profile.liveAgents());
+    assertNull(profile.pauseCodesSql());
+    assertNull(profile.catalogCampaignsSql());
+    assertTrue(profile.callTables().isEmpty());
+    assertTrue(profile.hasTable("vicidial_live_agents"));
+    assertFalse(profile.hasColumn("vicidial_live_agents", "status"));
+  }
+
+  @Test
+  void compilesCatalogAndCallAggregateShapes() {
+    var profile = new VicidialSchemaProfile(Map.of(
+        "vicidial_pause_codes", Set.of("pause_code", "pause_name"),
+        "vicidial_campaign_statuses", Set.of("campaign_id", "status", "selectable"),
+        "vicidial_log", Set.of("call_date", "user", "length_in_sec"),
+        "vicidial_closer_log", Set.of("call_date", "status", "queue_seconds")
+    ));
+
+    assertTrue(profile.pauseCodesSql().contains("`pause_name` AS pause_name"));
+    assertTrue(profile.pauseCodesSql().contains("NULL AS billable"));
+    assertTrue(profile.campaignDispositionsSql().contains("campaign_id = ?"));
+    assertTrue(profile.campaignDispositionsSql().contains("selectable = 'Y'"));
+    assertFalse(profile.campaignDispositionsSql().contains("active = 'Y'"));
+    assertNull(profile.catalogDispositionsSql());
+
+    var log = profile.callTables().get(0);
+    assertEquals("vicidial_log", log.table());
+    assertTrue(log.groupedByUser());
+    assertFalse(log.thresholdParam());
+    assertTrue(log.closedWindowSql().contains("`call_date` < ?"));
+    assertFalse(log.openWindowSql().contains("`call_date` < ?"));
+
+    var closer = profile.callTables().get(1);
+    assertFalse(closer.groupedByUser());
+    assertTrue(closer.thresholdParam());
+    assertTrue(closer.openWindowSql().contains("'DROP','XDROP','ABANDON','ABANDONED'"));
+  }
+}
@@ -4,14 +4,18 @@ import com.telco3.agentui.agent.VicidialCredentialService;
 import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.mock.env.MockEnvironment;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class VicidialServiceTest {
+  private static final int FOLLOW_UP_MAX_ATTEMPTS = 12;
 
   @Test
   void mapsDialMethodToMode() {
@@ -62,7 +66,7 @@ class VicidialServiceTest {
   }
 
   @Test
-  void followUpManualDialResolvesUniqueIdAndChannelAfterIncall() {
+  void manualDialFollowUpResolvesUniqueIdAndChannelAfterIncall() {
     VicidialClient client = mock(VicidialClient.class);
     VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
     VicidialRuntimeDataSourceFactory dataSourceFactory = mock(VicidialRuntimeDataSourceFactory.class);
@@ -104,7 +108,7 @@ class VicidialServiceTest {
         Map.of()
     );
 
-    var result = service.followUpManualDial("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    var result = followUp(service, session, parsed);
 
     assertTrue(result.incallConfirmed());
     assertEquals(1166L, result.leadId());
@@ -119,7 +123,7 @@ class VicidialServiceTest {
   }
 
   @Test
-  void followUpManualDialDoesNotConfirmWhenOutboundChannelLoopsToAgent() {
+  void manualDialFollowUpDoesNotConfirmWhenOutboundChannelLoopsToAgent() {
     VicidialClient client = mock(VicidialClient.class);
     VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
     VicidialRuntimeDataSourceFactory dataSourceFactory = mock(VicidialRuntimeDataSourceFactory.class);
@@ -158,7 +162,7 @@ class VicidialServiceTest {
         Map.of()
     );
 
-    var result = service.followUpManualDial("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    var result = followUp(service, session, parsed);
 
     assertFalse(result.incallConfirmed());
     assertEquals("DIALING_PENDING_CONFIRMATION", result.classification());
@@ -168,7 +172,7 @@ class VicidialServiceTest {
   }
 
   @Test
-  void followUpManualDialDoesNotConfirmWhenOnlyConferenceLocalChannelExists() {
+  void manualDialFollowUpDoesNotConfirmWhenOnlyConferenceLocalChannelExists() {
     VicidialClient client = mock(VicidialClient.class);
     VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
     VicidialRuntimeDataSourceFactory dataSourceFactory = mock(VicidialRuntimeDataSourceFactory.class);
@@ -207,7 +211,7 @@ class VicidialServiceTest {
         Map.of()
     );
 
-    var result = service.followUpManualDial("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    var result = followUp(service, session, parsed);
 
     assertFalse(result.incallConfirmed());
     assertEquals("DIALING_PENDING_CONFIRMATION", result.classification());
@@ -217,7 +221,7 @@ class VicidialServiceTest {
   }
 
   @Test
-  void followUpManualDialDoesNotConfirmWhenOnlyMonitorExtensionChannelExists() {
+  void manualDialFollowUpDoesNotConfirmWhenOnlyMonitorExtensionChannelExists() {
     VicidialClient client = mock(VicidialClient.class);
     VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
     VicidialRuntimeDataSourceFactory dataSourceFactory = mock(VicidialRuntimeDataSourceFactory.class);
@@ -258,7 +262,7 @@ class VicidialServiceTest {
         Map.of()
     );
 
-    var result = service.followUpManualDial("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    var result = followUp(service, session, parsed);
 
     assertFalse(result.incallConfirmed());
     assertEquals("DIALING_PENDING_CONFIRMATION", result.classification());
@@ -268,7 +272,7 @@ class VicidialServiceTest {
   }
 
   @Test
-  void followUpManualDialPrefersOutboundChannelWhenConfCheckReturnsLocalChannel() {
+  void manualDialFollowUpPrefersOutboundChannelWhenConfCheckReturnsLocalChannel() {
     VicidialClient client = mock(VicidialClient.class);
     VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
     VicidialRuntimeDataSourceFactory dataSourceFactory = mock(VicidialRuntimeDataSourceFactory.class);
@@ -316,12 +320,235 @@ class VicidialServiceTest {
         Map.of()
     );
 
-    var result = service.followUpManualDial("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    var result = followUp(service, session, parsed);
 
     assertTrue(result.incallConfirmed());
     assertEquals("SIP/trunk220_24-00000016", result.channel());
     verify(client).monitorConf(eq("agent1"), anyMap());
     verify(client).manualDialLogCall(eq("agent1"), anyMap(), eq("start"));
   }
-}
 
+  @Test
+  void postCallSyncOrdersLogEndBeforeDispoAndReportsStepTimings() {
+    VicidialClient client = mock(VicidialClient.class);
+    VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    VicidialService service = new VicidialService(client, new VicidialDialResponseParser(), credentialService,
+        new MockEnvironment(), mock(VicidialRuntimeDataSourceFactory.class), executor);
+
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.agentUser = "agent1";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL01";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.confExten = "8600051";
+    session.agentLogId = 99L;
+
+    var ok = new VicidialClient.VicidialHttpResult(200, "OK");
+    when(client.confExtenCheck(eq("agent1"), anyMap()))
+        .thenReturn(new VicidialClient.VicidialHttpResult(200, "Logged-in: INCALL\nStatus: INCALL"));
+    when(client.manualDialLookCall(eq("agent1"), anyMap()))
+        .thenReturn(new VicidialClient.VicidialHttpResult(200, "1772918965.46\nSIP/trunk220_24-00000016\n"));
+    when(client.callbacksCount(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.manualDialLogCall(eq("agent1"), anyMap(), eq("end"))).thenReturn(ok);
+    when(client.updateLead(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateDispo(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.runUrls(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateSettings(eq("agent1"), anyMap())).thenReturn(ok);
+
+    try {
+      var result = service.syncPostCallDisposition("agent1", "secret", session, "MANUAL01", 1166L,
+          "M3071629250000001166", "1772918965.46", "970222277", "SALE");
+
+      assertTrue(result.synced());
+      InOrder order = inOrder(client);
+      order.verify(client).manualDialLogCall(eq("agent1"), anyMap(), eq("end"));
+      order.verify(client).updateDispo(eq("agent1"), anyMap());
+      order.verify(client).runUrls(eq("agent1"), anyMap());
+      verify(client).updateLead(eq("agent1"), anyMap());
+      verify(client).callbacksCount(eq("agent1"), anyMap());
+      verify(client).updateSettings(eq("agent1"), anyMap());
+      @SuppressWarnings("unchecked")
+      Map<String, Long> timings = (Map<String, Long>) result.details().get("stepTimingsMs");
+      assertTrue(timings.keySet().containsAll(java.util.List.of(
+          "snapshot", "listId", "callbacksCount", "logEnd", "updateLead", "updateDispo", "runUrls", "updateSettings")));
+      assertNotNull(result.details().get("totalMs"));
+      assertEquals(200, result.details().get("updateDispoHttpStatus"));
+      verify(credentialService).updateDialRuntime("agent1", null, null, null);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void postCallSyncRecordsFailedSideStepWithoutAbortingDispoChain() {
+    VicidialClient client = mock(VicidialClient.class);
+    VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    VicidialService service = new VicidialService(client, new VicidialDialResponseParser(), credentialService,
+        new MockEnvironment(), mock(VicidialRuntimeDataSourceFactory.class), executor);
+
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.agentUser = "agent1";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL01";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.confExten = "8600051";
+
+    var ok = new VicidialClient.VicidialHttpResult(200, "OK");
+    when(client.confExtenCheck(eq("agent1"), anyMap()))
+        .thenReturn(new VicidialClient.VicidialHttpResult(200, "Logged-in: INCALL\nStatus: INCALL"));
+    when(client.manualDialLookCall(eq("agent1"), anyMap()))
+        .thenReturn(new VicidialClient.VicidialHttpResult(200, "1772918965.46\nSIP/trunk220_24-00000016\n"));
+    when(client.callbacksCount(eq("agent1"), anyMap())).thenThrow(new IllegalStateException("callbacks down"));
+    when(client.manualDialLogCall(eq("agent1"), anyMap(), eq("end"))).thenReturn(ok);
+    when(client.updateLead(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateDispo(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.runUrls(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateSettings(eq("agent1"), anyMap())).thenReturn(ok);
+
+    try {
+      var result = service.syncPostCallDisposition("agent1", "secret", session, "MANUAL01", 1166L,
+          "M3071629250000001166", "1772918965.46", "970222277", "SALE");
+
+      assertTrue(result.synced());
+      assertEquals("callbacks down", result.details().get("callbacksCountError"));
+      assertFalse(result.details().containsKey("callbacksCountHttpStatus"));
+      verify(client).updateDispo(eq("agent1"), anyMap());
+      verify(client).runUrls(eq("agent1"), anyMap());
+      assertEquals(200, result.details().get("runUrlsHttpStatus"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void resumedPostCallSyncSkipsCompletedStepsAndNeverReadsTheLiveCall() {
+    VicidialClient client = mock(VicidialClient.class);
+    VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    VicidialService service = new VicidialService(client, new VicidialDialResponseParser(), credentialService,
+        new MockEnvironment(), mock(VicidialRuntimeDataSourceFactory.class), executor);
+
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.agentUser = "agent1";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL01";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.confExten = "8600051";
+    session.currentCallId = "M3071629250000009999";
+    session.currentLeadId = 2000L;
+
+    when(client.runUrls(eq("agent1"), anyMap())).thenReturn(new VicidialClient.VicidialHttpResult(200, "OK"));
+    var ids = new VicidialService.PostCallIdentifiers("M3071629250000001166", 1166L, "1772918965.46",
+        "SIP/trunk220_24-00000016", "970222277", "106");
+
+    try {
+      var result = service.resumePostCallDisposition("agent1", "secret", session, "MANUAL01", ids,
+          java.util.Set.of("logEnd", "updateDispo", "updateLead"), "SALE");
+
+      assertTrue(result.synced());
+      assertEquals(java.util.Set.copyOf(VicidialService.POST_CALL_STEPS), result.completedSteps());
+      verify(client, never()).manualDialLogCall(any(), anyMap(), any());
+      verify(client, never()).updateDispo(any(), anyMap());
+      verify(client, never()).updateLead(any(), anyMap());
+      verify(client, never()).confExtenCheck(any(), anyMap());
+      verify(credentialService, never()).updateDialRuntime(any(), any(), any(), any());
+      @SuppressWarnings("unchecked")
+      ArgumentCaptor<Map<String, String>> payload = ArgumentCaptor.forClass(Map.class);
+      verify(client).runUrls(eq("agent1"), payload.capture());
+      assertEquals("MANUAL01", payload.getValue().get("campaign"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void postCallSyncSendsTheDispoEvenWhenLogEndFails() {
+    VicidialClient client = mock(VicidialClient.class);
+    VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    VicidialService service = new VicidialService(client, new VicidialDialResponseParser(), credentialService,
+        new MockEnvironment(), mock(VicidialRuntimeDataSourceFactory.class), executor);
+
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.agentUser = "agent1";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL01";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.confExten = "8600051";
+
+    var ok = new VicidialClient.VicidialHttpResult(200, "OK");
+    when(client.manualDialLogCall(eq("agent1"), anyMap(), eq("end"))).thenReturn(new VicidialClient.VicidialHttpResult(502, ""));
+    when(client.updateLead(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateDispo(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.runUrls(eq("agent1"), anyMap())).thenReturn(ok);
+    var ids = new VicidialService.PostCallIdentifiers("M1", 1166L, null, null, "970222277", null);
+
+    try {
+      var result = service.resumePostCallDisposition("agent1", "secret", session, "MANUAL01", ids, java.util.Set.of(), "SALE");
+
+      assertTrue(result.synced());
+      assertEquals(502, result.details().get("logEndHttpStatus"));
+      assertEquals(java.util.Set.of("updateDispo", "runUrls", "updateLead"), result.completedSteps());
+      var order = inOrder(client);
+      order.verify(client).manualDialLogCall(eq("agent1"), anyMap(), eq("end"));
+      order.verify(client).updateDispo(eq("agent1"), anyMap());
+      order.verify(client).runUrls(eq("agent1"), anyMap());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void postCallSyncFailsOnAFailedDispoButStillRunsUrlsAndRecordsLogEnd() {
+    VicidialClient client = mock(VicidialClient.class);
+    VicidialCredentialService credentialService = mock(VicidialCredentialService.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    VicidialService service = new VicidialService(client, new VicidialDialResponseParser(), credentialService,
+        new MockEnvironment(), mock(VicidialRuntimeDataSourceFactory.class), executor);
+
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.agentUser = "agent1";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL01";
+    session.sessionName = "sess";
+    session.serverIp = "10.10.10.10";
+    session.confExten = "8600051";
+
+    var ok = new VicidialClient.VicidialHttpResult(200, "OK");
+    when(client.manualDialLogCall(eq("agent1"), anyMap(), eq("end"))).thenReturn(ok);
+    when(client.updateLead(eq("agent1"), anyMap())).thenReturn(ok);
+    when(client.updateDispo(eq("agent1"), anyMap())).thenReturn(new VicidialClient.VicidialHttpResult(500, ""));
+    when(client.runUrls(eq("agent1"), anyMap())).thenReturn(ok);
+    var ids = new VicidialService.PostCallIdentifiers("M1", 1166L, null, null, "970222277", null);
+
+    try {
+      var result = service.resumePostCallDisposition("agent1", "secret", session, "MANUAL01", ids, java.util.Set.of(), "SALE");
+
+      assertFalse(result.synced());
+      assertEquals("Post-call AGC sequence failed at updateDispo", result.error());
+      assertEquals(java.util.Set.of("logEnd", "runUrls", "updateLead"), result.completedSteps());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Drives the follow-up the way AgentDialFollowUpService does, without the delays between probes. */
+  private static VicidialService.DialFollowUpResult followUp(
+      VicidialService service,
+      AgentVicidialCredentialEntity session,
+      VicidialDialResponseParser.DetailedParsedDialResponse parsed
+  ) {
+    var followUp = service.startManualDialFollowUp("agent1", "secret", session, "MANUAL01", parsed, "970222277");
+    boolean confirmed = false;
+    for (int attempt = 1; attempt <= FOLLOW_UP_MAX_ATTEMPTS && !confirmed; attempt++) {
+      confirmed = service.probeManualDial(followUp, attempt);
+    }
+    return service.completeManualDialFollowUp(followUp, confirmed);
+  }
+}
@@ -0,0 +1,85 @@
+package com.telco3.agentui.vicidial;
+
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dial payload construction, including the campaign lookup path that parses the LogiNCamPaigns HTML with Jsoup.
+ * The Vicidial call itself is stubbed so only local CPU work is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xms256m")
+@State(Scope.Benchmark)
+public class VicidialDialRequestBenchmark {
+
+  private VicidialCampaignParser campaignParser;
+  private VicidialClient client;
+  private VicidialDialRequestBuilder aliasBuilder;
+  private VicidialDialRequestBuilder lookupBuilder;
+  private AgentVicidialCredentialEntity session;
+  private VicidialDialRequestBuilder.ManualDialOverrides overrides;
+
+  @Setup
+  public void setUp() {
+    campaignParser = new VicidialCampaignParser();
+    client = new VicidialClient(null, 1000, 1000, 1000, false) {
+      @Override
+      public VicidialHttpResult campaignsForAgent(String agentUser, String agentPass) {
+        return new VicidialHttpResult(200, VicidialFixtures.CAMPAIGNS_HTML);
+      }
+    };
+
+    VicidialDialProperties aliasProperties = new VicidialDialProperties();
+    aliasProperties.setCampaignAliases(Map.of("MANUAL2", "MANUAL2_ALIAS"));
+    aliasBuilder = new VicidialDialRequestBuilder(client, campaignParser, aliasProperties);
+
+    VicidialDialProperties lookupProperties = new VicidialDialProperties();
+    lookupProperties.setCampaignAliases(Map.of());
+    lookupBuilder = new VicidialDialRequestBuilder(client, campaignParser, lookupProperties);
+
+    session = VicidialFixtures.session();
+    overrides = new VicidialDialRequestBuilder.ManualDialOverrides("970222277", "51", 60, "9");
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.shutdown();
+  }
+
+  @Benchmark
+  public List<VicidialCampaignParser.CampaignOption> parseCampaignOptions() {
+    return campaignParser.parseCampaignOptions(VicidialFixtures.CAMPAIGNS_HTML);
+  }
+
+  @Benchmark
+  public Map<String, String> buildDialNextPayloadWithAlias() {
+    return aliasBuilder.buildDialNextPayload("agent1", "secret", session, "MANUAL2");
+  }
+
+  @Benchmark
+  public Map<String, String> buildDialNextPayloadWithCampaignLookup() {
+    return lookupBuilder.buildDialNextPayload("agent1", "secret", session, "manual2");
+  }
+
+  @Benchmark
+  public Map<String, String> buildManualDialPayload() {
+    return lookupBuilder.buildManualDialPayload("agent1", "secret", session, "MANUAL2", overrides);
+  }
+}
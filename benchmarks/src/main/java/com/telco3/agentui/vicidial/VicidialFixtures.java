@@ -0,0 +1,73 @@
+package com.telco3.agentui.vicidial;
+
+import com.telco3.agentui.vicidial.domain.AgentVicidialCredentialEntity;
+
+/**
+ * Response bodies captured from Vicidial (same shapes as the backend parser tests) used as benchmark input.
+ */
+final class VicidialFixtures {
+
+  static final String DIAL_HAR_STYLE = """
+      ACTION: manDiaLnextCaLL
+      callId = M3071629250000001166
+      lead_id = 1166
+      phone_number = 970222277
+      list_id = 106
+      status = INCALL
+      """;
+
+  static final String DIAL_QUOTED_JS = """
+      var call_id = 'M3071755390000000549';
+      var lead_id = '549';
+      var phone_number = '970222277';
+      var list_id = '106';
+      var status = 'INCALL';
+      """;
+
+  static final String DIAL_POSITIONAL = "M3071629250000001166 1166 NEW 106 970222277\n";
+
+  static final String DIAL_NO_LEADS = "ERROR: There are no leads in the hopper for this campaign";
+
+  static final String DIAL_RELOGIN = "<html><body><form><input name=\"VD_login\"/></form>Please login</body></html>";
+
+  static final String ACTIVE_LEAD_PIPE = "SUCCESS: st_get_agent_active_lead|lead_id=1166|phone_number=970222277|campaign=MANUAL2|status=INCALL|list_id=106";
+
+  static final String LEAD_INFO_AMPERSAND = "lead_id=1166&phone_number=970222277&list_id=106&first_name=JUAN&last_name=PEREZ&status=INCALL&vendor_lead_code=&comments=cliente%20recurrente";
+
+  static final String AGENT_STATUS_LINES = """
+      Logged-in: INCALL
+      agent status: INCALL
+      uniqueid: 1772926100.1234
+      channel: SIP/1001-0000001a
+      campaign_id: MANUAL2
+      calls_today: 42
+      pause_code:
+      """;
+
+  static final String CAMPAIGNS_HTML = """
+      <select size=1 name=VD_campaign onchange=LoadIngroups()>
+        <option value="">-- PLEASE SELECT A CAMPAIGN --</option>
+        <option value="IVR">IVR - Inbound Test</option>
+        <option value="SALES">SALES</option>
+        <option value="MANUAL2">MANUAL2 - Marcacion manual</option>
+        <option value="COBRANZA">COBRANZA - Cartera vencida</option>
+        <option value="RETENCION">RETENCION</option>
+      </select>
+      """;
+
+  private VicidialFixtures() {
+  }
+
+  static AgentVicidialCredentialEntity session() {
+    AgentVicidialCredentialEntity session = new AgentVicidialCredentialEntity();
+    session.serverIp = "172.17.248.220";
+    session.sessionName = "1772926042_100114082742";
+    session.connectedPhoneLogin = "1001";
+    session.connectedCampaign = "MANUAL2";
+    session.agentLogId = 407L;
+    session.confExten = "8600051";
+    session.extension = "SIP/1001";
+    session.protocol = "SIP";
+    return session;
+  }
+}
@@ -0,0 +1,69 @@
+package com.telco3.agentui.vicidial;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-poll parsing paths: dial response classification and generic key/value parsing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xms256m")
+@State(Scope.Benchmark)
+public class VicidialParserBenchmark {
+
+  private static final Map<String, String> BODIES = Map.of(
+      "harStyle", VicidialFixtures.DIAL_HAR_STYLE,
+      "quotedJs", VicidialFixtures.DIAL_QUOTED_JS,
+      "positional", VicidialFixtures.DIAL_POSITIONAL,
+      "noLeads", VicidialFixtures.DIAL_NO_LEADS,
+      "relogin", VicidialFixtures.DIAL_RELOGIN,
+      "activeLeadPipe", VicidialFixtures.ACTIVE_LEAD_PIPE,
+      "leadInfoAmpersand", VicidialFixtures.LEAD_INFO_AMPERSAND,
+      "agentStatusLines", VicidialFixtures.AGENT_STATUS_LINES
+  );
+
+  @Param({"harStyle", "quotedJs", "positional", "noLeads", "relogin", "activeLeadPipe", "leadInfoAmpersand", "agentStatusLines"})
+  public String fixture;
+
+  private String body;
+  private VicidialDialResponseParser dialParser;
+  private VicidialClient client;
+
+  @Setup
+  public void setUp() {
+    body = BODIES.get(fixture);
+    dialParser = new VicidialDialResponseParser();
+    client = new VicidialClient(null, 1000, 1000, 1000, false);
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.shutdown();
+  }
+
+  @Benchmark
+  public VicidialDialResponseParser.DetailedParsedDialResponse parseDetailed() {
+    return dialParser.parseDetailed(body);
+  }
+
+  @Benchmark
+  public Map<String, String> parseKeyValueLines() {
+    return client.parseKeyValueLines(body);
+  }
+}
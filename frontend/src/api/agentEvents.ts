@@ -0,0 +1,49 @@
+import { subscribeEventStream } from './eventStream';
+
+export type AgentCallEvent = {
+  classification: string | null;
+  agentStatus: string | null;
+  callId: string | null;
+  leadId: number | null;
+  phoneNumber: string | null;
+  campaign: string | null;
+  dialing: boolean;
+  hasLead: boolean;
+  reloginRequired: boolean;
+  previousClassification: string | null;
+  transition: 'DIALING_TO_INCALL' | null;
+};
+
+export type DialTrackingEvent = {
+  trackingId: string;
+  state: 'PENDING' | 'CONFIRMED' | 'NOT_CONFIRMED' | 'FAILED';
+  attempts: number;
+  outcome: any | null;
+};
+
+type AgentEventHandlers = {
+  onStatus: (status: any) => void;
+  onCall: (call: AgentCallEvent) => void;
+  onLead: (lead: { leadId: number; phoneNumber: string | null; campaign: string | null; callId: string | null }) => void;
+  onRelogin: (relogin: { code: string; httpStatus: number }) => void;
+  onDial: (dial: DialTrackingEvent) => void;
+  onConnectionChange: (live: boolean) => void;
+};
+
+/**
+ * Subscribes to /api/agent/events: session status, call-state changes, lead assignment, re-login requests and
+ * manual dial follow-up outcomes.
+ * While live=false callers keep polling /vicidial/status, /active-lead and /context.
+ */
+export function subscribeAgentEvents(handlers: AgentEventHandlers) {
+  return subscribeEventStream('/api/agent/events', {
+    onEvent(event, data) {
+      if (event === 'status') handlers.onStatus(JSON.parse(data));
+      else if (event === 'call') handlers.onCall(JSON.parse(data));
+      else if (event === 'lead') handlers.onLead(JSON.parse(data));
+      else if (event === 'relogin') handlers.onRelogin(JSON.parse(data));
+      else if (event === 'dial') handlers.onDial(JSON.parse(data));
+    },
+    onConnectionChange: handlers.onConnectionChange
+  });
+}
@@ -0,0 +1,99 @@
+import api from './client';
+
+type EventStreamHandlers = {
+  onEvent: (event: string, data: string) => void;
+  onConnectionChange: (live: boolean) => void;
+};
+
+/**
+ * Subscribes to a server-sent events endpoint with fetch (EventSource cannot send the bearer token).
+ * Reconnects after `retry` ms (server hint, 3s by default) sending the last received event id as Last-Event-ID;
+ * reports live=false while disconnected so callers can fall back to polling. Returns the unsubscribe function.
+ */
+export function subscribeEventStream(path: string, handlers: EventStreamHandlers) {
+  const controller = new AbortController();
+  let lastEventId: string | null = null;
+  let retryMs = 3000;
+  let closed = false;
+
+  const dispatch = (event: string, data: string, id: string | null) => {
+    if (!data) {
+      return;
+    }
+    handlers.onEvent(event, data);
+    if (id) {
+      lastEventId = id;
+    }
+  };
+
+  const connect = async () => {
+    const token = localStorage.getItem('token');
+    const headers: Record<string, string> = { Accept: 'text/event-stream' };
+    if (token) headers.Authorization = `Bearer ${token}`;
+    if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+
+    const response = await fetch(`${api.defaults.baseURL}${path}`, {
+      headers,
+      credentials: 'include',
+      signal: controller.signal
+    });
+    if (!response.ok || !response.body) {
+      throw new Error(`stream status ${response.status}`);
+    }
+    handlers.onConnectionChange(true);
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = '';
+    let event = 'message';
+    let data = '';
+    let id: string | null = null;
+    for (;;) {
+      const { value, done } = await reader.read();
+      if (done) {
+        return;
+      }
+      buffer += value;
+      let newline = buffer.indexOf('\n');
+      while (newline >= 0) {
+        const line = buffer.slice(0, newline).replace(/\r$/, '');
+        buffer = buffer.slice(newline + 1);
+        if (line === '') {
+          dispatch(event, data, id);
+          event = 'message';
+          data = '';
+          id = null;
+        } else if (!line.startsWith(':')) {
+          const colon = line.indexOf(':');
+          const field = colon < 0 ? line : line.slice(0, colon);
+          const fieldValue = colon < 0 ? '' : line.slice(colon + 1).replace(/^ /, '');
+          if (field === 'event') event = fieldValue;
+          else if (field === 'data') data = data ? `${data}\n${fieldValue}` : fieldValue;
+          else if (field === 'id') id = fieldValue;
+          else if (field === 'retry' && Number.isFinite(Number(fieldValue))) retryMs = Number(fieldValue);
+        }
+        newline = buffer.indexOf('\n');
+      }
+    }
+  };
+
+  const run = async () => {
+    while (!closed) {
+      try {
+        await connect();
+      } catch {
+        // handled below: report offline and retry
+      }
+      if (closed) {
+        return;
+      }
+      handlers.onConnectionChange(false);
+      await new Promise(resolve => setTimeout(resolve, retryMs));
+    }
+  };
+  run();
+
+  return () => {
+    closed = true;
+    controller.abort();
+  };
+}
@@ -0,0 +1,104 @@
+import { subscribeEventStream } from './eventStream';
+
+export type RealtimeStreamFilters = { campaign?: string; status?: string; pauseCode?: string; search?: string };
+
+export type RealtimeAgentsDelta = {
+  version: number;
+  baseVersion: number | null;
+  full: boolean;
+  upserts: any[];
+  removed: string[];
+  total: number;
+  generatedAt: string;
+};
+
+/** receivedAt is the local time the payload arrived, so callers can tell how far past generatedAt they are. */
+export type RealtimeAgentsView = { items: any[]; total: number; generatedAt: string; version: number; receivedAt: number };
+
+type RealtimeStreamHandlers = {
+  onSummary: (summary: any) => void;
+  onAgents: (agents: RealtimeAgentsView) => void;
+  onConnectionChange: (live: boolean) => void;
+};
+
+const statusPriority: Record<string, number> = {
+  'En llamada': 0,
+  'Disponible': 1,
+  'WrapUp': 2,
+  'Pausa': 3,
+  'Break': 3,
+  'Baño': 3,
+  'Capacitación': 3,
+  'Soporte': 3,
+  'Consulta supervisor': 3,
+  'Refrigerio': 3,
+  'Reunión': 3,
+  'Back Office': 3,
+  'Desconectado': 4
+};
+
+function sortAgents(items: any[]) {
+  return items.sort((a, b) => {
+    const byStatus = (statusPriority[a.visibleStatus] ?? 5) - (statusPriority[b.visibleStatus] ?? 5);
+    return byStatus !== 0 ? byStatus : String(a.agentUser).localeCompare(String(b.agentUser));
+  });
+}
+
+/** Applies full or incremental agent payloads on top of what the caller already holds, keeping the server order. */
+export function createRealtimeAgentsAccumulator() {
+  const agents = new Map<string, any>();
+  let version: number | null = null;
+  return {
+    version: () => version,
+    apply(delta: RealtimeAgentsDelta): RealtimeAgentsView {
+      if (delta.full) {
+        agents.clear();
+      }
+      delta.removed.forEach(user => agents.delete(user));
+      delta.upserts.forEach(item => agents.set(item.agentUser, item));
+      version = delta.version;
+      return {
+        items: sortAgents(Array.from(agents.values())),
+        total: delta.total,
+        generatedAt: delta.generatedAt,
+        version,
+        receivedAt: Date.now()
+      };
+    }
+  };
+}
+
+/**
+ * Seconds the agent has been in its current state now. Rows are only resent when they change, so the time is
+ * advanced from stateSince using the server clock of the last payload plus the local time since it arrived.
+ */
+export function stateSecondsNow(row: any, view: Pick<RealtimeAgentsView, 'generatedAt' | 'receivedAt'>, now: number) {
+  const since = row.stateSince ? Date.parse(row.stateSince) : NaN;
+  const generatedAt = Date.parse(view.generatedAt);
+  if (Number.isNaN(since) || Number.isNaN(generatedAt)) {
+    return row.stateSeconds ?? 0;
+  }
+  return Math.max(0, Math.floor((generatedAt + (now - view.receivedAt) - since) / 1000));
+}
+
+/**
+ * Subscribes to /api/admin/vicidial/realtime/stream. Reconnects with Last-Event-ID so only changed agents are
+ * resent; while disconnected it reports live=false and keeps retrying, so callers fall back to polling meanwhile.
+ */
+export function subscribeAdminRealtime(filters: RealtimeStreamFilters, handlers: RealtimeStreamHandlers) {
+  const agents = createRealtimeAgentsAccumulator();
+  const query = new URLSearchParams(
+      Object.entries(filters).filter(([, v]) => Boolean(v)) as [string, string][]
+  ).toString();
+
+  return subscribeEventStream(`/api/admin/vicidial/realtime/stream${query ? `?${query}` : ''}`, {
+    onEvent(event, data) {
+      if (event === 'summary') {
+        handlers.onSummary(JSON.parse(data));
+      } else if (event === 'agents') {
+        handlers.onAgents(agents.apply(JSON.parse(data)));
+      }
+    },
+    onConnectionChange: handlers.onConnectionChange
+  });
+}
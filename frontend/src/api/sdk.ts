@@ -17,6 +17,7 @@ export const getActiveLead = ()=>api.get('/api/agent/active-lead').then(r=>r.dat
 export const getContext = (p:{leadId?:number})=>api.get('/api/agent/context',{params:p}).then(r=>r.data);
 export const dialNext = (payload:{campaignId:string})=>api.post('/api/agent/vicidial/dial/next',payload).then(r=>r.data);
 export const manualDial = (payload:{campaignId:string;phoneNumber:string;phoneCode?:string;dialTimeout?:number;dialPrefix?:string;preview?:'NO'|'YES'})=>api.post('/api/agent/vicidial/dial/manual',payload).then(r=>r.data);
+export const getDialTracking = (trackingId:string)=>api.get(`/api/agent/vicidial/dial/${encodeURIComponent(trackingId)}`).then(r=>r.data);
 export const manual2Dispositions = (campaignId?:string)=>api.get('/api/agent/manual2/disposiciones',{params:{campaignId}}).then(r=>r.data);
 export const manual2Subtipificaciones = (campaignId?:string, tipificacion?:string)=>api.get('/api/agent/manual2/subtipificaciones',{params:{campaignId, tipificacion}}).then(r=>r.data);
 export const manual2LookupContact = (phoneNumber:string)=>api.get('/api/agent/manual2/contacto',{params:{phoneNumber}}).then(r=>r.data);
@@ -72,5 +73,8 @@ export const adminManual2SetSubtipificacionActivo = (codigo:string, params:{camp
 export const adminVicidialRealtimeSummary = ()=>api.get('/api/admin/vicidial/realtime/summary').then(r=>r.data);
 export const adminVicidialRealtimeAgents = (params?:{campaign?:string;status?:string;pauseCode?:string;search?:string})=>
   api.get('/api/admin/vicidial/realtime/agents',{params}).then(r=>r.data);
+export const adminVicidialRealtimeAgentsSince = (params:{campaign?:string;status?:string;pauseCode?:string;search?:string}, since:number)=>
+  api.get('/api/admin/vicidial/realtime/agents',{params:{...params,since},validateStatus:s=>s===200||s===304})
+    .then(r=>r.status===304 ? null : r.data);
 export const adminVicidialRealtimePauseCodes = ()=>api.get('/api/admin/vicidial/realtime/pause-codes').then(r=>r.data);
 export const adminVicidialRealtimeCampaigns = ()=>api.get('/api/admin/vicidial/realtime/campaigns').then(r=>r.data);
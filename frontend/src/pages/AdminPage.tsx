@@ -37,6 +37,11 @@ function buildEditableConfig(source:any) {
     dbName: data.dbName || '',
     dbUser: data.dbUser || '',
     dbPass: '',
+    replicaDbHost: data.replicaDbHost || '',
+    replicaDbPort: data.replicaDbPort || '',
+    replicaDbName: data.replicaDbName || '',
+    replicaDbUser: data.replicaDbUser || '',
+    replicaDbPass: '',
   };
 }
 
@@ -99,6 +104,7 @@ export default function AdminPage(){
     const current = cfg || buildEditableConfig(base);
     const apiPass = String(current.apiPass || '').trim();
     const dbPass = String(current.dbPass || '').trim();
+    const replicaDbPass = String(current.replicaDbPass || '').trim();
     return {
       baseUrl: current.baseUrl || base.baseUrl || '',
       apiUser: current.apiUser || base.apiUser || '',
@@ -109,6 +115,11 @@ export default function AdminPage(){
       dbName: current.dbName ?? base.dbName ?? '',
       dbUser: current.dbUser ?? base.dbUser ?? '',
       dbPass: dbPass && dbPass !== MASKED_SECRET ? dbPass : '',
+      replicaDbHost: current.replicaDbHost ?? base.replicaDbHost ?? '',
+      replicaDbPort: current.replicaDbPort ?? base.replicaDbPort ?? '',
+      replicaDbName: current.replicaDbName ?? base.replicaDbName ?? '',
+      replicaDbUser: current.replicaDbUser ?? base.replicaDbUser ?? '',
+      replicaDbPass: replicaDbPass && replicaDbPass !== MASKED_SECRET ? replicaDbPass : '',
     };
   };
 
@@ -226,6 +237,11 @@ export default function AdminPage(){
           <TextField label='DB Name' value={formCfg.dbName} onChange={e=>mergeCfg({dbName:e.target.value})}/>
           <TextField label='DB User' value={formCfg.dbUser} onChange={e=>mergeCfg({dbUser:e.target.value})}/>
           <TextField label='DB Pass' type='password' placeholder='********' value={formCfg.dbPass} onChange={e=>mergeCfg({dbPass:e.target.value})}/>
+          <TextField label='Replica DB Host' helperText='Opcional; vacío desactiva la réplica de reportes' value={formCfg.replicaDbHost} onChange={e=>mergeCfg({replicaDbHost:e.target.value})}/>
+          <TextField label='Replica DB Port' value={formCfg.replicaDbPort} onChange={e=>mergeCfg({replicaDbPort:e.target.value})}/>
+          <TextField label='Replica DB Name' value={formCfg.replicaDbName} onChange={e=>mergeCfg({replicaDbName:e.target.value})}/>
+          <TextField label='Replica DB User' value={formCfg.replicaDbUser} onChange={e=>mergeCfg({replicaDbUser:e.target.value})}/>
+          <TextField label='Replica DB Pass' type='password' placeholder='********' value={formCfg.replicaDbPass} onChange={e=>mergeCfg({replicaDbPass:e.target.value})}/>
           <Button variant='contained' onClick={()=>updateSettings.mutate(buildSettingsPayload())}>Guardar settings</Button>
         </Stack></CardContent></Card></Grid>
       </Grid>
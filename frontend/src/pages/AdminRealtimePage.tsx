@@ -21,15 +21,17 @@ import {
   TextField,
   Typography
 } from '@mui/material';
-import { useQuery } from '@tanstack/react-query';
-import { useMemo, useState } from 'react';
+import { useQuery, useQueryClient } from '@tanstack/react-query';
+import { useEffect, useMemo, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import {
   adminVicidialRealtimeAgents,
+  adminVicidialRealtimeAgentsSince,
   adminVicidialRealtimeCampaigns,
   adminVicidialRealtimePauseCodes,
   adminVicidialRealtimeSummary
 } from '../api/sdk';
+import { createRealtimeAgentsAccumulator, RealtimeAgentsView, stateSecondsNow, subscribeAdminRealtime } from '../api/realtimeStream';
 
 type RealtimeFilters = {
   campaign: string;
@@ -117,10 +119,35 @@ export default function AdminRealtimePage() {
     search: ''
   });
 
+  const queryClient = useQueryClient();
+  const [streamLive, setStreamLive] = useState(false);
+  const [now, setNow] = useState(() => Date.now());
+  const filtersKey = JSON.stringify(cleanFilters(filters));
+
+  // SSE pushes summary and agent deltas into the same query cache; REST polling only runs while the stream is down.
+  useEffect(() => {
+    const activeFilters = JSON.parse(filtersKey);
+    const unsubscribe = subscribeAdminRealtime(activeFilters, {
+      onSummary: data => queryClient.setQueryData(['admin-vicidial-realtime-summary'], data),
+      onAgents: data => queryClient.setQueryData(['admin-vicidial-realtime-agents', activeFilters], data),
+      onConnectionChange: setStreamLive
+    });
+    return () => {
+      unsubscribe();
+      setStreamLive(false);
+    };
+  }, [filtersKey, queryClient]);
+
+  // Unchanged agents are not resent, so "time in state" ticks locally between payloads.
+  useEffect(() => {
+    const timer = window.setInterval(() => setNow(Date.now()), 1000);
+    return () => window.clearInterval(timer);
+  }, []);
+
   const summary = useQuery({
     queryKey: ['admin-vicidial-realtime-summary'],
     queryFn: adminVicidialRealtimeSummary,
-    refetchInterval: refreshMs,
+    refetchInterval: streamLive ? false : refreshMs,
     refetchIntervalInBackground: true
   });
 
@@ -138,10 +165,23 @@ export default function AdminRealtimePage() {
     refetchIntervalInBackground: true
   });
 
+  // Polling fallback asks only for agents changed since the last version it holds (304 when nothing changed).
+  const pollingAgents = useMemo(() => createRealtimeAgentsAccumulator(), [filtersKey]);
   const agents = useQuery({
-    queryKey: ['admin-vicidial-realtime-agents', filters],
-    queryFn: () => adminVicidialRealtimeAgents(cleanFilters(filters)),
-    refetchInterval: refreshMs,
+    queryKey: ['admin-vicidial-realtime-agents', cleanFilters(filters)],
+    queryFn: async () => {
+      const params = cleanFilters(filters);
+      const since = pollingAgents.version();
+      if (since !== null) {
+        const delta = await adminVicidialRealtimeAgentsSince(params, since);
+        const cached = queryClient.getQueryData<RealtimeAgentsView>(['admin-vicidial-realtime-agents', params]);
+        if (delta) return pollingAgents.apply(delta);
+        if (cached) return cached;
+      }
+      const full = await adminVicidialRealtimeAgents(params);
+      return pollingAgents.apply({ ...full, full: true, baseVersion: null, upserts: full.items, removed: [] });
+    },
+    refetchInterval: streamLive ? false : refreshMs,
     refetchIntervalInBackground: true,
     placeholderData: previous => previous
   });
@@ -342,7 +382,7 @@ export default function AdminRealtimePage() {
                             <TableCell>{row.campaignId || '-'}</TableCell>
                             <TableCell>{row.currentPhone || '-'}</TableCell>
                             <TableCell>{row.connectedTo || '-'}</TableCell>
-                            <TableCell>{formatSeconds(row.stateSeconds)}</TableCell>
+                            <TableCell>{formatSeconds(agents.data ? stateSecondsNow(row, agents.data, now) : row.stateSeconds)}</TableCell>
                             <TableCell>{formatDate(row.lastCallTime)}</TableCell>
                             <TableCell>{row.completedToday ?? 0}</TableCell>
                           </TableRow>
@@ -25,6 +25,7 @@ import {
   getActiveLead,
   getAgentProfile,
   getContext,
+  getDialTracking,
   hangupCall,
   manual2Dispositions,
   manual2LookupContact,
@@ -44,6 +45,7 @@ import {
   saveInteraction,
   updateAgentProfilePass,
 } from '../api/sdk';
+import { DialTrackingEvent, subscribeAgentEvents } from '../api/agentEvents';
 import AuthStepper from '../components/ui/AuthStepper';
 import ViciCard from '../components/ui/ViciCard';
 
@@ -80,9 +82,33 @@ export default function AgentPage() {
   const [manualNumber, setManualNumber] = useState('');
   const [manualCode, setManualCode] = useState(defaultPhoneCode);
   const [dialingBanner, setDialingBanner] = useState(false);
+  const [agentStreamLive, setAgentStreamLive] = useState(false);
+  const [dialTracking, setDialTracking] = useState<DialTrackingEvent | null>(null);
+
+  useEffect(() => subscribeAgentEvents({
+    onStatus: data => qc.setQueryData(['status'], data),
+    onCall: call => {
+      if (!call.dialing) setDialingBanner(false);
+      qc.invalidateQueries({ queryKey: ['active-lead'] });
+      qc.invalidateQueries({ queryKey: ['context'] });
+    },
+    onLead: () => qc.invalidateQueries({ queryKey: ['context'] }),
+    onRelogin: () => {
+      qc.invalidateQueries({ queryKey: ['status'] });
+      qc.invalidateQueries({ queryKey: ['active-lead'] });
+      qc.invalidateQueries({ queryKey: ['context'] });
+    },
+    onDial: dial => {
+      setDialTracking(current => (current && current.trackingId !== dial.trackingId ? current : dial));
+      setDialingBanner(false);
+      qc.invalidateQueries({ queryKey: ['active-lead'] });
+      qc.invalidateQueries({ queryKey: ['context'] });
+    },
+    onConnectionChange: setAgentStreamLive,
+  }), [qc]);
 
   const profile = useQuery({ queryKey: ['agent-profile'], queryFn: getAgentProfile });
-  const status = useQuery({ queryKey: ['status'], queryFn: getVicidialStatus, refetchInterval: 10000 });
+  const status = useQuery({ queryKey: ['status'], queryFn: getVicidialStatus, refetchInterval: agentStreamLive ? false : 10000 });
   const campaignsQuery = useQuery({
     queryKey: ['campaigns'],
     queryFn: getVicidialCampaigns,
@@ -93,7 +119,7 @@ export default function AgentPage() {
     queryKey: ['active-lead'],
     queryFn: getActiveLead,
     enabled: Boolean(status.data?.campaign),
-    refetchInterval: status.data?.campaign
+    refetchInterval: status.data?.campaign && !agentStreamLive
       ? (status.data?.mode === 'manual' ? 2500 : 7000)
       : false,
     refetchIntervalInBackground: true,
@@ -113,7 +139,7 @@ export default function AgentPage() {
     queryKey: ['context', leadId],
     queryFn: () => getContext({ leadId }),
     enabled: Boolean(status.data?.campaign),
-    refetchInterval: status.data?.campaign
+    refetchInterval: status.data?.campaign && !agentStreamLive
       ? (status.data?.mode === 'manual' ? 2500 : 7000)
       : false,
     refetchIntervalInBackground: true,
@@ -243,7 +269,8 @@ export default function AgentPage() {
 
   const manualNext = useMutation({
     mutationFn: dialNext,
-    onSuccess: () => {
+    onSuccess: data => {
+      if (data?.trackingId) setDialTracking({ trackingId: data.trackingId, state: 'PENDING', attempts: 0, outcome: null });
       qc.invalidateQueries({ queryKey: ['active-lead'] });
       qc.invalidateQueries({ queryKey: ['context'] });
     },
@@ -251,7 +278,8 @@ export default function AgentPage() {
 
   const manualDialMut = useMutation({
     mutationFn: manualDial,
-    onSuccess: () => {
+    onSuccess: data => {
+      if (data?.trackingId) setDialTracking({ trackingId: data.trackingId, state: 'PENDING', attempts: 0, outcome: null });
       qc.invalidateQueries({ queryKey: ['active-lead'] });
       qc.invalidateQueries({ queryKey: ['context'] });
     },
@@ -291,19 +319,27 @@ export default function AgentPage() {
   }, [active.data?.code]);
 
   useEffect(() => {
-    if (!dialingBanner) return;
+    if (!dialingBanner || agentStreamLive) return;
     let attempt = 0;
     const timer = setInterval(async () => {
       attempt += 1;
       await qc.invalidateQueries({ queryKey: ['active-lead'] });
       await qc.invalidateQueries({ queryKey: ['context'] });
+      if (dialTracking?.state === 'PENDING') {
+        const tracked = await getDialTracking(dialTracking.trackingId).catch(() => null);
+        if (tracked && tracked.state !== 'PENDING') {
+          setDialTracking(tracked);
+          setDialingBanner(false);
+          return;
+        }
+      }
       const latest = await getActiveLead();
       if (latest?.ok || latest?.code !== 'VICIDIAL_DIALING' || attempt >= 10) {
         setDialingBanner(false);
       }
     }, 1000);
     return () => clearInterval(timer);
-  }, [dialingBanner, qc]);
+  }, [dialingBanner, agentStreamLive, dialTracking, qc]);
 
   useEffect(() => {
     if (!isManual2ByCampaign) {
@@ -1017,6 +1053,9 @@ export default function AgentPage() {
               <Alert severity='warning'>No hay leads en hopper para esta campaña. No se reintentará automáticamente.</Alert>
             )}
             {dialingBanner && <Alert severity='info'>Marcando...</Alert>}
+            {(dialTracking?.state === 'NOT_CONFIRMED' || dialTracking?.state === 'FAILED') && (
+              <Alert severity='warning'>{dialTracking.outcome?.message || 'Vicidial no confirmó la llamada.'}</Alert>
+            )}
             {manualDialMut.isError && <Alert severity='error'>No fue posible ejecutar MANUAL DIAL.</Alert>}
             {manualDialMut.data?.ok && (
               <Alert severity='success'>Llamada solicitada. Call ID: {manualDialMut.data?.callId || 'N/D'}.</Alert>
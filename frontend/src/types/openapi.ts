@@ -2266,6 +2266,8 @@ export interface components {
             connectedTo?: string | null;
             stateSeconds?: number;
             /** Format: date-time */
+            stateSince?: string | null;
+            /** Format: date-time */
             lastCallTime?: string | null;
             completedToday?: number;
         };